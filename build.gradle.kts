@@ -4,6 +4,8 @@ plugins {
     id("org.springframework.boot") version "3.3.1"
     id("io.spring.dependency-management") version "1.1.5"
     id("java")
+    id("me.champeau.jmh") version "0.7.2"
+    id("org.graalvm.buildtools.native") version "0.10.2" apply false
 }
 
 group = "com.example"
@@ -27,6 +29,7 @@ dependencies {
 
     implementation("org.springframework.boot:spring-boot-starter-web")
     implementation("org.springframework.boot:spring-boot-starter-webflux")
+    implementation("org.springframework.boot:spring-boot-starter-actuator")
     implementation("com.google.cloud:google-cloud-speech:4.3.0")
 
     implementation("me.paulschwarz:spring-dotenv:4.0.0")
@@ -40,3 +43,99 @@ dependencies {
 tasks.withType<Test> {
     useJUnitPlatform()
 }
+
+// Offline load-test harness: local upstream stubs + open-loop load generator
+sourceSets {
+    create("loadtest") {
+        compileClasspath += sourceSets.main.get().output + configurations.runtimeClasspath.get()
+        runtimeClasspath += output + compileClasspath
+    }
+}
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs the bot against local upstream stubs and reports per-endpoint latency. Args via -PloadTestArgs."
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("Chatbot.loadtest.LoadTestMain")
+    args = (project.findProperty("loadTestArgs") as String?)?.split(" ")?.filter { it.isNotBlank() } ?: emptyList()
+}
+
+// Two cache replicas against a real Redis (README "Shared cache"): ./gradlew cacheCheck -PcacheUrl=redis://localhost:6379
+tasks.register<JavaExec>("cacheCheck") {
+    group = "verification"
+    description = "Checks shared-cache reads and invalidations across two replicas. Redis URL via -PcacheUrl."
+    classpath = sourceSets["loadtest"].runtimeClasspath
+    mainClass.set("Chatbot.loadtest.SharedCacheCheck")
+    args = listOf(project.findProperty("cacheUrl") as String? ?: "redis://localhost:6379")
+}
+
+// Micro-benchmarks (src/jmh): ./gradlew jmh
+jmh {
+    profilers.add("gc")
+}
+
+// Offline build of the learned answer table from the query log: ./gradlew buildAnswerTable
+tasks.register<JavaExec>("buildAnswerTable") {
+    group = "application"
+    description = "Builds the learned topic-to-URL answer table from the query log. Args via -PanswerTableArgs."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("Chatbot.service.AnswerTableJob")
+    args = (project.findProperty("answerTableArgs") as String?)?.split(" ")?.filter { it.isNotBlank() }
+        ?: listOf("data/query-log", "data/answer-table.json")
+}
+
+// Glossary candidates for review (README "Concept glossary"): ./gradlew glossaryCandidates
+tasks.register<JavaExec>("glossaryCandidates") {
+    group = "application"
+    description = "Lists general knowledge questions the glossary doesn't cover, with model answers. Args via -PglossaryArgs."
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("Chatbot.service.GlossaryJob")
+    args = (project.findProperty("glossaryArgs") as String?)?.split(" ")?.filter { it.isNotBlank() }
+        ?: listOf("data/query-log", "data/glossary-candidates.json")
+}
+
+// Fast startup (README "Fast startup"): -Paot adds Spring AOT processing to bootJar and enables
+// nativeCompile; cdsArchive trains an AppCDS archive for the extracted jar.
+val aot = project.hasProperty("aot")
+if (aot) {
+    apply(plugin = "org.graalvm.buildtools.native")
+    tasks.named<JavaExec>("bootRun") {
+        systemProperty("spring.aot.enabled", "true")
+    }
+}
+
+val cdsDir = layout.buildDirectory.dir("cds")
+val cdsJava = javaToolchains.launcherFor { languageVersion.set(JavaLanguageVersion.of(21)) }
+
+tasks.register<Exec>("cdsExtract") {
+    group = "build"
+    description = "Extracts bootJar into build/cds in the layout CDS needs (thin jar + lib/)."
+    dependsOn(tasks.named("bootJar"))
+    doFirst {
+        delete(cdsDir)
+        executable = cdsJava.get().executablePath.asFile.absolutePath
+        args("-Djarmode=tools", "-jar", tasks.bootJar.get().archiveFile.get().asFile.absolutePath,
+            "extract", "--destination", cdsDir.get().asFile.absolutePath)
+    }
+}
+
+tasks.register<Exec>("cdsArchive") {
+    group = "build"
+    description = "Training run that starts the context, exits and writes build/cds/application.jsa."
+    dependsOn("cdsExtract")
+    // the context only needs the placeholders resolved; nothing is called during training
+    listOf("ANTHROPIC_API_KEY", "ELEVENLABS_API_KEY", "GEOSTAT_SEARCH_API_KEY", "GEOSTAT_SEARCH_CX_ID", "GCP_PROJECT_ID")
+        .forEach { environment(it, System.getenv(it) ?: "cds-training") }
+    doFirst {
+        workingDir = cdsDir.get().asFile
+        executable = cdsJava.get().executablePath.asFile.absolutePath
+        args(listOfNotNull(
+            "-XX:ArchiveClassesAtExit=application.jsa",
+            "-Dspring.context.exit=onRefresh",
+            if (aot) "-Dspring.aot.enabled=true" else null,
+            "-Dgeostat.query-log.dir=training-data/query-log",
+            "-Dgeostat.answer-table.file=training-data/answer-table.json",
+            "-jar", tasks.bootJar.get().archiveFileName.get()
+        ))
+    }
+}
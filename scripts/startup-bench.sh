@@ -0,0 +1,65 @@
+#!/usr/bin/env bash
+# Time-to-ready and resident memory per startup mode.
+#
+#   ./gradlew bootJar cdsArchive                      # jar, cds
+#   ./gradlew -Paot bootJar cdsArchive                # aot, aot-cds (overwrites the plain jar)
+#   ./gradlew -Paot nativeCompile                     # native
+#   scripts/startup-bench.sh [runs] [mode...]         # modes: jar cds aot aot-cds native
+#
+# "Ready" is the first 200 from /actuator/health; RSS is read right after. Placeholder
+# credentials are used, so no upstream is called. Prints the median of each mode's runs.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+RUNS=${1:-5}
+shift || true
+MODES=("$@")
+[ ${#MODES[@]} -eq 0 ] && MODES=(jar cds aot aot-cds native)
+
+PORT=${PORT:-18086}
+JAVA=${JAVA:-java}
+JAR=$(ls build/libs/*.jar 2>/dev/null | grep -v -e '-plain.jar' -e '-jmh.jar' | head -1 || true)
+CDS_JAR=$(ls build/cds/*.jar 2>/dev/null | head -1 || true)
+NATIVE=build/native/nativeCompile/GeoStatBot4
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+export ANTHROPIC_API_KEY=${ANTHROPIC_API_KEY:-bench} ELEVENLABS_API_KEY=${ELEVENLABS_API_KEY:-bench}
+export GEOSTAT_SEARCH_API_KEY=${GEOSTAT_SEARCH_API_KEY:-bench} GEOSTAT_SEARCH_CX_ID=${GEOSTAT_SEARCH_CX_ID:-bench}
+export GCP_PROJECT_ID=${GCP_PROJECT_ID:-bench}
+APP_ARGS=(--server.port=$PORT --geostat.query-log.dir=$WORK/query-log --geostat.answer-table.file=$WORK/answer-table.json)
+
+command_for() {
+  case $1 in
+    jar)     [ -n "$JAR" ] && echo "$JAVA -jar $JAR" ;;
+    cds)     [ -f build/cds/application.jsa ] && echo "$JAVA -XX:SharedArchiveFile=build/cds/application.jsa -jar $CDS_JAR" ;;
+    aot)     [ -n "$JAR" ] && echo "$JAVA -Dspring.aot.enabled=true -jar $JAR" ;;
+    aot-cds) [ -f build/cds/application.jsa ] && echo "$JAVA -Dspring.aot.enabled=true -XX:SharedArchiveFile=build/cds/application.jsa -jar $CDS_JAR" ;;
+    native)  [ -x "$NATIVE" ] && echo "$NATIVE" ;;
+  esac
+}
+
+median() { sort -n | awk '{a[NR]=$1} END {print (NR%2) ? a[(NR+1)/2] : int((a[NR/2]+a[NR/2+1])/2)}'; }
+
+printf "%-8s %12s %10s\n" mode ready_ms rss_mb
+for mode in "${MODES[@]}"; do
+  cmd=$(command_for "$mode" || true)
+  if [ -z "$cmd" ]; then
+    printf "%-8s %12s %10s\n" "$mode" "not built" "-"
+    continue
+  fi
+  : > "$WORK/ready" ; : > "$WORK/rss"
+  for _ in $(seq "$RUNS"); do
+    start=$(date +%s%N)
+    $cmd "${APP_ARGS[@]}" > "$WORK/app.log" 2>&1 &
+    pid=$!
+    until curl -fs -o /dev/null "http://localhost:$PORT/actuator/health"; do
+      if ! kill -0 $pid 2>/dev/null; then echo "$mode failed to start, see log:" >&2; tail -20 "$WORK/app.log" >&2; exit 1; fi
+      sleep 0.02
+    done
+    echo $(( ($(date +%s%N) - start) / 1000000 )) >> "$WORK/ready"
+    awk '/VmRSS/ {print int($2 / 1024)}' /proc/$pid/status >> "$WORK/rss"
+    kill $pid; wait $pid 2>/dev/null || true
+  done
+  printf "%-8s %12s %10s\n" "$mode" "$(median < "$WORK/ready")" "$(median < "$WORK/rss")"
+done
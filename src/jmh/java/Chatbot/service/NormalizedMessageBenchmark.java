@@ -0,0 +1,120 @@
+package Chatbot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request text handling before classification: the old regex path
+ * (detectLanguage + greeting check + cache key, each rescanning the string)
+ * against a single NormalizedMessage pass.
+ *
+ * Run with {@code ./gradlew jmh}; the gc profiler reports allocation per op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NormalizedMessageBenchmark {
+
+    private static final Set<String> LEGACY_GREETINGS = Set.of(
+            "hi", "hello", "hey",
+            "gamarjoba",
+            "გამარჯობა", "მოგესალმები"
+    );
+
+    @Param({
+            "Gamarjoba!",
+            "რა არის ინფლაციის მაჩვენებელი 2024 წელს?",
+            "What was the unemployment rate in Tbilisi last year?",
+            "ra aris inflacia saqartveloshi?"
+    })
+    public String message;
+
+    private String trimmed;
+
+    @Setup
+    public void setup() {
+        trimmed = message.trim();
+    }
+
+    @Benchmark
+    public void legacyRegex(Blackhole bh) {
+        boolean greeting = legacyIsSimpleGreeting(trimmed);
+        bh.consume(greeting);
+        if (greeting) {
+            bh.consume(legacyGreetingResponse(trimmed));
+            return;
+        }
+        bh.consume(legacyDetectLanguage(trimmed));
+        bh.consume(legacyNormalizeKey(trimmed));
+    }
+
+    @Benchmark
+    public void singlePass(Blackhole bh) {
+        NormalizedMessage normalized = NormalizedMessage.of(trimmed);
+        SmallTalk.Reply smallTalk = SmallTalk.match(normalized);
+        bh.consume(smallTalk);
+        if (smallTalk != null) {
+            bh.consume(smallTalk.text());
+            return;
+        }
+        bh.consume(normalized.language());
+        bh.consume(normalized.matchKey());
+    }
+
+    // Copies of the pre-NormalizedMessage LanguageUtils, without logging
+
+    private static String legacyDetectLanguage(String text) {
+        if (text == null || text.isEmpty()) {
+            return "ka";
+        }
+        return text.matches(".*[ა-ჰ].*") ? "ka" : "en";
+    }
+
+    private static boolean legacyIsSimpleGreeting(String msg) {
+        String normalized = msg.toLowerCase().replaceAll("[^a-zა-ჰ]", "");
+        return LEGACY_GREETINGS.contains(normalized);
+    }
+
+    private static String legacyGreetingResponse(String msg) {
+        String normalized = msg.toLowerCase().replaceAll("[^a-zა-ჰ]", "");
+        if ("gamarjoba".equals(normalized)) {
+            return "გამარჯობა! რა სტატისტიკური მონაცემები გაინტერესებთ?";
+        }
+        return legacyDetectLanguage(msg).equals("ka")
+                ? "გამარჯობა! რა სტატისტიკური მონაცემები გაინტერესებთ?"
+                : "Hello! What statistics are you looking for today?";
+    }
+
+    private static String legacyNormalizeKey(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            i += Character.charCount(cp);
+            if (Character.isLetterOrDigit(cp)) {
+                if (pendingSpace && sb.length() > 0) sb.append(' ');
+                pendingSpace = false;
+                sb.appendCodePoint(Character.toLowerCase(cp));
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,62 @@
+package Chatbot.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rendering a classification-sized prompt: String.format over the whole text block
+ * against a precompiled PromptTemplate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PromptTemplateBenchmark {
+
+    // ~7 KB of static text, the size of the classification guide
+    private static final String GUIDE = """
+            - economy → GDP, მშპ, economic growth, ეკონომიკა, production, business, economic indicators
+            - prices → inflation, CPI, ინფლაცია, ფასები, price index, consumer prices, cost of living
+            - population → census, აღწერა, დემოგრაფია, demographics, migration, births, deaths, მოსახლეობა
+            """.repeat(24);
+
+    private static final String FORMAT = GUIDE + """
+            Answer in %s.
+
+            User Input: %s
+
+            JSON Response:
+            """;
+
+    private static final PromptTemplate TEMPLATE = PromptTemplate.compile("benchmark", GUIDE + """
+            Answer in {{language}}.
+
+            User Input: {{question}}
+
+            JSON Response:
+            """);
+
+    public String question = "რა არის ინფლაციის მაჩვენებელი 2024 წელს?";
+    public String language = "Georgian language";
+
+    @Benchmark
+    public String stringFormat() {
+        return String.format(FORMAT, language, question);
+    }
+
+    @Benchmark
+    public String precompiled() {
+        return TEMPLATE.render(language, question);
+    }
+}
@@ -0,0 +1,97 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a 10-item Custom Search response: the full body as a String parsed into a tree,
+ * against streaming the same bytes, against streaming the {@code fields}-filtered body.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PseParseBenchmark {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final byte[] full = response(true);
+    private final byte[] partial = response(false);
+
+    @Benchmark
+    public List<NavigationService.SearchResult> stringAndTree() throws IOException {
+        JsonNode items = MAPPER.readTree(new String(full, StandardCharsets.UTF_8)).get("items");
+        List<NavigationService.SearchResult> results = new ArrayList<>();
+        for (JsonNode item : items) {
+            results.add(new NavigationService.SearchResult(item.path("title").asText(), item.path("link").asText(),
+                    TokenBudget.truncate(item.path("snippet").asText(), 60)));
+        }
+        return results;
+    }
+
+    @Benchmark
+    public List<NavigationService.SearchResult> streamingFull() throws IOException {
+        return NavigationService.parsePseResults(MAPPER.getFactory(), new ByteArrayInputStream(full));
+    }
+
+    @Benchmark
+    public List<NavigationService.SearchResult> streamingPartial() throws IOException {
+        return NavigationService.parsePseResults(MAPPER.getFactory(), new ByteArrayInputStream(partial));
+    }
+
+    private static byte[] response(boolean withPagemap) {
+        StringBuilder sb = new StringBuilder(64 * 1024);
+        if (withPagemap) {
+            sb.append("""
+                    {"kind":"customsearch#search","url":{"type":"application/json","template":"https://www.googleapis.com/customsearch/v1?q={searchTerms}"},
+                    "queries":{"request":[{"title":"Google Custom Search - site:geostat.ge inflation","totalResults":"1230","searchTerms":"site:geostat.ge inflation","count":10,"startIndex":1,"inputEncoding":"utf8","outputEncoding":"utf8","safe":"off","cx":"0123456789"}]},
+                    "searchInformation":{"searchTime":0.31,"formattedSearchTime":"0.31","totalResults":"1230","formattedTotalResults":"1,230"},
+                    """);
+        } else {
+            sb.append('{');
+        }
+        sb.append("\"items\":[");
+        for (int i = 0; i < 10; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{");
+            if (withPagemap) {
+                sb.append("\"kind\":\"customsearch#result\",\"htmlTitle\":\"<b>Inflation</b> - National Statistics Office of Georgia\",");
+            }
+            sb.append("\"title\":\"Inflation ").append(i).append(" - National Statistics Office of Georgia\",")
+                    .append("\"link\":\"https://www.geostat.ge/en/modules/categories/").append(26 + i).append("/cpi-inflation\",");
+            if (withPagemap) {
+                sb.append("\"displayLink\":\"www.geostat.ge\",\"htmlSnippet\":\"Consumer <b>price</b> index ... monthly <b>inflation</b> ...\",")
+                        .append("\"formattedUrl\":\"https://www.geostat.ge/en/modules/categories/26/cpi-inflation\",");
+            }
+            sb.append("\"snippet\":\"Consumer price index (CPI) and monthly inflation rate in Georgia, ")
+                    .append("with changes by product group and region compared to the previous month and year.\"");
+            if (withPagemap) {
+                sb.append(",\"pagemap\":{\"cse_thumbnail\":[{\"src\":\"https://encrypted-tbn0.gstatic.com/images?q=tbn:abc\",\"width\":\"225\",\"height\":\"225\"}],")
+                        .append("\"metatags\":[{\"og:type\":\"website\",\"og:title\":\"Inflation\",\"viewport\":\"width=device-width, initial-scale=1\",")
+                        .append("\"og:description\":\"").append("Consumer price index and inflation statistics. ".repeat(20)).append("\"}],")
+                        .append("\"cse_image\":[{\"src\":\"https://www.geostat.ge/media/").append(i).append("/cover.png\"}]}");
+            }
+            sb.append('}');
+        }
+        sb.append("]}");
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,54 @@
+package Chatbot.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latency samples and error count for one endpoint. Latency is measured from the
+ * request's scheduled start, so a backed-up client does not hide server slowness.
+ */
+public class EndpointStats {
+
+    private final String name;
+    private long[] latenciesMicros = new long[1024];
+    private int count;
+    private int errors;
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long latencyMicros, boolean error) {
+        if (count == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, count * 2);
+        }
+        latenciesMicros[count++] = latencyMicros;
+        if (error) errors++;
+    }
+
+    public synchronized String report(double durationSeconds) {
+        if (count == 0) {
+            return String.format("%-12s %8d %10s %8s %9s %9s %9s %9s", name, 0, "-", "-", "-", "-", "-", "-");
+        }
+        long[] sorted = Arrays.copyOf(latenciesMicros, count);
+        Arrays.sort(sorted);
+        return String.format("%-12s %8d %10.1f %7.2f%% %9.1f %9.1f %9.1f %9.1f",
+                name,
+                count,
+                count / durationSeconds,
+                errors * 100.0 / count,
+                percentile(sorted, 0.50),
+                percentile(sorted, 0.95),
+                percentile(sorted, 0.99),
+                sorted[count - 1] / 1000.0);
+    }
+
+    public static String header() {
+        return String.format("%-12s %8s %10s %8s %9s %9s %9s %9s",
+                "endpoint", "requests", "req/s", "errors", "p50 ms", "p95 ms", "p99 ms", "max ms");
+    }
+
+    private static double percentile(long[] sorted, double q) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(q * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000.0;
+    }
+}
@@ -0,0 +1,36 @@
+package Chatbot.loadtest;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Log-normal latency distribution described by its median and p99, plus an error rate.
+ * Parsed from "median/p99/errorRate", e.g. "800/4000/0.01".
+ */
+public record LatencyModel(double medianMs, double p99Ms, double errorRate) {
+
+    private static final double Z_99 = 2.326;
+
+    public static LatencyModel parse(String spec) {
+        String[] parts = spec.split("/");
+        if (parts.length < 2) {
+            throw new IllegalArgumentException("Expected median/p99[/errorRate], got: " + spec);
+        }
+        double errorRate = parts.length > 2 ? Double.parseDouble(parts[2]) : 0.0;
+        return new LatencyModel(Double.parseDouble(parts[0]), Double.parseDouble(parts[1]), errorRate);
+    }
+
+    public long sampleMillis() {
+        if (medianMs <= 0) return 0;
+        double sigma = Math.log(Math.max(p99Ms, medianMs) / medianMs) / Z_99;
+        return Math.round(medianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian()));
+    }
+
+    public boolean shouldFail() {
+        return errorRate > 0 && ThreadLocalRandom.current().nextDouble() < errorRate;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("median=%.0fms p99=%.0fms errors=%.1f%%", medianMs, p99Ms, errorRate * 100);
+    }
+}
@@ -0,0 +1,140 @@
+package Chatbot.loadtest;
+
+import java.io.ByteArrayOutputStream;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop load generator: requests are started on a fixed schedule at the target rate,
+ * each on its own virtual thread, regardless of how long earlier requests take.
+ */
+public class LoadGenerator {
+
+    private static final List<String> QUESTIONS = List.of(
+            "სად ვნახო ინფლაციის მონაცემები?",
+            "where is unemployment data?",
+            "ხელფასების კალკულატორი",
+            "gender statistics for Georgia",
+            "რა არის მშპ?",
+            "what is inflation?",
+            "საგარეო ვაჭრობის სტატისტიკა",
+            "tourism statistics 2024",
+            "მოსახლეობის აღწერა",
+            "show me GDP statistics");
+
+    private static final String BOUNDARY = "----geostat-loadtest";
+
+    private final String baseUrl;
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .executor(Executors.newVirtualThreadPerTaskExecutor())
+            .build();
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final byte[] audioBody;
+
+    public LoadGenerator(String baseUrl) {
+        this.baseUrl = baseUrl;
+        stats.put("chat", new EndpointStats("chat"));
+        stats.put("transcribe", new EndpointStats("transcribe"));
+        stats.put("tts", new EndpointStats("tts"));
+        this.audioBody = multipartAudio();
+    }
+
+    /**
+     * @param mix relative weights for "chat", "transcribe" and "tts"
+     */
+    public void run(double targetRps, Duration duration, Map<String, Integer> mix, boolean record) {
+        int totalWeight = mix.values().stream().mapToInt(Integer::intValue).sum();
+        long intervalNanos = (long) (1_000_000_000L / targetRps);
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long i = 0; ; i++) {
+                long scheduled = start + i * intervalNanos;
+                if (scheduled >= end) break;
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) LockSupport.parkNanos(wait);
+
+                String endpoint = pick(mix, totalWeight);
+                executor.execute(() -> send(endpoint, scheduled, record));
+            }
+        }
+    }
+
+    public void report(Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        System.out.println(EndpointStats.header());
+        stats.values().forEach(s -> System.out.println(s.report(seconds)));
+    }
+
+    private void send(String endpoint, long scheduledNanos, boolean record) {
+        boolean error;
+        try {
+            HttpResponse<byte[]> response = client.send(request(endpoint), HttpResponse.BodyHandlers.ofByteArray());
+            error = response.statusCode() >= 400;
+        } catch (Exception e) {
+            error = true;
+        }
+        if (record) {
+            stats.get(endpoint).record((System.nanoTime() - scheduledNanos) / 1_000, error);
+        }
+    }
+
+    private HttpRequest request(String endpoint) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String question = QUESTIONS.get(random.nextInt(QUESTIONS.size()));
+        return switch (endpoint) {
+            case "chat" -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/chat?message="
+                            + URLEncoder.encode(question, StandardCharsets.UTF_8)))
+                    .timeout(Duration.ofSeconds(60))
+                    .GET()
+                    .build();
+            case "transcribe" -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/transcribe?language=ka-GE"))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(audioBody))
+                    .build();
+            case "tts" -> HttpRequest.newBuilder(URI.create(baseUrl + "/api/tts/synthesize"))
+                    .timeout(Duration.ofSeconds(60))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(
+                            "{\"text\":\"" + question.replace("\"", "") + "\",\"language\":\"ka-GE\"}"))
+                    .build();
+            default -> throw new IllegalArgumentException("Unknown endpoint: " + endpoint);
+        };
+    }
+
+    private static String pick(Map<String, Integer> mix, int totalWeight) {
+        int roll = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Map.Entry<String, Integer> entry : mix.entrySet()) {
+            roll -= entry.getValue();
+            if (roll < 0) return entry.getKey();
+        }
+        return "chat";
+    }
+
+    private static byte[] multipartAudio() {
+        byte[] audio = new byte[16 * 1024];
+        ThreadLocalRandom.current().nextBytes(audio);
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        body.writeBytes(("--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"sample.webm\"\r\n"
+                + "Content-Type: audio/webm\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        body.writeBytes(audio);
+        body.writeBytes(("\r\n--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.UTF_8));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,120 @@
+package Chatbot.loadtest;
+
+import Chatbot.ChatbotApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Offline load test: starts the upstream stubs, boots the bot against them (unless
+ * {@code --target} points at an already running instance), drives /api/chat,
+ * /api/transcribe and /api/tts/synthesize at a fixed rate and prints per-endpoint results.
+ *
+ * <pre>
+ * ./gradlew loadTest -PloadTestArgs="--rps=50 --duration=60s --mix=chat:70,transcribe:15,tts:15"
+ * </pre>
+ *
+ * Stub behaviour is set per upstream as median/p99/errorRate in milliseconds, e.g.
+ * {@code --anthropic=900/6000/0.01 --pse=250/1500/0.005 --elevenlabs=1200/5000 --speech=600/2500}.
+ */
+public class LoadTestMain {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+
+        double rps = Double.parseDouble(options.getOrDefault("rps", "20"));
+        Duration duration = parseDuration(options.getOrDefault("duration", "60s"));
+        Duration warmup = parseDuration(options.getOrDefault("warmup", "10s"));
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "chat:70,transcribe:15,tts:15"));
+
+        LatencyModel anthropic = LatencyModel.parse(options.getOrDefault("anthropic", "900/6000/0.01"));
+        LatencyModel pse = LatencyModel.parse(options.getOrDefault("pse", "250/1500/0.005"));
+        LatencyModel elevenLabs = LatencyModel.parse(options.getOrDefault("elevenlabs", "1200/5000/0.005"));
+        LatencyModel speech = LatencyModel.parse(options.getOrDefault("speech", "600/2500/0.005"));
+        int stubPort = Integer.parseInt(options.getOrDefault("stub-port", "18090"));
+
+        try (UpstreamStubs stubs = new UpstreamStubs(stubPort, anthropic, pse, elevenLabs, speech)) {
+            System.out.printf("Stubs on %s%n  anthropic:  %s%n  pse:        %s%n  elevenlabs: %s%n  speech:     %s%n",
+                    stubs.baseUrl(), anthropic, pse, elevenLabs, speech);
+
+            if (options.containsKey("stubs-only")) {
+                System.out.println("Running stubs only; press Ctrl+C to stop");
+                Thread.currentThread().join();
+            }
+
+            String target = options.get("target");
+            ConfigurableApplicationContext app = null;
+            if (target == null) {
+                String port = options.getOrDefault("app-port", "18086");
+                app = startApplication(stubs.baseUrl(), port);
+                target = "http://127.0.0.1:" + port;
+            }
+
+            try {
+                LoadGenerator generator = new LoadGenerator(target);
+                System.out.printf("Warming up for %ds...%n", warmup.toSeconds());
+                generator.run(Math.max(1, rps / 4), warmup, mix, false);
+
+                System.out.printf("Driving %s at %.1f req/s for %ds (mix %s)%n", target, rps, duration.toSeconds(), mix);
+                generator.run(rps, duration, mix, true);
+                generator.report(duration);
+            } finally {
+                if (app != null) app.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String stubBaseUrl, String port) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("server.port", port);
+        properties.put("spring.ai.anthropic.api-key", "stub");
+        properties.put("spring.ai.anthropic.base-url", stubBaseUrl);
+        properties.put("spring.ai.elevenlabs.api-key", "stub");
+        properties.put("geostat.bot.api_key", "stub");
+        properties.put("geostat.bot.cx_id", "stub");
+        properties.put("geostat.http.upstreams.pse.base-url", stubBaseUrl + "/customsearch/v1");
+        properties.put("geostat.http.upstreams.pse.http2", "false");
+        properties.put("geostat.http.upstreams.elevenlabs.base-url", stubBaseUrl + "/v1");
+        properties.put("geostat.http.upstreams.elevenlabs.http2", "false");
+        properties.put("geostat.speech.endpoint", stubBaseUrl);
+        properties.put("logging.level.root", "WARN");
+
+        return new SpringApplicationBuilder(ChatbotApplication.class)
+                .properties(properties)
+                .run();
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--")) continue;
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    private static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] kv = part.split(":");
+            mix.put(kv[0].trim(), Integer.parseInt(kv[1].trim()));
+        }
+        return mix;
+    }
+
+    private static Duration parseDuration(String spec) {
+        if (spec.endsWith("ms")) return Duration.ofMillis(Long.parseLong(spec.substring(0, spec.length() - 2)));
+        if (spec.endsWith("m")) return Duration.ofMinutes(Long.parseLong(spec.substring(0, spec.length() - 1)));
+        if (spec.endsWith("s")) return Duration.ofSeconds(Long.parseLong(spec.substring(0, spec.length() - 1)));
+        return Duration.ofSeconds(Long.parseLong(spec));
+    }
+}
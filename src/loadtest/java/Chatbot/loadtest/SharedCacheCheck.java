@@ -0,0 +1,87 @@
+package Chatbot.loadtest;
+
+import Chatbot.service.CacheCodec;
+import Chatbot.service.RespClient;
+import Chatbot.service.SharedCaches;
+import Chatbot.service.TieredCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Runs two cache "replicas" against one Redis and checks that a value written by one is read by the
+ * other, and that overwrites and invalidations evict the other replica's near-cache copy.
+ *
+ * <pre>
+ * docker run --rm -p 6379:6379 redis:7
+ * ./gradlew cacheCheck -PcacheUrl=redis://localhost:6379
+ * </pre>
+ */
+public class SharedCacheCheck {
+
+    private static final Duration PROPAGATION = Duration.ofSeconds(2);
+
+    private static int failures;
+
+    public static void main(String[] args) throws Exception {
+        URI url = URI.create(args.length > 0 ? args[0] : "redis://localhost:6379");
+        Map<String, SharedCaches.Spec> specs = Map.of("check",
+                new SharedCaches.Spec(Duration.ofMinutes(1), Duration.ofMinutes(1), 100));
+
+        try (SharedCaches replicaA = new SharedCaches(new RespClient(url, 4, Duration.ofMillis(500)), null, specs, new SimpleMeterRegistry());
+             SharedCaches replicaB = new SharedCaches(new RespClient(url, 4, Duration.ofMillis(500)), null, specs, new SimpleMeterRegistry())) {
+            TieredCache<byte[]> a = replicaA.create("check", CacheCodec.BYTES);
+            TieredCache<byte[]> b = replicaB.create("check", CacheCodec.BYTES);
+            // let both invalidation subscriptions come up before anything is published
+            Thread.sleep(500);
+
+            String key = "key-" + UUID.randomUUID();
+            String other = "key-" + UUID.randomUUID();
+
+            check("miss before any write", b.get(key) == null);
+
+            a.put(key, bytes("one"));
+            check("replica B reads what A wrote", "one".equals(string(b.get(key))));
+
+            a.put(key, bytes("two"));
+            check("overwrite on A evicts B's near-cache copy", awaitValue(b, key, "two"));
+
+            Map<String, byte[]> both = b.getAll(List.of(key, other));
+            check("getAll returns present keys only", both.size() == 1 && "two".equals(string(both.get(key))));
+
+            a.invalidate(key);
+            check("invalidate on A evicts B's near-cache copy", awaitValue(b, key, null));
+        }
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        System.exit(failures == 0 ? 0 : 1);
+    }
+
+    private static boolean awaitValue(TieredCache<byte[]> cache, String key, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + PROPAGATION.toNanos();
+        do {
+            String value = string(cache.get(key));
+            if (expected == null ? value == null : expected.equals(value)) return true;
+            Thread.sleep(20);
+        } while (System.nanoTime() < deadline);
+        return false;
+    }
+
+    private static void check(String name, boolean passed) {
+        System.out.printf("%s %s%n", passed ? "PASS" : "FAIL", name);
+        if (!passed) failures++;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+}
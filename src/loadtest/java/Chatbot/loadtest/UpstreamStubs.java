@@ -0,0 +1,238 @@
+package Chatbot.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Local stand-ins for every upstream the bot calls, served from one JDK HTTP server:
+ * <ul>
+ *     <li>{@code POST /v1/messages} — Anthropic messages API</li>
+ *     <li>{@code GET  /customsearch/v1} — Google Programmable Search JSON</li>
+ *     <li>{@code POST /v1/text-to-speech/{voice}} — ElevenLabs TTS</li>
+ *     <li>{@code POST /v1/speech:recognize} — Google Speech recognize (REST transport)</li>
+ * </ul>
+ * Each upstream sleeps according to its {@link LatencyModel} and fails at its configured rate.
+ */
+public class UpstreamStubs implements AutoCloseable {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final List<String> TOPICS = List.of(
+            "prices", "economy", "population", "trade", "tourism", "wages", "energy", "gender");
+
+    private final HttpServer server;
+
+    public UpstreamStubs(int port,
+                         LatencyModel anthropic,
+                         LatencyModel pse,
+                         LatencyModel elevenLabs,
+                         LatencyModel speech) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 1024);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/messages", stub(anthropic, this::anthropicMessages));
+        server.createContext("/customsearch/v1", stub(pse, this::customSearch));
+        server.createContext("/v1/text-to-speech/", stub(elevenLabs, this::textToSpeech));
+        server.createContext("/v1/speech:recognize", stub(speech, this::recognize));
+        server.start();
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private interface Responder {
+        void respond(HttpExchange exchange, byte[] body) throws IOException;
+    }
+
+    private HttpHandler stub(LatencyModel model, Responder responder) {
+        return exchange -> {
+            try (exchange) {
+                byte[] body = exchange.getRequestBody().readAllBytes();
+                Thread.sleep(model.sampleMillis());
+                if (model.shouldFail()) {
+                    send(exchange, 503, "application/json",
+                            "{\"error\":{\"message\":\"stubbed upstream failure\"}}".getBytes(StandardCharsets.UTF_8));
+                    return;
+                }
+                responder.respond(exchange, body);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    private void anthropicMessages(HttpExchange exchange, byte[] body) throws IOException {
+        JsonNode request = MAPPER.readTree(body);
+        String prompt = promptText(request.path("messages").path(0).path("content"));
+
+        String text;
+        if (prompt.contains("User Inputs:")) {
+            String inputs = prompt.substring(prompt.lastIndexOf("User Inputs:"));
+            int count = (int) inputs.lines().filter(line -> line.matches("\\d+\\. .*")).count();
+            ArrayNode plans = MAPPER.createArrayNode();
+            for (int i = 0; i < count; i++) {
+                plans.add(plan());
+            }
+            text = plans.toString();
+        } else if (prompt.contains("JSON Response:")) {
+            // models often explain themselves after the JSON; a streaming client can stop before this
+            text = plan().toString() + "\n\nThe question asks where to find statistics, so it is a navigation request.";
+        } else if (prompt.contains("GeoStat Navigator")) {
+            text = "📄 **Relevant Page:**\nhttps://www.geostat.ge/en/modules/categories/26/cpi-inflation\n\n"
+                    + "Monthly consumer price index and inflation tables.";
+        } else {
+            text = "Inflation is the rate at which the general level of prices rises over time. "
+                    + "Detailed data about Georgia is available at geostat.ge";
+        }
+
+        if (request.path("stream").asBoolean()) {
+            streamMessage(exchange, request, body.length, text);
+            return;
+        }
+
+        ObjectNode response = MAPPER.createObjectNode();
+        response.put("id", "msg_stub");
+        response.put("type", "message");
+        response.put("role", "assistant");
+        response.put("model", request.path("model").asText("stub"));
+        response.putArray("content").addObject().put("type", "text").put("text", text);
+        response.put("stop_reason", "end_turn");
+        ObjectNode usage = response.putObject("usage");
+        usage.put("input_tokens", body.length / 4);
+        usage.put("output_tokens", text.length() / 4);
+        send(exchange, 200, "application/json", MAPPER.writeValueAsBytes(response));
+    }
+
+    /**
+     * Server-sent events in the messages streaming format, a few characters per delta at roughly
+     * model output speed.
+     */
+    private static void streamMessage(HttpExchange exchange, JsonNode request, int inputBytes, String text) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            ObjectNode start = MAPPER.createObjectNode().put("type", "message_start");
+            ObjectNode message = start.putObject("message");
+            message.put("id", "msg_stub");
+            message.put("type", "message");
+            message.put("role", "assistant");
+            message.put("model", request.path("model").asText("stub"));
+            message.putArray("content");
+            message.putObject("usage").put("input_tokens", inputBytes / 4).put("output_tokens", 1);
+            event(out, "message_start", start);
+
+            ObjectNode blockStart = MAPPER.createObjectNode().put("type", "content_block_start").put("index", 0);
+            blockStart.putObject("content_block").put("type", "text").put("text", "");
+            event(out, "content_block_start", blockStart);
+            for (int i = 0; i < text.length(); i += 8) {
+                ObjectNode delta = MAPPER.createObjectNode().put("type", "content_block_delta").put("index", 0);
+                delta.putObject("delta").put("type", "text_delta").put("text", text.substring(i, Math.min(text.length(), i + 8)));
+                event(out, "content_block_delta", delta);
+                Thread.sleep(10);
+            }
+            event(out, "content_block_stop", MAPPER.createObjectNode().put("type", "content_block_stop").put("index", 0));
+
+            ObjectNode messageDelta = MAPPER.createObjectNode().put("type", "message_delta");
+            messageDelta.putObject("delta").put("stop_reason", "end_turn");
+            messageDelta.putObject("usage").put("output_tokens", text.length() / 4);
+            event(out, "message_delta", messageDelta);
+            event(out, "message_stop", MAPPER.createObjectNode().put("type", "message_stop"));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // the client cancelled the stream once it had what it needed
+        }
+    }
+
+    private static void event(OutputStream out, String name, ObjectNode data) throws IOException {
+        out.write(("event: " + name + "\ndata: " + data + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static String promptText(JsonNode content) {
+        if (content.isTextual()) return content.asText();
+        StringBuilder text = new StringBuilder();
+        content.forEach(block -> text.append(block.path("text").asText()));
+        return text.toString();
+    }
+
+    private ObjectNode plan() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ObjectNode plan = MAPPER.createObjectNode();
+        plan.put("language", random.nextBoolean() ? "ka" : "en");
+        plan.put("intent", random.nextInt(10) < 8 ? "navigation" : "general_knowledge");
+        plan.put("topic", TOPICS.get(random.nextInt(TOPICS.size())));
+        plan.putArray("searchQueries").add("inflation").add("ინფლაცია").add("consumer prices");
+        return plan;
+    }
+
+    private void customSearch(HttpExchange exchange, byte[] body) throws IOException {
+        ObjectNode response = MAPPER.createObjectNode();
+        ArrayNode items = response.putArray("items");
+        for (int i = 0; i < 10; i++) {
+            ObjectNode item = items.addObject();
+            item.put("title", "Consumer Price Index " + i);
+            item.put("link", "https://www.geostat.ge/en/modules/categories/" + (20 + i) + "/cpi-inflation");
+            item.put("snippet", "Consumer price index (CPI) and inflation rate tables, methodology and releases.");
+            item.putObject("pagemap").putArray("metatags").addObject().put("og:title", "Geostat");
+        }
+        send(exchange, 200, "application/json", MAPPER.writeValueAsBytes(response));
+    }
+
+    private void textToSpeech(HttpExchange exchange, byte[] body) throws IOException {
+        int textLength = MAPPER.readTree(body).path("text").asText().length();
+        // ~10 ms of speech per character at the requested bitrate (128 kbps MP3 by default)
+        int kbps = bitrateKbps(exchange.getRequestURI().getQuery());
+        byte[] audio = new byte[Math.max(1024, textLength * kbps * 10 / 8)];
+        ThreadLocalRandom.current().nextBytes(audio);
+        send(exchange, 200, "audio/mpeg", audio);
+    }
+
+    // output_format=mp3_22050_32 → 32; pcm_16000 → 256 (16-bit mono)
+    private static int bitrateKbps(String query) {
+        if (query == null) return 128;
+        for (String param : query.split("&")) {
+            if (!param.startsWith("output_format=")) continue;
+            String[] parts = param.substring("output_format=".length()).split("_");
+            try {
+                return parts[0].equals("pcm") ? Integer.parseInt(parts[1]) * 16 / 1000 : Integer.parseInt(parts[2]);
+            } catch (RuntimeException e) {
+                return 128;
+            }
+        }
+        return 128;
+    }
+
+    private void recognize(HttpExchange exchange, byte[] body) throws IOException {
+        byte[] response = """
+                {"results":[{"alternatives":[{"transcript":"სად ვნახო ინფლაციის მონაცემები","confidence":0.93}]}]}
+                """.getBytes(StandardCharsets.UTF_8);
+        send(exchange, 200, "application/json", response);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
@@ -2,10 +2,9 @@ package Chatbot;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.ComponentScan;
 
-@SpringBootApplication
-@ComponentScan({"Chatbot", "Config"})
+// scanBasePackages rather than a separate @ComponentScan, which would drop Boot's exclude filters
+@SpringBootApplication(scanBasePackages = {"Chatbot", "Config"})
 public class ChatbotApplication {
 
     public static void main(String[] args) {
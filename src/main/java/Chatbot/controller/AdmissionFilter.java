@@ -0,0 +1,105 @@
+package Chatbot.controller;
+
+import Chatbot.service.AdmissionScheduler;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Puts the expensive endpoints through the {@link AdmissionScheduler}: a question to /api/chat is
+ * interactive, a transcription is voice, synchronous synthesis is bulk. Job status, audio downloads
+ * and event streams are cheap and pass straight through; so does submitting a TTS job, which has its
+ * own bounded queue, and batch chat, whose calls each take a bulk slot in {@code ChatService}.
+ *
+ * The slot is held until the response is finished, including the async part of /api/chat.
+ */
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdmissionFilter.class);
+
+    private final AdmissionScheduler scheduler;
+    private final String retryAfter;
+
+    public AdmissionFilter(AdmissionScheduler scheduler, int retryAfterSeconds) {
+        this.scheduler = scheduler;
+        this.retryAfter = Integer.toString(retryAfterSeconds);
+    }
+
+    static AdmissionScheduler.Priority classify(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        String method = request.getMethod();
+        if ("GET".equals(method) && path.equals("/api/chat")) return AdmissionScheduler.Priority.INTERACTIVE;
+        if (!"POST".equals(method)) return null;
+        return switch (path) {
+            case "/api/transcribe" -> AdmissionScheduler.Priority.VOICE;
+            case "/api/tts/synthesize" -> AdmissionScheduler.Priority.BULK;
+            default -> null;
+        };
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        AdmissionScheduler.Priority priority = classify(request);
+        if (priority == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AdmissionScheduler.Permit permit;
+        try {
+            permit = scheduler.acquire(priority);
+        } catch (AdmissionScheduler.RejectedException e) {
+            logger.warn("⚠️ Request not admitted: {}", e.getMessage());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(permit));
+                async = true;
+            }
+        } finally {
+            if (!async) permit.close();
+        }
+    }
+
+    private record ReleaseOnComplete(AdmissionScheduler.Permit permit) implements AsyncListener {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.close();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -1,23 +1,97 @@
 package Chatbot.controller;
 
+import Chatbot.dto.ChatBatchRequest;
+import Chatbot.dto.ChatBatchResult;
 import Chatbot.service.ChatService;
+import Chatbot.service.Deadline;
+import Chatbot.service.RequestDeadlines;
+import Chatbot.service.SessionStore;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api")
 public class ChatController {
 
     private final ChatService chatService;
+    private final RequestDeadlines deadlines;
+    private final Scheduler chatScheduler;
+    private final Duration batchTimeout;
 
-    public ChatController(ChatService chatService) {
+    public ChatController(ChatService chatService,
+                          RequestDeadlines deadlines,
+                          @Qualifier("chatScheduler") Scheduler chatScheduler,
+                          @Value("${geostat.batch.timeout:20m}") Duration batchTimeout) {
         this.chatService = chatService;
+        this.deadlines = deadlines;
+        this.chatScheduler = chatScheduler;
+        this.batchTimeout = batchTimeout;
     }
 
+    /**
+     * Pass the returned {@code sessionId} back with the next message so follow-ups
+     * ("and for 2023?") are answered in context. A missing or malformed id starts a new session.
+     * The answer is limited to the {@code X-Request-Timeout} budget (default and maximum in
+     * {@code geostat.deadline.*}) and stops early when the client disconnects.
+     */
     @GetMapping("/chat")
-    public ResponseEntity<?> chat(@RequestParam String message) {
-        String response = chatService.getChatResponse(message);
-        return ResponseEntity.ok(Map.of("response", response));
+    public Mono<ResponseEntity<Map<String, String>>> chat(@RequestParam String message,
+                                                          @RequestParam(required = false) String sessionId,
+                                                          @RequestHeader(value = RequestDeadlines.HEADER, required = false) String timeout) {
+        String id = SessionStore.isValidId(sessionId) ? sessionId : UUID.randomUUID().toString();
+        Deadline deadline = deadlines.forRequest(timeout);
+        return Mono.fromCallable(() -> chatService.getChatResponse(message, id, deadline))
+                .subscribeOn(chatScheduler)
+                .map(response -> ResponseEntity.ok(Map.of("response", response, "sessionId", id)))
+                .doOnCancel(() -> deadlines.cancel(deadline));
+    }
+
+    /**
+     * Streams one NDJSON line per answer. The stream has its own {@code geostat.batch.timeout}
+     * rather than the servlet async timeout, which is sized for single questions.
+     */
+    @PostMapping(value = "/chat/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<ResponseBodyEmitter> chatBatch(@RequestBody ChatBatchRequest request) {
+        if (request.messages() == null || request.messages().isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        Flux<ChatBatchResult> results;
+        try {
+            results = chatService.getBatchChatResponses(request.messages());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        ResponseBodyEmitter emitter = new ResponseBodyEmitter(batchTimeout.toMillis());
+        Disposable subscription = results.subscribe(
+                result -> {
+                    try {
+                        emitter.send(result, MediaType.APPLICATION_JSON);
+                        emitter.send("\n", MediaType.TEXT_PLAIN);
+                    } catch (IOException e) {
+                        // the client is gone; thrown from onNext this cancels the rest of the batch
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                emitter::completeWithError,
+                emitter::complete);
+        // disconnect or timeout: stop answering the remaining messages
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(emitter);
     }
 }
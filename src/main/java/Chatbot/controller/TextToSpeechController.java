@@ -1,13 +1,26 @@
 package Chatbot.controller;
 
+import Chatbot.dto.TtsJobStatus;
 import Chatbot.service.TextToSpeechService;
+import Chatbot.service.TtsFormat;
+import Chatbot.service.TtsJobQueue;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.Map;
 
 @RestController
@@ -16,13 +29,25 @@ public class TextToSpeechController {
 
     private static final Logger logger = LoggerFactory.getLogger(TextToSpeechController.class);
     private final TextToSpeechService textToSpeechService;
+    private final TtsJobQueue ttsJobQueue;
+    private final Duration eventsTimeout;
 
-    public TextToSpeechController(TextToSpeechService textToSpeechService) {
+    public TextToSpeechController(TextToSpeechService textToSpeechService,
+                                  TtsJobQueue ttsJobQueue,
+                                  @Value("${geostat.tts.jobs.events-timeout:2m}") Duration eventsTimeout) {
         this.textToSpeechService = textToSpeechService;
+        this.ttsJobQueue = ttsJobQueue;
+        this.eventsTimeout = eventsTimeout;
     }
 
+    /**
+     * The audio format comes from the body's {@code format} (mp3, mp3-low, opus, pcm), else the
+     * {@code Accept} header, else {@code Save-Data: on} for low-bitrate MP3; the default is MP3.
+     */
     @PostMapping("/synthesize")
-    public ResponseEntity<byte[]> synthesizeSpeech(@RequestBody Map<String, String> request) {
+    public ResponseEntity<byte[]> synthesizeSpeech(@RequestBody Map<String, String> request,
+                                                   @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                   @RequestHeader(value = "Save-Data", required = false) String saveData) {
         try {
             String text = request.get("text");
             String language = request.getOrDefault("language", "en-US");
@@ -31,26 +56,120 @@ public class TextToSpeechController {
                 logger.error("Text parameter is missing or empty");
                 return ResponseEntity.badRequest().build();
             }
+            TtsFormat format = TtsFormat.negotiate(request.get("format"), accept, saveData);
 
-            logger.info("Synthesizing speech for {} characters in language: {}",
-                    text.length(), language);
+            logger.info("Synthesizing speech for {} characters in language: {}, format: {}",
+                    text.length(), language, format.formatName());
 
-            byte[] audioData = textToSpeechService.synthesizeSpeech(text, language);
+            byte[] audioData = textToSpeechService.synthesizeSpeech(text, language, format);
 
             HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.parseMediaType("audio/mpeg"));
-            headers.set("Content-Disposition", "inline; filename=speech.mp3");
+            headers.setContentType(format.mediaType());
+            headers.set("Content-Disposition", "inline; filename=" + format.fileName());
+            headers.set(HttpHeaders.VARY, "Accept, Save-Data");
 
             return ResponseEntity.ok()
                     .headers(headers)
                     .body(audioData);
 
         } catch (IllegalArgumentException e) {
-            logger.error("Text too long: {}", e.getMessage());
+            logger.error("Invalid TTS request: {}", e.getMessage());
             return ResponseEntity.badRequest().build();
         } catch (Exception e) {
             logger.error("TTS synthesis failed", e);
             return ResponseEntity.internalServerError().build();
         }
     }
+
+    /**
+     * Queues a synthesis and returns at once with the job id. Submitting the same text,
+     * language and format again returns the same job; the format is negotiated as for /synthesize. Poll {@code GET /jobs/{id}} or listen on
+     * {@code /jobs/{id}/events}, then fetch {@code /jobs/{id}/audio}.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<TtsJobStatus> submitJob(@RequestBody Map<String, String> request,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                  @RequestHeader(value = "Save-Data", required = false) String saveData) {
+        String text = request.get("text");
+        String language = request.getOrDefault("language", "en-US");
+
+        if (text == null || text.isEmpty()) {
+            logger.error("Text parameter is missing or empty");
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            TtsFormat format = TtsFormat.negotiate(request.get("format"), accept, saveData);
+            TtsJobQueue.Job job = ttsJobQueue.submit(text, language, format);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/tts/jobs/" + job.id()))
+                    .body(TtsJobStatus.of(job));
+        } catch (IllegalArgumentException e) {
+            logger.error("Invalid TTS job: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        } catch (TtsJobQueue.QueueFullException e) {
+            logger.warn("⚠️ TTS job rejected: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "5")
+                    .build();
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<TtsJobStatus> jobStatus(@PathVariable String id) {
+        TtsJobQueue.Job job = ttsJobQueue.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(TtsJobStatus.of(job));
+    }
+
+    /**
+     * 200 with the audio once the job is done, 202 while it is still queued or running.
+     */
+    @GetMapping("/jobs/{id}/audio")
+    public ResponseEntity<byte[]> jobAudio(@PathVariable String id) {
+        TtsJobQueue.Job job = ttsJobQueue.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return switch (job.status()) {
+            case DONE -> ResponseEntity.ok()
+                    .contentType(job.format().mediaType())
+                    .header("Content-Disposition", "inline; filename=" + job.format().fileName())
+                    .body(job.audio());
+            case FAILED -> ResponseEntity.internalServerError().build();
+            default -> ResponseEntity.accepted().header(HttpHeaders.RETRY_AFTER, "1").build();
+        };
+    }
+
+    /**
+     * Server-sent events: the current status right away, then one more event when the job finishes.
+     * The stream ends after {@code geostat.tts.jobs.events-timeout} without a result; the emitter's
+     * own timeout is set past that, so the servlet async timeout doesn't cut it off first.
+     */
+    @GetMapping(value = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> jobEvents(@PathVariable String id) {
+        TtsJobQueue.Job job = ttsJobQueue.get(id);
+        if (job == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // suppressCancel: a client hanging up must not cancel the job's future for other listeners
+        Flux<TtsJobStatus> events = Flux.concat(
+                Mono.fromSupplier(() -> TtsJobStatus.of(job)),
+                Mono.fromFuture(job.completion(), true).map(TtsJobStatus::of).timeout(eventsTimeout, Mono.empty()))
+                .distinctUntilChanged(TtsJobStatus::status);
+
+        SseEmitter emitter = new SseEmitter(eventsTimeout.plusSeconds(10).toMillis());
+        Disposable subscription = events.subscribe(
+                status -> {
+                    try {
+                        emitter.send(SseEmitter.event().id(job.id()).name("status").data(status));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                emitter::completeWithError,
+                emitter::complete);
+        emitter.onTimeout(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return ResponseEntity.ok(emitter);
+    }
 }
@@ -0,0 +1,6 @@
+package Chatbot.dto;
+
+import java.util.List;
+
+public record ChatBatchRequest(List<String> messages) {
+}
@@ -0,0 +1,10 @@
+package Chatbot.dto;
+
+import java.util.List;
+
+/**
+ * One answer in a batch stream. {@code indices} lists every position in the request
+ * that carried this (deduplicated) message.
+ */
+public record ChatBatchResult(List<Integer> indices, String message, String response) {
+}
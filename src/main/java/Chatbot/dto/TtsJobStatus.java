@@ -0,0 +1,14 @@
+package Chatbot.dto;
+
+import Chatbot.service.TtsJobQueue;
+
+/**
+ * State of an async synthesis job; {@code audioBytes} is set once it is DONE, {@code error} once it FAILED.
+ */
+public record TtsJobStatus(String jobId, TtsJobQueue.Status status, String format, Integer audioBytes, String error) {
+
+    public static TtsJobStatus of(TtsJobQueue.Job job) {
+        byte[] audio = job.audio();
+        return new TtsJobStatus(job.id(), job.status(), job.format().formatName(), audio == null ? null : audio.length, job.error());
+    }
+}
@@ -0,0 +1,213 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Admits requests of three priority classes into a shared number of slots, so a burst of slow
+ * syntheses can't crowd out interactive chat.
+ *
+ * A request runs at once while a slot is free and its class is under its own in-flight limit;
+ * otherwise it waits in its class's bounded queue. Freed slots go to the waiting classes in
+ * proportion to their weights (smooth weighted round robin), so a busy low class still makes
+ * progress but the chat queue drains first. The lower classes' limits are below the total, which
+ * keeps slots free for chat however long their own requests run.
+ */
+public class AdmissionScheduler {
+
+    public enum Priority {
+        // text chat: a person is waiting on each answer
+        INTERACTIVE,
+        // transcription of a recorded question
+        VOICE,
+        // batch chat and synchronous speech synthesis
+        BULK
+    }
+
+    /**
+     * @param maxInFlight at most this many of the class's requests run at once
+     * @param maxWait     longest a request waits for a slot before it is rejected
+     */
+    public record ClassSettings(int weight, int maxInFlight, int queueCapacity, Duration maxWait) {
+    }
+
+    /**
+     * The class's queue is full or the wait ran out; answer 503 and let the client retry.
+     */
+    public static class RejectedException extends Exception {
+        RejectedException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * A held slot; close it when the request finishes. Closing twice is harmless.
+     */
+    public interface Permit extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final Permit UNLIMITED = () -> {
+    };
+
+    private final boolean enabled;
+    private final int capacity;
+    private final Map<Priority, Lane> lanes = new EnumMap<>(Priority.class);
+    private int inFlight;
+
+    public AdmissionScheduler(int capacity, Map<Priority, ClassSettings> settings, MeterRegistry meterRegistry) {
+        this.enabled = true;
+        this.capacity = capacity;
+        for (Priority priority : Priority.values()) {
+            ClassSettings s = settings.get(priority);
+            if (s == null) throw new IllegalArgumentException("No admission settings for " + priority);
+            lanes.put(priority, new Lane(priority, s, meterRegistry));
+        }
+        Gauge.builder("geostat.admission.in_flight", this, AdmissionScheduler::inFlight).register(meterRegistry);
+    }
+
+    private AdmissionScheduler() {
+        this.enabled = false;
+        this.capacity = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Admits everything at once, for {@code geostat.admission.enabled=false}.
+     */
+    public static AdmissionScheduler disabled() {
+        return new AdmissionScheduler();
+    }
+
+    /**
+     * Waits, up to the class's {@code maxWait}, for a slot.
+     *
+     * @throws RejectedException when the class's queue is full or no slot came free in time
+     */
+    public Permit acquire(Priority priority) throws RejectedException, InterruptedException {
+        if (!enabled) return UNLIMITED;
+        Lane lane = lanes.get(priority);
+        long start = System.nanoTime();
+        Waiter waiter;
+        synchronized (this) {
+            if (lane.queue.isEmpty() && inFlight < capacity && lane.inFlight < lane.settings.maxInFlight()) {
+                lane.waitTime.record(0, TimeUnit.NANOSECONDS);
+                return grant(lane);
+            }
+            if (lane.queue.size() >= lane.settings.queueCapacity()) {
+                lane.rejectedFull.increment();
+                throw new RejectedException(priority + " queue is full");
+            }
+            waiter = new Waiter();
+            lane.queue.addLast(waiter);
+        }
+
+        try {
+            Permit permit = waiter.granted.get(lane.settings.maxWait().toNanos(), TimeUnit.NANOSECONDS);
+            lane.waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return permit;
+        } catch (TimeoutException | InterruptedException e) {
+            synchronized (this) {
+                if (lane.queue.remove(waiter)) {
+                    if (e instanceof InterruptedException ie) throw ie;
+                    lane.rejectedTimeout.increment();
+                    throw new RejectedException(priority + " waited longer than " + lane.settings.maxWait().toMillis() + " ms");
+                }
+            }
+            // granted just as the wait ran out: the slot is ours
+            lane.waitTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return waiter.granted.getNow(null);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    // callers hold the lock
+    private Permit grant(Lane lane) {
+        inFlight++;
+        lane.inFlight++;
+        return new Permit() {
+            private boolean closed;
+
+            @Override
+            public void close() {
+                synchronized (AdmissionScheduler.this) {
+                    if (closed) return;
+                    closed = true;
+                    inFlight--;
+                    lane.inFlight--;
+                    dispatch();
+                }
+            }
+        };
+    }
+
+    /**
+     * Hands free slots to waiting requests, picking the class by smooth weighted round robin among
+     * those with a queue and room under their own limit.
+     */
+    private void dispatch() {
+        while (inFlight < capacity) {
+            Lane next = null;
+            int totalWeight = 0;
+            for (Lane lane : lanes.values()) {
+                if (lane.queue.isEmpty() || lane.inFlight >= lane.settings.maxInFlight()) continue;
+                lane.currentWeight += lane.settings.weight();
+                totalWeight += lane.settings.weight();
+                if (next == null || lane.currentWeight > next.currentWeight) next = lane;
+            }
+            if (next == null) return;
+            next.currentWeight -= totalWeight;
+            Waiter waiter = next.queue.pollFirst();
+            waiter.granted.complete(grant(next));
+        }
+    }
+
+    private static final class Waiter {
+        final CompletableFuture<Permit> granted = new CompletableFuture<>();
+    }
+
+    private static final class Lane {
+        final ClassSettings settings;
+        final ArrayDeque<Waiter> queue = new ArrayDeque<>();
+        final Timer waitTime;
+        final Counter rejectedFull;
+        final Counter rejectedTimeout;
+        int inFlight;
+        int currentWeight;
+
+        Lane(Priority priority, ClassSettings settings, MeterRegistry meterRegistry) {
+            this.settings = settings;
+            String name = priority.name().toLowerCase(Locale.ROOT);
+            this.waitTime = Timer.builder("geostat.admission.wait")
+                    .description("Time a request waited for a slot")
+                    .tag("class", name)
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry);
+            this.rejectedFull = Counter.builder("geostat.admission.rejected")
+                    .tag("class", name).tag("reason", "queue_full").register(meterRegistry);
+            this.rejectedTimeout = Counter.builder("geostat.admission.rejected")
+                    .tag("class", name).tag("reason", "timeout").register(meterRegistry);
+            Gauge.builder("geostat.admission.queued", this, l -> l.queue.size())
+                    .tag("class", name).register(meterRegistry);
+            Gauge.builder("geostat.admission.class_in_flight", this, l -> l.inFlight)
+                    .tag("class", name).register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable lookup of navigation answers learned from the query log: (topic, language, keyword
+ * set) → the page past questions kept landing on, with its description. Built by
+ * {@link AnswerTableBuilder}; stored as JSON so a table built offline can be shipped as a file.
+ */
+public final class AnswerTable {
+
+    public static final AnswerTable EMPTY = new AnswerTable(List.of());
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // question words and fillers that don't change which page answers the question
+    private static final Set<String> STOP_WORDS = Set.of(
+            "the", "is", "are", "was", "where", "what", "how", "which", "can", "could", "find", "show",
+            "see", "get", "about", "for", "and", "with", "from", "please", "data", "statistics", "info",
+            "information", "there", "does", "do", "you", "me", "of", "in", "on", "to", "a", "an", "i",
+            "სად", "რა", "როგორ", "არის", "ვნახო", "ვიპოვო", "მაჩვენე", "მინდა", "შემიძლია", "მონაცემები",
+            "სტატისტიკა", "ინფორმაცია", "შესახებ", "და", "თუ", "ხომ", "გთხოვთ");
+
+    /**
+     * One learned answer. {@code support} is how many logged answers agreed on the page and
+     * {@code share} what fraction of the questions with this key they were.
+     */
+    public record Entry(String topic, String language, String keywords, String url, String description,
+                        int support, double share) {
+    }
+
+    private final Map<String, Entry> entries;
+
+    AnswerTable(List<Entry> entries) {
+        Map<String, Entry> map = new HashMap<>(Math.max(16, entries.size() * 2));
+        for (Entry entry : entries) {
+            map.put(key(entry.topic(), entry.language(), entry.keywords()), entry);
+        }
+        this.entries = Map.copyOf(map);
+    }
+
+    public Entry lookup(String topic, String language, NormalizedMessage message) {
+        if (entries.isEmpty() || topic == null) return null;
+        String keywords = keywords(message.matchKey());
+        if (keywords.isEmpty()) return null;
+        return entries.get(key(topic, language, keywords));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public List<Entry> entries() {
+        return List.copyOf(entries.values());
+    }
+
+    /**
+     * The content words of a normalized key, deduplicated and sorted, so word order and
+     * question phrasing don't matter: "where is inflation data" → "inflation".
+     */
+    static String keywords(String matchKey) {
+        return NormalizedMessage.contentWords(matchKey, STOP_WORDS);
+    }
+
+    static String key(String topic, String language, String keywords) {
+        return topic + '\u0001' + language + '\u0001' + keywords;
+    }
+
+    /**
+     * Writes through a temporary file, so a reader never sees half a table.
+     */
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tmp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+        try {
+            List<Entry> sorted = new ArrayList<>(entries.values());
+            sorted.sort((a, b) -> Integer.compare(b.support(), a.support()));
+            JSON.writerWithDefaultPrettyPrinter().writeValue(tmp.toFile(), sorted);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    public static AnswerTable read(Path file) throws IOException {
+        return new AnswerTable(JSON.readValue(file.toFile(), new TypeReference<List<Entry>>() {
+        }));
+    }
+}
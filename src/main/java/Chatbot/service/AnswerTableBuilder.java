@@ -0,0 +1,132 @@
+package Chatbot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Mines navigation outcomes from the query log into an {@link AnswerTable}. Questions are grouped
+ * by (topic, language, keyword set); a group becomes an entry when it has at least
+ * {@code minSupport} answers and one page won at least {@code minShare} of them.
+ *
+ * Only fresh model answers vote. Answers served from the table itself are logged as
+ * {@link ChatContext.Outcome#LEARNED} and don't, so an entry that stops being re-confirmed by the
+ * full pipeline ages out after {@code maxAge} and the question goes through PSE again.
+ */
+public class AnswerTableBuilder {
+
+    private static final Logger log = LoggerFactory.getLogger(AnswerTableBuilder.class);
+
+    private static final int MAX_DESCRIPTION_CHARS = 600;
+
+    private final Set<String> topics;
+    private final int minSupport;
+    private final double minShare;
+    private final Duration maxAge;
+
+    /**
+     * @param topics topics eligible for the table, limited to those with a portal; others always go through search
+     */
+    public AnswerTableBuilder(Set<String> topics, int minSupport, double minShare, Duration maxAge) {
+        this.topics = topics.stream()
+                .filter(NavigationService.portalTopics()::contains)
+                .collect(Collectors.toUnmodifiableSet());
+        this.minSupport = Math.max(1, minSupport);
+        this.minShare = minShare;
+        this.maxAge = maxAge;
+    }
+
+    private static final class Votes {
+        final String topic;
+        final String language;
+        final String keywords;
+        final Map<String, Page> pages = new HashMap<>(4);
+        int total;
+
+        Votes(String topic, String language, String keywords) {
+            this.topic = topic;
+            this.language = language;
+            this.keywords = keywords;
+        }
+    }
+
+    private static final class Page {
+        int count;
+        long latestMillis;
+        String response;
+    }
+
+    public AnswerTable build(Path queryLogDirectory) throws IOException {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+        Map<String, Votes> groups = new HashMap<>();
+
+        long read = QueryLogReader.forEach(queryLogDirectory, record -> {
+            if (!isVote(record, cutoff)) return;
+            String keywords = AnswerTable.keywords(record.matchKey());
+            if (keywords.isEmpty()) return;
+
+            Votes votes = groups.computeIfAbsent(AnswerTable.key(record.topic(), record.planLanguage(), keywords),
+                    k -> new Votes(record.topic(), record.planLanguage(), keywords));
+            votes.total++;
+            Page page = votes.pages.computeIfAbsent(record.url(), u -> new Page());
+            page.count++;
+            if (record.timestampMillis() >= page.latestMillis) {
+                page.latestMillis = record.timestampMillis();
+                page.response = record.response();
+            }
+        });
+
+        List<AnswerTable.Entry> entries = new ArrayList<>();
+        for (Votes votes : groups.values()) {
+            if (votes.total < minSupport) continue;
+            Map.Entry<String, Page> best = null;
+            for (Map.Entry<String, Page> page : votes.pages.entrySet()) {
+                if (best == null || page.getValue().count > best.getValue().count
+                        || page.getValue().count == best.getValue().count
+                        && page.getValue().latestMillis > best.getValue().latestMillis) {
+                    best = page;
+                }
+            }
+            double share = (double) best.getValue().count / votes.total;
+            if (share < minShare) continue;
+            entries.add(new AnswerTable.Entry(votes.topic, votes.language, votes.keywords, best.getKey(),
+                    description(best.getValue().response, best.getKey()), best.getValue().count, share));
+        }
+
+        log.info("📚 Built answer table: {} entries from {} question groups, {} log records in {} ms",
+                entries.size(), groups.size(), read, (System.nanoTime() - start) / 1_000_000);
+        return new AnswerTable(entries);
+    }
+
+    private boolean isVote(QueryLogRecord record, long cutoff) {
+        return record.timestampMillis() >= cutoff
+                && record.outcome() == ChatContext.Outcome.ANSWERED
+                && "navigation".equals(record.intent())
+                && record.planSource() != ChatContext.PlanSource.FALLBACK_PLAN
+                && record.topic() != null && topics.contains(record.topic())
+                && record.url() != null
+                && record.matchKey() != null;
+    }
+
+    /**
+     * The model's explanation that followed the URL in the answer, if any.
+     */
+    static String description(String response, String url) {
+        if (response == null) return null;
+        int at = response.lastIndexOf(url);
+        if (at < 0) return null;
+        String text = response.substring(at + url.length()).trim();
+        if (text.isEmpty()) return null;
+        return text.length() > MAX_DESCRIPTION_CHARS ? text.substring(0, MAX_DESCRIPTION_CHARS) : text;
+    }
+}
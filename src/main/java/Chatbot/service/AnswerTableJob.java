@@ -0,0 +1,42 @@
+package Chatbot.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Offline build of the learned answer table from a query log directory, for inspecting the
+ * table or shipping it with a deployment: {@code ./gradlew buildAnswerTable -PanswerTableArgs="..."}.
+ *
+ * Arguments: {@code <query-log-dir> <output-file> [min-support] [min-share] [max-age-days] [topics]},
+ * with topics comma-separated (default prices,economy,population).
+ */
+public final class AnswerTableJob {
+
+    private AnswerTableJob() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: AnswerTableJob <query-log-dir> <output-file> [min-support] [min-share] [max-age-days] [topics]");
+            System.exit(2);
+        }
+        Path logDir = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        int minSupport = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        double minShare = args.length > 3 ? Double.parseDouble(args[3]) : 0.8;
+        Duration maxAge = Duration.ofDays(args.length > 4 ? Long.parseLong(args[4]) : 14);
+        Set<String> topics = Set.of((args.length > 5 ? args[5] : "prices,economy,population").split(","));
+
+        AnswerTable table = new AnswerTableBuilder(topics, minSupport, minShare, maxAge)
+                .build(logDir);
+        table.write(output);
+
+        System.out.printf("%d entries written to %s%n", table.size(), output.toAbsolutePath());
+        table.entries().stream()
+                .sorted((a, b) -> Integer.compare(b.support(), a.support()))
+                .limit(20)
+                .forEach(e -> System.out.printf("%6d  %3.0f%%  %-12s %-2s  %-40s %s%n",
+                        e.support(), e.share() * 100, e.topic(), e.language(), e.keywords(), e.url()));
+    }
+}
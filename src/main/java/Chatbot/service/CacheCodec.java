@@ -0,0 +1,96 @@
+package Chatbot.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of a value kept in the shared cache. Encodings made with {@link #of} start with a
+ * version byte; a value written in another version decodes as a miss, so replicas on different
+ * releases never read each other's layout. {@link #BYTES} has no version, for values such as audio
+ * whose layout is not the application's to change.
+ */
+public interface CacheCodec<V> {
+
+    byte[] encode(V value);
+
+    /**
+     * @throws IllegalArgumentException for another version or a damaged value
+     */
+    V decode(byte[] bytes);
+
+    /**
+     * Raw bytes, stored as they are, without a version byte.
+     */
+    CacheCodec<byte[]> BYTES = new CacheCodec<>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] bytes) {
+            return bytes;
+        }
+    };
+
+    interface Writer<V> {
+        void write(DataOutputStream out, V value) throws IOException;
+    }
+
+    interface Reader<V> {
+        V read(DataInputStream in) throws IOException;
+    }
+
+    static <V> CacheCodec<V> of(int version, Writer<V> writer, Reader<V> reader) {
+        return new CacheCodec<>() {
+            @Override
+            public byte[] encode(V value) {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+                try (DataOutputStream out = new DataOutputStream(bytes)) {
+                    out.writeByte(version);
+                    writer.write(out, value);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return bytes.toByteArray();
+            }
+
+            @Override
+            public V decode(byte[] bytes) {
+                try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+                    int found = in.readUnsignedByte();
+                    if (found != version) {
+                        throw new IllegalArgumentException("Cached value version " + found + ", expected " + version);
+                    }
+                    return reader.read(in);
+                } catch (IOException e) {
+                    throw new IllegalArgumentException("Damaged cached value", e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Length-prefixed UTF-8; unlike {@link DataOutputStream#writeUTF} it takes null and long strings.
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,162 @@
+package Chatbot.service;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Everything known about one question while it is being answered: the normalized message,
+ * the plan and where it came from, time spent per stage, the URL handed back and how it ended,
+ * plus whatever else the request's wide event collects along the way.
+ * Owned by a single request thread.
+ */
+public final class ChatContext {
+
+    public enum Stage {CLASSIFY, PSE, ANALYSIS, ANSWER}
+
+    /**
+     * LOCAL is the keyword classifier, used while the pipeline is degraded.
+     * GREETING covers every {@link SmallTalk} template reply, not only greetings.
+     */
+    public enum PlanSource {CLASSIFIED, PLAN_CACHE, FOLLOW_UP, STALE_PLAN, FALLBACK_PLAN, GREETING, LOCAL}
+
+    /**
+     * ANSWERED is a fresh model answer; only those are worth replaying into caches.
+     * LEARNED came from the learned answer table without calling PSE or the model, GLOSSARY from
+     * the concept glossary without calling the model.
+     */
+    public enum Outcome {ANSWERED, GREETING, STALE, FALLBACK, NO_RESULTS, ERROR, LEARNED, GLOSSARY}
+
+    private final NormalizedMessage message;
+    private final String sessionId;
+    private final Deadline deadline;
+    private final long startNanos = System.nanoTime();
+    private final long[] stageNanos = new long[Stage.values().length];
+    private final WideEvent event = new WideEvent();
+    // the one search started while the plan was still streaming in; set off the request thread
+    private final AtomicReference<CompletableFuture<NavigationService.SearchAttempt>> earlySearch = new AtomicReference<>();
+
+    private QueryPlan plan;
+    private PlanSource planSource = PlanSource.CLASSIFIED;
+    private Outcome outcome = Outcome.ANSWERED;
+    private String url;
+    private PipelineMode mode = PipelineMode.FULL;
+
+    public ChatContext(NormalizedMessage message, String sessionId) {
+        this(message, sessionId, Deadline.NONE);
+    }
+
+    public ChatContext(NormalizedMessage message, String sessionId, Deadline deadline) {
+        this.message = message;
+        this.sessionId = sessionId;
+        this.deadline = deadline;
+    }
+
+    /**
+     * A copy for background refreshes, so they don't write into a request that has already finished
+     * and aren't bound by its deadline.
+     */
+    public ChatContext detached() {
+        ChatContext copy = new ChatContext(message, sessionId);
+        copy.plan = plan;
+        copy.planSource = planSource;
+        return copy;
+    }
+
+    public NormalizedMessage message() {
+        return message;
+    }
+
+    public String sessionId() {
+        return sessionId;
+    }
+
+    public Deadline deadline() {
+        return deadline;
+    }
+
+    public QueryPlan plan() {
+        return plan;
+    }
+
+    public void plan(QueryPlan plan, PlanSource source) {
+        this.plan = plan;
+        this.planSource = source;
+    }
+
+    public PlanSource planSource() {
+        return planSource;
+    }
+
+    /**
+     * The classifier fell back to a stale or heuristic plan.
+     */
+    public void planSource(PlanSource source) {
+        this.planSource = source;
+    }
+
+    public String language() {
+        return plan != null && plan.language != null ? plan.language : message.language();
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    public void outcome(Outcome outcome) {
+        this.outcome = outcome;
+    }
+
+    public String url() {
+        return url;
+    }
+
+    public void url(String url) {
+        this.url = url;
+    }
+
+    public PipelineMode mode() {
+        return mode;
+    }
+
+    public void mode(PipelineMode mode) {
+        this.mode = mode;
+    }
+
+    /**
+     * Claims the request's early search; false when one was already started.
+     */
+    boolean earlySearch(CompletableFuture<NavigationService.SearchAttempt> search) {
+        return earlySearch.compareAndSet(null, search);
+    }
+
+    CompletableFuture<NavigationService.SearchAttempt> earlySearch() {
+        return earlySearch.get();
+    }
+
+    /**
+     * Fields for this request's single log line; see {@link RequestEventLog}.
+     */
+    public WideEvent event() {
+        return event;
+    }
+
+    /**
+     * Adds the time since {@code startNanos} to {@code stage}; repeated calls accumulate.
+     */
+    public void stage(Stage stage, long startNanos) {
+        stageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+    }
+
+    public long stageNanos(Stage stage) {
+        return stageNanos[stage.ordinal()];
+    }
+
+    public long elapsedNanos() {
+        return System.nanoTime() - startNanos;
+    }
+
+    long[] stageNanos() {
+        return Arrays.copyOf(stageNanos, stageNanos.length);
+    }
+}
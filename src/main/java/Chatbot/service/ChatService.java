@@ -1,17 +1,26 @@
 package Chatbot.service;
 
 
+import Chatbot.dto.ChatBatchResult;
+import Config.UpstreamWebClients;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
-
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
 
 @Service
 public class ChatService {
@@ -21,48 +30,305 @@ public class ChatService {
     private final QuestionClassifier questionClassifier;
     private final NavigationService navigationService;
     private final ConversationService conversationService;
+    private final SemanticPlanCache planCache;
+    private final SessionStore sessions;
+    private final QueryLog queryLog;
+    private final PipelineGovernor governor;
+    private final RequestEventLog events;
+    private final RequestDeadlines deadlines;
+    private final AdmissionScheduler admission;
+
+    private final int batchChunkSize;
+    private final int batchConcurrency;
+    private final int batchMaxMessages;
 
     public ChatService(
-            @Qualifier("anthropicChatModel") ChatModel chatModel,
-            WebClient.Builder webClientBuilder,
+            StageModels models,
+            UpstreamWebClients upstreamWebClients,
             @Value("${geostat.bot.api_key}") String pseApiKey,
-            @Value("${geostat.bot.cx_id}") String pseCxId
+            @Value("${geostat.bot.cx_id}") String pseCxId,
+            @Qualifier("classifierHedger") RequestHedger classifierHedger,
+            @Qualifier("pseHedger") RequestHedger pseHedger,
+            @Qualifier("anthropicCircuitBreaker") CircuitBreaker anthropicBreaker,
+            @Qualifier("pseCircuitBreaker") CircuitBreaker pseBreaker,
+            @Qualifier("staleAnswerStore") StaleStore<String> staleAnswers,
+            @Qualifier("stalePlanStore") StaleStore<QueryPlan> stalePlans,
+            SemanticPlanCache planCache,
+            TokenBudget tokenBudget,
+            SessionStore sessions,
+            QueryLog queryLog,
+            LearnedAnswers learnedAnswers,
+            PseQuota pseQuota,
+            PipelineGovernor governor,
+            RequestEventLog events,
+            SharedCaches sharedCaches,
+            Glossary glossary,
+            RequestDeadlines deadlines,
+            AdmissionScheduler admission,
+            @Value("${geostat.batch.chunk-size:10}") int batchChunkSize,
+            @Value("${geostat.batch.concurrency:8}") int batchConcurrency,
+            @Value("${geostat.batch.max-messages:500}") int batchMaxMessages
     ) {
-        ChatClient chatClient = ChatClient.builder(chatModel).build();
-        WebClient webClient = webClientBuilder
-                .baseUrl("https://www.googleapis.com/customsearch/v1")
-                .build();
+        WebClient webClient = upstreamWebClients.get(UpstreamWebClients.PSE);
         ObjectMapper objectMapper = new ObjectMapper();
 
-        this.questionClassifier = new QuestionClassifier(chatClient, objectMapper);
-        this.navigationService = new NavigationService(chatClient, webClient, objectMapper, pseApiKey, pseCxId);
-        this.conversationService = new ConversationService(chatClient);
+        this.questionClassifier = new QuestionClassifier(models.get(TokenBudget.CLASSIFICATION), objectMapper,
+                classifierHedger, anthropicBreaker, stalePlans, planCache, tokenBudget, sharedCaches);
+        this.navigationService = new NavigationService(models.get(TokenBudget.ANALYSIS), webClient, objectMapper,
+                pseApiKey, pseCxId, pseHedger, anthropicBreaker, pseBreaker, staleAnswers, tokenBudget, learnedAnswers,
+                pseQuota, sharedCaches, deadlines);
+        this.conversationService = new ConversationService(models.get(TokenBudget.KNOWLEDGE),
+                models.get(TokenBudget.SMALL_TALK), anthropicBreaker, staleAnswers, tokenBudget, glossary);
+        this.planCache = planCache;
+        this.sessions = sessions;
+        this.queryLog = queryLog;
+        this.governor = governor;
+        this.events = events;
+        this.deadlines = deadlines;
+        this.admission = admission;
+
+        this.batchChunkSize = batchChunkSize;
+        this.batchConcurrency = batchConcurrency;
+        this.batchMaxMessages = batchMaxMessages;
     }
 
     public String getChatResponse(String userMessage) {
+        return getChatResponse(userMessage, null);
+    }
+
+    /**
+     * @param sessionId client-held conversation id; follow-ups within a session reuse the previous plan
+     */
+    public String getChatResponse(String userMessage, String sessionId) {
+        return getChatResponse(userMessage, sessionId, Deadline.NONE);
+    }
+
+    /**
+     * @param deadline bounds every upstream call of this question; cancel it when the client goes away
+     */
+    public String getChatResponse(String userMessage, String sessionId, Deadline deadline) {
         if (userMessage == null || userMessage.isBlank()) {
             return "გთხოვთ, შეიყვანოთ შეკითხვა.";
         }
 
-        userMessage = userMessage.trim();
-        log.info(" User message length: {} chars", userMessage.length());
+        NormalizedMessage message = NormalizedMessage.of(userMessage.trim());
+        ChatContext ctx = new ChatContext(message, sessionId, deadline);
+        events.sample(ctx);
+        SmallTalk.Reply smallTalk = SmallTalk.match(message);
+        if (smallTalk != null) {
+            String response = smallTalk.text();
+            ctx.plan(null, ChatContext.PlanSource.GREETING);
+            ctx.outcome(ChatContext.Outcome.GREETING);
+            ctx.event().put("smallTalk", smallTalk.intent().name().toLowerCase());
+            queryLog.append(QueryLogRecord.from(ctx, response));
+            events.emit(ctx, response);
+            return response;
+        }
+
+        ctx.mode(governor.enter());
+        String response = null;
+        try {
+            response = classifyAndRespond(ctx);
+            return response;
+        } finally {
+            if (deadline.isCancelled()) ctx.event().put("deadline.cancelled", true);
+            governor.exit(ctx);
+            events.emit(ctx, response);
+        }
+    }
+
+    private String classifyAndRespond(ChatContext ctx) {
+        NormalizedMessage message = ctx.message();
+        String sessionId = ctx.sessionId();
+        long planStart = System.nanoTime();
+        SessionStore.Turn previous = sessionId == null ? null : sessions.last(sessionId);
+        QueryPlan plan = previous == null ? null : FollowUpResolver.refine(previous.plan(), message);
+        if (plan != null) {
+            sessions.recordFollowUp("refined");
+            ctx.plan(plan, ChatContext.PlanSource.FOLLOW_UP);
+        } else {
+            plan = planCache.lookup(message);
+            if (plan != null) {
+                ctx.plan(plan, ChatContext.PlanSource.PLAN_CACHE);
+            } else if (ctx.mode().atLeast(PipelineMode.LOCAL)) {
+                plan = LocalClassifier.classify(message);
+                ctx.planSource(ChatContext.PlanSource.LOCAL);
+            } else {
+                ctx.planSource(ChatContext.PlanSource.CLASSIFIED);
+                plan = questionClassifier.classify(message, ctx, partial -> navigationService.searchEarly(ctx, partial));
+            }
+            ctx.plan(inheritTopic(plan, previous, message), ctx.planSource());
+        }
+        ctx.stage(ChatContext.Stage.CLASSIFY, planStart);
+        plan = ctx.plan();
+
+        String response = respond(ctx);
+        if (sessionId != null) {
+            sessions.record(sessionId, plan, ctx.url());
+        }
+        queryLog.append(QueryLogRecord.from(ctx, response));
+        return response;
+    }
+
+    /**
+     * A follow-up such as "and the monthly figures?" classifies to topic "other" on its own;
+     * within a session it keeps the previous topic.
+     */
+    private QueryPlan inheritTopic(QueryPlan plan, SessionStore.Turn previous, NormalizedMessage message) {
+        if (previous == null || previous.plan().topic == null || "other".equals(previous.plan().topic)) return plan;
+        if (!"other".equals(plan.topic) || !FollowUpResolver.isFollowUp(message)) return plan;
+
+        QueryPlan inherited = plan.copy();
+        inherited.topic = previous.plan().topic;
+        sessions.recordFollowUp("inherited");
+        return inherited;
+    }
+
+    /**
+     * Answers a list of messages. Duplicates (same normalized text) are answered once,
+     * classification runs in chunks with one LLM call per chunk, and answers are emitted
+     * as soon as each one is ready. Cancelling the returned flux also stops answers in flight.
+     *
+     * Each classifier call and each answer takes its own bulk admission slot while it runs, so a
+     * batch competes with interactive chat for as many slots as it has calls in flight.
+     */
+    public Flux<ChatBatchResult> getBatchChatResponses(List<String> messages) {
+        if (messages.size() > batchMaxMessages) {
+            throw new IllegalArgumentException("Batch exceeds maximum of " + batchMaxMessages + " messages");
+        }
+
+        Map<String, BatchEntry> unique = new LinkedHashMap<>();
+        List<Integer> blankIndices = new ArrayList<>();
+        for (int i = 0; i < messages.size(); i++) {
+            String message = messages.get(i);
+            if (message == null || message.isBlank()) {
+                blankIndices.add(i);
+                continue;
+            }
+            NormalizedMessage normalized = NormalizedMessage.of(message.trim());
+            String key = normalized.isEmpty() ? normalized.original() : normalized.matchKey();
+            unique.computeIfAbsent(key, k -> new BatchEntry(normalized)).indices.add(i);
+        }
+        log.info(" Batch of {} messages, {} unique", messages.size(), unique.size());
+
+        List<ChatBatchResult> immediate = new ArrayList<>();
+        if (!blankIndices.isEmpty()) {
+            immediate.add(new ChatBatchResult(blankIndices, "", "გთხოვთ, შეიყვანოთ შეკითხვა."));
+        }
+        List<PlannedEntry> cached = new ArrayList<>();
+        List<BatchEntry> toClassify = new ArrayList<>();
+        for (BatchEntry entry : unique.values()) {
+            SmallTalk.Reply smallTalk = SmallTalk.match(entry.message);
+            if (smallTalk != null) {
+                immediate.add(entry.result(smallTalk.text()));
+                continue;
+            }
+            QueryPlan plan = planCache.lookup(entry.message);
+            if (plan != null) {
+                cached.add(new PlannedEntry(entry, plan, ChatContext.PlanSource.PLAN_CACHE));
+            } else {
+                toClassify.add(entry);
+            }
+        }
 
-        if (LanguageUtils.isSimpleGreeting(userMessage)) {
-            return LanguageUtils.getGreetingResponse(userMessage);
+        List<List<BatchEntry>> chunks = new ArrayList<>();
+        for (int i = 0; i < toClassify.size(); i += batchChunkSize) {
+            chunks.add(toClassify.subList(i, Math.min(i + batchChunkSize, toClassify.size())));
         }
 
-        QueryPlan plan = questionClassifier.classify(userMessage);
-        log.info(" Classification: intent={}, topic={}, queries={}",
-                plan.intent, plan.topic, plan.searchQueries);
+        // no time limit for a whole batch, but nothing left to classify or answer once the client is gone
+        Deadline deadline = Deadline.unbounded();
+        Flux<PlannedEntry> classified = Flux.fromIterable(chunks)
+                .flatMap(chunk -> admitted(() -> classifyChunk(chunk, deadline))
+                                .flatMapIterable(planned -> planned),
+                        batchConcurrency);
+
+        Flux<ChatBatchResult> answered = Flux.concat(Flux.fromIterable(cached), classified)
+                .flatMap(planned -> admitted(() -> planned.entry.result(answer(planned, deadline))),
+                        batchConcurrency);
+
+        return Flux.concat(Flux.fromIterable(immediate), answered)
+                .doOnCancel(() -> deadlines.cancel(deadline));
+    }
+
+    /**
+     * {@code work} on a bounded-elastic thread once a bulk admission slot is free, released when it
+     * ends or is cancelled. A full bulk queue or an expired wait is retried with backoff rather than
+     * failing the batch; cancelling the batch stops the retries.
+     */
+    private <T> Mono<T> admitted(Callable<T> work) {
+        Mono<AdmissionScheduler.Permit> permit = Mono.fromCallable(() -> admission.acquire(AdmissionScheduler.Priority.BULK))
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofMillis(500))
+                        .maxBackoff(Duration.ofSeconds(5))
+                        .filter(AdmissionScheduler.RejectedException.class::isInstance));
+        return Mono.usingWhen(permit,
+                held -> Mono.fromCallable(work).subscribeOn(Schedulers.boundedElastic()),
+                held -> Mono.fromRunnable(held::close));
+    }
+
+    /**
+     * One classifier call for the chunk, or the local classifier while the pipeline is degraded.
+     */
+    private List<PlannedEntry> classifyChunk(List<BatchEntry> chunk, Deadline deadline) {
+        List<PlannedEntry> planned = new ArrayList<>(chunk.size());
+        if (governor.mode().atLeast(PipelineMode.LOCAL)) {
+            for (BatchEntry entry : chunk) {
+                planned.add(new PlannedEntry(entry, LocalClassifier.classify(entry.message),
+                        ChatContext.PlanSource.LOCAL));
+            }
+            return planned;
+        }
+        List<QueryPlan> plans = questionClassifier.classifyBatch(
+                chunk.stream().map(entry -> entry.message).toList(), deadline);
+        for (int i = 0; i < chunk.size(); i++) {
+            planned.add(new PlannedEntry(chunk.get(i), plans.get(i), ChatContext.PlanSource.CLASSIFIED));
+        }
+        return planned;
+    }
 
-        switch (plan.intent) {
+    private String answer(PlannedEntry planned, Deadline deadline) {
+        ChatContext ctx = new ChatContext(planned.entry.message, null, deadline);
+        events.sample(ctx);
+        ctx.plan(planned.plan, planned.source);
+        ctx.event().put("batch", true);
+        ctx.mode(governor.enter());
+        String response = null;
+        try {
+            response = respond(ctx);
+            queryLog.append(QueryLogRecord.from(ctx, response));
+            return response;
+        } finally {
+            governor.exit(ctx);
+            events.emit(ctx, response);
+        }
+    }
+
+    private String respond(ChatContext ctx) {
+        switch (ctx.plan().intent) {
             case "small_talk":
-                return conversationService.handleSmallTalk(userMessage, plan.language);
+                return conversationService.handleSmallTalk(ctx);
             case "general_knowledge":
-                return conversationService.handleGeneralKnowledge(userMessage, plan.language);
+                return conversationService.handleGeneralKnowledge(ctx);
             case "navigation":
             default:
-                return navigationService.handleNavigation(userMessage, plan);
+                return navigationService.handleNavigation(ctx);
         }
     }
+
+    private static final class BatchEntry {
+        final NormalizedMessage message;
+        final List<Integer> indices = new ArrayList<>();
+
+        BatchEntry(NormalizedMessage message) {
+            this.message = message;
+        }
+
+        ChatBatchResult result(String response) {
+            return new ChatBatchResult(List.copyOf(indices), message.original(), response);
+        }
+    }
+
+    private record PlannedEntry(BatchEntry entry, QueryPlan plan, ChatContext.PlanSource source) {
+    }
 }
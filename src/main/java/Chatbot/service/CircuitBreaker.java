@@ -0,0 +1,190 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Count-based circuit breaker around one upstream.
+ *
+ * CLOSED: calls pass, outcomes go into a sliding window; opens when the failure rate crosses the threshold.
+ * OPEN: calls are rejected with {@link CircuitOpenException} until {@code openDuration} elapses.
+ * HALF_OPEN: a few trial calls pass; all succeed → CLOSED, any failure → OPEN again.
+ */
+public class CircuitBreaker {
+
+    public enum State {CLOSED, OPEN, HALF_OPEN}
+
+    private static final Logger log = LoggerFactory.getLogger(CircuitBreaker.class);
+
+    private static final ScheduledExecutorService TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "circuit-breaker-timer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final Duration openDuration;
+    private final int halfOpenPermits;
+
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private int halfOpenIssued;
+    private int halfOpenSucceeded;
+
+    private final List<Runnable> halfOpenListeners = new CopyOnWriteArrayList<>();
+    private final Counter rejectedCounter;
+
+    public CircuitBreaker(String name,
+                          int windowSize,
+                          int minimumCalls,
+                          double failureRateThreshold,
+                          Duration openDuration,
+                          int halfOpenPermits,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.window = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.openDuration = openDuration;
+        this.halfOpenPermits = halfOpenPermits;
+
+        this.rejectedCounter = Counter.builder("geostat.circuit.rejected").tag("name", name).register(meterRegistry);
+        Gauge.builder("geostat.circuit.state", this, b -> b.state.ordinal())
+                .tag("name", name)
+                .description("0=closed, 1=open, 2=half-open")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(Supplier<T> call) {
+        if (!tryAcquirePermission()) {
+            rejectedCounter.increment();
+            throw new CircuitOpenException(name);
+        }
+        try {
+            T result = call.get();
+            onSuccess();
+            return result;
+        } catch (DeadlineExceededException e) {
+            // the caller ran out of time, the upstream may be fine
+            onAbandoned();
+            throw e;
+        } catch (RuntimeException e) {
+            onFailure();
+            throw e;
+        }
+    }
+
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * Registers a callback fired (on the breaker timer thread) each time the circuit moves to HALF_OPEN.
+     */
+    public void onHalfOpen(Runnable listener) {
+        halfOpenListeners.add(listener);
+    }
+
+    private synchronized boolean tryAcquirePermission() {
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> {
+                if (halfOpenIssued >= halfOpenPermits) yield false;
+                halfOpenIssued++;
+                yield true;
+            }
+        };
+    }
+
+    private synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            if (++halfOpenSucceeded >= halfOpenPermits) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        recordOutcome(false);
+    }
+
+    private synchronized void onAbandoned() {
+        // give a half-open trial permit back, so the circuit still gets its trial calls
+        if (state == State.HALF_OPEN && halfOpenIssued > 0) {
+            halfOpenIssued--;
+        }
+    }
+
+    private synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            transitionTo(State.OPEN);
+            return;
+        }
+        recordOutcome(true);
+        if (state == State.CLOSED
+                && windowCount >= minimumCalls
+                && windowFailures * 100.0 / windowCount >= failureRateThreshold) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void recordOutcome(boolean failed) {
+        if (windowCount == window.length) {
+            if (window[windowIndex]) windowFailures--;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failed;
+        if (failed) windowFailures++;
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Circuit '{}' {} -> {}", name, state, next);
+        state = next;
+        halfOpenIssued = 0;
+        halfOpenSucceeded = 0;
+
+        if (next == State.CLOSED) {
+            windowIndex = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        } else if (next == State.OPEN) {
+            TIMER.schedule(this::halfOpen, openDuration.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void halfOpen() {
+        synchronized (this) {
+            if (state != State.OPEN) return;
+            transitionTo(State.HALF_OPEN);
+        }
+        for (Runnable listener : halfOpenListeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("Half-open listener failed for circuit '{}'", name, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package Chatbot.service;
+
+public class CircuitOpenException extends RuntimeException {
+
+    public CircuitOpenException(String breakerName) {
+        super("Circuit '" + breakerName + "' is open");
+    }
+}
@@ -1,6 +1,5 @@
 package Chatbot.service;
 
-import org.springframework.ai.chat.client.ChatClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,93 +7,146 @@ public class ConversationService {
 
     private static final Logger log = LoggerFactory.getLogger(ConversationService.class);
 
-    private final ChatClient chatClient;
-
-    public ConversationService(ChatClient chatClient) {
-        this.chatClient = chatClient;
+    private final StageModel knowledgeModel;
+    private final StageModel smallTalkModel;
+    private final CircuitBreaker circuitBreaker;
+    private final StaleStore<String> staleAnswers;
+    private final TokenBudget tokenBudget;
+    private final Glossary glossary;
+
+    private static final PromptTemplate KNOWLEDGE_PROMPT = PromptTemplate.compile("knowledge", """
+            You are GeoStat Assistant - an expert on statistics and the National Statistics Office of Georgia.
+            
+            User's Question: {{question}}
+            
+            ## YOUR TASK
+            
+            Answer this question clearly and concisely in {{language}}.
+            
+            ## CRITICAL RULES - NO EXCEPTIONS
+            
+            1. NEVER state specific numbers or statistics about Georgia
+               ❌ Bad: "Inflation in Georgia is 2.5%"
+               ✅ Good: "Inflation data is available on geostat.ge"
+            
+            2. NEVER claim to know "current" or "latest" data
+               ❌ Bad: "The current unemployment rate is..."
+               ✅ Good: "You can find current unemployment data at geostat.ge"
+            
+            3. If question is about statistics concepts (inflation, GDP, CPI, etc.):
+               - Explain the concept in 2-3 sentences
+               - Mention: "დეტალური მონაცემები საქართველოზე ხელმისაწვდომია geostat.ge-ზე"
+                 OR "Detailed data about Georgia is available at geostat.ge"
+            
+            4. If question is clearly NOT about statistics or GeoStat:
+               - Politely redirect: "მე ვარ GeoStat-ის ასისტენტი და ვეხმარები საქართველოს სტატისტიკაში"
+               - Or in English: "I'm GeoStat Assistant and I help with Georgian statistics"
+               - DO NOT try to answer unrelated topics
+            
+            ## RESPONSE STRUCTURE (exactly 3-4 sentences)
+            
+            Sentence 1: Direct answer to the question (concept explanation)
+            Sentence 2-3: Key details or context
+            Sentence 4: If relevant, mention where to find actual data
+            
+            ## URL FORMATTING
+            
+            If you mention a URL, put it on its own line with a blank line before it:
+            
+            Example:
+            "ინფლაცია არის ფასების ზრდის ტემპი დროში. ის გამოითვლება სამომხმარებლო ფასების ინდექსით (CPI).
+            
+            დეტალური მონაცემები საქართველოზე ხელმისაწვდომია:
+            https://www.geostat.ge"
+            
+            Your answer in {{language}} (3-4 sentences maximum):
+            """);
+
+    private static final PromptTemplate SMALL_TALK_PROMPT = PromptTemplate.compile("small_talk", """
+            You are GeoStat Assistant - a friendly, professional chatbot for Georgia's National Statistics Office.
+            
+            User said: {{message}}
+            
+            ## TASK
+            
+            Respond warmly and briefly in {{language}} (1-2 sentences only).
+            
+            Guidelines:
+            - If greeting: Greet back warmly
+            - If thanking: Acknowledge graciously
+            - If asking who you are: Briefly explain you help with Georgian statistics
+            - Keep it friendly and professional
+            - Optionally mention you can help find statistics
+            
+            DO NOT:
+            - Give long explanations
+            - Go off-topic
+            - Be overly formal
+            
+            Your response in {{language}} (1-2 sentences):
+            """);
+
+    public ConversationService(StageModel knowledgeModel,
+                               StageModel smallTalkModel,
+                               CircuitBreaker circuitBreaker,
+                               StaleStore<String> staleAnswers,
+                               TokenBudget tokenBudget,
+                               Glossary glossary) {
+        this.knowledgeModel = knowledgeModel;
+        this.smallTalkModel = smallTalkModel;
+        this.circuitBreaker = circuitBreaker;
+        this.staleAnswers = staleAnswers;
+        this.tokenBudget = tokenBudget;
+        this.glossary = glossary;
     }
 
 
-    public String handleGeneralKnowledge(String userMessage, String language) {
+    public String handleGeneralKnowledge(ChatContext ctx) {
+        NormalizedMessage message = ctx.message();
+        String language = ctx.language();
+        String userMessage = message.original();
         boolean isGeorgian = "ka".equals(language);
 
-        String knowledgePrompt = String.format("""
-                You are GeoStat Assistant - an expert on statistics and the National Statistics Office of Georgia.
-                
-                User's Question: %s
-                
-                ══════════════════════════════════════════════════════════
-                YOUR TASK:
-                ══════════════════════════════════════════════════════════
-                
-                Answer this question clearly and concisely in %s.
-                
-                ══════════════════════════════════════════════════════════
-                CRITICAL RULES - NO EXCEPTIONS:
-                ══════════════════════════════════════════════════════════
-                
-                1. NEVER state specific numbers or statistics about Georgia
-                   ❌ Bad: "Inflation in Georgia is 2.5%%"
-                   ✅ Good: "Inflation data is available on geostat.ge"
-                
-                2. NEVER claim to know "current" or "latest" data
-                   ❌ Bad: "The current unemployment rate is..."
-                   ✅ Good: "You can find current unemployment data at geostat.ge"
-                
-                3. If question is about statistics concepts (inflation, GDP, CPI, etc.):
-                   - Explain the concept in 2-3 sentences
-                   - Mention: "დეტალური მონაცემები საქართველოზე ხელმისაწვდომია geostat.ge-ზე"
-                     OR "Detailed data about Georgia is available at geostat.ge"
-                
-                4. If question is clearly NOT about statistics or GeoStat:
-                   - Politely redirect: "მე ვარ GeoStat-ის ასისტენტი და ვეხმარები საქართველოს სტატისტიკაში"
-                   - Or in English: "I'm GeoStat Assistant and I help with Georgian statistics"
-                   - DO NOT try to answer unrelated topics
-                
-                ══════════════════════════════════════════════════════════
-                RESPONSE STRUCTURE (exactly 3-4 sentences):
-                ══════════════════════════════════════════════════════════
-                
-                Sentence 1: Direct answer to the question (concept explanation)
-                Sentence 2-3: Key details or context
-                Sentence 4: If relevant, mention where to find actual data
-                
-                ══════════════════════════════════════════════════════════
-                URL FORMATTING:
-                ══════════════════════════════════════════════════════════
-                
-                If you mention a URL, put it on its own line with a blank line before it:
-                
-                Example:
-                "ინფლაცია არის ფასების ზრდის ტემპი დროში. ის გამოითვლება სამომხმარებლო ფასების ინდექსით (CPI).
-                
-                დეტალური მონაცემები საქართველოზე ხელმისაწვდომია:
-                https://www.geostat.ge"
-                
-                ══════════════════════════════════════════════════════════
-                
-                Your answer in %s (3-4 sentences maximum):
-                """,
-                userMessage,
-                isGeorgian ? "Georgian language" : "English language",
-                isGeorgian ? "Georgian language" : "English language"
-        );
+        // Definitions of common concepts are fixed: no model call, in any pipeline mode
+        Glossary.Match concept = glossary.lookup(message, language);
+        if (concept != null) {
+            ctx.outcome(ChatContext.Outcome.GLOSSARY);
+            ctx.event().put("glossary.concept", concept.conceptId());
+            return concept.answer();
+        }
+
+        String staleKey = StaleStore.answerKey("general_knowledge", language, message.matchKey());
+        if (ctx.mode().atLeast(PipelineMode.CACHED)) {
+            return cachedKnowledge(ctx, staleKey);
+        }
+
+        String languageLabel = isGeorgian ? "Georgian language" : "English language";
+        String knowledgePrompt = tokenBudget.render(TokenBudget.KNOWLEDGE, KNOWLEDGE_PROMPT,
+                fitQuestion(userMessage, TokenBudget.KNOWLEDGE, KNOWLEDGE_PROMPT), languageLabel);
+        long answerStart = System.nanoTime();
 
         try {
-            log.info(" Generating knowledge response in {}", language);
-            String response = chatClient.prompt()
-                    .user(knowledgePrompt)
-                    .call()
-                    .content();
+            String response = circuitBreaker.execute(() -> knowledgeModel.call(knowledgePrompt, ctx));
 
             if (response == null) {
                 throw new IllegalStateException("Knowledge LLM returned null response");
             }
 
-            log.info(" Knowledge response generated: {} chars", response.length());
+            ctx.stage(ChatContext.Stage.ANSWER, answerStart);
+            staleAnswers.put(staleKey, response.trim());
             return response.trim();
         } catch (Exception e) {
+            ctx.stage(ChatContext.Stage.ANSWER, answerStart);
+            String stale = staleAnswers.serve(staleKey, e instanceof CircuitOpenException
+                    ? () -> handleGeneralKnowledge(ctx.detached())
+                    : null);
+            ctx.event().put("answer.error", String.valueOf(e.getMessage()));
+            if (stale != null) {
+                ctx.outcome(ChatContext.Outcome.STALE);
+                return StaleStore.markOutdated(stale, language);
+            }
             log.error(" Knowledge response failed", e);
+            ctx.outcome(ChatContext.Outcome.ERROR);
             return isGeorgian
                     ? "ვერ მოხერხდა პასუხის გენერირება. გთხოვთ, სცადოთ თავიდან ან ეწვიოთ www.geostat.ge-ს"
                     : "Unable to generate response. Please try again or visit www.geostat.ge";
@@ -102,58 +154,65 @@ public class ConversationService {
     }
 
 
-    public String handleSmallTalk(String userMessage, String language) {
+    /**
+     * Explanations of a concept don't go out of date, so an earlier answer is served as is.
+     */
+    private String cachedKnowledge(ChatContext ctx, String staleKey) {
+        String cached = staleAnswers.serve(staleKey, null);
+        if (cached != null) {
+            ctx.outcome(ChatContext.Outcome.STALE);
+            return cached;
+        }
+        ctx.outcome(ChatContext.Outcome.FALLBACK);
+        return "ka".equals(ctx.language())
+                ? "სერვისი ამჟამად გადატვირთულია. გთხოვთ, სცადოთ მოგვიანებით ან ეწვიოთ www.geostat.ge-ს"
+                : "The service is busy right now. Please try again shortly or visit www.geostat.ge";
+    }
+
+
+    public String handleSmallTalk(ChatContext ctx) {
+        String language = ctx.language();
+        String userMessage = ctx.message().original();
         boolean isGeorgian = "ka".equals(language);
 
-        String smallTalkPrompt = String.format("""
-                You are GeoStat Assistant - a friendly, professional chatbot for Georgia's National Statistics Office.
-                
-                User said: %s
-                
-                ══════════════════════════════════════════════════════════
-                TASK:
-                ══════════════════════════════════════════════════════════
-                
-                Respond warmly and briefly in %s (1-2 sentences only).
-                
-                Guidelines:
-                - If greeting: Greet back warmly
-                - If thanking: Acknowledge graciously
-                - If asking who you are: Briefly explain you help with Georgian statistics
-                - Keep it friendly and professional
-                - Optionally mention you can help find statistics
-                
-                DO NOT:
-                - Give long explanations
-                - Go off-topic
-                - Be overly formal
-                
-                ══════════════════════════════════════════════════════════
-                
-                Your response in %s (1-2 sentences):
-                """,
-                userMessage,
-                isGeorgian ? "Georgian language" : "English language",
-                isGeorgian ? "Georgian language" : "English language"
-        );
+        if (ctx.mode().atLeast(PipelineMode.CACHED)) {
+            ctx.outcome(ChatContext.Outcome.FALLBACK);
+            return smallTalkFallback(isGeorgian);
+        }
+
+        String languageLabel = isGeorgian ? "Georgian language" : "English language";
+        String smallTalkPrompt = tokenBudget.render(TokenBudget.SMALL_TALK, SMALL_TALK_PROMPT,
+                fitQuestion(userMessage, TokenBudget.SMALL_TALK, SMALL_TALK_PROMPT), languageLabel);
 
+        long answerStart = System.nanoTime();
         try {
-            log.info("💬 Generating small talk response in {}", language);
-            String response = chatClient.prompt()
-                    .user(smallTalkPrompt)
-                    .call()
-                    .content();
+            String response = circuitBreaker.execute(() -> smallTalkModel.call(smallTalkPrompt, ctx));
 
             if (response == null) {
                 throw new IllegalStateException("Small talk LLM returned null response");
             }
 
+            ctx.stage(ChatContext.Stage.ANSWER, answerStart);
             return response.trim();
         } catch (Exception e) {
+            ctx.stage(ChatContext.Stage.ANSWER, answerStart);
             log.error(" Small talk failed", e);
-            return isGeorgian
-                    ? "გამარჯობა! როგორ შემიძლია დაგეხმაროთ სტატისტიკის მოძებნაში?"
-                    : "Hello! How can I help you find statistics?";
+            ctx.outcome(ChatContext.Outcome.FALLBACK);
+            return smallTalkFallback(isGeorgian);
+        }
+    }
+
+    private static String smallTalkFallback(boolean isGeorgian) {
+        return isGeorgian
+                ? "გამარჯობა! როგორ შემიძლია დაგეხმაროთ სტატისტიკის მოძებნაში?"
+                : "Hello! How can I help you find statistics?";
+    }
+
+    private String fitQuestion(String question, String stage, PromptTemplate template) {
+        String fitted = TokenBudget.truncate(question, tokenBudget.available(stage, template));
+        if (fitted != question) {
+            tokenBudget.recordTrimmed(stage);
         }
+        return fitted;
     }
 }
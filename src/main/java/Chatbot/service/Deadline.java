@@ -0,0 +1,108 @@
+package Chatbot.service;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The time one request has left, and whether its client is still waiting. Every upstream call of
+ * the request is bounded by {@link #bound}: it gets the smaller of its own timeout and the time
+ * remaining, and fails with {@link DeadlineExceededException} as soon as the request is cancelled.
+ */
+public final class Deadline {
+
+    /**
+     * No time limit and never cancelled; for calls outside a request (batch jobs, background refreshes).
+     */
+    public static final Deadline NONE = new Deadline(false, 0, null);
+
+    private final boolean bounded;
+    private final long expiresAtNanos;
+    private final Sinks.Empty<Void> cancellation;
+    private volatile boolean cancelled;
+
+    private Deadline(boolean bounded, long expiresAtNanos, Sinks.Empty<Void> cancellation) {
+        this.bounded = bounded;
+        this.expiresAtNanos = expiresAtNanos;
+        this.cancellation = cancellation;
+    }
+
+    public static Deadline after(Duration budget) {
+        return new Deadline(true, System.nanoTime() + budget.toNanos(), Sinks.empty());
+    }
+
+    /**
+     * No time limit, but cancelled with its client.
+     */
+    public static Deadline unbounded() {
+        return new Deadline(false, 0, Sinks.empty());
+    }
+
+    /**
+     * The client is gone: calls in flight fail and no new ones start. No-op on {@link #NONE}.
+     */
+    public void cancel() {
+        if (cancellation == null || cancelled) return;
+        cancelled = true;
+        cancellation.tryEmitEmpty();
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return zero once expired or cancelled; {@code null} when there is no time limit
+     */
+    public Duration remaining() {
+        if (cancelled) return Duration.ZERO;
+        if (!bounded) return null;
+        return Duration.ofNanos(Math.max(0, expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean expired() {
+        Duration remaining = remaining();
+        return remaining != null && remaining.isZero();
+    }
+
+    public boolean hasAtLeast(Duration time) {
+        Duration remaining = remaining();
+        return remaining == null || remaining.compareTo(time) >= 0;
+    }
+
+    /**
+     * {@code call} limited to the time remaining.
+     */
+    public <T> Mono<T> bound(Mono<T> call) {
+        return bound(call, null);
+    }
+
+    /**
+     * {@code call} limited to the smaller of {@code timeout} (null for none) and the time remaining.
+     * Fails with {@link DeadlineExceededException} without subscribing when no time is left, and
+     * when the request is cancelled while the call is in flight.
+     */
+    public <T> Mono<T> bound(Mono<T> call, Duration timeout) {
+        return Mono.defer(() -> {
+            Duration remaining = remaining();
+            if (remaining != null && remaining.isZero()) {
+                return Mono.error(exceeded());
+            }
+            Mono<T> timed = call;
+            if (remaining != null && (timeout == null || remaining.compareTo(timeout) < 0)) {
+                timed = call.timeout(remaining).onErrorMap(TimeoutException.class, e -> exceeded());
+            } else if (timeout != null) {
+                timed = call.timeout(timeout);
+            }
+            return cancellation == null
+                    ? timed
+                    : timed.or(cancellation.asMono().then(Mono.error(this::exceeded)));
+        });
+    }
+
+    private DeadlineExceededException exceeded() {
+        return new DeadlineExceededException(cancelled ? "Request cancelled" : "Request deadline exceeded");
+    }
+}
@@ -0,0 +1,12 @@
+package Chatbot.service;
+
+/**
+ * The request's time budget ran out, or its client went away, before or during a call. Says
+ * nothing about the upstream, so circuit breakers don't count it.
+ */
+public class DeadlineExceededException extends RuntimeException {
+
+    public DeadlineExceededException(String message) {
+        super(message);
+    }
+}
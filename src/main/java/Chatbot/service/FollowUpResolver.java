@@ -0,0 +1,162 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Recognizes short follow-ups ("and for 2023?", "what about Tbilisi?", "და ბათუმში?")
+ * and builds their plan from the previous turn of the session.
+ */
+public final class FollowUpResolver {
+
+    // longest first, so "what about" wins over "what"
+    private static final List<String> ENGLISH_LEAD_INS = List.of(
+            "what about", "how about", "same for", "now for", "and for", "and in", "and",
+            "also", "for", "in"
+    );
+
+    // Georgian, also as typed in Latin letters
+    private static final List<String> GEORGIAN_LEAD_INS = List.of(
+            "რაც შეეხება", "ხოლო", "ასევე", "და",
+            "rac shekheba", "kholo", "xolo", "aseve", "da"
+    );
+
+    // a follow-up is a refinement, not a new question
+    private static final int MAX_REMAINING_TOKENS = 4;
+
+    // cities and regions; prefix match so Georgian case endings still hit (თბილისში, ბათუმის)
+    private static final List<String> PLACE_STEMS = List.of(
+            "tbilis", "batum", "kutais", "rustav", "zugdid", "gor", "telav", "poti",
+            "adjar", "ajar", "imeret", "kakhet", "kartl", "samegrel", "guri", "racha",
+            "samtskh", "javakhet", "mtskhet", "mtianet", "svanet",
+            "თბილის", "ბათუმ", "ქუთაის", "რუსთავ", "ზუგდიდ", "გორ", "თელავ", "ფოთ",
+            "აჭარ", "იმერეთ", "კახეთ", "ქართლ", "სამეგრელ", "გური", "რაჭ",
+            "სამცხ", "ჯავახეთ", "მცხეთ", "მთიანეთ", "სვანეთ"
+    );
+
+    // what may follow a stem of four letters or less ("gor" → gori, goris, gorshi), so "gorge",
+    // "gorilla" or "gordon" are not places
+    private static final int SHORT_STEM = 4;
+    private static final Set<String> CASE_ENDINGS = Set.of(
+            "", "i", "is", "s", "a", "shi", "ashi", "ze", "aze", "dan", "idan", "istvis", "isa",
+            "ი", "ის", "ა", "ში", "აში", "ზე", "აზე", "დან", "იდან", "ისთვის", "ისა");
+
+    private FollowUpResolver() {
+    }
+
+    /**
+     * @return the previous plan narrowed by the years and places in {@code message}, or null when
+     * the message is not a refinement the previous navigation plan can answer
+     */
+    public static QueryPlan refine(QueryPlan previous, NormalizedMessage message) {
+        if (previous == null || !"navigation".equals(previous.intent)) return null;
+        if (previous.searchQueries == null || previous.searchQueries.isEmpty()) return null;
+
+        List<String> rest = stripLeadIn(message.matchKey());
+        if (rest.isEmpty() || rest.size() > MAX_REMAINING_TOKENS) return null;
+
+        String year = null;
+        List<String> places = new ArrayList<>(2);
+        for (String token : rest) {
+            if (isYear(token)) {
+                year = token;
+            } else if (isPlace(token)) {
+                places.add(token);
+            } else if (!isFiller(token)) {
+                return null;
+            }
+        }
+
+        QueryPlan refined = previous.copy();
+        if (startsWithAny(message.matchKey(), GEORGIAN_LEAD_INS)) {
+            refined.language = "ka";
+        } else if (message.script() != NormalizedMessage.Script.NONE) {
+            refined.language = message.language();
+        }
+        List<String> queries = new ArrayList<>(previous.searchQueries.size());
+        for (String query : previous.searchQueries) {
+            StringBuilder sb = new StringBuilder(query.length() + 16);
+            for (String word : query.split(" ")) {
+                // a new year replaces the old one instead of searching both
+                if (word.isEmpty() || year != null && isYear(word)) continue;
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(word);
+            }
+            for (String place : places) {
+                sb.append(' ').append(place);
+            }
+            if (year != null) {
+                sb.append(' ').append(year);
+            }
+            queries.add(sb.toString());
+        }
+        refined.searchQueries = queries;
+        return refined;
+    }
+
+    /**
+     * A short message that opens with a lead-in ("and ...", "what about ...") and cannot stand on its own.
+     */
+    public static boolean isFollowUp(NormalizedMessage message) {
+        String key = message.matchKey();
+        List<String> rest = stripLeadIn(key);
+        return !rest.isEmpty() && rest.size() <= MAX_REMAINING_TOKENS && rest.size() < tokenCount(key);
+    }
+
+    private static List<String> stripLeadIn(String key) {
+        String rest = strip(strip(key, ENGLISH_LEAD_INS), GEORGIAN_LEAD_INS);
+        return rest.isEmpty() ? List.of() : List.of(rest.split(" "));
+    }
+
+    private static String strip(String key, List<String> leadIns) {
+        for (String leadIn : leadIns) {
+            if (key.equals(leadIn)) return "";
+            if (key.startsWith(leadIn) && key.length() > leadIn.length() && key.charAt(leadIn.length()) == ' ') {
+                return key.substring(leadIn.length() + 1);
+            }
+        }
+        return key;
+    }
+
+    private static boolean startsWithAny(String key, List<String> leadIns) {
+        return !strip(key, leadIns).equals(key);
+    }
+
+    private static int tokenCount(String key) {
+        if (key.isEmpty()) return 0;
+        int count = 1;
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) == ' ') count++;
+        }
+        return count;
+    }
+
+    private static boolean isYear(String token) {
+        if (token.length() != 4) return false;
+        for (int i = 0; i < 4; i++) {
+            if (!Character.isDigit(token.charAt(i))) return false;
+        }
+        return token.startsWith("19") || token.startsWith("20");
+    }
+
+    private static boolean isPlace(String token) {
+        for (String stem : PLACE_STEMS) {
+            if (!token.startsWith(stem)) continue;
+            // only a case ending may follow the stem, so "tbilisshi" hits but "tbilisiology" does not
+            if (stem.length() <= SHORT_STEM ? CASE_ENDINGS.contains(token.substring(stem.length()))
+                    : token.length() - stem.length() <= 4) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isFiller(String token) {
+        return switch (token) {
+            case "the", "year", "city", "region", "in", "for", "of",
+                 "წელს", "წელი", "წლის", "წლისთვის", "wels", "weli", "wlis", "tsels", "tseli", "tslis" -> true;
+            default -> false;
+        };
+    }
+}
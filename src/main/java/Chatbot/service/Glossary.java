@@ -0,0 +1,141 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Fixed bilingual explanations of statistical concepts (inflation, GDP, CPI, …), so general
+ * knowledge questions about them are answered without the model. Each concept has aliases in
+ * English and Georgian; a question matches when its content words are exactly an alias's, so
+ * "what is inflation?" and "რა არის ინფლაცია" match but "inflation in Georgia in 2023" does not.
+ *
+ * Stored as versioned JSON. Model answers to unmatched questions stay in the query log, where
+ * {@link GlossaryJob} collects them for review before they are added here.
+ */
+public final class Glossary {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    // words that only make a question out of the concept name
+    private static final Set<String> QUESTION_WORDS = Set.of(
+            "what", "whats", "is", "are", "does", "do", "mean", "means", "meaning", "definition", "define",
+            "explain", "the", "a", "an", "of", "term", "tell", "me", "about", "please", "concept", "by", "how",
+            "რა", "რას", "არის", "ნიშნავს", "განმარტე", "განმარტება", "ტერმინი", "გულისხმობს",
+            "მითხარი", "შესახებ", "გთხოვთ", "ეს", "როგორ", "ახსენი", "აუხსენი", "საერთოდ");
+
+    /**
+     * @param answers language ("en", "ka") → answer text
+     */
+    public record Concept(String id, List<String> aliases, Map<String, String> answers) {
+    }
+
+    public record Match(String conceptId, String answer) {
+    }
+
+    /**
+     * The stored file: the glossary's own version, bumped on every reviewed change, and its concepts.
+     */
+    public record Contents(int format, int version, List<Concept> concepts) {
+    }
+
+    private final int version;
+    private final List<Concept> concepts;
+    private final Map<String, Concept> byAlias;
+    private final Counter hits;
+    private final Counter misses;
+
+    private Glossary(Contents contents, MeterRegistry meterRegistry) {
+        if (contents.format() != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported glossary format " + contents.format());
+        }
+        this.version = contents.version();
+        this.concepts = List.copyOf(contents.concepts());
+        Map<String, Concept> map = new HashMap<>(Math.max(16, concepts.size() * 8));
+        for (Concept concept : concepts) {
+            for (String alias : concept.aliases()) {
+                String keywords = keywords(NormalizedMessage.of(alias).matchKey());
+                Concept previous = map.putIfAbsent(keywords, concept);
+                if (previous != null && previous != concept) {
+                    throw new IllegalArgumentException("Alias \"" + alias + "\" of " + concept.id()
+                            + " is already an alias of " + previous.id());
+                }
+            }
+        }
+        this.byAlias = Map.copyOf(map);
+
+        if (meterRegistry == null) {
+            this.hits = null;
+            this.misses = null;
+            return;
+        }
+        this.hits = Counter.builder("geostat.glossary.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("geostat.glossary.lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("geostat.glossary.concepts", concepts, List::size).register(meterRegistry);
+    }
+
+    /**
+     * Never answers, for {@code geostat.glossary.enabled=false}.
+     */
+    public static Glossary disabled() {
+        return new Glossary(new Contents(FORMAT_VERSION, 0, List.of()), null);
+    }
+
+    /**
+     * @param meterRegistry null for offline use, without metrics
+     */
+    public static Glossary read(Path file, MeterRegistry meterRegistry) throws IOException {
+        return new Glossary(JSON.readValue(file.toFile(), Contents.class), meterRegistry);
+    }
+
+    public static Glossary read(InputStream in, MeterRegistry meterRegistry) throws IOException {
+        return new Glossary(JSON.readValue(in, Contents.class), meterRegistry);
+    }
+
+    /**
+     * @return the concept's answer in {@code language}, or null when no concept matches or it
+     * has no answer in that language
+     */
+    public Match lookup(NormalizedMessage message, String language) {
+        if (byAlias.isEmpty()) return null;
+        Concept concept = find(message);
+        String answer = concept == null ? null : concept.answers().get(language);
+        if (hits != null) (answer != null ? hits : misses).increment();
+        return answer == null ? null : new Match(concept.id(), answer);
+    }
+
+    /**
+     * The concept the message asks about, in any language; no metrics.
+     */
+    public Concept find(NormalizedMessage message) {
+        String keywords = keywords(message.matchKey());
+        return keywords.isEmpty() ? null : byAlias.get(keywords);
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public int size() {
+        return concepts.size();
+    }
+
+    /**
+     * Content words of a normalized key, deduplicated and sorted: "how is the CPI calculated" →
+     * "calculated cpi".
+     */
+    static String keywords(String matchKey) {
+        return NormalizedMessage.contentWords(matchKey, QUESTION_WORDS);
+    }
+}
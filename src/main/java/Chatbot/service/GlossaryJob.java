@@ -0,0 +1,92 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects glossary candidates from a query log directory: general knowledge questions the glossary
+ * didn't match, grouped by language and content words, with how often they were asked and the
+ * latest model answer. Reviewed candidates are added to the glossary file as concepts (with the
+ * glossary version bumped): {@code ./gradlew glossaryCandidates -PglossaryArgs="..."}.
+ *
+ * Arguments: {@code <query-log-dir> <output-file> [min-support] [glossary-file]}; without a
+ * glossary file the bundled one is used.
+ */
+public final class GlossaryJob {
+
+    /**
+     * @param question the latest question's normalized text
+     */
+    public record Candidate(String language, String keywords, int support, String question, String answer) {
+    }
+
+    private GlossaryJob() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: GlossaryJob <query-log-dir> <output-file> [min-support] [glossary-file]");
+            System.exit(2);
+        }
+        Path logDir = Path.of(args[0]);
+        Path output = Path.of(args[1]);
+        int minSupport = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        Glossary glossary;
+        if (args.length > 3) {
+            glossary = Glossary.read(Path.of(args[3]), null);
+        } else {
+            try (InputStream in = GlossaryJob.class.getResourceAsStream("/glossary.json")) {
+                glossary = in == null ? Glossary.disabled() : Glossary.read(in, null);
+            }
+        }
+
+        List<Candidate> candidates = candidates(logDir, glossary, minSupport);
+
+        Path parent = output.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output.toFile(), candidates);
+
+        System.out.printf("%d candidates not in glossary v%d written to %s%n",
+                candidates.size(), glossary.version(), output.toAbsolutePath());
+        candidates.stream()
+                .limit(20)
+                .forEach(c -> System.out.printf("%6d  %-2s  %s%n", c.support(), c.language(), c.keywords()));
+    }
+
+    static List<Candidate> candidates(Path queryLogDirectory, Glossary glossary, int minSupport) throws IOException {
+        Map<String, Candidate> groups = new HashMap<>();
+        QueryLogReader.forEach(queryLogDirectory, record -> {
+            // only fresh model answers; glossary, stale and fallback answers say nothing new
+            if (!"general_knowledge".equals(record.intent())
+                    || record.outcome() != ChatContext.Outcome.ANSWERED
+                    || record.response() == null) {
+                return;
+            }
+            String keywords = Glossary.keywords(record.matchKey());
+            if (keywords.isEmpty() || glossary.find(NormalizedMessage.of(record.matchKey())) != null) return;
+
+            // the answer's language, as the glossary is looked up with it
+            String language = record.planLanguage() != null ? record.planLanguage() : record.language();
+            // records are read oldest first, so the kept answer is the latest one
+            groups.merge(language + '\u0001' + keywords,
+                    new Candidate(language, keywords, 1, record.matchKey(), record.response()),
+                    (old, latest) -> new Candidate(latest.language(), latest.keywords(), old.support() + 1,
+                            latest.question(), latest.answer()));
+        });
+
+        List<Candidate> candidates = new ArrayList<>();
+        for (Candidate candidate : groups.values()) {
+            if (candidate.support() >= minSupport) candidates.add(candidate);
+        }
+        candidates.sort((a, b) -> Integer.compare(b.support(), a.support()));
+        return candidates;
+    }
+}
@@ -0,0 +1,243 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Fixed-capacity HNSW graph over unit vectors stored in one flat float array.
+ * Similarity is the dot product. Nodes are never moved or reused: deleting only hides a node
+ * from results, and the owner rebuilds into a fresh index once slots run out.
+ *
+ * Not thread-safe; callers synchronize.
+ */
+public class HnswIndex {
+
+    private static final int MAX_LEVEL = 12;
+
+    private final int dimensions;
+    private final int capacity;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+
+    private final float[] vectors;
+    private final int[][][] links; // links[node][level] = {count, neighbour...}
+    private final boolean[] deleted;
+    private final int[] visited;
+    private int visitGeneration;
+
+    private int size;
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public record Hit(int node, float similarity) {
+    }
+
+    public HnswIndex(int capacity, int dimensions, int m, int efConstruction) {
+        this.capacity = capacity;
+        this.dimensions = dimensions;
+        this.m = m;
+        this.efConstruction = efConstruction;
+        this.levelMultiplier = 1.0 / Math.log(m);
+        this.vectors = new float[capacity * dimensions];
+        this.links = new int[capacity][][];
+        this.deleted = new boolean[capacity];
+        this.visited = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    public boolean isDeleted(int node) {
+        return deleted[node];
+    }
+
+    public void delete(int node) {
+        deleted[node] = true;
+    }
+
+    public float[] vector(int node) {
+        float[] copy = new float[dimensions];
+        System.arraycopy(vectors, node * dimensions, copy, 0, dimensions);
+        return copy;
+    }
+
+    public int add(float[] vector) {
+        if (isFull()) {
+            throw new IllegalStateException("HNSW index is full");
+        }
+        int node = size++;
+        System.arraycopy(vector, 0, vectors, node * dimensions, dimensions);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[maxConnections(l) + 1];
+        }
+
+        if (entryPoint < 0) {
+            entryPoint = node;
+            maxLevel = level;
+            return node;
+        }
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            ep = greedyClosest(vector, ep, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            List<Hit> candidates = searchLayer(vector, ep, efConstruction, l);
+            for (int i = 0; i < Math.min(m, candidates.size()); i++) {
+                int neighbour = candidates.get(i).node();
+                connect(node, neighbour, l);
+                connect(neighbour, node, l);
+            }
+            ep = candidates.get(0).node();
+        }
+
+        if (level > maxLevel) {
+            maxLevel = level;
+            entryPoint = node;
+        }
+        return node;
+    }
+
+    /**
+     * @return the most similar live node, or null when the index has none
+     */
+    public Hit nearest(float[] query, int ef) {
+        if (entryPoint < 0) return null;
+
+        int ep = entryPoint;
+        for (int l = maxLevel; l > 0; l--) {
+            ep = greedyClosest(query, ep, l);
+        }
+        for (Hit hit : searchLayer(query, ep, ef, 0)) {
+            if (!deleted[hit.node()]) return hit;
+        }
+        return null;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? 2 * m : m;
+    }
+
+    private int randomLevel() {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return Math.min(MAX_LEVEL, (int) (-Math.log(1.0 - r) * levelMultiplier));
+    }
+
+    private float similarity(float[] query, int node) {
+        int offset = node * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * vectors[offset + i];
+        }
+        return dot;
+    }
+
+    private float similarity(int a, int b) {
+        int offsetA = a * dimensions;
+        int offsetB = b * dimensions;
+        float dot = 0;
+        for (int i = 0; i < dimensions; i++) {
+            dot += vectors[offsetA + i] * vectors[offsetB + i];
+        }
+        return dot;
+    }
+
+    private int greedyClosest(float[] query, int ep, int level) {
+        int best = ep;
+        float bestSimilarity = similarity(query, ep);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[best][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                float s = similarity(query, neighbours[i]);
+                if (s > bestSimilarity) {
+                    bestSimilarity = s;
+                    best = neighbours[i];
+                    improved = true;
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return up to {@code ef} nodes closest to the query on this level, most similar first
+     */
+    private List<Hit> searchLayer(float[] query, int ep, int ef, int level) {
+        if (++visitGeneration == Integer.MAX_VALUE) {
+            Arrays.fill(visited, 0);
+            visitGeneration = 1;
+        }
+
+        PriorityQueue<Hit> candidates = new PriorityQueue<>(Comparator.comparingDouble(Hit::similarity).reversed());
+        PriorityQueue<Hit> results = new PriorityQueue<>(Comparator.comparingDouble(Hit::similarity));
+
+        Hit start = new Hit(ep, similarity(query, ep));
+        candidates.add(start);
+        results.add(start);
+        visited[ep] = visitGeneration;
+
+        while (!candidates.isEmpty()) {
+            Hit current = candidates.poll();
+            if (results.size() >= ef && current.similarity() < results.peek().similarity()) {
+                break;
+            }
+            int[] neighbours = links[current.node()][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int n = neighbours[i];
+                if (visited[n] == visitGeneration) continue;
+                visited[n] = visitGeneration;
+
+                float s = similarity(query, n);
+                if (results.size() < ef || s > results.peek().similarity()) {
+                    Hit hit = new Hit(n, s);
+                    candidates.add(hit);
+                    results.add(hit);
+                    if (results.size() > ef) results.poll();
+                }
+            }
+        }
+
+        List<Hit> sorted = new ArrayList<>(results);
+        sorted.sort(Comparator.comparingDouble(Hit::similarity).reversed());
+        return sorted;
+    }
+
+    private void connect(int from, int to, int level) {
+        int[] neighbours = links[from][level];
+        int count = neighbours[0];
+        if (count < neighbours.length - 1) {
+            neighbours[++count] = to;
+            neighbours[0] = count;
+            return;
+        }
+
+        // Full: replace the weakest link if the new one is closer
+        int worst = 1;
+        float worstSimilarity = similarity(from, neighbours[1]);
+        for (int i = 2; i <= count; i++) {
+            float s = similarity(from, neighbours[i]);
+            if (s < worstSimilarity) {
+                worstSimilarity = s;
+                worst = i;
+            }
+        }
+        if (similarity(from, to) > worstSimilarity) {
+            neighbours[worst] = to;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package Chatbot.service;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size ring of recent latency samples with a cached percentile.
+ * The percentile is recomputed every {@code recomputeEvery} samples so the hot path stays O(1).
+ */
+public class LatencyWindow {
+
+    private final long[] samples;
+    private final int recomputeEvery;
+    private final double quantile;
+
+    private int next;
+    private int count;
+    private int sinceRecompute;
+    private volatile long cachedNanos = -1;
+
+    public LatencyWindow(int size, double quantile) {
+        this.samples = new long[size];
+        this.quantile = quantile;
+        this.recomputeEvery = Math.max(1, size / 8);
+    }
+
+    public synchronized void record(long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        if (count < samples.length) count++;
+
+        if (++sinceRecompute >= recomputeEvery) {
+            sinceRecompute = 0;
+            long[] copy = Arrays.copyOf(samples, count);
+            Arrays.sort(copy);
+            cachedNanos = copy[(int) Math.min(count - 1, Math.floor(quantile * count))];
+        }
+    }
+
+    /**
+     * @return the cached percentile in nanoseconds, or -1 while there are too few samples
+     */
+    public long percentileNanos() {
+        return cachedNanos;
+    }
+}
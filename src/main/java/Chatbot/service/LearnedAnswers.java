@@ -0,0 +1,120 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current {@link AnswerTable}, swapped in whole when a rebuild finishes so lookups never lock.
+ * Starts from the table file (which may have been built offline by {@link AnswerTableJob}) and,
+ * when a query log is available, rebuilds from it every {@code rebuildInterval} and rewrites the file.
+ */
+public class LearnedAnswers implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(LearnedAnswers.class);
+
+    private final Path tableFile;
+    private final Path queryLogDirectory;
+    private final AnswerTableBuilder builder;
+    private final ScheduledExecutorService rebuilder;
+    private volatile AnswerTable table = AnswerTable.EMPTY;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    /**
+     * @param queryLogDirectory null to only serve the table file, without rebuilding
+     */
+    public LearnedAnswers(Path tableFile,
+                          Path queryLogDirectory,
+                          AnswerTableBuilder builder,
+                          Duration rebuildInterval,
+                          MeterRegistry meterRegistry) {
+        this.tableFile = tableFile;
+        this.queryLogDirectory = queryLogDirectory;
+        this.builder = builder;
+
+        this.hits = Counter.builder("geostat.answer_table.lookups").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("geostat.answer_table.lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("geostat.answer_table.entries", this, l -> l.table.size()).register(meterRegistry);
+
+        load();
+
+        if (queryLogDirectory == null) {
+            this.rebuilder = null;
+            return;
+        }
+        this.rebuilder = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "answer-table-rebuild");
+            t.setDaemon(true);
+            return t;
+        });
+        long intervalMillis = rebuildInterval.toMillis();
+        // the first build waits a bit, so it doesn't compete with startup and the cache replay
+        rebuilder.scheduleWithFixedDelay(this::rebuild, Math.min(intervalMillis, 60_000), intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    private LearnedAnswers() {
+        this.tableFile = null;
+        this.queryLogDirectory = null;
+        this.builder = null;
+        this.rebuilder = null;
+        this.hits = null;
+        this.misses = null;
+    }
+
+    /**
+     * Never answers, for {@code geostat.answer-table.enabled=false}.
+     */
+    public static LearnedAnswers disabled() {
+        return new LearnedAnswers();
+    }
+
+    public AnswerTable.Entry lookup(String topic, String language, NormalizedMessage message) {
+        if (hits == null) return null;
+        AnswerTable.Entry entry = table.lookup(topic, language, message);
+        (entry != null ? hits : misses).increment();
+        return entry;
+    }
+
+    public AnswerTable current() {
+        return table;
+    }
+
+    void rebuild() {
+        try {
+            AnswerTable rebuilt = builder.build(queryLogDirectory);
+            table = rebuilt;
+            rebuilt.write(tableFile);
+        } catch (Exception e) {
+            log.warn("⚠️ Answer table rebuild failed, keeping {} entries: {}", table.size(), e.getMessage());
+        }
+    }
+
+    private void load() {
+        if (!Files.isRegularFile(tableFile)) return;
+        try {
+            table = AnswerTable.read(tableFile);
+            log.info("📚 Loaded answer table with {} entries from {}", table.size(), tableFile);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read answer table {}: {}", tableFile, e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (rebuilder != null) {
+            rebuilder.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Keyword classifier used instead of the model when the pipeline runs in {@link PipelineMode#LOCAL}
+ * or cheaper. Much rougher than the model: the topic is the one whose word stems appear most often,
+ * and "what is X" style questions about a concept are general knowledge.
+ */
+public final class LocalClassifier {
+
+    // the topic keywords of the classification prompt, as stems so case endings still match
+    private static final Map<String, List<String>> TOPIC_STEMS = Map.ofEntries(
+            Map.entry("economy", List.of("gdp", "econom", "growth", "production", "business",
+                    "unemploy", "employment", "labor", "labour",
+                    "მშპ", "ეკონომიკ", "წარმოებ", "ბიზნეს", "უმუშევრ", "დასაქმ")),
+            Map.entry("prices", List.of("inflation", "cpi", "price", "deflation",
+                    "ინფლაცი", "ფასებ", "ფასის", "ფასი")),
+            Map.entry("population", List.of("census", "populat", "demograph", "migra", "birth", "death", "resident",
+                    "აღწერ", "დემოგრაფ", "მოსახლეობ", "მიგრაცი", "შობადობ", "მოკვდაობ")),
+            Map.entry("environment", List.of("environment", "ecolog", "pollut", "climate", "emission", "waste",
+                    "გარემო", "ეკოლოგ", "დაბინძურებ", "კლიმატ", "ნარჩენ")),
+            Map.entry("energy", List.of("energy", "electric", "fuel", "renewable",
+                    "ენერგ", "ელექტროენერგ", "საწვავ")),
+            Map.entry("tourism", List.of("touris", "visitor", "hotel", "travel",
+                    "ტურიზმ", "ტურისტ", "ვიზიტორ", "სასტუმრო")),
+            Map.entry("trade", List.of("export", "import", "trade", "commerce",
+                    "ვაჭრობ", "ექსპორტ", "იმპორტ")),
+            Map.entry("agriculture", List.of("agricultur", "farm", "crop", "livestock", "harvest",
+                    "სოფლის", "აგრარ", "მეურნეობ", "მოსავალ")),
+            Map.entry("gender", List.of("gender", "women", "female",
+                    "გენდერ", "ქალებ", "ქალთა", "მამაკაც")),
+            Map.entry("regions", List.of("region", "municipal", "district", "territor",
+                    "რეგიონ", "მუნიციპალიტეტ")),
+            Map.entry("youth", List.of("youth", "young", "children", "teenager", "adolescen",
+                    "ახალგაზრდ", "ბავშვ", "მოზარდ")),
+            Map.entry("automobile", List.of("automobil", "vehicle", "cars",
+                    "ავტომობილ", "მანქან", "ავტო")),
+            Map.entry("wages", List.of("wage", "salar", "earning", "income",
+                    "ხელფას", "ანაზღაურებ", "შემოსავ")),
+            Map.entry("taxes", List.of("tax", "fiscal",
+                    "გადასახად", "საგადასახადო")),
+            Map.entry("fdi", List.of("fdi", "investment", "investor",
+                    "ინვესტიცი")),
+            Map.entry("gis", List.of("gis", "maps", "geograph", "spatial", "cartograph",
+                    "რუქ", "რუკ", "გეოგრაფ", "გის")),
+            Map.entry("disability", List.of("disab", "handicap", "accessib",
+                    "შშმ", "შეზღუდულ")),
+            Map.entry("international", List.of("international", "comparison", "ranking", "rating",
+                    "საერთაშორისო", "რეიტინგ", "შედარებ"))
+    );
+
+    private static final List<String> KNOWLEDGE_LEAD_INS = List.of(
+            "what is", "what are", "what does", "define", "explain",
+            "how is", "how are", "რა არის", "რას ნიშნავს", "რას გულისხმობს", "როგორ გამოითვლება", "განმარტე"
+    );
+
+    // asking for figures, not for an explanation
+    private static final List<String> DATA_STEMS = List.of(
+            "georgia", "current", "latest", "rate", "level", "tbilisi",
+            "საქართველ", "მიმდინარე", "ბოლო", "დონე", "თბილის"
+    );
+
+    private LocalClassifier() {
+    }
+
+    public static QueryPlan classify(NormalizedMessage message) {
+        String key = message.matchKey();
+        String[] tokens = key.isEmpty() ? new String[0] : key.split(" ");
+
+        QueryPlan plan = new QueryPlan();
+        plan.language = message.language();
+        plan.topic = topic(tokens);
+        plan.searchQueries = new ArrayList<>();
+
+        // the same phrases the chat path answers without a plan, so the two modes agree
+        if (SmallTalk.match(message) != null) {
+            plan.intent = "small_talk";
+            plan.topic = "other";
+        } else if (startsWithAny(key, KNOWLEDGE_LEAD_INS) && !asksForData(tokens)) {
+            plan.intent = "general_knowledge";
+        } else {
+            plan.intent = "navigation";
+            // same fallback query as a model plan without queries
+            plan.searchQueries = List.of(Arrays.stream(tokens).limit(3).collect(Collectors.joining(" ")));
+        }
+        return plan;
+    }
+
+    private static String topic(String[] tokens) {
+        String best = "other";
+        int bestHits = 0;
+        for (Map.Entry<String, List<String>> topic : TOPIC_STEMS.entrySet()) {
+            int hits = 0;
+            for (String token : tokens) {
+                if (matchesAny(token, topic.getValue())) hits++;
+            }
+            // ties go to the alphabetically first topic, so the answer doesn't depend on map order
+            if (hits > bestHits || hits > 0 && hits == bestHits && topic.getKey().compareTo(best) < 0) {
+                best = topic.getKey();
+                bestHits = hits;
+            }
+        }
+        return best;
+    }
+
+    private static boolean asksForData(String[] tokens) {
+        for (String token : tokens) {
+            if (matchesAny(token, DATA_STEMS)) return true;
+            if (token.length() == 4 && (token.startsWith("19") || token.startsWith("20"))
+                    && token.chars().allMatch(Character::isDigit)) return true;
+        }
+        return false;
+    }
+
+    private static boolean matchesAny(String token, List<String> stems) {
+        for (String stem : stems) {
+            // short stems only take a case ending, so "tax" hits "taxes" but not "taxonomy"
+            if (token.startsWith(stem) && (stem.length() >= 5 || token.length() - stem.length() <= 3)) return true;
+        }
+        return false;
+    }
+
+    private static boolean startsWithAny(String key, List<String> phrases) {
+        for (String phrase : phrases) {
+            if (key.equals(phrase) || key.startsWith(phrase + " ")) return true;
+        }
+        return false;
+    }
+}
@@ -1,24 +1,85 @@
 package Chatbot.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class NavigationService {
 
     private static final Logger log = LoggerFactory.getLogger(NavigationService.class);
 
-    private final ChatClient chatClient;
+    private final StageModel analysisModel;
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
     private final String pseApiKey;
     private final String pseCxId;
+    private final RequestHedger pseHedger;
+    private final CircuitBreaker anthropicBreaker;
+    private final CircuitBreaker pseBreaker;
+    private final StaleStore<String> staleAnswers;
+    private final TokenBudget tokenBudget;
+    private final LearnedAnswers learnedAnswers;
+    private final PseQuota pseQuota;
+    private final RequestDeadlines deadlines;
+
+    private static final int MAX_RESULTS = 5;
+    private static final int SNIPPET_TOKENS = 60;
+    // snippet lengths tried, in order, when the results don't fit the analysis budget
+    private static final int[] SNIPPET_STEPS = {SNIPPET_TOKENS, 30, 0};
+
+    // identical searches reuse the earlier results, on any replica, instead of spending quota
+    private final TieredCache<List<SearchResult>> recentSearches;
+
+    static final CacheCodec<List<SearchResult>> SEARCH_RESULTS_CODEC = CacheCodec.of(1,
+            (out, results) -> {
+                out.writeInt(results.size());
+                for (SearchResult result : results) {
+                    CacheCodec.writeString(out, result.title);
+                    CacheCodec.writeString(out, result.link);
+                    CacheCodec.writeString(out, result.snippet);
+                }
+            },
+            in -> {
+                int size = in.readInt();
+                List<SearchResult> results = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    results.add(new SearchResult(CacheCodec.readString(in), CacheCodec.readString(in), CacheCodec.readString(in)));
+                }
+                return results;
+            });
+
+    /**
+     * The first planned search, started while classification was still streaming.
+     *
+     * @param called  whether a PSE call was spent; false when it was already cached or out of quota
+     * @param results null when the call failed
+     */
+    record SearchAttempt(String key, boolean called, List<SearchResult> results) {
+    }
+
+    // partial response: the rest of each item (pagemap, htmlSnippet, ...) is never used
+    static final String PSE_FIELDS = "items(title,link,snippet)";
 
     // map entry subdomains
     private static final Map<String, String> PORTAL_MAP = Map.ofEntries(
@@ -68,7 +129,13 @@ public class NavigationService {
         }
     }
 
-    private static class SearchResult {
+    static class SearchResult {
+        private static final Pattern PORTAL_LINK = Pattern.compile("https://[a-zA-Z0-9.-]+\\.geostat\\.ge.*");
+        private static final Pattern SECTION_LINK = Pattern.compile("https://www\\.geostat\\.ge/[a-z]{2}/[a-zA-Z-]+/?$");
+        private static final Pattern DATED_TITLE = Pattern.compile(".*202[0-4].*");
+        private static final Pattern MONTH_TITLE_KA = Pattern.compile(".*(იანვარი|თებერვალი|მარტი|აპრილი|მაისი|ივნისი|ივლისი|აგვისტო|სექტემბერი|ოქტომბერი|ნოემბერი|დეკემბერი).*");
+        private static final Pattern MONTH_TITLE_EN = Pattern.compile(".*(January|February|March|April|May|June|July|August|September|October|November|December).*");
+
         String title;
         String link;
         String snippet;
@@ -91,65 +158,215 @@ public class NavigationService {
             // Boosts for good content
             if (link.contains("/modules/categories/")) score += 30;
             if (link.contains("/page/")) score += 30;
-            if (link.matches("https://[a-zA-Z0-9.-]+\\.geostat\\.ge.*")) score += 40;
-            if (link.matches("https://www\\.geostat\\.ge/[a-z]{2}/[a-zA-Z-]+/?$")) score += 35;
+            if (PORTAL_LINK.matcher(link).matches()) score += 40;
+            if (SECTION_LINK.matcher(link).matches()) score += 35;
             if (link.length() < 80) score += 20;
 
             // Penalties for dated/report content
             if (link.contains(".pdf")) score -= 70;
             if (link.contains("/media/") && link.contains(".pdf")) score -= 40;
-            if (title.matches(".*202[0-4].*")) score -= 25;
-            if (title.matches(".*(იანვარი|თებერვალი|მარტი|აპრილი|მაისი|ივნისი|ივლისი|აგვისტო|სექტემბერი|ოქტომბერი|ნოემბერი|დეკემბერი).*"))
-                score -= 30;
-            if (title.matches(".*(January|February|March|April|May|June|July|August|September|October|November|December).*"))
-                score -= 30;
+            if (DATED_TITLE.matcher(title).matches()) score -= 25;
+            if (MONTH_TITLE_KA.matcher(title).matches()) score -= 30;
+            if (MONTH_TITLE_EN.matcher(title).matches()) score -= 30;
 
             return score;
         }
     }
 
-    public NavigationService(ChatClient chatClient,
+    private static final PromptTemplate ANALYSIS_PROMPT = PromptTemplate.compile("analysis", """
+            You are GeoStat Navigator. Your job is to find the MOST RELEVANT page from search results.
+            
+            ## USER'S QUESTION
+            {{question}}
+            
+            ## SEARCH RESULTS FROM GEOSTAT WEBSITE
+            {{results}}
+            
+            ## YOUR TASK
+            
+            1. Read ALL search results carefully
+            2. Identify the SINGLE MOST RELEVANT page
+            3. Consider:
+               ✓ Which title best matches the user's question?
+               ✓ Which description is most relevant?
+               ✓ Prefer main category pages over news articles
+               ✓ Prefer pages with ongoing data over old PDFs
+               ✓ Prefer interactive portals over static pages
+            
+            ## CRITICAL OUTPUT FORMAT - FOLLOW EXACTLY
+            
+            Your COMPLETE response must be in {{language}} and look EXACTLY like this:
+            
+            Line 1: {{heading}}
+            Line 2: [URL only, nothing else]
+            Line 3: [blank line]
+            Lines 4-5: [1-2 sentences explaining what user will find on this page]
+            
+            ## EXAMPLE OUTPUT
+            
+            {{heading}}
+            https://eap.geostat.ge
+            
+            ამ გვერდზე ნახავთ ეკონომიკური აქტივობის ვიზუალიზაციას და მშპ-ს დეტალურ მონაცემებს. ინტერაქტიული გრაფიკები საშუალებას გაძლევთ შეადაროთ სხვადასხვა პერიოდები.
+            
+            ## CRITICAL RULES
+            
+            - DO NOT add any text before the heading
+            - DO NOT say "Here is..." or "The answer is..." or "I found..."
+            - DO NOT add any text after your explanation
+            - Start IMMEDIATELY with: {{heading}}
+            - Second line MUST be URL only (no "URL:", no extra text)
+            - Keep explanation brief: 1-2 sentences maximum
+            
+            BEGIN YOUR RESPONSE NOW:
+            """);
+
+    public NavigationService(StageModel analysisModel,
                              WebClient webClient,
                              ObjectMapper objectMapper,
                              String pseApiKey,
-                             String pseCxId) {
-        this.chatClient = chatClient;
+                             String pseCxId,
+                             RequestHedger pseHedger,
+                             CircuitBreaker anthropicBreaker,
+                             CircuitBreaker pseBreaker,
+                             StaleStore<String> staleAnswers,
+                             TokenBudget tokenBudget,
+                             LearnedAnswers learnedAnswers,
+                             PseQuota pseQuota,
+                             SharedCaches sharedCaches,
+                             RequestDeadlines deadlines) {
+        this.analysisModel = analysisModel;
         this.webClient = webClient;
         this.objectMapper = objectMapper;
         this.pseApiKey = pseApiKey;
         this.pseCxId = pseCxId;
+        this.pseHedger = pseHedger;
+        this.anthropicBreaker = anthropicBreaker;
+        this.pseBreaker = pseBreaker;
+        this.staleAnswers = staleAnswers;
+        this.tokenBudget = tokenBudget;
+        this.learnedAnswers = learnedAnswers;
+        this.pseQuota = pseQuota;
+        this.deadlines = deadlines;
+        this.recentSearches = sharedCaches.create("pse", SEARCH_RESULTS_CODEC);
+    }
+
+    /**
+     * Topics with a dedicated portal; only these are eligible for the learned answer table.
+     */
+    static Set<String> portalTopics() {
+        return PORTAL_MAP.keySet();
     }
 
 
-    public String handleNavigation(String userMessage, QueryPlan plan) {
-        log.info("🧭 Handling navigation for topic: {}", plan.topic);
+    public String handleNavigation(ChatContext ctx) {
+        NormalizedMessage message = ctx.message();
+        QueryPlan plan = ctx.plan();
+        String userMessage = message.original();
+        WideEvent event = ctx.event();
 
-        //  PSE search
-        String pseResults = runPseSearch(plan.searchQueries);
-        boolean hasResults = !isNoResult(pseResults);
+        // Frequent questions already have a known page: no search, no analysis call
+        AnswerTable.Entry learned = learnedAnswers.lookup(plan.topic, plan.language, message);
+        if (learned != null) {
+            ctx.outcome(ChatContext.Outcome.LEARNED);
+            ctx.url(learned.url());
+            return buildIntelligentResponse(plan, learnedAnalysis(learned, plan));
+        }
 
-        log.info("🔍 PSE search results: {}", hasResults ? "found" : "none");
+        String staleKey = StaleStore.answerKey("navigation", plan.language, message.matchKey());
+        if (ctx.mode().atLeast(PipelineMode.LOCAL)) {
+            return portalOnly(ctx, staleKey);
+        }
+        Runnable refresh = () -> handleNavigation(ctx.detached());
+
+        // While PSE is down, a previous good answer beats waiting out the failure
+        if (pseBreaker.isOpen()) {
+            String stale = staleAnswers.serve(staleKey, refresh);
+            if (stale != null) {
+                event.put("stale.reason", "pse_circuit_open");
+                ctx.outcome(ChatContext.Outcome.STALE);
+                return StaleStore.markOutdated(stale, plan.language);
+            }
+        }
 
+        //  PSE search
+        long pseStart = System.nanoTime();
+        List<SearchResult> pseResults = runPseSearch(plan.searchQueries, ctx);
+        ctx.stage(ChatContext.Stage.PSE, pseStart);
+        boolean hasResults = !pseResults.isEmpty();
+        event.put("pse.results", pseResults.size());
+
+        if (!hasResults) {
+            String stale = staleAnswers.serve(staleKey, pseBreaker.isOpen() ? refresh : null);
+            if (stale != null) {
+                event.put("stale.reason", "no_results");
+                ctx.outcome(ChatContext.Outcome.STALE);
+                return StaleStore.markOutdated(stale, plan.language);
+            }
+        }
 
         if (!hasResults && PORTAL_MAP.get(plan.topic) == null) {
-            log.warn("⚠️ No results and no portal for topic: {}", plan.topic);
+            ctx.outcome(ChatContext.Outcome.NO_RESULTS);
             return buildNoResultsMessage(plan.language);
         }
 
+        String analysis = null;
+        boolean analyzed = false;
+        if (hasResults && ctx.mode().atLeast(PipelineMode.NO_ANALYSIS)) {
+            analysis = fallbackAnalysis(pseResults, plan.language);
+            ctx.outcome(ChatContext.Outcome.FALLBACK);
+        } else if (hasResults && !deadlines.allows(ctx, RequestDeadlines.Step.ANALYSIS)) {
+            analysis = fallbackAnalysis(pseResults, plan.language);
+            ctx.outcome(ChatContext.Outcome.FALLBACK);
+        } else if (hasResults) {
+            long analysisStart = System.nanoTime();
+            analysis = analyzeResultsWithClaude(userMessage, pseResults, plan.language, ctx);
+            ctx.stage(ChatContext.Stage.ANALYSIS, analysisStart);
+            analyzed = analysis != null;
+            if (!analyzed) {
+                analysis = fallbackAnalysis(pseResults, plan.language);
+                ctx.outcome(ChatContext.Outcome.FALLBACK);
+            }
+        }
 
-        return buildIntelligentResponse(userMessage, plan, pseResults, hasResults);
+        String pageUrl = firstUrl(analysis);
+        ctx.url(pageUrl != null ? pageUrl : PORTAL_MAP.get(plan.topic));
+        String response = buildIntelligentResponse(plan, analysis);
+        if (analyzed) {
+            staleAnswers.put(staleKey, response);
+        }
+        return response;
     }
 
 
-    private String buildIntelligentResponse(String userQuestion, QueryPlan plan, String pseResults, boolean hasResults) {
+    /**
+     * The answer without PSE or the model: a previous answer if there is one, else the topic's portal.
+     */
+    private String portalOnly(ChatContext ctx, String staleKey) {
+        QueryPlan plan = ctx.plan();
+        String stale = staleAnswers.serve(staleKey, null);
+        if (stale != null) {
+            ctx.outcome(ChatContext.Outcome.STALE);
+            return StaleStore.markOutdated(stale, plan.language);
+        }
+        String portalLink = PORTAL_MAP.get(plan.topic);
+        if (portalLink == null) {
+            ctx.outcome(ChatContext.Outcome.NO_RESULTS);
+            return buildNoResultsMessage(plan.language);
+        }
+        ctx.outcome(ChatContext.Outcome.FALLBACK);
+        ctx.url(portalLink);
+        return buildIntelligentResponse(plan, null);
+    }
+
+
+    private String buildIntelligentResponse(QueryPlan plan, String analysis) {
         boolean isGeorgian = "ka".equals(plan.language);
         StringBuilder response = new StringBuilder();
 
 
         String portalLink = PORTAL_MAP.get(plan.topic);
         if (portalLink != null) {
-            log.info(" Adding portal recommendation: {}", plan.topic);
-
 
             response.append(isGeorgian
                     ? "📊 **რეკომენდებული პორტალი**: "
@@ -171,263 +388,388 @@ public class NavigationService {
         }
 
 
-        if (hasResults) {
-            log.info("📊 Analyzing PSE results with Claude");
-            String analysis = analyzeResultsWithClaude(userQuestion, pseResults, plan.language);
-            if (analysis != null && !analysis.isBlank()) {
-                response.append(analysis.trim());
-            }
+        if (analysis != null && !analysis.isBlank()) {
+            response.append(analysis.trim());
         }
 
-        String finalResponse = response.toString().trim();
-        log.info(" Built response with {} chars", finalResponse.length());
-        return finalResponse;
+        return response.toString().trim();
     }
 
-    private String analyzeResultsWithClaude(String userQuestion, String pseResults, String language) {
+    /**
+     * @return the model's pick of the most relevant page, or null when the model is unavailable
+     */
+    private String analyzeResultsWithClaude(String userQuestion, List<SearchResult> results, String language,
+                                            ChatContext ctx) {
+        WideEvent event = ctx.event();
         boolean isGeorgian = "ka".equals(language);
 
-        String heading = isGeorgian
-                ? "📄 **შესაბამისი გვერდი:**"
-                : "📄 **Relevant Page:**";
+        String heading = relevantPageHeading(language);
 
         String langLabel = isGeorgian ? "Georgian language" : "English language";
 
-        String analysisPrompt = String.format("""
-                You are GeoStat Navigator. Your job is to find the MOST RELEVANT page from search results.
-                
-                ══════════════════════════════════════════════════════════
-                USER'S QUESTION:
-                ══════════════════════════════════════════════════════════
-                %s
-                
-                ══════════════════════════════════════════════════════════
-                SEARCH RESULTS FROM GEOSTAT WEBSITE:
-                ══════════════════════════════════════════════════════════
-                %s
-                
-                ══════════════════════════════════════════════════════════
-                YOUR TASK:
-                ══════════════════════════════════════════════════════════
-                
-                1. Read ALL search results carefully
-                2. Identify the SINGLE MOST RELEVANT page
-                3. Consider:
-                   ✓ Which title best matches the user's question?
-                   ✓ Which description is most relevant?
-                   ✓ Prefer main category pages over news articles
-                   ✓ Prefer pages with ongoing data over old PDFs
-                   ✓ Prefer interactive portals over static pages
-                
-                ══════════════════════════════════════════════════════════
-                CRITICAL OUTPUT FORMAT - FOLLOW EXACTLY:
-                ══════════════════════════════════════════════════════════
-                
-                Your COMPLETE response must be in %s and look EXACTLY like this:
-                
-                Line 1: %s
-                Line 2: [URL only, nothing else]
-                Line 3: [blank line]
-                Lines 4-5: [1-2 sentences explaining what user will find on this page]
-                
-                ══════════════════════════════════════════════════════════
-                EXAMPLE OUTPUT:
-                ══════════════════════════════════════════════════════════
-                
-                %s
-                https://eap.geostat.ge
-                
-                ამ გვერდზე ნახავთ ეკონომიკური აქტივობის ვიზუალიზაციას და მშპ-ს დეტალურ მონაცემებს. ინტერაქტიული გრაფიკები საშუალებას გაძლევთ შეადაროთ სხვადასხვა პერიოდები.
-                
-                ══════════════════════════════════════════════════════════
-                CRITICAL RULES:
-                ══════════════════════════════════════════════════════════
-                
-                - DO NOT add any text before the heading
-                - DO NOT say "Here is..." or "The answer is..." or "I found..."
-                - DO NOT add any text after your explanation
-                - Start IMMEDIATELY with: %s
-                - Second line MUST be URL only (no "URL:", no extra text)
-                - Keep explanation brief: 1-2 sentences maximum
-                
-                ══════════════════════════════════════════════════════════
-                
-                BEGIN YOUR RESPONSE NOW:
-                """,
-                userQuestion,
-                pseResults,
+        int available = tokenBudget.available(TokenBudget.ANALYSIS, ANALYSIS_PROMPT);
+        String question = TokenBudget.truncate(userQuestion, available / 4);
+        if (question != userQuestion) {
+            tokenBudget.recordTrimmed(TokenBudget.ANALYSIS);
+        }
+        String analysisPrompt = tokenBudget.render(TokenBudget.ANALYSIS, ANALYSIS_PROMPT,
+                question,
+                renderResults(results, available - TokenBudget.estimate(question)),
                 langLabel,
-                heading,
-                heading,
-                heading
-        );
+                heading);
+        event.detail("analysis.prompt_chars", analysisPrompt::length);
 
         try {
-            log.info(" Calling Claude for result analysis");
-            String analysis = chatClient.prompt()
-                    .user(analysisPrompt)
-                    .call()
-                    .content();
+            String analysis = anthropicBreaker.execute(() -> analysisModel.call(analysisPrompt, ctx));
 
             if (analysis == null) {
                 throw new IllegalStateException("Claude returned null analysis");
             }
 
-            log.info(" Claude analysis completed: {} chars", analysis.length());
-
             // Clean up any potential leading/trailing whitespace
             return analysis.trim();
 
         } catch (Exception e) {
             log.error(" Claude analysis failed", e);
+            event.put("analysis.error", String.valueOf(e.getMessage()));
+            return null;
+        }
+    }
 
-            // Fallback: return first valid URL
-            String[] lines = pseResults.split("\n");
-            for (String line : lines) {
-                if (line.startsWith("URL: ")) {
-                    String url = line.substring(5).trim();
-                    log.info("🔄 Using fallback URL: {}", url);
-                    return heading + "\n" + url;
-                }
-            }
+    private String learnedAnalysis(AnswerTable.Entry learned, QueryPlan plan) {
+        // the portal block already shows this link
+        if (learned.url().equals(PORTAL_MAP.get(plan.topic))) return null;
+        String analysis = relevantPageHeading(plan.language) + "\n" + learned.url();
+        return learned.description() == null ? analysis : analysis + "\n\n" + learned.description();
+    }
 
-            log.warn("️No fallback URL found");
-            return heading + "\n" + pseResults.split("\n")[0];
-        }
+    private String fallbackAnalysis(List<SearchResult> results, String language) {
+        // Fallback: return the best-scored URL
+        String url = results.get(0).link;
+        return relevantPageHeading(language) + "\n" + url;
+    }
+
+    /**
+     * Shadow analyses agree when they point at the same page.
+     */
+    public static final StageModel.Comparison SAME_PAGE = (primary, shadow) ->
+            Objects.equals(firstUrl(primary), firstUrl(shadow)) ? 1 : 0;
+
+    private static String firstUrl(String text) {
+        if (text == null) return null;
+        int start = text.indexOf("https://");
+        if (start < 0) return null;
+        int end = start;
+        while (end < text.length() && !Character.isWhitespace(text.charAt(end))) end++;
+        return text.substring(start, end);
+    }
+
+    private String relevantPageHeading(String language) {
+        return "ka".equals(language)
+                ? "📄 **შესაბამისი გვერდი:**"
+                : "📄 **Relevant Page:**";
     }
 
     // PSE SEARCH ENGINE
-    private String runPseSearch(List<String> queries) {
+    /**
+     * Starts the plan's first search as soon as the classifier has streamed intent, topic and the
+     * first query, so the PSE call overlaps the rest of classification. Skipped whenever
+     * {@link #handleNavigation} would not search; {@link #runPseSearch} picks the result up.
+     * Called off the request thread and must not block.
+     */
+    public void searchEarly(ChatContext ctx, QueryPlan partial) {
+        if (!"navigation".equals(partial.intent)
+                || ctx.mode().atLeast(PipelineMode.LOCAL)
+                || pseBreaker.isOpen()
+                || pseQuota.maxAttempts() == 0
+                || learnedAnswers.current().lookup(partial.topic, partial.language, ctx.message()) != null) {
+            return;
+        }
+        String query = partial.searchQueries.get(0);
+        String key = searchKey(query);
+        CompletableFuture<SearchAttempt> search = new CompletableFuture<>();
+        if (!ctx.earlySearch(search)) return;
+        Mono.fromCallable(() -> firstSearch(key, query, ctx.deadline()))
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(search::complete, search::completeExceptionally);
+    }
+
+    private SearchAttempt firstSearch(String key, String query, Deadline deadline) {
+        if (recentSearches.get(key) != null || !pseQuota.tryAcquire()) {
+            return new SearchAttempt(key, false, null);
+        }
+        List<SearchResult> results = searchGeostat("site:geostat.ge " + query, deadline);
+        if (results != null) {
+            recentSearches.put(key, results);
+        }
+        return new SearchAttempt(key, true, results);
+    }
+
+    private static SearchAttempt awaitEarlySearch(ChatContext ctx) {
+        CompletableFuture<SearchAttempt> search = ctx.earlySearch();
+        if (search == null) return null;
+        // the search is bound by the same deadline; this only stops waiting on it
+        Duration remaining = ctx.deadline().remaining();
+        try {
+            return remaining == null ? search.join() : search.get(remaining.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (CompletionException | ExecutionException e) {
+            log.warn("⚠️ Early PSE search failed: {}", e.getCause().getMessage());
+            return null;
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Tries the planned queries in order, then the first word of the first one. Queries that are
+     * the same words in another order are sent once, recent identical searches are reused, and the
+     * number of calls is capped by the remaining PSE budget. When the budget stops the search with
+     * nothing found, the outcome is a portal-only {@link ChatContext.Outcome#FALLBACK}. Retries also
+     * stop once the request's deadline leaves too little time for them.
+     */
+    private List<SearchResult> runPseSearch(List<String> queries, ChatContext ctx) {
         if (queries == null || queries.isEmpty()) {
-            log.warn("⚠️ No search queries provided");
-            return "No results found";
+            return List.of();
         }
+        WideEvent event = ctx.event();
 
-        log.info("🔍 Starting PSE search with {} queries", queries.size());
+        List<String> attempts = new ArrayList<>(queries.size() + 1);
+        attempts.addAll(queries);
+        String firstWord = queries.get(0).split("\\s+")[0];
+        if (firstWord.length() > 2) {
+            attempts.add(firstWord);
+        }
 
-        // Try each planned query
-        for (int i = 0; i < queries.size(); i++) {
-            String q = "site:geostat.ge " + queries.get(i);
-            log.info("🔎 Attempt #{}: '{}'", i + 1, q);
+        int maxCalls = pseQuota.maxAttempts();
 
-            String result = formatPseResults(searchGeostat(q));
-            if (!isNoResult(result)) {
-                log.info("✅ Found results on attempt #{}", i + 1);
-                return result;
-            }
+        List<String> keys = new ArrayList<>(attempts.size());
+        for (String query : attempts) {
+            keys.add(searchKey(query));
         }
+        // a search started during classification has already spent its call; wait for it first
+        SearchAttempt early = awaitEarlySearch(ctx);
+        if (early != null && !early.called()) early = null;
+        // one shared-cache round trip for every attempt, before any call is spent
+        Map<String, List<SearchResult>> recent = recentSearches.getAll(keys);
+
+        Set<String> tried = new HashSet<>();
+        int calls = 0;
+        boolean limited = false;
+        for (int i = 0; i < attempts.size(); i++) {
+            String query = attempts.get(i);
+            String key = keys.get(i);
+            if (!tried.add(key)) {
+                pseQuota.recordSaved();
+                continue;
+            }
 
-        // Fallback: try first word only
-        if (!queries.isEmpty()) {
-            String firstWord = queries.get(0).split("\\s+")[0];
-            if (firstWord.length() > 2) {
-                String q = "site:geostat.ge " + firstWord;
-                log.info("🔄 Fallback (first word): '{}'", q);
-
-                String result = formatPseResults(searchGeostat(q));
-                if (!isNoResult(result)) {
-                    log.info(" Fallback success");
-                    return result;
+            boolean startedEarly = early != null && key.equals(early.key());
+            List<SearchResult> result = startedEarly ? early.results() : recent.get(key);
+            if (startedEarly) {
+                calls++;
+                event.increment("pse.calls");
+                event.put("pse.early", true);
+                event.detailAdd("pse.attempts", query);
+                early = null;
+                if (result == null) {
+                    event.increment("pse.errors");
+                    continue;
                 }
+            } else if (result != null) {
+                event.increment("pse.reused");
+                pseQuota.recordSaved();
+            } else {
+                if (calls >= maxCalls) {
+                    limited = true;
+                    break;
+                }
+                // a retry only helps if there is time left to analyse what it finds
+                if (ctx.deadline().expired()
+                        || (i > 0 && !deadlines.allows(ctx, RequestDeadlines.Step.PSE_RETRY))) {
+                    break;
+                }
+                if (!pseQuota.tryAcquire()) {
+                    limited = true;
+                    break;
+                }
+                calls++;
+                event.increment("pse.calls");
+                event.detailAdd("pse.attempts", query);
+                result = searchGeostat("site:geostat.ge " + query, ctx.deadline());
+                if (result == null) {
+                    event.increment("pse.errors");
+                    continue;
+                }
+                recentSearches.put(key, result);
+            }
+            if (!result.isEmpty()) {
+                List<SearchResult> found = result;
+                event.put("pse.hit_attempt", i + 1);
+                event.detail("pse.scores", () -> found.stream().map(r -> r.score).toList());
+                return result;
             }
         }
 
-        log.warn(" No results found after all attempts");
-        return "No results found";
+        if (limited) {
+            event.put("pse.quota_limited", true);
+            ctx.outcome(ChatContext.Outcome.FALLBACK);
+        }
+        return List.of();
+    }
+
+    /**
+     * Order-insensitive key of a query's words: "inflation georgia" and "Georgia, inflation" match.
+     */
+    private static String searchKey(String query) {
+        List<String> tokens = new ArrayList<>(NormalizedMessage.of(query).tokens());
+        Collections.sort(tokens);
+        return String.join(" ", tokens);
     }
 
-    private String searchGeostat(String query) {
+    /**
+     * @return the ranked results, or null when the call failed (failures are not remembered as "no results")
+     */
+    private List<SearchResult> searchGeostat(String query, Deadline deadline) {
         try {
-            log.info("🌐 Calling Google PSE API");
-            String result = webClient.get()
-                    .uri(uriBuilder -> uriBuilder
-                            .queryParam("key", pseApiKey)
-                            .queryParam("cx", pseCxId)
-                            .queryParam("q", query)
-                            .queryParam("num", 10)
-                            .build())
-                    .retrieve()
-                    .bodyToMono(String.class)
-                    .block();
-
-            boolean hasResults = result != null && result.contains("\"items\"");
-            log.info("📡 PSE API response received: {}", hasResults ? "has items" : "empty");
-
-            return result != null ? result : "{}";
+            // the caller paid for the first attempt; a hedged duplicate needs its own quota
+            AtomicBoolean first = new AtomicBoolean(true);
+            List<SearchResult> results = pseBreaker.execute(() -> deadline.bound(pseHedger.execute(() -> first.getAndSet(false) || pseQuota.tryAcquire()
+                            // bodyToMono joins the body through the codec, so max-in-memory-size applies
+                            ? webClient.get()
+                                    .uri(uriBuilder -> uriBuilder
+                                            .queryParam("key", pseApiKey)
+                                            .queryParam("cx", pseCxId)
+                                            .queryParam("q", query)
+                                            .queryParam("num", 10)
+                                            .queryParam("fields", PSE_FIELDS)
+                                            .build())
+                                    .retrieve()
+                                    .bodyToMono(DataBuffer.class)
+                                    .map(this::readResults)
+                            : Mono.<List<SearchResult>>error(new IllegalStateException("PSE quota exhausted, hedge not sent"))))
+                    .block());
+
+            return results != null ? results : List.of();
+        } catch (DeadlineExceededException e) {
+            log.debug("PSE search stopped: {}", e.getMessage());
+            return null;
         } catch (Exception e) {
             log.error("❌ PSE API Error: {}", e.getMessage());
-            return "{}";
+            return null;
         }
     }
 
-    private String formatPseResults(String json) {
-        try {
-            JsonNode items = objectMapper.readTree(json).get("items");
-            if (items == null || items.isEmpty()) {
-                return "No results found";
+    private List<SearchResult> readResults(DataBuffer body) {
+        try (InputStream in = body.asInputStream(true)) {
+            return parsePseResults(objectMapper.getFactory(), in);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unreadable PSE response", e);
+        }
+    }
+
+    /**
+     * Streams a Custom Search response straight into results, without a String or a tree:
+     * only title, link and snippet of each item are read, anything else is skipped.
+     *
+     * @return up to {@link #MAX_RESULTS} on-site results, best score first; empty when nothing usable came back
+     */
+    static List<SearchResult> parsePseResults(JsonFactory factory, InputStream in) throws IOException {
+        List<SearchResult> results = new ArrayList<>();
+        int items = 0;
+        try (JsonParser parser = factory.createParser(in)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return List.of();
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() != JsonToken.START_ARRAY || !"items".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    items++;
+                    SearchResult result = readItem(parser);
+                    if (result != null && result.score > 0) {
+                        results.add(result);
+                        log.debug("  ✓ Added result with score {}: {}", result.score, result.title);
+                    }
+                }
             }
+        }
 
-            log.info("📦 Processing {} search results", items.size());
+        if (results.isEmpty()) {
+            if (items > 0) log.debug("All {} results filtered out (low scores)", items);
+            return List.of();
+        }
 
-            List<SearchResult> results = new ArrayList<>();
-            for (int i = 0; i < items.size(); i++) {
-                JsonNode item = items.get(i);
-                String title = item.path("title").asText();
-                String link = item.path("link").asText();
-                String snippet = item.path("snippet").asText();
+        return results.stream()
+                .sorted((a, b) -> Integer.compare(b.score, a.score))
+                .limit(MAX_RESULTS)
+                .collect(Collectors.toList());
+    }
 
+    private static SearchResult readItem(JsonParser parser) throws IOException {
+        String title = "";
+        String link = null;
+        String snippet = "";
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if (value != JsonToken.VALUE_STRING) {
+                parser.skipChildren();
+                continue;
+            }
+            switch (field) {
+                case "title" -> title = parser.getText();
+                case "link" -> link = parser.getText();
                 // Truncate long snippets for better Claude analysis
-                if (snippet.length() > 250) {
-                    snippet = snippet.substring(0, 247) + "...";
-                }
-
-                SearchResult result = new SearchResult(title, link, snippet);
-
-                if (result.score > 0) {
-                    results.add(result);
-                    log.debug("  ✓ Added result with score {}: {}", result.score, title);
+                case "snippet" -> snippet = TokenBudget.truncate(parser.getText(), SNIPPET_TOKENS);
+                default -> {
                 }
             }
+        }
+        return link == null ? null : new SearchResult(title, link, snippet);
+    }
 
-            if (results.isEmpty()) {
-                log.info("⚠️ All results filtered out (low scores)");
-                return "No results found";
-            }
-
-            // Return TOP 5 results WITH SNIPPETS for Claude to analyze
-            List<SearchResult> topResults = results.stream()
-                    .sorted((a, b) -> Integer.compare(b.score, a.score))
-                    .limit(5)
-                    .collect(Collectors.toList());
-
-            log.info("📊 Returning top {} results", topResults.size());
-
-            StringBuilder sb = new StringBuilder();
-            for (int i = 0; i < topResults.size(); i++) {
-                SearchResult result = topResults.get(i);
-                sb.append(String.format("Result #%d (score: %d):\n", i + 1, result.score));
-                sb.append(String.format("Title: %s\n", result.title));
-                sb.append(String.format("URL: %s\n", result.link));
-                sb.append(String.format("Description: %s\n\n", result.snippet));
+    /**
+     * Lists results for the analysis prompt within {@code maxTokens}: snippets are shortened
+     * first, then the lowest-scored results are dropped. The best result is always kept.
+     */
+    private String renderResults(List<SearchResult> results, int maxTokens) {
+        StringBuilder sb = new StringBuilder(1024);
+        for (int snippetTokens : SNIPPET_STEPS) {
+            for (int count = results.size(); count >= 1; count--) {
+                sb.setLength(0);
+                for (int i = 0; i < count; i++) {
+                    SearchResult result = results.get(i);
+                    sb.append(i + 1).append(". ").append(result.title).append('\n')
+                            .append(result.link).append('\n');
+                    if (snippetTokens > 0 && !result.snippet.isBlank()) {
+                        sb.append(TokenBudget.truncate(result.snippet, snippetTokens)).append('\n');
+                    }
+                }
+                boolean lastTry = snippetTokens == 0 && count == 1;
+                if (TokenBudget.estimate(sb) <= maxTokens || lastTry) {
+                    if (snippetTokens != SNIPPET_TOKENS || count != results.size()) {
+                        log.debug("Trimmed search results to {} with {}-token snippets", count, snippetTokens);
+                        tokenBudget.recordTrimmed(TokenBudget.ANALYSIS);
+                    }
+                    return sb.toString();
+                }
+                // fewer results only once snippets can't get any shorter
+                if (snippetTokens > 0) break;
             }
-
-            return sb.toString();
-
-        } catch (Exception e) {
-            log.error("❌ Parse error", e);
-            return "No results found";
         }
+        return sb.toString();
     }
 
     private String buildNoResultsMessage(String language) {
         boolean isGeorgian = "ka".equals(language);
-        log.info("ℹ️ Building 'no results' message in {}", language);
         return isGeorgian
                 ? "ვერ მოიძებნა შესაბამისი გვერდები.\n\nსცადეთ:\n- მთავარი კატეგორიები: https://www.geostat.ge/ka/modules/categories\n- მონაცემთა პორტალები: https://www.geostat.ge/ka/page/data-portals"
                 : "Couldn't find relevant pages.\n\nTry:\n- Main categories: https://www.geostat.ge/en/modules/categories\n- Data portals: https://www.geostat.ge/en/page/data-portals";
     }
-
-    private boolean isNoResult(String results) {
-        return results == null || results.contains("No results found");
-    }
 }
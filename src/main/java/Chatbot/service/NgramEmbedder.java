@@ -0,0 +1,57 @@
+package Chatbot.service;
+
+/**
+ * Local text embedding: hashed character 2–4-grams (by code point, so Georgian script works)
+ * folded into a fixed-size, L2-normalised float vector. Cosine similarity is then a dot product.
+ */
+public class NgramEmbedder {
+
+    private static final int MIN_N = 2;
+    private static final int MAX_N = 4;
+
+    private final int dimensions;
+
+    public NgramEmbedder(int dimensions) {
+        this.dimensions = dimensions;
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    /**
+     * @param normalizedKey a {@link NormalizedMessage} key: lowercase, single-spaced, no punctuation
+     */
+    public float[] embed(String normalizedKey) {
+        String key = " " + normalizedKey + " ";
+        int[] codePoints = key.codePoints().toArray();
+        float[] vector = new float[dimensions];
+
+        for (int n = MIN_N; n <= MAX_N; n++) {
+            float weight = n - 1; // longer n-grams are more specific
+            for (int i = 0; i + n <= codePoints.length; i++) {
+                int hash = hash(codePoints, i, n);
+                int index = (hash >>> 1) % dimensions;
+                vector[index] += (hash & 1) == 0 ? weight : -weight;
+            }
+        }
+
+        double norm = 0;
+        for (float value : vector) norm += value * value;
+        if (norm > 0) {
+            float inv = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < vector.length; i++) vector[i] *= inv;
+        }
+        return vector;
+    }
+
+    // FNV-1a over code points, seeded with n so "ab" as a 2-gram and a 3-gram prefix differ
+    private static int hash(int[] codePoints, int from, int n) {
+        int h = 0x811c9dc5 ^ n;
+        for (int i = from; i < from + n; i++) {
+            h ^= codePoints[i];
+            h *= 0x01000193;
+        }
+        return h;
+    }
+}
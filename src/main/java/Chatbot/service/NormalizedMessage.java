@@ -0,0 +1,277 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A user message analysed once, in a single code-point scan: script, language, a normalized key
+ * (lowercase letters/digits, single spaces), tokens, and — for Latin-typed Georgian such as
+ * "inflacia" — a Georgian-script transliteration. Caches, the classifier and greeting detection
+ * all read from this instead of re-scanning the text.
+ */
+public final class NormalizedMessage {
+
+    public enum Script {NONE, GEORGIAN, LATIN, MIXED}
+
+    private static final String[] SINGLE = new String[128];
+
+    // Words whose informal spelling doesn't follow the letter rules (mostly t→თ vs ტ)
+    private static final Map<String, String> LEXICON = Map.ofEntries(
+            Map.entry("saqartvelo", "საქართველო"),
+            Map.entry("saqartveloshi", "საქართველოში"),
+            Map.entry("tbilisi", "თბილისი"),
+            Map.entry("tbilisshi", "თბილისში"),
+            Map.entry("mshp", "მშპ"),
+            Map.entry("madloba", "მადლობა"),
+            Map.entry("gamarjoba", "გამარჯობა"),
+            Map.entry("nakhvamdis", "ნახვამდის"),
+            Map.entry("rogor", "როგორ"),
+            Map.entry("rogorc", "როგორც"),
+            Map.entry("ra", "რა"),
+            Map.entry("sad", "სად"),
+            Map.entry("aris", "არის"),
+            Map.entry("vnakho", "ვნახო"),
+            Map.entry("mosakhleoba", "მოსახლეობა"),
+            Map.entry("inflacia", "ინფლაცია"),
+            Map.entry("inflaciis", "ინფლაციის"),
+            Map.entry("statistika", "სტატისტიკა"),
+            Map.entry("monacemebi", "მონაცემები"),
+            Map.entry("khelpasi", "ხელფასი"),
+            Map.entry("khelfasi", "ხელფასი"),
+            Map.entry("umushevroba", "უმუშევრობა"),
+            Map.entry("turizmi", "ტურიზმი"),
+            Map.entry("vachroba", "ვაჭრობა"),
+            Map.entry("ekonomika", "ეკონომიკა"),
+            Map.entry("pasebi", "ფასები"),
+            Map.entry("fasebi", "ფასები"));
+
+    // place names English questions use as well; transliterated, but no sign the message is Georgian
+    private static final Set<String> PLACES = Set.of("tbilisi");
+
+    // "-ia", "-uri", "-eli" are left out: "georgia", "media", "Armenia" would all count
+    private static final String[] GEORGIAN_SUFFIXES = {"oba", "eba", "ebi", "shi", "ebis", "obis"};
+
+    private static final Set<String> ENGLISH_WORDS = Set.of(
+            "the", "is", "are", "where", "what", "how", "of", "in", "and", "for", "to", "data",
+            "show", "me", "find", "about", "statistics", "rate", "please", "can", "you", "i", "a");
+
+    static {
+        String[][] letters = {
+                {"a", "ა"}, {"b", "ბ"}, {"g", "გ"}, {"d", "დ"}, {"e", "ე"}, {"v", "ვ"}, {"z", "ზ"},
+                {"t", "ტ"}, {"i", "ი"}, {"k", "კ"}, {"l", "ლ"}, {"m", "მ"}, {"n", "ნ"}, {"o", "ო"},
+                {"p", "პ"}, {"r", "რ"}, {"s", "ს"}, {"u", "უ"}, {"f", "ფ"}, {"q", "ქ"}, {"y", "ყ"},
+                {"c", "ც"}, {"w", "წ"}, {"x", "ხ"}, {"j", "ჯ"}, {"h", "ჰ"}};
+        for (String[] letter : letters) {
+            SINGLE[letter[0].charAt(0)] = letter[1];
+        }
+    }
+
+    private final String original;
+    private final Script script;
+    private final String language;
+    private final String key;
+    private final List<String> tokens;
+    private final String transliteration;
+
+    private NormalizedMessage(String original, Script script, String language, String key,
+                              List<String> tokens, String transliteration) {
+        this.original = original;
+        this.script = script;
+        this.language = language;
+        this.key = key;
+        this.tokens = tokens;
+        this.transliteration = transliteration;
+    }
+
+    public static NormalizedMessage of(String text) {
+        String original = text == null ? "" : text.trim();
+        StringBuilder key = new StringBuilder(original.length());
+        List<String> tokens = new ArrayList<>();
+        int georgianLetters = 0;
+        int latinLetters = 0;
+        int tokenStart = -1;
+
+        for (int i = 0; i < original.length(); ) {
+            int cp = original.codePointAt(i);
+            i += Character.charCount(cp);
+
+            if (Character.isLetterOrDigit(cp)) {
+                if (isGeorgian(cp)) georgianLetters++;
+                else if (cp < 128 && Character.isLetter(cp)) latinLetters++;
+
+                if (tokenStart < 0) {
+                    if (!key.isEmpty()) key.append(' ');
+                    tokenStart = key.length();
+                }
+                key.appendCodePoint(Character.toLowerCase(cp));
+            } else if (tokenStart >= 0) {
+                tokens.add(key.substring(tokenStart));
+                tokenStart = -1;
+            }
+        }
+        if (tokenStart >= 0) {
+            tokens.add(key.substring(tokenStart));
+        }
+
+        Script script = georgianLetters > 0
+                ? (latinLetters > 0 ? Script.MIXED : Script.GEORGIAN)
+                : (latinLetters > 0 ? Script.LATIN : Script.NONE);
+
+        String transliteration = script == Script.LATIN && looksTransliterated(tokens)
+                ? transliterate(tokens)
+                : null;
+
+        String language = script == Script.GEORGIAN || script == Script.MIXED
+                || transliteration != null || key.isEmpty() ? "ka" : "en";
+
+        return new NormalizedMessage(original, script, language, key.toString(),
+                Collections.unmodifiableList(tokens), transliteration);
+    }
+
+    /**
+     * The trimmed message as the user typed it; used in prompts.
+     */
+    public String original() {
+        return original;
+    }
+
+    public Script script() {
+        return script;
+    }
+
+    /**
+     * "ka" for Georgian script or transliterated Georgian, otherwise "en".
+     */
+    public String language() {
+        return language;
+    }
+
+    public String key() {
+        return key;
+    }
+
+    public List<String> tokens() {
+        return tokens;
+    }
+
+    /**
+     * @return the Georgian-script form of a Latin-typed Georgian message, or null
+     */
+    public String transliteration() {
+        return transliteration;
+    }
+
+    public boolean isTransliterated() {
+        return transliteration != null;
+    }
+
+    /**
+     * Key for caches and lookups: the transliteration when there is one, so "inflacia" and
+     * "ინფლაცია" land on the same entry.
+     */
+    public String matchKey() {
+        return transliteration != null ? transliteration : key;
+    }
+
+    public boolean isEmpty() {
+        return key.isEmpty();
+    }
+
+    /**
+     * The words of a {@link #matchKey()} that are longer than one character and not in
+     * {@code stopWords}, deduplicated and sorted, so word order and question phrasing don't matter.
+     * The answer table and the glossary match on these, each with its own stop words.
+     */
+    static String contentWords(String matchKey, Set<String> stopWords) {
+        TreeSet<String> words = new TreeSet<>();
+        for (String token : matchKey.split(" ")) {
+            if (token.length() < 2 || stopWords.contains(token)) continue;
+            words.add(token);
+        }
+        return String.join(" ", words);
+    }
+
+    private static boolean isGeorgian(int cp) {
+        return cp >= 'ა' && cp <= 'ჰ';
+    }
+
+    /**
+     * Georgian when a lexicon word (other than a place name) or at least two Georgian-looking
+     * tokens outweigh the English ones.
+     */
+    private static boolean looksTransliterated(List<String> tokens) {
+        int words = 0;
+        int georgianLike = 0;
+        int lexiconWords = 0;
+        int englishLike = 0;
+        for (String token : tokens) {
+            if (!Character.isLetter(token.charAt(0)) || PLACES.contains(token)) continue;
+            words++;
+            if (ENGLISH_WORDS.contains(token)) {
+                englishLike++;
+            } else if (LEXICON.containsKey(token)) {
+                lexiconWords++;
+                georgianLike++;
+            } else if (hasGeorgianSuffix(token)) {
+                georgianLike++;
+            }
+        }
+        return (lexiconWords > 0 || georgianLike >= 2)
+                && georgianLike > englishLike && georgianLike * 2 >= words;
+    }
+
+    private static boolean hasGeorgianSuffix(String token) {
+        for (String suffix : GEORGIAN_SUFFIXES) {
+            if (token.length() > suffix.length() + 1 && token.endsWith(suffix)) return true;
+        }
+        return false;
+    }
+
+    private static char digraph(char first, char second) {
+        if (second == 'h') {
+            return switch (first) {
+                case 's' -> 'შ';
+                case 'c' -> 'ჩ';
+                case 'k' -> 'ხ';
+                case 'g' -> 'ღ';
+                case 'z' -> 'ჟ';
+                case 't' -> 'თ';
+                case 'p' -> 'ფ';
+                default -> 0;
+            };
+        }
+        if (first == 'd' && second == 'z') return 'ძ';
+        if (first == 't' && second == 's') return 'ც';
+        return 0;
+    }
+
+    private static String transliterate(List<String> tokens) {
+        StringBuilder out = new StringBuilder();
+        for (String token : tokens) {
+            if (!out.isEmpty()) out.append(' ');
+            String known = LEXICON.get(token);
+            if (known != null) {
+                out.append(known);
+                continue;
+            }
+            for (int i = 0; i < token.length(); ) {
+                char c = token.charAt(i);
+                char digraph = i + 1 < token.length() ? digraph(c, token.charAt(i + 1)) : 0;
+                if (digraph != 0) {
+                    out.append(digraph);
+                    i += 2;
+                    continue;
+                }
+                i++;
+                String single = c < 128 ? SINGLE[c] : null;
+                if (single != null) out.append(single);
+                else out.append(c);
+            }
+        }
+        return out.toString();
+    }
+}
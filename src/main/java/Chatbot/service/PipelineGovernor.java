@@ -0,0 +1,198 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Picks the {@link PipelineMode} from the questions in flight and the p95 time each question spends
+ * waiting on upstream calls. Crossing either threshold of a mode steps down to it at once; stepping
+ * back up goes one mode at a time, after both signals have stayed below {@code recoverRatio} of the
+ * current mode's thresholds for {@code stepUpAfter}.
+ *
+ * Degraded modes make few or no upstream calls, so the latency signal is ignored once no sample has
+ * arrived for {@code stepUpAfter}; the in-flight count alone decides then.
+ */
+public class PipelineGovernor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(PipelineGovernor.class);
+
+    private static final PipelineMode[] MODES = PipelineMode.values();
+
+    /**
+     * Load at which a mode is entered: either value is enough.
+     */
+    public record Threshold(int inFlight, Duration upstreamP95) {
+    }
+
+    private final boolean enabled;
+    // stepDown[i] enters MODES[i + 1]
+    private final Threshold[] stepDown;
+    private final double recoverRatio;
+    private final long stepUpAfterNanos;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LatencyWindow upstreamLatency = new LatencyWindow(256, 0.95);
+    private volatile long lastSampleNanos = System.nanoTime();
+    private volatile PipelineMode mode = PipelineMode.FULL;
+
+    // guarded by this
+    private boolean calm;
+    private long calmSinceNanos;
+
+    private final Map<PipelineMode, Counter> entered = new EnumMap<>(PipelineMode.class);
+    private final ScheduledExecutorService ticker;
+
+    public PipelineGovernor(boolean enabled,
+                            Threshold noAnalysis,
+                            Threshold local,
+                            Threshold cached,
+                            double recoverRatio,
+                            Duration stepUpAfter,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.stepDown = new Threshold[]{noAnalysis, local, cached};
+        this.recoverRatio = recoverRatio;
+        this.stepUpAfterNanos = stepUpAfter.toNanos();
+
+        for (PipelineMode m : MODES) {
+            entered.put(m, Counter.builder("geostat.pipeline.mode.changes").tag("mode", m.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        Gauge.builder("geostat.pipeline.mode", this, g -> g.mode.ordinal())
+                .description("0 full, 1 no analysis, 2 local, 3 cached")
+                .register(meterRegistry);
+        Gauge.builder("geostat.pipeline.in_flight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder("geostat.pipeline.upstream_p95", upstreamLatency, w -> Math.max(0, w.percentileNanos()) / 1_000_000.0)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        if (!enabled) {
+            this.ticker = null;
+            return;
+        }
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pipeline-governor");
+            t.setDaemon(true);
+            return t;
+        });
+        // stepping back up must not depend on requests arriving
+        ticker.scheduleWithFixedDelay(this::evaluate, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Counts a question as in flight; pair with {@link #exit}.
+     *
+     * @return the mode the question should be answered in
+     */
+    public PipelineMode enter() {
+        int load = inFlight.incrementAndGet();
+        if (!enabled) return PipelineMode.FULL;
+        PipelineMode current = mode;
+        // stepping down can't wait for the next tick
+        if (current != PipelineMode.CACHED) {
+            Threshold next = stepDown[current.ordinal()];
+            if (load >= next.inFlight() || upstreamP95Nanos(System.nanoTime()) >= next.upstreamP95().toNanos()) {
+                evaluate();
+            }
+        }
+        return mode;
+    }
+
+    /**
+     * Ends a question started with {@link #enter} and records how long it waited on upstream calls.
+     */
+    public void exit(ChatContext ctx) {
+        inFlight.decrementAndGet();
+        long upstream = upstreamNanos(ctx);
+        if (upstream > 0) {
+            upstreamLatency.record(upstream);
+            lastSampleNanos = System.nanoTime();
+        }
+    }
+
+    public PipelineMode mode() {
+        return mode;
+    }
+
+    synchronized void evaluate() {
+        long now = System.nanoTime();
+        int load = inFlight.get();
+        long p95 = upstreamP95Nanos(now);
+
+        PipelineMode target = PipelineMode.FULL;
+        for (int i = stepDown.length - 1; i >= 0; i--) {
+            if (load >= stepDown[i].inFlight() || p95 >= stepDown[i].upstreamP95().toNanos()) {
+                target = MODES[i + 1];
+                break;
+            }
+        }
+        if (target.ordinal() > mode.ordinal()) {
+            change(target, load, p95);
+            calm = false;
+            return;
+        }
+        if (mode == PipelineMode.FULL) return;
+
+        Threshold current = stepDown[mode.ordinal() - 1];
+        if (load >= current.inFlight() * recoverRatio || p95 >= current.upstreamP95().toNanos() * recoverRatio) {
+            calm = false;
+            return;
+        }
+        if (!calm) {
+            calm = true;
+            calmSinceNanos = now;
+        } else if (now - calmSinceNanos >= stepUpAfterNanos) {
+            change(MODES[mode.ordinal() - 1], load, p95);
+            // the next step up needs its own calm period
+            calmSinceNanos = now;
+        }
+    }
+
+    private void change(PipelineMode target, int load, long p95) {
+        PipelineMode previous = mode;
+        mode = target;
+        entered.get(target).increment();
+        if (target.ordinal() > previous.ordinal()) {
+            log.warn("🚦 Pipeline mode {} → {} (in flight {}, upstream p95 {} ms)", previous, target, load, p95 / 1_000_000);
+        } else {
+            log.info("🚦 Pipeline mode {} → {} (in flight {}, upstream p95 {} ms)", previous, target, load, p95 / 1_000_000);
+        }
+    }
+
+    private long upstreamP95Nanos(long now) {
+        if (now - lastSampleNanos > stepUpAfterNanos) return 0;
+        return Math.max(0, upstreamLatency.percentileNanos());
+    }
+
+    /**
+     * Time the question spent in stages that call the model or PSE; a plan from a cache is free.
+     */
+    private static long upstreamNanos(ChatContext ctx) {
+        long nanos = ctx.stageNanos(ChatContext.Stage.PSE)
+                + ctx.stageNanos(ChatContext.Stage.ANALYSIS)
+                + ctx.stageNanos(ChatContext.Stage.ANSWER);
+        switch (ctx.planSource()) {
+            case CLASSIFIED, STALE_PLAN, FALLBACK_PLAN -> nanos += ctx.stageNanos(ChatContext.Stage.CLASSIFY);
+            default -> {
+            }
+        }
+        return nanos;
+    }
+
+    @Override
+    public void close() {
+        if (ticker != null) ticker.shutdownNow();
+    }
+}
@@ -0,0 +1,21 @@
+package Chatbot.service;
+
+/**
+ * How much of the answer pipeline runs, cheapest last. Each mode also drops everything the
+ * modes before it dropped.
+ */
+public enum PipelineMode {
+
+    /** Classify, search PSE, let the model pick the page. */
+    FULL,
+    /** Search PSE but answer with the best-scored result instead of the analysis call. */
+    NO_ANALYSIS,
+    /** No classifier call and no PSE: local classification and the portal links only. */
+    LOCAL,
+    /** No model calls at all: general questions are answered from earlier answers only. */
+    CACHED;
+
+    public boolean atLeast(PipelineMode other) {
+        return ordinal() >= other.ordinal();
+    }
+}
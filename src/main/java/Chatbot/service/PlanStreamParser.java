@@ -0,0 +1,135 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Builds a {@link QueryPlan} from classifier output while it streams in. Text before the first
+ * {@code {} (code fences, a preamble) is skipped; once the top-level object closes the plan is
+ * complete and the rest of the stream can be cancelled.
+ *
+ * As soon as language, intent, topic and the first search query have arrived, the plan so far is
+ * handed to {@code onFirstQuery}, so a search can start before the model has finished.
+ */
+final class PlanStreamParser {
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Consumer<QueryPlan> onFirstQuery;
+    private final QueryPlan plan = new QueryPlan();
+    private final StringBuilder text = new StringBuilder(256);
+
+    private boolean started;
+    private boolean complete;
+    private boolean firstQuerySent;
+    private int depth;
+    private String field;
+
+    /**
+     * @param onFirstQuery may be null; called at most once, on the thread that feeds the stream
+     */
+    PlanStreamParser(JsonFactory factory, Consumer<QueryPlan> onFirstQuery) {
+        try {
+            this.parser = factory.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        this.onFirstQuery = onFirstQuery;
+    }
+
+    /**
+     * @return true once the plan object is complete; later chunks are ignored
+     * @throws UncheckedIOException when the output is not valid JSON
+     */
+    boolean feed(String chunk) {
+        if (complete) return true;
+        text.append(chunk);
+        if (!started) {
+            int brace = chunk.indexOf('{');
+            if (brace < 0) return false;
+            chunk = chunk.substring(brace);
+            started = true;
+        }
+        try {
+            byte[] bytes = chunk.getBytes(StandardCharsets.UTF_8);
+            feeder.feedInput(bytes, 0, bytes.length);
+            JsonToken token;
+            while (!complete && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                handle(token);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return complete;
+    }
+
+    /**
+     * @throws IllegalStateException when the stream ended before the object closed
+     */
+    QueryPlan plan() {
+        if (!complete) {
+            throw new IllegalStateException("Classification response ended before the JSON object closed");
+        }
+        return plan;
+    }
+
+    /**
+     * Everything received so far, including text after the object if it arrived in the same chunk.
+     */
+    String text() {
+        return text.toString();
+    }
+
+    private void handle(JsonToken token) throws IOException {
+        switch (token) {
+            case START_OBJECT, START_ARRAY -> {
+                depth++;
+                if (depth == 2 && token == JsonToken.START_ARRAY && "searchQueries".equals(field)) {
+                    plan.searchQueries = new ArrayList<>();
+                }
+            }
+            case END_OBJECT, END_ARRAY -> {
+                depth--;
+                complete = depth == 0;
+            }
+            case FIELD_NAME -> {
+                if (depth == 1) field = parser.currentName();
+            }
+            case VALUE_STRING -> {
+                if (depth == 1) {
+                    switch (field) {
+                        case "language" -> plan.language = parser.getText();
+                        case "intent" -> plan.intent = parser.getText();
+                        case "topic" -> plan.topic = parser.getText();
+                        default -> {
+                        }
+                    }
+                } else if (depth == 2 && "searchQueries".equals(field)) {
+                    plan.searchQueries.add(parser.getText());
+                }
+                maybeSendFirstQuery();
+            }
+            default -> {
+            }
+        }
+    }
+
+    private void maybeSendFirstQuery() {
+        if (firstQuerySent || onFirstQuery == null
+                || plan.intent == null || plan.topic == null
+                || plan.searchQueries == null || plan.searchQueries.isEmpty()) {
+            return;
+        }
+        firstQuerySent = true;
+        onFirstQuery.accept(plan.copy());
+    }
+}
@@ -0,0 +1,110 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A prompt split once into static text and {@code {{name}}} placeholders. Rendering appends the
+ * segments and values into a per-thread buffer instead of re-parsing a format string per request.
+ * The same name may appear several times; values are passed in {@link #variables()} order.
+ */
+public final class PromptTemplate {
+
+    // large enough for the classification prompt; buffers that grew past this are not kept
+    private static final int BUFFER_CAPACITY = 16 * 1024;
+    private static final ThreadLocal<StringBuilder> BUFFER =
+            ThreadLocal.withInitial(() -> new StringBuilder(BUFFER_CAPACITY));
+
+    private final String name;
+    private final String[] segments;
+    private final int[] slots;
+    private final List<String> variables;
+    private final int staticLength;
+    private final int staticTokens;
+
+    private PromptTemplate(String name, String[] segments, int[] slots, List<String> variables) {
+        this.name = name;
+        this.segments = segments;
+        this.slots = slots;
+        this.variables = List.copyOf(variables);
+        int length = 0;
+        int tokens = 0;
+        for (String segment : segments) {
+            length += segment.length();
+            tokens += TokenBudget.estimate(segment);
+        }
+        this.staticLength = length;
+        this.staticTokens = tokens;
+    }
+
+    public static PromptTemplate compile(String name, String text) {
+        List<String> segments = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+
+        int pos = 0;
+        while (true) {
+            int open = text.indexOf("{{", pos);
+            if (open < 0) break;
+            int close = text.indexOf("}}", open + 2);
+            if (close < 0) {
+                throw new IllegalArgumentException("Unclosed placeholder in prompt '" + name + "' at " + open);
+            }
+            String variable = text.substring(open + 2, close).trim();
+            if (variable.isEmpty()) {
+                throw new IllegalArgumentException("Empty placeholder in prompt '" + name + "' at " + open);
+            }
+            segments.add(text.substring(pos, open));
+            int slot = variables.indexOf(variable);
+            if (slot < 0) {
+                slot = variables.size();
+                variables.add(variable);
+            }
+            slots.add(slot);
+            pos = close + 2;
+        }
+        segments.add(text.substring(pos));
+
+        return new PromptTemplate(name, segments.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(), variables);
+    }
+
+    public String render(String... values) {
+        if (values.length != variables.size()) {
+            throw new IllegalArgumentException("Prompt '" + name + "' expects " + variables
+                    + " but got " + values.length + " values");
+        }
+
+        StringBuilder sb = BUFFER.get();
+        sb.setLength(0);
+        for (int i = 0; i < slots.length; i++) {
+            sb.append(segments[i]).append(values[slots[i]]);
+        }
+        sb.append(segments[segments.length - 1]);
+
+        String prompt = sb.toString();
+        if (sb.capacity() > BUFFER_CAPACITY * 4) {
+            BUFFER.remove();
+        }
+        return prompt;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public List<String> variables() {
+        return variables;
+    }
+
+    public int staticLength() {
+        return staticLength;
+    }
+
+    /**
+     * Estimated input tokens of the template text alone, computed once at compile time.
+     */
+    public int staticTokens() {
+        return staticTokens;
+    }
+}
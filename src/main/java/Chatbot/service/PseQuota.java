@@ -0,0 +1,245 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Daily and per-minute budgets for Programmable Search calls. Google's daily quota resets at
+ * midnight Pacific time, so the day window follows {@code resetZone}.
+ *
+ * The quota is per Google project, not per replica, so with a shared tier the budgets are counted
+ * there ({@link SharedCounter}): every replica draws on one total, and a restart or deploy doesn't
+ * start the day again from zero. While the shared tier is unreachable, and without one, each replica
+ * counts on its own against {@code 1/replicas} of each budget. Those local counts start at zero on
+ * restart, so restarts during an outage can still overspend.
+ *
+ * Each local window is one AtomicLong holding the window index in the high 32 bits and the calls
+ * made in it in the low 32, so counting and rolling over to a new window is a single CAS. They count
+ * this replica's calls even while the shared counts are used, so a fallback starts from what this
+ * replica already spent.
+ *
+ * As the day's budget runs down, fewer search attempts are allowed per question; below the
+ * reserve none are, and navigation answers fall back to the portal links.
+ */
+public class PseQuota {
+
+    private static final Logger log = LoggerFactory.getLogger(PseQuota.class);
+
+    private static final long COUNT_MASK = 0xFFFF_FFFFL;
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final long DAY_MILLIS = 86_400_000;
+
+    private final boolean enabled;
+    private final long dailyLimit;
+    private final long perMinuteLimit;
+    private final SharedCounter shared;
+    private final int replicas;
+    private final long localDailyLimit;
+    private final long localPerMinuteLimit;
+    private final ZoneId resetZone;
+    private final double reduceBelow;
+    private final double singleBelow;
+    private final double reserve;
+
+    private final AtomicLong day = new AtomicLong();
+    private final AtomicLong minute = new AtomicLong();
+    private volatile int lastLevel = Integer.MAX_VALUE;
+
+    private final Counter dailyDenied;
+    private final Counter minuteDenied;
+    private final Counter saved;
+
+    /**
+     * @param reduceBelow remaining share of the daily budget under which a question gets 2 attempts
+     * @param singleBelow remaining share under which it gets 1
+     * @param reserve     remaining share under which search is skipped
+     * @param shared      the counts all replicas share, or null to count on this replica only
+     * @param replicas    how many replicas split the budgets when counting on their own
+     */
+    public PseQuota(boolean enabled,
+                    long dailyLimit,
+                    long perMinuteLimit,
+                    ZoneId resetZone,
+                    double reduceBelow,
+                    double singleBelow,
+                    double reserve,
+                    SharedCounter shared,
+                    int replicas,
+                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.dailyLimit = Math.min(dailyLimit, COUNT_MASK);
+        this.perMinuteLimit = Math.min(perMinuteLimit, COUNT_MASK);
+        this.shared = shared;
+        this.replicas = Math.max(1, replicas);
+        this.localDailyLimit = Math.max(1, this.dailyLimit / this.replicas);
+        this.localPerMinuteLimit = Math.max(1, this.perMinuteLimit / this.replicas);
+        this.resetZone = resetZone;
+        this.reduceBelow = reduceBelow;
+        this.singleBelow = singleBelow;
+        this.reserve = reserve;
+
+        this.dailyDenied = Counter.builder("geostat.pse.quota.denied").tag("window", "day").register(meterRegistry);
+        this.minuteDenied = Counter.builder("geostat.pse.quota.denied").tag("window", "minute").register(meterRegistry);
+        this.saved = Counter.builder("geostat.pse.quota.saved")
+                .description("Searches answered by an identical recent or repeated query")
+                .register(meterRegistry);
+        Gauge.builder("geostat.pse.quota.remaining", this, PseQuota::remainingToday)
+                .tag("window", "day")
+                .register(meterRegistry);
+        Gauge.builder("geostat.pse.quota.remaining", this, PseQuota::remainingThisMinute)
+                .tag("window", "minute")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Takes one call from both budgets, or neither.
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(long now) {
+        if (!enabled) return true;
+        long minuteIndex = now / MINUTE_MILLIS;
+        long dayIndex = dayIndex(now);
+        if (shared != null) {
+            Boolean granted = acquireShared(minuteIndex, dayIndex);
+            if (granted != null) {
+                if (granted) {
+                    acquire(minute, minuteIndex, COUNT_MASK);
+                    acquire(day, dayIndex, COUNT_MASK);
+                }
+                return granted;
+            }
+        }
+        if (!acquire(minute, minuteIndex, localPerMinuteLimit)) {
+            minuteDenied.increment();
+            return false;
+        }
+        if (!acquire(day, dayIndex, localDailyLimit)) {
+            release(minute, minuteIndex);
+            dailyDenied.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return null when the shared tier can't be reached and the call wasn't counted there
+     */
+    private Boolean acquireShared(long minuteIndex, long dayIndex) {
+        // each key outlives its window by one more, so clock skew between replicas can't drop it early
+        String minuteKey = "minute:" + minuteIndex;
+        long minuteExpiry = (minuteIndex + 2) * MINUTE_MILLIS;
+        long minuteCount = shared.add(minuteKey, 1, minuteExpiry);
+        if (minuteCount < 0) return null;
+        if (minuteCount > perMinuteLimit) {
+            shared.add(minuteKey, -1, minuteExpiry);
+            minuteDenied.increment();
+            return false;
+        }
+
+        String dayKey = "day:" + dayIndex;
+        long dayExpiry = (dayIndex + 2) * DAY_MILLIS;
+        long dayCount = shared.add(dayKey, 1, dayExpiry);
+        if (dayCount < 0) {
+            shared.add(minuteKey, -1, minuteExpiry);
+            return null;
+        }
+        if (dayCount > dailyLimit) {
+            shared.add(dayKey, -1, dayExpiry);
+            shared.add(minuteKey, -1, minuteExpiry);
+            dailyDenied.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * How many search calls one question may spend at the current budget level.
+     */
+    public int maxAttempts() {
+        return maxAttempts(System.currentTimeMillis());
+    }
+
+    int maxAttempts(long now) {
+        if (!enabled) return Integer.MAX_VALUE;
+        double remaining = Math.min(1.0, (double) remainingToday(now) / dailyLimit);
+        int level = remaining >= reduceBelow ? Integer.MAX_VALUE
+                : remaining >= singleBelow ? 2
+                : remaining >= reserve ? 1
+                : 0;
+        if (level != lastLevel) {
+            lastLevel = level;
+            log.warn("💸 PSE daily budget at {}%, search attempts per question: {}", Math.round(remaining * 100),
+                    level == Integer.MAX_VALUE ? "unlimited" : level);
+        }
+        return level;
+    }
+
+    public void recordSaved() {
+        saved.increment();
+    }
+
+    public long remainingToday() {
+        return remainingToday(System.currentTimeMillis());
+    }
+
+    /**
+     * Counted across replicas when the shared tier is reachable; otherwise an estimate from this
+     * replica's share.
+     */
+    long remainingToday(long now) {
+        long index = dayIndex(now);
+        long used = shared == null ? -1 : shared.get("day:" + index);
+        if (used >= 0) return Math.max(0, dailyLimit - used);
+        return Math.max(0, localDailyLimit - used(day, index)) * replicas;
+    }
+
+    public long remainingThisMinute() {
+        return remainingThisMinute(System.currentTimeMillis());
+    }
+
+    long remainingThisMinute(long now) {
+        long index = now / MINUTE_MILLIS;
+        long used = shared == null ? -1 : shared.get("minute:" + index);
+        if (used >= 0) return Math.max(0, perMinuteLimit - used);
+        return Math.max(0, localPerMinuteLimit - used(minute, index)) * replicas;
+    }
+
+    private long dayIndex(long nowMillis) {
+        long offsetMillis = resetZone.getRules().getOffset(Instant.ofEpochMilli(nowMillis))
+                .getTotalSeconds() * 1000L;
+        return Math.floorDiv(nowMillis + offsetMillis, DAY_MILLIS);
+    }
+
+    private static boolean acquire(AtomicLong window, long index, long limit) {
+        while (true) {
+            long current = window.get();
+            long used = (current >>> 32) == index ? current & COUNT_MASK : 0;
+            if (used >= limit) return false;
+            if (window.compareAndSet(current, (index << 32) | (used + 1))) return true;
+        }
+    }
+
+    private static void release(AtomicLong window, long index) {
+        while (true) {
+            long current = window.get();
+            // the window moved on: the call was already forgotten
+            if ((current >>> 32) != index || (current & COUNT_MASK) == 0) return;
+            if (window.compareAndSet(current, current - 1)) return;
+        }
+    }
+
+    private static long used(AtomicLong window, long index) {
+        long current = window.get();
+        return (current >>> 32) == index ? current & COUNT_MASK : 0;
+    }
+}
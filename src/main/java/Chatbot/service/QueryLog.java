@@ -0,0 +1,202 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of answered questions, written through memory-mapped segment files.
+ *
+ * Request threads only enqueue a {@link QueryLogRecord}; when the queue is full the record is
+ * dropped and counted rather than waiting. A single writer thread encodes records as
+ * [length:i32][crc32:i32][payload] frames into the current segment, starts a new segment when
+ * one is full and deletes the oldest beyond {@code maxSegments}. A zero length marks the end of
+ * a segment's records; a frame whose CRC does not match (torn by a crash) ends it as well.
+ */
+public class QueryLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryLog.class);
+
+    static final String SEGMENT_SUFFIX = ".qlog";
+    static final int FRAME_HEADER_BYTES = 8;
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final int maxSegments;
+    private final long flushIntervalNanos;
+    private final BlockingQueue<QueryLogRecord> queue;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final Counter written;
+    private final Counter dropped;
+
+    // writer thread only
+    private MappedByteBuffer segment;
+    private long segmentSeq;
+    private ByteBuffer scratch = ByteBuffer.allocate(8 * 1024);
+    private final CRC32 crc = new CRC32();
+    private long lastForceNanos = System.nanoTime();
+    private boolean dirty;
+
+    public QueryLog(Path directory,
+                    long segmentBytes,
+                    int maxSegments,
+                    int queueCapacity,
+                    Duration flushInterval,
+                    MeterRegistry meterRegistry) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = Math.max(1, maxSegments);
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        Files.createDirectories(directory);
+        List<Path> existing = QueryLogReader.segments(directory);
+        this.segmentSeq = existing.isEmpty() ? 0 : QueryLogReader.sequence(existing.get(existing.size() - 1));
+        openNextSegment();
+
+        this.written = Counter.builder("geostat.query_log.records").tag("result", "written").register(meterRegistry);
+        this.dropped = Counter.builder("geostat.query_log.records").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("geostat.query_log.queue", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.writer = new Thread(this::run, "query-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("📝 Query log writing to {}", directory);
+    }
+
+    private QueryLog() {
+        this.directory = null;
+        this.segmentBytes = 0;
+        this.maxSegments = 0;
+        this.flushIntervalNanos = 0;
+        this.queue = null;
+        this.writer = null;
+        this.written = null;
+        this.dropped = null;
+        this.running = false;
+    }
+
+    /**
+     * A log that keeps nothing, for {@code geostat.query-log.enabled=false}.
+     */
+    public static QueryLog disabled() {
+        return new QueryLog();
+    }
+
+    public boolean isEnabled() {
+        return writer != null;
+    }
+
+    /**
+     * Never blocks: a full queue drops the record.
+     */
+    public void append(QueryLogRecord record) {
+        if (writer == null) return;
+        if (!running || !queue.offer(record)) {
+            dropped.increment();
+        }
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (writer == null) return;
+        // no interrupt: it would close the channel under a map() in progress; the poll times out instead
+        running = false;
+        writer.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                QueryLogRecord record = running
+                        ? queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS)
+                        : queue.poll();
+                if (record != null) {
+                    write(record);
+                }
+                if (dirty && System.nanoTime() - lastForceNanos >= flushIntervalNanos) {
+                    force();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Query log write failed", e);
+            }
+        }
+        force();
+    }
+
+    private void write(QueryLogRecord record) throws IOException {
+        scratch.clear();
+        scratch = record.encode(scratch);
+        scratch.flip();
+        int length = scratch.remaining();
+
+        if (FRAME_HEADER_BYTES + length > segmentBytes - FRAME_HEADER_BYTES) {
+            log.warn("⚠️ Query log record of {} bytes exceeds segment size, dropped", length);
+            dropped.increment();
+            return;
+        }
+        // keep room for the zero length that ends the segment
+        if (segment.remaining() < FRAME_HEADER_BYTES + length + 4) {
+            force();
+            openNextSegment();
+        }
+
+        crc.reset();
+        crc.update(scratch.duplicate());
+        segment.putInt(length);
+        segment.putInt((int) crc.getValue());
+        segment.put(scratch);
+        dirty = true;
+        written.increment();
+    }
+
+    private void force() {
+        if (segment != null && dirty) {
+            segment.force();
+            dirty = false;
+        }
+        lastForceNanos = System.nanoTime();
+    }
+
+    private void openNextSegment() throws IOException {
+        segmentSeq++;
+        Path file = directory.resolve(String.format("%012d%s", segmentSeq, SEGMENT_SUFFIX));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // the mapping stays valid after the channel closes; unwritten pages are zero and sparse on disk
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+        log.info("📝 Query log segment {}", file.getFileName());
+
+        List<Path> segments = QueryLogReader.segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+            log.info("🗑️ Deleted old query log segment {}", segments.get(i).getFileName());
+        }
+    }
+}
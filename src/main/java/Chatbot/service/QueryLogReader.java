@@ -0,0 +1,94 @@
+package Chatbot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Reads {@link QueryLog} segments oldest first. A segment is read up to its end marker or the
+ * first damaged frame; later segments are still read.
+ */
+public final class QueryLogReader {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryLogReader.class);
+
+    private QueryLogReader() {
+    }
+
+    /**
+     * @return the number of records passed to {@code consumer}
+     */
+    public static long forEach(Path directory, Consumer<QueryLogRecord> consumer) throws IOException {
+        long records = 0;
+        for (Path segment : segments(directory)) {
+            records += readSegment(segment, consumer);
+        }
+        return records;
+    }
+
+    static List<Path> segments(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) return List.of();
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.getFileName().toString().endsWith(QueryLog.SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingLong(QueryLogReader::sequence))
+                    .toList();
+        }
+    }
+
+    static long sequence(Path segment) {
+        String name = segment.getFileName().toString();
+        try {
+            return Long.parseLong(name.substring(0, name.length() - QueryLog.SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long readSegment(Path segment, Consumer<QueryLogRecord> consumer) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        CRC32 crc = new CRC32();
+        long records = 0;
+        while (buffer.remaining() >= QueryLog.FRAME_HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length <= 0) break;
+            if (length > buffer.remaining()) {
+                log.warn("⚠️ Truncated frame in {}, skipping rest of segment", segment.getFileName());
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                log.warn("⚠️ Damaged frame in {}, skipping rest of segment", segment.getFileName());
+                break;
+            }
+
+            try {
+                consumer.accept(QueryLogRecord.decode(ByteBuffer.wrap(payload)));
+                records++;
+            } catch (IllegalArgumentException e) {
+                log.warn("⚠️ Unreadable record in {}: {}", segment.getFileName(), e.getMessage());
+            }
+        }
+        return records;
+    }
+}
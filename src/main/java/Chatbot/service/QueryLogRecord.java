@@ -0,0 +1,172 @@
+package Chatbot.service;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One answered question as stored in the query log.
+ *
+ * Binary layout (big-endian), version 1:
+ * version:u8 timestamp:i64 planSource:u8 outcome:u8 totalMicros:i32 stages:u8 {micros:i32}*
+ * matchKey language intent topic planLanguage queries:u8 {query}* url response
+ * where every string is i32 byte length (-1 for null) followed by UTF-8 bytes.
+ * Enum values are stored by ordinal, so new values only ever go at the end.
+ */
+public record QueryLogRecord(
+        long timestampMillis,
+        ChatContext.PlanSource planSource,
+        ChatContext.Outcome outcome,
+        int totalMicros,
+        int[] stageMicros,
+        String matchKey,
+        String language,
+        String intent,
+        String topic,
+        String planLanguage,
+        List<String> searchQueries,
+        String url,
+        String response
+) {
+
+    private static final byte VERSION = 1;
+    private static final int MAX_QUERIES = 255;
+
+    public static QueryLogRecord from(ChatContext ctx, String response) {
+        QueryPlan plan = ctx.plan();
+        long[] stageNanos = ctx.stageNanos();
+        int[] stageMicros = new int[stageNanos.length];
+        for (int i = 0; i < stageNanos.length; i++) {
+            stageMicros[i] = micros(stageNanos[i]);
+        }
+        return new QueryLogRecord(
+                System.currentTimeMillis(),
+                ctx.planSource(),
+                ctx.outcome(),
+                micros(ctx.elapsedNanos()),
+                stageMicros,
+                ctx.message().matchKey(),
+                ctx.message().language(),
+                plan == null ? null : plan.intent,
+                plan == null ? null : plan.topic,
+                plan == null ? null : plan.language,
+                plan == null || plan.searchQueries == null ? List.of() : plan.searchQueries,
+                ctx.url(),
+                response);
+    }
+
+    public QueryPlan plan() {
+        QueryPlan plan = new QueryPlan();
+        plan.intent = intent;
+        plan.topic = topic;
+        plan.language = planLanguage;
+        plan.searchQueries = List.copyOf(searchQueries);
+        return plan;
+    }
+
+    public int stageMicros(ChatContext.Stage stage) {
+        return stage.ordinal() < stageMicros.length ? stageMicros[stage.ordinal()] : 0;
+    }
+
+    /**
+     * Appends the payload to {@code out}, growing it as needed; returns the buffer written to.
+     */
+    ByteBuffer encode(ByteBuffer out) {
+        out = ensure(out, 32 + 4 * stageMicros.length);
+        out.put(VERSION);
+        out.putLong(timestampMillis);
+        out.put((byte) planSource.ordinal());
+        out.put((byte) outcome.ordinal());
+        out.putInt(totalMicros);
+        out.put((byte) stageMicros.length);
+        for (int micros : stageMicros) {
+            out.putInt(micros);
+        }
+        out = putString(out, matchKey);
+        out = putString(out, language);
+        out = putString(out, intent);
+        out = putString(out, topic);
+        out = putString(out, planLanguage);
+        int queries = Math.min(searchQueries.size(), MAX_QUERIES);
+        out = ensure(out, 1);
+        out.put((byte) queries);
+        for (int i = 0; i < queries; i++) {
+            out = putString(out, searchQueries.get(i));
+        }
+        out = putString(out, url);
+        out = putString(out, response);
+        return out;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown version or a truncated payload
+     */
+    static QueryLogRecord decode(ByteBuffer in) {
+        try {
+            byte version = in.get();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported query log record version " + version);
+            }
+            long timestamp = in.getLong();
+            ChatContext.PlanSource planSource = ChatContext.PlanSource.values()[in.get()];
+            ChatContext.Outcome outcome = ChatContext.Outcome.values()[in.get()];
+            int totalMicros = in.getInt();
+            int[] stageMicros = new int[Byte.toUnsignedInt(in.get())];
+            for (int i = 0; i < stageMicros.length; i++) {
+                stageMicros[i] = in.getInt();
+            }
+            String matchKey = getString(in);
+            String language = getString(in);
+            String intent = getString(in);
+            String topic = getString(in);
+            String planLanguage = getString(in);
+            int queryCount = Byte.toUnsignedInt(in.get());
+            List<String> queries = new ArrayList<>(queryCount);
+            for (int i = 0; i < queryCount; i++) {
+                queries.add(getString(in));
+            }
+            String url = getString(in);
+            String response = getString(in);
+            return new QueryLogRecord(timestamp, planSource, outcome, totalMicros, stageMicros, matchKey,
+                    language, intent, topic, planLanguage, queries, url, response);
+        } catch (BufferUnderflowException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated query log record", e);
+        }
+    }
+
+    private static ByteBuffer putString(ByteBuffer out, String value) {
+        if (value == null) {
+            out = ensure(out, 4);
+            out.putInt(-1);
+            return out;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out = ensure(out, 4 + bytes.length);
+        out.putInt(bytes.length);
+        out.put(bytes);
+        return out;
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) return null;
+        if (length > in.remaining()) throw new BufferUnderflowException();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static ByteBuffer ensure(ByteBuffer out, int bytes) {
+        if (out.remaining() >= bytes) return out;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+        out.flip();
+        grown.put(out);
+        return grown;
+    }
+
+    private static int micros(long nanos) {
+        return (int) Math.min(Integer.MAX_VALUE, nanos / 1_000);
+    }
+}
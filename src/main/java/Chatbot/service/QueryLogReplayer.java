@@ -0,0 +1,78 @@
+package Chatbot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Warms the plan and answer caches from the query log after a restart, so the first
+ * repeat questions skip classification and an early outage still has stale answers to serve.
+ * Only fresh model answers with a model-made plan are replayed; for a question asked several
+ * times the newest record wins.
+ */
+public class QueryLogReplayer {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryLogReplayer.class);
+
+    private final SemanticPlanCache planCache;
+    private final StaleStore<QueryPlan> stalePlans;
+    private final StaleStore<String> staleAnswers;
+
+    public QueryLogReplayer(SemanticPlanCache planCache,
+                            StaleStore<QueryPlan> stalePlans,
+                            StaleStore<String> staleAnswers) {
+        this.planCache = planCache;
+        this.stalePlans = stalePlans;
+        this.staleAnswers = staleAnswers;
+    }
+
+    /**
+     * @return the number of distinct questions replayed
+     */
+    public int replay(Path directory, int maxRecords, Duration maxAge) throws IOException {
+        long start = System.nanoTime();
+        long cutoff = System.currentTimeMillis() - maxAge.toMillis();
+
+        // insertion order = age; remove + put moves a repeated question to the young end
+        LinkedHashMap<String, QueryLogRecord> latest = new LinkedHashMap<>(1024) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryLogRecord> eldest) {
+                return size() > maxRecords;
+            }
+        };
+        long read = QueryLogReader.forEach(directory, record -> {
+            if (isReplayable(record, cutoff)) {
+                latest.remove(record.matchKey());
+                latest.put(record.matchKey(), record);
+            }
+        });
+
+        for (QueryLogRecord record : latest.values()) {
+            QueryPlan plan = record.plan();
+            stalePlans.put(record.matchKey(), plan.copy());
+            planCache.store(NormalizedMessage.of(record.matchKey()), plan);
+            if (record.response() != null && !"small_talk".equals(record.intent())) {
+                staleAnswers.put(StaleStore.answerKey(record.intent(), record.planLanguage(), record.matchKey()),
+                        record.response());
+            }
+        }
+
+        log.info("♻️ Replayed {} questions from {} query log records in {} ms",
+                latest.size(), read, (System.nanoTime() - start) / 1_000_000);
+        return latest.size();
+    }
+
+    private static boolean isReplayable(QueryLogRecord record, long cutoff) {
+        return record.timestampMillis() >= cutoff
+                && record.outcome() == ChatContext.Outcome.ANSWERED
+                && (record.planSource() == ChatContext.PlanSource.CLASSIFIED
+                || record.planSource() == ChatContext.PlanSource.PLAN_CACHE)
+                && record.matchKey() != null && !record.matchKey().isEmpty()
+                && record.intent() != null;
+    }
+}
@@ -1,5 +1,6 @@
 package Chatbot.service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 public class QueryPlan {
@@ -7,4 +8,40 @@ public class QueryPlan {
     public String intent; // smalltak intent
     public String topic;
     public List<String> searchQueries;
+
+    static final CacheCodec<QueryPlan> CODEC = CacheCodec.of(1,
+            (out, plan) -> {
+                CacheCodec.writeString(out, plan.language);
+                CacheCodec.writeString(out, plan.intent);
+                CacheCodec.writeString(out, plan.topic);
+                out.writeInt(plan.searchQueries == null ? -1 : plan.searchQueries.size());
+                if (plan.searchQueries != null) {
+                    for (String query : plan.searchQueries) {
+                        CacheCodec.writeString(out, query);
+                    }
+                }
+            },
+            in -> {
+                QueryPlan plan = new QueryPlan();
+                plan.language = CacheCodec.readString(in);
+                plan.intent = CacheCodec.readString(in);
+                plan.topic = CacheCodec.readString(in);
+                int queries = in.readInt();
+                if (queries >= 0) {
+                    plan.searchQueries = new ArrayList<>(queries);
+                    for (int i = 0; i < queries; i++) {
+                        plan.searchQueries.add(CacheCodec.readString(in));
+                    }
+                }
+                return plan;
+            });
+
+    public QueryPlan copy() {
+        QueryPlan copy = new QueryPlan();
+        copy.language = language;
+        copy.intent = intent;
+        copy.topic = topic;
+        copy.searchQueries = searchQueries == null ? null : List.copyOf(searchQueries);
+        return copy;
+    }
 }
@@ -1,28 +1,59 @@
 package Chatbot.service;
 
 
+import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.anthropic.AnthropicChatOptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
 
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 public class QuestionClassifier {
 
     private static final Logger log = LoggerFactory.getLogger(QuestionClassifier.class);
 
-    private final ChatClient chatClient;
+    // one plan is ~60 output tokens; leave headroom so a chunk is never cut mid-array
+    private static final int BATCH_TOKENS_PER_PLAN = 120;
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    /**
+     * The topics the classification prompt offers, "other" last; a plan's topic is always one of these.
+     */
+    public static final List<String> TOPICS = List.of(
+            "economy", "prices", "population", "environment", "energy", "tourism", "trade", "agriculture",
+            "gender", "regions", "youth", "automobile", "wages", "taxes", "fdi", "gis", "disability",
+            "international", "other");
+
+    /**
+     * Shadow classifications agree when they route the question the same way: same intent and topic.
+     */
+    public static final StageModel.Comparison SAME_ROUTE = (primary, shadow) -> {
+        QueryPlan a = readPlan(primary);
+        QueryPlan b = readPlan(shadow);
+        return sameLabel(a.intent, b.intent) && sameLabel(a.topic, b.topic) ? 1 : 0;
+    };
+
+    private final StageModel model;
     private final ObjectMapper objectMapper;
+    private final RequestHedger hedger;
+    private final CircuitBreaker circuitBreaker;
+    private final StaleStore<QueryPlan> stalePlans;
+    private final SemanticPlanCache planCache;
+    private final TokenBudget tokenBudget;
+    // plans by exact match key, shared by every replica
+    private final TieredCache<QueryPlan> sharedPlans;
 
 
-    private static final String CLASSIFICATION_PROMPT = """
+    private static final String CLASSIFICATION_GUIDE = """
             You are GeoStat Assistant. Analyze the user's question and classify it into the appropriate intent and topic.
             
-            ══════════════════════════════════════════════════════════
-            QUESTION TYPES (INTENT):
-            ══════════════════════════════════════════════════════════
+            ## QUESTION TYPES (INTENT)
             
             1. "navigation" - User wants to FIND specific data/pages on GeoStat website
                Triggers: "where is", "show me", "find", "how to find", "სად არის", "სად ვნახო"
@@ -43,9 +74,7 @@ public class QuestionClassifier {
             3. "small_talk" - Greetings, thanks, or completely off-topic
                Examples: "hello", "გამარჯობა", "thanks", "who are you?", "tell me a joke"
             
-            ══════════════════════════════════════════════════════════
-            CRITICAL DISAMBIGUATION RULES:
-            ══════════════════════════════════════════════════════════
+            ## CRITICAL DISAMBIGUATION RULES
             
             IF question asks "რა არის X?" or "what is X?" → Check context:
               - If X is a CONCEPT (inflation, GDP, CPI) → general_knowledge
@@ -59,9 +88,7 @@ public class QuestionClassifier {
             
             IF unclear → Default to "navigation" (safer to show data)
             
-            ══════════════════════════════════════════════════════════
-            TOPIC CLASSIFICATION (for navigation):
-            ══════════════════════════════════════════════════════════
+            ## TOPIC CLASSIFICATION (for navigation)
             
             ALWAYS try to match to a specific portal topic FIRST before using "other":
             
@@ -85,9 +112,7 @@ public class QuestionClassifier {
             - international → international comparison, საერთაშორისო შედარება, country comparison, global ranking, comparing countries, world statistics, რეიტინგი, ქვეყნების შედარება, benchmarking
             - other → ONLY if none above match: organizational (structure, სტრუქტურა, contact, კონტაქტი, departments, დეპარტამენტები, projects, პროექტები, about geostat, vacancies)
             
-            ══════════════════════════════════════════════════════════
-            SEARCH QUERY EXTRACTION (for navigation only):
-            ══════════════════════════════════════════════════════════
+            ## SEARCH QUERY EXTRACTION (for navigation only)
             
             Extract 2-3 SHORT, focused keywords:
             
@@ -105,9 +130,7 @@ public class QuestionClassifier {
             2. Second: English translation or Georgian equivalent
             3. Third: alternative/broader term
             
-            ══════════════════════════════════════════════════════════
-            EXAMPLES - Study these carefully:
-            ══════════════════════════════════════════════════════════
+            ## EXAMPLES - Study these carefully
             
             NAVIGATION EXAMPLES:
             
@@ -157,9 +180,10 @@ public class QuestionClassifier {
             Input: "thanks for help"
             Output: {"language":"en", "intent":"small_talk", "topic":"other", "searchQueries":[]}
             
-            ══════════════════════════════════════════════════════════
-            CRITICAL OUTPUT REQUIREMENTS:
-            ══════════════════════════════════════════════════════════
+            """;
+
+    private static final PromptTemplate CLASSIFICATION_PROMPT = PromptTemplate.compile("classification", CLASSIFICATION_GUIDE + """
+            ## CRITICAL OUTPUT REQUIREMENTS
             
             Return ONLY valid JSON. No markdown code blocks, no explanations, no preamble.
             
@@ -173,98 +197,292 @@ public class QuestionClassifier {
             
             Your response must START with { and END with }
             
-            ══════════════════════════════════════════════════════════
+            User Input: {{question}}
+            
+            JSON Response:
+            """);
+
+    private static final PromptTemplate BATCH_CLASSIFICATION_PROMPT = PromptTemplate.compile("batch_classification", CLASSIFICATION_GUIDE + """
+            ## CRITICAL OUTPUT REQUIREMENTS (BATCH)
+            
+            You will receive {{count}} numbered user inputs. Classify EACH one independently.
+            
+            Return ONLY a valid JSON array with exactly one object per input, in the same order.
+            No markdown code blocks, no explanations, no preamble.
+            
+            Your ENTIRE response must be EXACTLY this format:
+            [{"language":"ka", "intent":"navigation", "topic":"economy", "searchQueries":["keyword1","keyword2"]}, {"language":"en", "intent":"small_talk", "topic":"other", "searchQueries":[]}]
+            
+            Your response must START with [ and END with ]
             
-            User Input: %s
+            User Inputs:
+            {{inputs}}
             
             JSON Response:
-            """;
+            """);
 
-    public QuestionClassifier(ChatClient chatClient, ObjectMapper objectMapper) {
-        this.chatClient = chatClient;
+    public QuestionClassifier(StageModel model,
+                              ObjectMapper objectMapper,
+                              RequestHedger hedger,
+                              CircuitBreaker circuitBreaker,
+                              StaleStore<QueryPlan> stalePlans,
+                              SemanticPlanCache planCache,
+                              TokenBudget tokenBudget,
+                              SharedCaches sharedCaches) {
+        this.model = model;
         this.objectMapper = objectMapper;
+        this.hedger = hedger;
+        this.circuitBreaker = circuitBreaker;
+        this.stalePlans = stalePlans;
+        this.planCache = planCache;
+        this.tokenBudget = tokenBudget;
+        this.sharedPlans = sharedCaches.create("plans", QueryPlan.CODEC);
+    }
+
+    public QueryPlan classify(NormalizedMessage message) {
+        return classify(message, null, null);
     }
 
-    public QueryPlan classify(String userMessage) {
+    /**
+     * @param ctx          when given, told whether the plan is a stale or heuristic fallback
+     * @param onFirstQuery when given, gets the plan so far as soon as intent, topic and the first
+     *                     search query have streamed in; called at most once, off the calling thread
+     */
+    public QueryPlan classify(NormalizedMessage message, ChatContext ctx, Consumer<QueryPlan> onFirstQuery) {
+        QueryPlan shared = sharedPlan(message);
+        if (shared != null) {
+            if (ctx != null) ctx.planSource(ChatContext.PlanSource.PLAN_CACHE);
+            return shared;
+        }
+        return classifyWithModel(message, ctx, onFirstQuery);
+    }
+
+    private QueryPlan classifyWithModel(NormalizedMessage message, ChatContext ctx, Consumer<QueryPlan> onFirstQuery) {
+        StageModel.ShadowRun shadowRun = StageModel.ShadowRun.NONE;
+        String answer = null;
         try {
-            String promptText = String.format(CLASSIFICATION_PROMPT, userMessage);
-            log.info(" Classification prompt length: {} chars", promptText.length());
+            String question = fitQuestion(message.original(), TokenBudget.CLASSIFICATION, CLASSIFICATION_PROMPT, 1);
+            String promptText = tokenBudget.render(TokenBudget.CLASSIFICATION, CLASSIFICATION_PROMPT, question);
+            if (ctx != null) ctx.event().detail("classify.prompt_chars", promptText::length);
+            shadowRun = model.shadow(promptText, ctx);
 
-            String json = chatClient.prompt()
-                    .user(promptText)
-                    .call()
-                    .content();
+            // a hedged duplicate streams too; only the first to reach a query starts anything
+            AtomicBoolean firstQuerySent = new AtomicBoolean();
+            Consumer<QueryPlan> partial = onFirstQuery == null ? null : plan -> {
+                if (!firstQuerySent.compareAndSet(false, true)) return;
+                normalizePlan(plan, message);
+                try {
+                    onFirstQuery.accept(plan);
+                } catch (RuntimeException e) {
+                    log.warn(" Early plan listener failed: {}", e.getMessage());
+                }
+            };
 
-            if (json == null) {
-                throw new IllegalStateException("LLM returned null classification");
-            }
+            // classification runs at temperature 0, so a duplicate attempt is safe to hedge
+            Deadline deadline = ctx == null ? Deadline.NONE : ctx.deadline();
+            PlanStreamParser parsed = circuitBreaker.execute(() -> deadline.bound(
+                            hedger.execute(() -> streamPlan(promptText, partial)))
+                    .block());
 
-            log.info(" Raw classification response: {}",
-                    json.substring(0, Math.min(json.length(), 200)));
+            if (ctx != null) {
+                String raw = parsed.text();
+                ctx.event().detail("classify.raw", () -> raw.substring(0, Math.min(raw.length(), 200)));
+            }
 
-            return parseJsonToPlan(json, userMessage);
+            QueryPlan plan = parsed.plan();
+            answer = parsed.text();
+            normalizePlan(plan, message);
+            remember(message, plan);
+            return plan;
         } catch (Exception e) {
+            QueryPlan stale = stalePlans.serve(message.matchKey(), null);
+            if (ctx != null) ctx.event().put("classify.error", String.valueOf(e.getMessage()));
+            if (stale != null) {
+                if (ctx != null) ctx.planSource(ChatContext.PlanSource.STALE_PLAN);
+                return stale.copy();
+            }
             log.error(" Classification failed", e);
-            QueryPlan fallback = new QueryPlan();
-            fallback.language = LanguageUtils.detectLanguage(userMessage);
-            fallback.intent = "navigation";
-            fallback.topic = "other";
-            fallback.searchQueries = List.of(userMessage);
-            normalizePlan(fallback, userMessage);
-            log.info(" Using fallback plan: {}", fallback.topic);
-            return fallback;
+            if (ctx != null) ctx.planSource(ChatContext.PlanSource.FALLBACK_PLAN);
+            return fallbackPlan(message);
+        } finally {
+            shadowRun.compare(answer);
         }
     }
 
-    private QueryPlan parseJsonToPlan(String json, String originalMsg) {
-        try {
+    /**
+     * Reads the classification as it streams and cancels the stream once the plan object closes,
+     * so trailing text the model adds is neither waited for nor paid for.
+     */
+    private Mono<PlanStreamParser> streamPlan(String promptText, Consumer<QueryPlan> onFirstQuery) {
+        return Mono.defer(() -> {
+            PlanStreamParser parser = new PlanStreamParser(objectMapper.getFactory(), onFirstQuery);
+            long start = System.nanoTime();
+            return model.stream(promptText)
+                    .takeUntil(parser::feed)
+                    .then(Mono.just(parser))
+                    .timeout(model.timeout())
+                    .doOnSuccess(p -> model.recordLatency(System.nanoTime() - start));
+        });
+    }
 
-            if (json.contains("```")) {
-                json = json.replaceAll("```json\\s*", "")
-                        .replaceAll("```\\s*", "")
-                        .trim();
+    /**
+     * Classifies several messages with a single LLM call. Plans come back in input order;
+     * if the batch answer is unusable each message is classified on its own.
+     *
+     * @param deadline bounds the model calls; cancel it to stop them when the batch is abandoned
+     */
+    public List<QueryPlan> classifyBatch(List<NormalizedMessage> userMessages, Deadline deadline) {
+        // plans another replica already made are not asked for again
+        Map<String, QueryPlan> shared = sharedPlans.getAll(userMessages.stream()
+                .map(NormalizedMessage::matchKey)
+                .filter(key -> !key.isEmpty())
+                .toList());
+        List<NormalizedMessage> missing = new ArrayList<>(userMessages.size());
+        for (NormalizedMessage message : userMessages) {
+            if (!shared.containsKey(message.matchKey())) missing.add(message);
+        }
+
+        List<QueryPlan> classified = missing.isEmpty() ? List.of() : classifyWithModel(missing, deadline);
+        List<QueryPlan> plans = new ArrayList<>(userMessages.size());
+        Iterator<QueryPlan> next = classified.iterator();
+        for (NormalizedMessage message : userMessages) {
+            QueryPlan plan = shared.get(message.matchKey());
+            if (plan == null) {
+                plans.add(next.next());
+            } else {
+                planCache.store(message, plan);
+                plans.add(plan.copy());
             }
+        }
+        return plans;
+    }
 
+    private List<QueryPlan> classifyWithModel(List<NormalizedMessage> userMessages, Deadline deadline) {
+        if (userMessages.size() == 1) {
+            return List.of(classifyWithModel(userMessages.get(0), new ChatContext(userMessages.get(0), null, deadline), null));
+        }
+
+        try {
+            StringBuilder inputs = new StringBuilder();
+            for (int i = 0; i < userMessages.size(); i++) {
+                String question = fitQuestion(userMessages.get(i).original(), TokenBudget.BATCH_CLASSIFICATION,
+                        BATCH_CLASSIFICATION_PROMPT, userMessages.size());
+                inputs.append(i + 1).append(". ").append(question).append('\n');
+            }
+            String promptText = tokenBudget.render(TokenBudget.BATCH_CLASSIFICATION, BATCH_CLASSIFICATION_PROMPT,
+                    String.valueOf(userMessages.size()), inputs.toString());
+            AnthropicChatOptions options = AnthropicChatOptions.builder()
+                    .withModel(model.model())
+                    .withMaxTokens(BATCH_TOKENS_PER_PLAN * userMessages.size())
+                    .build();
 
-            int startIdx = json.indexOf('{');
-            int endIdx = json.lastIndexOf('}');
+            // not hedged: a duplicate of a whole batch costs too much for the latency it saves
+            String json = circuitBreaker.execute(() -> model.call(promptText, options, deadline));
 
-            if (startIdx >= 0 && endIdx > startIdx) {
-                json = json.substring(startIdx, endIdx + 1);
+            if (json == null) {
+                throw new IllegalStateException("LLM returned null batch classification");
             }
 
-            log.info(" Cleaned JSON: {}", json);
+            List<QueryPlan> plans = parseJsonToPlans(json, userMessages);
+            for (int i = 0; i < plans.size(); i++) {
+                remember(userMessages.get(i), plans.get(i));
+            }
+            log.info(" Batch classified {} messages in one call", plans.size());
+            return plans;
+        } catch (Exception e) {
+            log.warn(" Batch classification failed ({}), classifying individually", e.getMessage());
+            List<QueryPlan> plans = new ArrayList<>(userMessages.size());
+            for (NormalizedMessage message : userMessages) {
+                plans.add(classifyWithModel(message, new ChatContext(message, null, deadline), null));
+            }
+            return plans;
+        }
+    }
 
-            QueryPlan plan = objectMapper.readValue(json, QueryPlan.class);
+    private QueryPlan sharedPlan(NormalizedMessage message) {
+        if (message.matchKey().isEmpty()) return null;
+        QueryPlan plan = sharedPlans.get(message.matchKey());
+        if (plan == null) return null;
+        planCache.store(message, plan);
+        return plan.copy();
+    }
 
+    private void remember(NormalizedMessage message, QueryPlan plan) {
+        stalePlans.put(message.matchKey(), plan.copy());
+        planCache.store(message, plan);
+        if (!message.matchKey().isEmpty()) {
+            sharedPlans.put(message.matchKey(), plan.copy());
+        }
+    }
 
-            normalizePlan(plan, originalMsg);
+    /**
+     * A question only needs its first few sentences to be classified; cut long pastes
+     * so they share the stage budget with the other inputs of the same prompt.
+     */
+    private String fitQuestion(String question, String stage, PromptTemplate template, int inputs) {
+        String fitted = TokenBudget.truncate(question, tokenBudget.available(stage, template) / inputs);
+        if (fitted != question) {
+            tokenBudget.recordTrimmed(stage);
+        }
+        return fitted;
+    }
 
-            return plan;
-        } catch (Exception e) {
-            log.error(" JSON Parse Error: {}", json, e);
-            QueryPlan fallback = new QueryPlan();
-            fallback.language = LanguageUtils.detectLanguage(originalMsg);
-            fallback.intent = "navigation";
-            fallback.topic = "other";
-            fallback.searchQueries = List.of(originalMsg);
-            normalizePlan(fallback, originalMsg);
-            return fallback;
+    private List<QueryPlan> parseJsonToPlans(String json, List<NormalizedMessage> originalMsgs) throws Exception {
+        int startIdx = json.indexOf('[');
+        int endIdx = json.lastIndexOf(']');
+        if (startIdx < 0 || endIdx <= startIdx) {
+            throw new IllegalStateException("No JSON array in batch classification response");
+        }
+
+        QueryPlan[] parsed = objectMapper.readValue(json.substring(startIdx, endIdx + 1), QueryPlan[].class);
+        if (parsed.length != originalMsgs.size()) {
+            throw new IllegalStateException("Expected " + originalMsgs.size() + " plans, got " + parsed.length);
         }
+
+        List<QueryPlan> plans = new ArrayList<>(parsed.length);
+        for (int i = 0; i < parsed.length; i++) {
+            if (parsed[i] == null) {
+                throw new IllegalStateException("Missing plan at position " + (i + 1));
+            }
+            normalizePlan(parsed[i], originalMsgs.get(i));
+            plans.add(parsed[i]);
+        }
+        return plans;
+    }
+
+    private static QueryPlan readPlan(String answer) {
+        PlanStreamParser parser = new PlanStreamParser(JSON, null);
+        parser.feed(answer);
+        return parser.plan();
+    }
+
+    private static boolean sameLabel(String a, String b) {
+        return a != null && b != null && a.trim().equalsIgnoreCase(b.trim());
+    }
+
+    private QueryPlan fallbackPlan(NormalizedMessage message) {
+        QueryPlan fallback = new QueryPlan();
+        fallback.language = message.language();
+        fallback.intent = "navigation";
+        fallback.topic = "other";
+        // Latin-typed Georgian won't match the site's Georgian pages; search the Georgian spelling
+        fallback.searchQueries = List.of(message.isTransliterated() ? message.transliteration() : message.original());
+        normalizePlan(fallback, message);
+        return fallback;
     }
 
     /**
      * Normalize classifier output:
      * - trim + lowercase intent/topic
-     * - default language, intent, topic
+     * - default language, intent, topic; a topic not in {@link #TOPICS} is "other"
      * - ensure navigation has at least one search query
      */
-    private void normalizePlan(QueryPlan plan, String originalMsg) {
+    private void normalizePlan(QueryPlan plan, NormalizedMessage originalMsg) {
         if (plan == null) return;
 
         // Language fallback
         if (plan.language == null || plan.language.isBlank()) {
-            plan.language = LanguageUtils.detectLanguage(originalMsg);
+            plan.language = originalMsg.language();
         }
 
 
@@ -278,18 +496,18 @@ public class QuestionClassifier {
             plan.topic = "other";
         } else {
             plan.topic = plan.topic.trim().toLowerCase(Locale.ROOT);
+            if (!TOPICS.contains(plan.topic)) plan.topic = "other";
         }
 
         if (plan.searchQueries == null) {
             plan.searchQueries = new ArrayList<>();
         }
         if ("navigation".equals(plan.intent) && plan.searchQueries.isEmpty()) {
-            String[] words = originalMsg.split("\\s+");
-            String fallbackQuery = Arrays.stream(words)
+            String fallbackQuery = Arrays.stream(originalMsg.matchKey().split(" "))
                     .limit(3)
                     .collect(Collectors.joining(" "));
             plan.searchQueries = List.of(fallbackQuery);
-            log.info("🔄 Added fallback search query: {}", fallbackQuery);
+            log.debug("Added fallback search query: {}", fallbackQuery);
         }
     }
 }
@@ -0,0 +1,52 @@
+package Chatbot.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * The shared tier behind {@link TieredCache}: one store all replicas read and write, plus a channel
+ * that tells every replica to drop its near-cache copy of a key. Calls may throw; the caller treats
+ * a failure as a miss.
+ */
+public interface RemoteCache extends AutoCloseable {
+
+    /**
+     * @return the value, or null when absent
+     */
+    byte[] get(String key);
+
+    /**
+     * One round trip for all keys.
+     *
+     * @return values in key order, null where absent
+     */
+    List<byte[]> getAll(List<String> keys);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    void delete(String key);
+
+    /**
+     * Adds {@code delta} to the counter at {@code key}, which starts at zero and is dropped at
+     * {@code expiresAtMillis} (epoch milliseconds). Reading it back with {@link #get} gives the
+     * count as ASCII digits.
+     *
+     * @return the counter's new value
+     */
+    long increment(String key, long delta, long expiresAtMillis);
+
+    /**
+     * Tells the other replicas that {@code key} of {@code cache} changed.
+     */
+    void publishInvalidation(String cache, String key);
+
+    /**
+     * @param listener gets each key another replica invalidated, or null when invalidations may
+     *                 have been missed (after a reconnect) and everything should be dropped
+     */
+    void onInvalidation(String cache, Consumer<String> listener);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,92 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How long a question may take, and how much of that an optional step needs to still be worth
+ * starting. The budget defaults to {@code defaultBudget}; a client may ask for a different one
+ * with the {@value #HEADER} header ("8s", "1500ms" or plain milliseconds), capped at {@code maxBudget}.
+ */
+public class RequestDeadlines {
+
+    public static final String HEADER = "X-Request-Timeout";
+
+    /**
+     * Work that is skipped, with a cheaper answer instead, when too little time is left for it.
+     */
+    public enum Step {
+        // a second or later PSE call, after an earlier query found nothing
+        PSE_RETRY,
+        // the model's pick among the search results; the best-scored result is used instead
+        ANALYSIS
+    }
+
+    private final boolean enabled;
+    private final Duration defaultBudget;
+    private final Duration maxBudget;
+    private final Map<Step, Duration> minimums = new EnumMap<>(Step.class);
+    private final Map<Step, Counter> skipped = new EnumMap<>(Step.class);
+    private final Counter cancelled;
+
+    public RequestDeadlines(boolean enabled,
+                            Duration defaultBudget,
+                            Duration maxBudget,
+                            Duration minPseRetry,
+                            Duration minAnalysis,
+                            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.defaultBudget = defaultBudget;
+        this.maxBudget = maxBudget;
+        minimums.put(Step.PSE_RETRY, minPseRetry);
+        minimums.put(Step.ANALYSIS, minAnalysis);
+        for (Step step : Step.values()) {
+            skipped.put(step, Counter.builder("geostat.deadline.skipped")
+                    .tag("step", step.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+        this.cancelled = Counter.builder("geostat.deadline.cancelled").register(meterRegistry);
+    }
+
+    /**
+     * @param header the {@value #HEADER} value, or null; unparseable or non-positive values get the default
+     */
+    public Deadline forRequest(String header) {
+        if (!enabled) return Deadline.unbounded();
+        Duration budget = defaultBudget;
+        if (header != null && !header.isBlank()) {
+            try {
+                Duration requested = DurationStyle.detectAndParse(header.trim());
+                if (!requested.isNegative() && !requested.isZero()) budget = requested;
+            } catch (IllegalArgumentException e) {
+                // keep the default
+            }
+        }
+        return Deadline.after(budget.compareTo(maxBudget) > 0 ? maxBudget : budget);
+    }
+
+    /**
+     * @return false, recording the skip on the request, when less than the step's minimum remains
+     */
+    public boolean allows(ChatContext ctx, Step step) {
+        if (ctx.deadline().hasAtLeast(minimums.get(step))) return true;
+        skipped.get(step).increment();
+        ctx.event().put("deadline.skipped." + step.name().toLowerCase(Locale.ROOT), true);
+        return false;
+    }
+
+    /**
+     * The client disconnected before the answer was ready.
+     */
+    public void cancel(Deadline deadline) {
+        if (deadline.isCancelled()) return;
+        deadline.cancel();
+        cancelled.increment();
+    }
+}
@@ -0,0 +1,153 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes one JSON line per answered question to the {@code geostat.events} logger.
+ *
+ * Request threads only enqueue the finished {@link ChatContext}; when the queue is full the event is
+ * dropped and counted rather than waiting. A single writer thread turns it into JSON and hands it to
+ * the logging backend, so formatting and appender I/O never run on a request thread.
+ */
+public class RequestEventLog implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestEventLog.class);
+    private static final Logger events = LoggerFactory.getLogger("geostat.events");
+
+    private record Pending(ChatContext ctx, String response, long timestampMillis, long elapsedNanos) {
+    }
+
+    private final double detailPercent;
+    private final BlockingQueue<Pending> queue;
+    private final Thread writer;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private volatile boolean running = true;
+
+    private final Counter written;
+    private final Counter dropped;
+
+    /**
+     * @param detailPercent share of requests, 0 to 100, whose events carry the detail fields
+     */
+    public RequestEventLog(int queueCapacity, double detailPercent, MeterRegistry meterRegistry) {
+        this.detailPercent = detailPercent;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.written = Counter.builder("geostat.events").tag("result", "written").register(meterRegistry);
+        this.dropped = Counter.builder("geostat.events").tag("result", "dropped").register(meterRegistry);
+        Gauge.builder("geostat.events.queue", queue, BlockingQueue::size).register(meterRegistry);
+
+        this.writer = new Thread(this::run, "request-event-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private RequestEventLog() {
+        this.detailPercent = 0;
+        this.queue = null;
+        this.writer = null;
+        this.written = null;
+        this.dropped = null;
+        this.running = false;
+    }
+
+    /**
+     * Writes nothing, for {@code geostat.events.enabled=false}.
+     */
+    public static RequestEventLog disabled() {
+        return new RequestEventLog();
+    }
+
+    /**
+     * Decides whether a new request collects detail fields.
+     */
+    public void sample(ChatContext ctx) {
+        if (writer != null && detailPercent > 0 && ThreadLocalRandom.current().nextDouble(100) < detailPercent) {
+            ctx.event().detailed(true);
+        }
+    }
+
+    /**
+     * Never blocks: a full queue drops the event. The context must not be changed afterwards.
+     *
+     * @param response null when answering failed with an exception
+     */
+    public void emit(ChatContext ctx, String response) {
+        if (writer == null) return;
+        if (!running || !queue.offer(new Pending(ctx, response, System.currentTimeMillis(), ctx.elapsedNanos()))) {
+            dropped.increment();
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (writer == null) return;
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(5));
+    }
+
+    private void run() {
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending pending = running ? queue.poll(1, TimeUnit.SECONDS) : queue.poll();
+                if (pending != null) {
+                    events.info(objectMapper.writeValueAsString(fields(pending)));
+                    written.increment();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("❌ Request event write failed", e);
+            }
+        }
+    }
+
+    private static Map<String, Object> fields(Pending pending) {
+        ChatContext ctx = pending.ctx();
+        NormalizedMessage message = ctx.message();
+        QueryPlan plan = ctx.plan();
+
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("ts", pending.timestampMillis());
+        fields.put("latency_ms", pending.elapsedNanos() / 1_000_000);
+        fields.put("outcome", pending.response() == null ? "unhandled" : lower(ctx.outcome()));
+        fields.put("mode", lower(ctx.mode()));
+        fields.put("session", ctx.sessionId() != null);
+        fields.put("message.chars", message.original().length());
+        fields.put("message.script", lower(message.script()));
+        fields.put("message.transliterated", message.isTransliterated());
+        fields.put("plan.source", lower(ctx.planSource()));
+        if (plan != null) {
+            fields.put("plan.intent", plan.intent);
+            fields.put("plan.topic", plan.topic);
+            fields.put("plan.language", plan.language);
+            fields.put("plan.queries", plan.searchQueries);
+        }
+        for (ChatContext.Stage stage : ChatContext.Stage.values()) {
+            long nanos = ctx.stageNanos(stage);
+            if (nanos > 0) fields.put("stage." + lower(stage) + "_ms", nanos / 1_000_000.0);
+        }
+        if (ctx.url() != null) fields.put("url", ctx.url());
+        if (pending.response() != null) fields.put("response.chars", pending.response().length());
+        fields.putAll(ctx.event().fields());
+        return fields;
+    }
+
+    private static String lower(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT);
+    }
+}
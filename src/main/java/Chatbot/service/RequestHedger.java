@@ -0,0 +1,138 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Sends a duplicate of an idempotent call when the first attempt is slower than the observed p95,
+ * keeps whichever answers first and cancels the other.
+ *
+ * Extra load is capped with a token bucket: every call earns {@code maxExtraLoadPercent / 100}
+ * of a token, every hedge spends one.
+ */
+public class RequestHedger {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestHedger.class);
+
+    private static final long TOKEN = 1_000;
+    private static final long MAX_TOKENS = 10 * TOKEN;
+    private static final int WINDOW_SIZE = 512;
+
+    private final String name;
+    private final boolean enabled;
+    private final Duration minDelay;
+    private final long tokensPerCall;
+    private final LatencyWindow latencies = new LatencyWindow(WINDOW_SIZE, 0.95);
+    private final AtomicLong tokens = new AtomicLong(0);
+
+    private final Counter callCounter;
+    private final Counter sentCounter;
+    private final Counter wonCounter;
+
+    public RequestHedger(String name,
+                         boolean enabled,
+                         Duration minDelay,
+                         double maxExtraLoadPercent,
+                         MeterRegistry meterRegistry) {
+        this.name = name;
+        this.enabled = enabled;
+        this.minDelay = minDelay;
+        this.tokensPerCall = Math.round(TOKEN * maxExtraLoadPercent / 100.0);
+
+        this.callCounter = Counter.builder("geostat.hedge.calls").tag("upstream", name).register(meterRegistry);
+        this.sentCounter = Counter.builder("geostat.hedge.sent").tag("upstream", name).register(meterRegistry);
+        this.wonCounter = Counter.builder("geostat.hedge.won").tag("upstream", name).register(meterRegistry);
+        Gauge.builder("geostat.hedge.delay", latencies, w -> Math.max(0, w.percentileNanos()) / 1_000_000.0)
+                .tag("upstream", name)
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> attempt) {
+        if (!enabled) {
+            return attempt.get();
+        }
+
+        return Mono.defer(() -> {
+            callCounter.increment();
+            earnToken();
+
+            long p95 = latencies.percentileNanos();
+            AtomicBoolean primaryDone = new AtomicBoolean(false);
+            Sinks.Empty<Void> primaryEnded = Sinks.empty();
+
+            Mono<Attempt<T>> primary = timed(attempt.get(), false)
+                    .doFinally(signal -> {
+                        primaryDone.set(true);
+                        primaryEnded.tryEmitEmpty();
+                    });
+
+            if (p95 < 0) {
+                return primary.map(Attempt::value);
+            }
+
+            Duration delay = Duration.ofNanos(Math.max(p95, minDelay.toNanos()));
+            // a primary that fails fast ends the wait too, so its error isn't held back until the delay
+            Mono<Attempt<T>> hedge = Mono.delay(delay)
+                    .takeUntilOther(primaryEnded.asMono())
+                    .filter(tick -> !primaryDone.get() && trySpendToken())
+                    .flatMap(tick -> {
+                        sentCounter.increment();
+                        log.debug("Hedging {} call after {} ms", name, delay.toMillis());
+                        return timed(attempt.get(), true);
+                    });
+
+            return Mono.firstWithValue(primary, hedge)
+                    .doOnNext(winner -> {
+                        if (winner.hedged()) wonCounter.increment();
+                    })
+                    .map(Attempt::value)
+                    .onErrorMap(NoSuchElementException.class, RequestHedger::firstCause);
+        });
+    }
+
+    private <T> Mono<Attempt<T>> timed(Mono<T> call, boolean hedged) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return call
+                    .doOnNext(value -> latencies.record(System.nanoTime() - start))
+                    .map(value -> new Attempt<>(value, hedged));
+        });
+    }
+
+    private void earnToken() {
+        tokens.accumulateAndGet(tokensPerCall, (current, add) -> Math.min(MAX_TOKENS, current + add));
+    }
+
+    private boolean trySpendToken() {
+        long current;
+        do {
+            current = tokens.get();
+            if (current < TOKEN) return false;
+        } while (!tokens.compareAndSet(current, current - TOKEN));
+        return true;
+    }
+
+    // firstWithValue reports "no value" when every attempt failed; surface the real failure instead
+    private static Throwable firstCause(NoSuchElementException e) {
+        if (e.getCause() == null) return e;
+        List<Throwable> causes = Exceptions.unwrapMultiple(e.getCause());
+        return causes.isEmpty() ? e : causes.get(0);
+    }
+
+    private record Attempt<T>(T value, boolean hedged) {
+    }
+}
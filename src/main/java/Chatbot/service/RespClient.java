@@ -0,0 +1,399 @@
+package Chatbot.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@link RemoteCache} over the Redis protocol (RESP2), so Redis, Valkey, KeyDB or any compatible
+ * server can be the shared tier. Only the handful of commands the cache needs: GET, MGET, SET PX,
+ * DEL, INCRBY with PEXPIREAT, PUBLISH and SUBSCRIBE.
+ *
+ * Commands use a small pool of blocking connections with a socket timeout. Invalidations arrive on
+ * one extra connection subscribed to {@link #INVALIDATION_CHANNEL}, pinged when quiet; when it drops
+ * or a PING goes unanswered, it reconnects with backoff and then tells every listener to drop
+ * everything, since messages may have been missed.
+ */
+public class RespClient implements RemoteCache {
+
+    private static final Logger log = LoggerFactory.getLogger(RespClient.class);
+
+    static final String INVALIDATION_CHANNEL = "geostat:cache:invalidate";
+    private static final int SUBSCRIPTION_PING_MILLIS = 5_000;
+
+    private final String host;
+    private final int port;
+    private final String username;
+    private final String password;
+    private final int database;
+    private final int timeoutMillis;
+
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle;
+
+    // invalidations this replica published come back on the channel too; they are skipped
+    private final String nodeId = UUID.randomUUID().toString();
+    private final Map<String, List<Consumer<String>>> listeners = new ConcurrentHashMap<>();
+    private final Thread subscriber;
+    private volatile Connection subscription;
+    private volatile boolean running = true;
+
+    /**
+     * @param uri {@code redis://[[user]:password@]host[:port][/database]}
+     */
+    public RespClient(URI uri, int poolSize, Duration timeout) {
+        if (!"redis".equals(uri.getScheme()) || uri.getHost() == null) {
+            throw new IllegalArgumentException("Expected redis://host:port, got " + uri);
+        }
+        this.host = uri.getHost();
+        this.port = uri.getPort() > 0 ? uri.getPort() : 6379;
+        String userInfo = uri.getUserInfo();
+        int colon = userInfo == null ? -1 : userInfo.indexOf(':');
+        this.username = colon > 0 ? userInfo.substring(0, colon) : null;
+        this.password = userInfo == null ? null : userInfo.substring(colon + 1);
+        String path = uri.getPath();
+        this.database = path == null || path.length() <= 1 ? 0 : Integer.parseInt(path.substring(1));
+        this.timeoutMillis = (int) timeout.toMillis();
+        this.permits = new Semaphore(poolSize);
+        this.idle = new ArrayBlockingQueue<>(poolSize);
+
+        this.subscriber = new Thread(this::subscribeLoop, "cache-invalidation");
+        subscriber.setDaemon(true);
+        subscriber.start();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        return (byte[]) call(bytes("GET"), bytes(key));
+    }
+
+    @Override
+    public List<byte[]> getAll(List<String> keys) {
+        if (keys.isEmpty()) return List.of();
+        byte[][] args = new byte[keys.size() + 1][];
+        args[0] = bytes("MGET");
+        for (int i = 0; i < keys.size(); i++) {
+            args[i + 1] = bytes(keys.get(i));
+        }
+        List<?> reply = (List<?>) call(args);
+        List<byte[]> values = new ArrayList<>(reply.size());
+        for (Object value : reply) {
+            values.add((byte[]) value);
+        }
+        return values;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        call(bytes("SET"), bytes(key), value, bytes("PX"), bytes(Long.toString(Math.max(1, ttl.toMillis()))));
+    }
+
+    @Override
+    public void delete(String key) {
+        call(bytes("DEL"), bytes(key));
+    }
+
+    @Override
+    public long increment(String key, long delta, long expiresAtMillis) {
+        // one round trip; the expiry is set again by every increment, so a lost one is repaired by the next
+        List<Object> replies = pipeline(
+                new byte[][]{bytes("INCRBY"), bytes(key), bytes(Long.toString(delta))},
+                new byte[][]{bytes("PEXPIREAT"), bytes(key), bytes(Long.toString(expiresAtMillis))});
+        return (Long) replies.get(0);
+    }
+
+    @Override
+    public void publishInvalidation(String cache, String key) {
+        call(bytes("PUBLISH"), bytes(INVALIDATION_CHANNEL), bytes(nodeId + '\n' + cache + '\n' + key));
+    }
+
+    @Override
+    public void onInvalidation(String cache, Consumer<String> listener) {
+        listeners.computeIfAbsent(cache, c -> new CopyOnWriteArrayList<>()).add(listener);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Connection current = subscription;
+        if (current != null) current.close();
+        subscriber.interrupt();
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Object call(byte[]... args) {
+        return pipeline(args).get(0);
+    }
+
+    /**
+     * Sends all commands before reading any reply, so they cost one round trip.
+     */
+    private List<Object> pipeline(byte[][]... commands) {
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new IllegalStateException("No free cache connection within " + timeoutMillis + " ms");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a cache connection", e);
+        }
+        Connection connection = idle.poll();
+        List<Object> replies = new ArrayList<>(commands.length);
+        try {
+            if (connection == null) {
+                connection = connect(timeoutMillis);
+            }
+            for (byte[][] command : commands) {
+                connection.send(command);
+            }
+            for (int i = 0; i < commands.length; i++) {
+                replies.add(connection.read());
+            }
+            idle.offer(connection);
+        } catch (IOException e) {
+            // the stream may be mid-reply; never reuse it
+            if (connection != null) connection.close();
+            throw new UncheckedIOException(e);
+        } catch (RuntimeException e) {
+            // a malformed reply: the stream is out of step as well
+            if (connection != null) connection.close();
+            throw e;
+        } finally {
+            permits.release();
+        }
+        for (Object reply : replies) {
+            if (reply instanceof Error error) {
+                throw new IllegalStateException("Cache server error: " + error.message());
+            }
+        }
+        return replies;
+    }
+
+    private Connection connect(int soTimeoutMillis) throws IOException {
+        Connection connection = new Connection(host, port, timeoutMillis, soTimeoutMillis);
+        try {
+            if (password != null) {
+                connection.send(username == null
+                        ? new byte[][]{bytes("AUTH"), bytes(password)}
+                        : new byte[][]{bytes("AUTH"), bytes(username), bytes(password)});
+                expectOk(connection.read());
+            }
+            if (database != 0) {
+                connection.send(bytes("SELECT"), bytes(Integer.toString(database)));
+                expectOk(connection.read());
+            }
+            return connection;
+        } catch (IOException | RuntimeException e) {
+            connection.close();
+            throw e;
+        }
+    }
+
+    private void subscribeLoop() {
+        long backoffMillis = 500;
+        boolean missed = false;
+        while (running) {
+            // a quiet channel is pinged, so a connection that died without a FIN is noticed
+            try (Connection connection = connect(SUBSCRIPTION_PING_MILLIS)) {
+                subscription = connection;
+                connection.send(bytes("SUBSCRIBE"), bytes(INVALIDATION_CHANNEL));
+                connection.read();
+                if (missed) {
+                    log.info("🔌 Cache invalidation channel back, dropping near-cache entries");
+                    listeners.values().forEach(list -> list.forEach(listener -> listener.accept(null)));
+                }
+                backoffMillis = 500;
+                boolean pingPending = false;
+                while (running) {
+                    Object reply = connection.readOrIdle();
+                    if (reply == Connection.IDLE) {
+                        if (pingPending) throw new IOException("no reply to PING");
+                        connection.send(bytes("PING"));
+                        pingPending = true;
+                        continue;
+                    }
+                    pingPending = false;
+                    if (reply instanceof List<?> message && message.size() == 3
+                            && message.get(2) instanceof byte[] payload) {
+                        dispatch(new String(payload, StandardCharsets.UTF_8));
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                if (!running) return;
+                missed = true;
+                log.warn("⚠️ Cache invalidation channel unavailable ({}), retrying in {} ms", e.getMessage(), backoffMillis);
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException ie) {
+                    return;
+                }
+                backoffMillis = Math.min(backoffMillis * 2, 30_000);
+            }
+        }
+    }
+
+    private void dispatch(String payload) {
+        String[] parts = payload.split("\n", 3);
+        if (parts.length != 3 || parts[0].equals(nodeId)) return;
+        List<Consumer<String>> cacheListeners = listeners.get(parts[1]);
+        if (cacheListeners == null) return;
+        for (Consumer<String> listener : cacheListeners) {
+            listener.accept(parts[2]);
+        }
+    }
+
+    private static void expectOk(Object reply) {
+        if (reply instanceof Error error) {
+            throw new IllegalStateException("Cache server refused connection setup: " + error.message());
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private record Error(String message) {
+    }
+
+    private static final class Connection implements Closeable {
+
+        static final Object IDLE = new Object();
+
+        private final Socket socket;
+        private final BufferedInputStream in;
+        private final BufferedOutputStream out;
+
+        Connection(String host, int port, int connectTimeoutMillis, int soTimeoutMillis) throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+                socket.setSoTimeout(soTimeoutMillis);
+                socket.setTcpNoDelay(true);
+                socket.setKeepAlive(true);
+                this.in = new BufferedInputStream(socket.getInputStream(), 16 * 1024);
+                this.out = new BufferedOutputStream(socket.getOutputStream(), 16 * 1024);
+            } catch (IOException e) {
+                socket.close();
+                throw e;
+            }
+        }
+
+        void send(byte[]... args) throws IOException {
+            out.write('*');
+            writeNumber(args.length);
+            for (byte[] arg : args) {
+                out.write('$');
+                writeNumber(arg.length);
+                out.write(arg);
+                out.write('\r');
+                out.write('\n');
+            }
+            out.flush();
+        }
+
+        /**
+         * One reply: String, Long, byte[], List, {@link Error} or null.
+         */
+        Object read() throws IOException {
+            return read(in.read());
+        }
+
+        /**
+         * Like {@link #read()}, but {@link #IDLE} when the socket timeout passes before a reply
+         * starts. A timeout inside a reply is still an error: the stream is out of step.
+         */
+        Object readOrIdle() throws IOException {
+            int type;
+            try {
+                type = in.read();
+            } catch (SocketTimeoutException e) {
+                return IDLE;
+            }
+            return read(type);
+        }
+
+        private Object read(int type) throws IOException {
+            if (type < 0) throw new EOFException("Cache server closed the connection");
+            String line = readLine();
+            switch (type) {
+                case '+':
+                    return line;
+                case '-':
+                    return new Error(line);
+                case ':':
+                    return Long.parseLong(line);
+                case '$': {
+                    int length = Integer.parseInt(line);
+                    if (length < 0) return null;
+                    byte[] value = in.readNBytes(length);
+                    if (value.length < length || in.read() != '\r' || in.read() != '\n') {
+                        throw new EOFException("Truncated reply from cache server");
+                    }
+                    return value;
+                }
+                case '*': {
+                    int count = Integer.parseInt(line);
+                    if (count < 0) return null;
+                    List<Object> values = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        values.add(read());
+                    }
+                    return values;
+                }
+                default:
+                    throw new IOException("Unexpected reply type '" + (char) type + "' from cache server");
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder sb = new StringBuilder(16);
+            int c;
+            while ((c = in.read()) != '\r') {
+                if (c < 0) throw new EOFException("Truncated reply from cache server");
+                sb.append((char) c);
+            }
+            if (in.read() != '\n') throw new IOException("Malformed reply from cache server");
+            return sb.toString();
+        }
+
+        private void writeNumber(int n) throws IOException {
+            out.write(Integer.toString(n).getBytes(StandardCharsets.US_ASCII));
+            out.write('\r');
+            out.write('\n');
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
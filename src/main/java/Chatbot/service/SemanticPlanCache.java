@@ -0,0 +1,231 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Nearest-neighbour cache of classifier output: paraphrases of a question already classified
+ * reuse its {@link QueryPlan} instead of another LLM round trip.
+ *
+ * Bounded to {@code maxEntries} live plans with CLOCK (second-chance) eviction. Evicted nodes stay
+ * in the graph as tombstones until the index runs out of slots and is rebuilt from live entries.
+ * The rebuild runs outside the lock, so lookups keep using the old graph meanwhile; plans stored
+ * during it are queued and added once the new graph is swapped in.
+ */
+public class SemanticPlanCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticPlanCache.class);
+
+    private static final int M = 12;
+    private static final int EF_CONSTRUCTION = 64;
+    private static final int EF_SEARCH = 32;
+    private static final float DUPLICATE_SIMILARITY = 0.98f;
+
+    // "what is …" and "… meaning" ask for a definition rather than for data
+    private static final Set<String> DEFINE_WORDS = Set.of(
+            "what", "mean", "means", "meaning", "define", "definition", "explain",
+            "რა", "რას", "ნიშნავს", "განმარტე", "განმარტება", "ახსენი", "აუხსენი");
+
+    private final boolean enabled;
+    private final NgramEmbedder embedder;
+    private final int maxEntries;
+    private final int slotCapacity;
+    private final float similarityThreshold;
+
+    private Graph graph;
+    private int live;
+    private int clockHand;
+    private boolean rebuilding;
+    private final List<Pending> pending = new ArrayList<>();
+
+    private final Counter hitCounter;
+    private final Counter missCounter;
+
+    public SemanticPlanCache(boolean enabled,
+                             int maxEntries,
+                             int dimensions,
+                             double similarityThreshold,
+                             MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.embedder = new NgramEmbedder(dimensions);
+        this.maxEntries = maxEntries;
+        this.slotCapacity = maxEntries + Math.max(1, maxEntries / 4);
+        this.similarityThreshold = (float) similarityThreshold;
+        this.graph = new Graph(slotCapacity, embedder.dimensions());
+
+        this.hitCounter = Counter.builder("geostat.plan_cache.hits").register(meterRegistry);
+        this.missCounter = Counter.builder("geostat.plan_cache.misses").register(meterRegistry);
+        Gauge.builder("geostat.plan_cache.size", this, SemanticPlanCache::size).register(meterRegistry);
+    }
+
+    /**
+     * @return a copy of the plan stored for the most similar earlier question, or null below the threshold
+     */
+    public QueryPlan lookup(NormalizedMessage message) {
+        if (!enabled) return null;
+        String key = key(message);
+        if (key == null) return null;
+        float[] vector = embedder.embed(key);
+
+        synchronized (this) {
+            HnswIndex.Hit hit = graph.index.nearest(vector, EF_SEARCH);
+            if (hit == null || hit.similarity() < similarityThreshold) {
+                missCounter.increment();
+                return null;
+            }
+            graph.referenced[hit.node()] = true;
+            hitCounter.increment();
+            log.debug("Plan cache hit (similarity {})", hit.similarity());
+
+            QueryPlan plan = graph.plans[hit.node()].copy();
+            // a paraphrase may be in the other language; answer in the one the user wrote
+            plan.language = message.language();
+            return plan;
+        }
+    }
+
+    public void store(NormalizedMessage message, QueryPlan plan) {
+        if (!enabled) return;
+        String key = key(message);
+        if (key == null) return;
+        float[] vector = embedder.embed(key);
+        QueryPlan copy = plan.copy();
+
+        Graph full;
+        synchronized (this) {
+            if (rebuilding) {
+                // the new graph has room for one slack's worth; the rest would only be evicted again
+                if (pending.size() < slotCapacity - maxEntries) pending.add(new Pending(vector, copy));
+                return;
+            }
+            if (insert(vector, copy)) return;
+            rebuilding = true;
+            pending.add(new Pending(vector, copy));
+            full = graph;
+        }
+
+        // nothing is added to or deleted from the full graph while rebuilding is set, and
+        // lookups only read it, so it can be copied without the lock
+        Graph fresh = null;
+        try {
+            fresh = compact(full);
+        } finally {
+            synchronized (this) {
+                if (fresh != null) {
+                    graph = fresh;
+                    live = fresh.live;
+                    clockHand = 0;
+                }
+                rebuilding = false;
+                for (Pending p : pending) {
+                    insert(p.vector(), p.plan());
+                }
+                pending.clear();
+            }
+        }
+        log.info("Rebuilt plan index with {} live entries", fresh.live);
+    }
+
+    /**
+     * What is embedded: the content words ({@link AnswerTable#keywords}), so "where is inflation
+     * data" and "inflation statistics" share a key, behind a marker for questions asking what
+     * something means, which need a different plan than a search for the same words.
+     *
+     * @return null when nothing is left, as every such key would embed the same
+     */
+    static String key(NormalizedMessage message) {
+        boolean define = false;
+        for (String token : message.matchKey().split(" ")) {
+            if (DEFINE_WORDS.contains(token)) {
+                define = true;
+                break;
+            }
+        }
+        StringBuilder content = new StringBuilder();
+        for (String token : AnswerTable.keywords(message.matchKey()).split(" ")) {
+            if (token.isEmpty() || DEFINE_WORDS.contains(token)) continue;
+            if (!content.isEmpty()) content.append(' ');
+            content.append(token);
+        }
+        if (content.isEmpty()) return null;
+        return define ? "define " + content : content.toString();
+    }
+
+    public synchronized int size() {
+        return live;
+    }
+
+    /**
+     * @return false when the graph is out of slots and has to be rebuilt first
+     */
+    private boolean insert(float[] vector, QueryPlan plan) {
+        HnswIndex.Hit hit = graph.index.nearest(vector, EF_SEARCH);
+        if (hit != null && hit.similarity() >= DUPLICATE_SIMILARITY) {
+            graph.plans[hit.node()] = plan;
+            graph.referenced[hit.node()] = true;
+            return true;
+        }
+
+        if (live >= maxEntries) evictOne();
+        if (graph.index.isFull()) return false;
+
+        int node = graph.index.add(vector);
+        graph.plans[node] = plan;
+        graph.referenced[node] = true;
+        live++;
+        return true;
+    }
+
+    private void evictOne() {
+        int slots = graph.index.size();
+        while (true) {
+            int node = clockHand;
+            clockHand = (clockHand + 1) % slots;
+            if (graph.index.isDeleted(node)) continue;
+            if (graph.referenced[node]) {
+                graph.referenced[node] = false;
+                continue;
+            }
+            graph.index.delete(node);
+            graph.plans[node] = null;
+            live--;
+            return;
+        }
+    }
+
+    private Graph compact(Graph full) {
+        Graph fresh = new Graph(slotCapacity, embedder.dimensions());
+        int size = full.index.size();
+        for (int node = 0; node < size; node++) {
+            if (full.index.isDeleted(node)) continue;
+            int added = fresh.index.add(full.index.vector(node));
+            fresh.plans[added] = full.plans[node];
+            fresh.referenced[added] = full.referenced[node];
+            fresh.live++;
+        }
+        return fresh;
+    }
+
+    private static final class Graph {
+        final HnswIndex index;
+        final QueryPlan[] plans;
+        final boolean[] referenced;
+        int live;
+
+        Graph(int slots, int dimensions) {
+            this.index = new HnswIndex(slots, dimensions, M, EF_CONSTRUCTION);
+            this.plans = new QueryPlan[slots];
+            this.referenced = new boolean[slots];
+        }
+    }
+
+    private record Pending(float[] vector, QueryPlan plan) {
+    }
+}
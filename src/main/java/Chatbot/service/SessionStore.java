@@ -0,0 +1,323 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-session memory of the last few turns, so follow-ups can reuse the previous plan.
+ *
+ * Each session is a small ring: intent, topic and language as byte codes, the search
+ * queries and the chosen URL as capped strings. Sessions live in access-ordered LRU
+ * segments; a session idle longer than {@code idleTimeout} is dropped, and when the
+ * estimated footprint of all sessions passes {@code maxBytes} the least recently used go first.
+ */
+public class SessionStore implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionStore.class);
+
+    private static final int SEGMENTS = 16;
+    private static final int MAX_QUERIES_CHARS = 240;
+    private static final int MAX_URL_CHARS = 200;
+    private static final int MAX_SESSION_ID_CHARS = 64;
+
+    // code 0 = unknown; everything else is the index in these tables
+    private static final List<String> INTENTS = List.of("", "navigation", "general_knowledge", "small_talk");
+    private static final List<String> LANGUAGES = List.of("", "ka", "en");
+    private static final List<String> TOPICS = codeTable(QuestionClassifier.TOPICS);
+
+    // Session object and its map entry; the ring arrays depend on the number of turns, strings are added per turn
+    private static final int SESSION_BYTES = 56;
+    private static final int MAP_ENTRY_BYTES = 40;
+
+    public record Turn(QueryPlan plan, String url) {
+    }
+
+    private static final class Session {
+        final byte[] intents;
+        final byte[] topics;
+        final byte[] languages;
+        final String[] queries;
+        final String[] urls;
+        int head = -1;
+        long lastAccessNanos;
+        long bytes;
+
+        Session(int turns) {
+            intents = new byte[turns];
+            topics = new byte[turns];
+            languages = new byte[turns];
+            queries = new String[turns];
+            urls = new String[turns];
+        }
+    }
+
+    private final int turns;
+    private final long sessionOverheadBytes;
+    private final long maxBytes;
+    private final long idleTimeoutNanos;
+    private final List<LinkedHashMap<String, Session>> segments;
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicInteger evictionCursor = new AtomicInteger();
+    private final ScheduledExecutorService sweeper;
+
+    private final Counter idleEvictions;
+    private final Counter memoryEvictions;
+    private final MeterRegistry registry;
+
+    public SessionStore(int turns, long maxBytes, Duration idleTimeout, MeterRegistry meterRegistry) {
+        this.turns = Math.max(1, turns);
+        // three byte[turns] and two String[turns] rings
+        this.sessionOverheadBytes = SESSION_BYTES + MAP_ENTRY_BYTES
+                + 3 * align(16 + this.turns) + 2 * align(16 + 4L * this.turns);
+        this.maxBytes = maxBytes;
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.registry = meterRegistry;
+
+        List<LinkedHashMap<String, Session>> maps = new ArrayList<>(SEGMENTS);
+        for (int i = 0; i < SEGMENTS; i++) {
+            maps.add(new LinkedHashMap<>(256, 0.75f, true));
+        }
+        this.segments = List.copyOf(maps);
+
+        this.idleEvictions = Counter.builder("geostat.sessions.evicted").tag("reason", "idle").register(meterRegistry);
+        this.memoryEvictions = Counter.builder("geostat.sessions.evicted").tag("reason", "memory").register(meterRegistry);
+        Gauge.builder("geostat.sessions.active", this, SessionStore::size).register(meterRegistry);
+        Gauge.builder("geostat.sessions.bytes", totalBytes, AtomicLong::get)
+                .description("Estimated heap held by sessions")
+                .register(meterRegistry);
+
+        long sweepMillis = Math.max(1_000, Math.min(60_000, idleTimeout.toMillis() / 2));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "session-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Session ids come from clients; only short URL-safe ids are accepted.
+     */
+    public static boolean isValidId(String sessionId) {
+        if (sessionId == null || sessionId.isEmpty() || sessionId.length() > MAX_SESSION_ID_CHARS) return false;
+        for (int i = 0; i < sessionId.length(); i++) {
+            char c = sessionId.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the most recent turn of the session, or null for an unknown or expired session
+     */
+    public Turn last(String sessionId) {
+        LinkedHashMap<String, Session> segment = segment(sessionId);
+        synchronized (segment) {
+            Session session = segment.get(sessionId);
+            if (session == null || session.head < 0) return null;
+            long now = System.nanoTime();
+            if (now - session.lastAccessNanos > idleTimeoutNanos) {
+                remove(segment, sessionId, session);
+                idleEvictions.increment();
+                return null;
+            }
+            session.lastAccessNanos = now;
+            return decode(session, session.head);
+        }
+    }
+
+    public void record(String sessionId, QueryPlan plan, String url) {
+        LinkedHashMap<String, Session> segment = segment(sessionId);
+        synchronized (segment) {
+            Session session = segment.get(sessionId);
+            if (session == null) {
+                session = new Session(turns);
+                session.bytes = sessionOverheadBytes + stringBytes(sessionId);
+                segment.put(sessionId, session);
+                totalBytes.addAndGet(session.bytes);
+            }
+
+            int slot = (session.head + 1) % turns;
+            long before = stringBytes(session.queries[slot]) + stringBytes(session.urls[slot]);
+
+            session.intents[slot] = code(INTENTS, plan.intent);
+            // a topic the classifier doesn't offer is kept as "other", as normalizePlan would make it
+            session.topics[slot] = code(TOPICS, plan.topic == null || TOPICS.contains(plan.topic) ? plan.topic : "other");
+            session.languages[slot] = code(LANGUAGES, plan.language);
+            session.queries[slot] = joinQueries(plan.searchQueries);
+            session.urls[slot] = url == null ? null : cap(url, MAX_URL_CHARS);
+            session.head = slot;
+            session.lastAccessNanos = System.nanoTime();
+
+            long delta = stringBytes(session.queries[slot]) + stringBytes(session.urls[slot]) - before;
+            session.bytes += delta;
+            totalBytes.addAndGet(delta);
+
+            evictIdle(segment, session.lastAccessNanos);
+            // eldest first; the session just written is the youngest and goes last
+            Iterator<Map.Entry<String, Session>> it = segment.entrySet().iterator();
+            while (totalBytes.get() > maxBytes && it.hasNext()) {
+                Map.Entry<String, Session> eldest = it.next();
+                if (eldest.getValue() == session) break;
+                it.remove();
+                totalBytes.addAndGet(-eldest.getValue().bytes);
+                memoryEvictions.increment();
+            }
+        }
+        if (totalBytes.get() > maxBytes) {
+            evictElsewhere(segment);
+        }
+    }
+
+    public void recordFollowUp(String resolution) {
+        registry.counter("geostat.sessions.followups", "resolution", resolution).increment();
+    }
+
+    public int size() {
+        int size = 0;
+        for (LinkedHashMap<String, Session> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public long estimatedBytes() {
+        return totalBytes.get();
+    }
+
+    void evictIdle() {
+        long now = System.nanoTime();
+        for (LinkedHashMap<String, Session> segment : segments) {
+            synchronized (segment) {
+                evictIdle(segment, now);
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    // access order puts the longest-idle sessions first, so the scan stops at the first live one
+    private void evictIdle(LinkedHashMap<String, Session> segment, long now) {
+        Iterator<Session> it = segment.values().iterator();
+        int evicted = 0;
+        while (it.hasNext()) {
+            Session session = it.next();
+            if (now - session.lastAccessNanos <= idleTimeoutNanos) break;
+            it.remove();
+            totalBytes.addAndGet(-session.bytes);
+            evicted++;
+        }
+        if (evicted > 0) {
+            idleEvictions.increment(evicted);
+            log.debug("Evicted {} idle sessions", evicted);
+        }
+    }
+
+    /**
+     * The bound is global: when the written segment has nothing older left, the least recently used
+     * session of each other segment goes in turn, one segment locked at a time.
+     */
+    private void evictElsewhere(LinkedHashMap<String, Session> written) {
+        boolean evicted = true;
+        while (evicted && totalBytes.get() > maxBytes) {
+            evicted = false;
+            int start = evictionCursor.getAndIncrement();
+            for (int i = 0; i < SEGMENTS && totalBytes.get() > maxBytes; i++) {
+                LinkedHashMap<String, Session> segment = segments.get((start + i) & (SEGMENTS - 1));
+                if (segment == written) continue;
+                synchronized (segment) {
+                    Iterator<Session> it = segment.values().iterator();
+                    if (!it.hasNext()) continue;
+                    Session eldest = it.next();
+                    it.remove();
+                    totalBytes.addAndGet(-eldest.bytes);
+                    memoryEvictions.increment();
+                    evicted = true;
+                }
+            }
+        }
+    }
+
+    private void remove(LinkedHashMap<String, Session> segment, String sessionId, Session session) {
+        segment.remove(sessionId);
+        totalBytes.addAndGet(-session.bytes);
+    }
+
+    private LinkedHashMap<String, Session> segment(String sessionId) {
+        int h = sessionId.hashCode();
+        return segments.get((h ^ (h >>> 16)) & (SEGMENTS - 1));
+    }
+
+    private static Turn decode(Session session, int slot) {
+        QueryPlan plan = new QueryPlan();
+        plan.intent = decode(INTENTS, session.intents[slot]);
+        plan.topic = decode(TOPICS, session.topics[slot]);
+        plan.language = decode(LANGUAGES, session.languages[slot]);
+        String queries = session.queries[slot];
+        plan.searchQueries = queries == null || queries.isEmpty() ? List.of() : Arrays.asList(queries.split("\n"));
+        return new Turn(plan, session.urls[slot]);
+    }
+
+    private static List<String> codeTable(List<String> values) {
+        List<String> table = new ArrayList<>(values.size() + 1);
+        table.add("");
+        table.addAll(values);
+        return List.copyOf(table);
+    }
+
+    private static byte code(List<String> table, String value) {
+        int index = value == null ? -1 : table.indexOf(value);
+        return (byte) Math.max(index, 0);
+    }
+
+    private static String decode(List<String> table, byte code) {
+        return code == 0 ? null : table.get(code);
+    }
+
+    private static String joinQueries(List<String> queries) {
+        if (queries == null || queries.isEmpty()) return null;
+        return cap(String.join("\n", queries), MAX_QUERIES_CHARS);
+    }
+
+    private static String cap(String value, int maxChars) {
+        return value.length() <= maxChars ? value : value.substring(0, maxChars);
+    }
+
+    // objects are 8-byte aligned
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+    // compact strings: 1 byte per char when every char is Latin-1, else 2
+    private static long stringBytes(String value) {
+        if (value == null) return 0;
+        boolean latin1 = true;
+        for (int i = 0; i < value.length() && latin1; i++) {
+            latin1 = value.charAt(i) < 256;
+        }
+        return 40 + (long) value.length() * (latin1 ? 1 : 2);
+    }
+}
@@ -0,0 +1,69 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Creates the {@link TieredCache}s the services share across replicas, each with its own TTLs from
+ * {@code geostat.cache.caches.<name>.*}, and the {@link SharedCounter}s they count against together.
+ * Without a remote tier every cache is in-process only and there are no shared counters.
+ */
+public class SharedCaches implements AutoCloseable {
+
+    public record Spec(Duration ttl, Duration l1Ttl, int l1MaxEntries) {
+    }
+
+    private static final Spec DEFAULT_SPEC = new Spec(Duration.ofMinutes(10), Duration.ofMinutes(1), 1024);
+
+    private final RemoteCache remote;
+    private final Function<String, CircuitBreaker> breakers;
+    private final Map<String, Spec> specs;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param remote   the shared tier, or null to keep every cache in-process
+     * @param breakers the breaker guarding one cache's calls to {@code remote}, by cache name; one per
+     *                 cache, so slow multi-MB audio transfers can't open the circuit for plans and PSE
+     *                 results. Null for no breaker.
+     */
+    public SharedCaches(RemoteCache remote, Function<String, CircuitBreaker> breakers, Map<String, Spec> specs,
+                        MeterRegistry meterRegistry) {
+        this.remote = remote;
+        this.breakers = breakers;
+        this.specs = Map.copyOf(specs);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * In-process caches only, for a single replica.
+     */
+    public static SharedCaches local(Map<String, Spec> specs, MeterRegistry meterRegistry) {
+        return new SharedCaches(null, null, specs, meterRegistry);
+    }
+
+    public <V> TieredCache<V> create(String name, CacheCodec<V> codec) {
+        Spec spec = specs.getOrDefault(name, DEFAULT_SPEC);
+        CircuitBreaker breaker = remote == null || breakers == null ? null : breakers.apply(name);
+        return new TieredCache<>(name, codec, spec.ttl(), spec.l1Ttl(), spec.l1MaxEntries(), remote, breaker, meterRegistry);
+    }
+
+    /**
+     * @return null without a shared tier, as counting in-process is the caller's own fallback
+     */
+    public SharedCounter counter(String name) {
+        if (remote == null) return null;
+        return new SharedCounter(name, remote, breakers == null ? null : breakers.apply(name), meterRegistry);
+    }
+
+    public boolean isShared() {
+        return remote != null;
+    }
+
+    @Override
+    public void close() {
+        if (remote != null) remote.close();
+    }
+}
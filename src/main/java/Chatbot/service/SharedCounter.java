@@ -0,0 +1,72 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+/**
+ * Counters kept in the {@link RemoteCache} all replicas share, one per time window, so every
+ * replica counts against the same total and a restart doesn't start again from zero. Guarded by a
+ * circuit breaker like {@link TieredCache}: while the shared tier is down or slow, calls report it
+ * as unreachable and the caller counts on its own.
+ */
+public class SharedCounter {
+
+    private static final Logger log = LoggerFactory.getLogger(SharedCounter.class);
+
+    private final String name;
+    private final String keyPrefix;
+    private final RemoteCache remote;
+    private final CircuitBreaker breaker;
+    private final Counter remoteErrors;
+
+    /**
+     * @param breaker guards calls to {@code remote}; may be null
+     */
+    public SharedCounter(String name, RemoteCache remote, CircuitBreaker breaker, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.keyPrefix = "geostat:" + name + ":";
+        this.remote = remote;
+        this.breaker = breaker;
+        this.remoteErrors = Counter.builder("geostat.cache.remote.errors").tag("cache", name).register(meterRegistry);
+    }
+
+    /**
+     * Adds {@code delta} to the count of {@code window}, which the shared tier drops at
+     * {@code expiresAtMillis}.
+     *
+     * @return the new count across all replicas, or -1 when the shared tier can't be reached
+     */
+    public long add(String window, long delta, long expiresAtMillis) {
+        Long count = remoteCall(() -> remote.increment(keyPrefix + window, delta, expiresAtMillis));
+        return count == null ? -1 : count;
+    }
+
+    /**
+     * @return the count of {@code window}, zero before its first {@link #add}, or -1 when the
+     * shared tier can't be reached
+     */
+    public long get(String window) {
+        Long count = remoteCall(() -> {
+            byte[] value = remote.get(keyPrefix + window);
+            return value == null ? 0L : Long.parseLong(new String(value, StandardCharsets.US_ASCII));
+        });
+        return count == null ? -1 : count;
+    }
+
+    private Long remoteCall(Supplier<Long> call) {
+        try {
+            return breaker == null ? call.get() : breaker.execute(call);
+        } catch (CircuitOpenException e) {
+            return null;
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.debug("Shared counter {} unavailable: {}", name, e.getMessage());
+            return null;
+        }
+    }
+}
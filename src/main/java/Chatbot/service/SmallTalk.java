@@ -0,0 +1,148 @@
+package Chatbot.service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Template replies for pleasantries (greetings, thanks, farewells, "who are you", "what can you do")
+ * in English, Georgian and Latin-typed Georgian, so they skip both the classifier and the small talk
+ * model call.
+ *
+ * The phrases are compiled into a trie over normalized tokens. A message matches only when it is
+ * made up entirely of known phrases and filler words, so "thanks, and what is the inflation rate?"
+ * still goes to the classifier.
+ */
+public final class SmallTalk {
+
+    public enum Intent {
+        // lowest priority first: "hi, who are you" is answered as IDENTITY
+        FILLER, GREETING, THANKS, FAREWELL, HOW_ARE_YOU, IDENTITY, CAPABILITY
+    }
+
+    public record Reply(Intent intent, String language, String text) {
+    }
+
+    private static final int MAX_TOKENS = 8;
+
+    private static final Node ROOT = new Node();
+
+    static {
+        add(Intent.GREETING, "en", "hi", "hello", "hey", "hi there", "hello there", "hey there", "greetings",
+                "good morning", "good afternoon", "good evening");
+        add(Intent.GREETING, "ka", "გამარჯობა", "გამარჯობათ", "მოგესალმები", "მოგესალმებით", "სალამი",
+                "დილა მშვიდობისა", "საღამო მშვიდობისა",
+                "gamarjoba", "gamarjobat", "salami", "dila mshvidobisa", "saghamo mshvidobisa");
+
+        add(Intent.THANKS, "en", "thanks", "thank you", "thx", "thanx", "ty", "many thanks", "thanks a lot",
+                "thank you very much", "thank you so much", "thanks so much", "much appreciated");
+        add(Intent.THANKS, "ka", "მადლობა", "მადლობთ", "გმადლობთ", "დიდი მადლობა", "უღრმესი მადლობა", "გაიხარე",
+                "გაიხარეთ", "madloba", "madlobt", "gmadlobt", "didi madloba", "gaikhare", "gaikharet");
+
+        add(Intent.FAREWELL, "en", "bye", "bye bye", "goodbye", "good bye", "see you", "see you later",
+                "see ya", "have a nice day", "have a good day", "good night");
+        add(Intent.FAREWELL, "ka", "ნახვამდის", "კარგად", "კარგად იყავი", "კარგად იყავით", "მშვიდობით",
+                "ღამე მშვიდობისა", "nakhvamdis", "naxvamdis", "kargad", "kargad iyavi", "kargad iyavit");
+
+        add(Intent.HOW_ARE_YOU, "en", "how are you", "how are you doing", "how is it going", "hows it going");
+        add(Intent.HOW_ARE_YOU, "ka", "როგორ ხარ", "როგორ ხართ", "რას შვრები", "როგორ ბრძანდებით",
+                "rogor khar", "rogor khart", "rogor xar", "ras shvrebi");
+
+        add(Intent.IDENTITY, "en", "who are you", "what are you", "what is your name", "whats your name",
+                "who am i talking to", "are you a bot", "are you a robot", "are you human", "are you a human");
+        add(Intent.IDENTITY, "ka", "ვინ ხარ", "ვინ ხართ", "შენ ვინ ხარ", "თქვენ ვინ ხართ", "რა გქვია", "რა გქვიათ",
+                "vin khar", "vin khart", "vin xar", "shen vin khar", "ra gqvia", "ra gkvia", "ra gqviat");
+
+        add(Intent.CAPABILITY, "en", "help", "help me", "what can you do", "what do you do", "how can you help",
+                "how can you help me", "what can i ask", "what can i ask you");
+        add(Intent.CAPABILITY, "ka", "დახმარება", "რა შეგიძლია", "რა შეგიძლიათ", "რით შეგიძლია დამეხმარო",
+                "რით შეგიძლიათ დამეხმაროთ", "რაში შეგიძლია დამეხმარო",
+                "ra shegidzlia", "ra shegidzliat", "rit shegidzlia damekhmaro");
+
+        add(Intent.FILLER, "en", "ok", "okay", "so", "very", "much", "again", "please", "and", "bot", "geostat");
+        add(Intent.FILLER, "ka", "კარგი", "ძალიან", "ისევ", "და", "ბოტო", "kargi", "dzalian");
+    }
+
+    private SmallTalk() {
+    }
+
+    /**
+     * @return the template reply, or null when the message is anything more than small talk
+     */
+    public static Reply match(NormalizedMessage message) {
+        if (message.isEmpty()) return null;
+        Reply reply = match(message.matchKey(), message);
+        // a transliteration is a guess; the Latin phrases cover what it gets wrong
+        if (reply == null && message.isTransliterated()) {
+            reply = match(message.key(), message);
+        }
+        return reply;
+    }
+
+    private static Reply match(String key, NormalizedMessage message) {
+        String[] tokens = key.split(" ");
+        if (tokens.length > MAX_TOKENS) return null;
+
+        Node best = null;
+        for (int i = 0; i < tokens.length; ) {
+            // longest phrase starting at token i
+            Node node = ROOT;
+            Node phrase = null;
+            int end = i;
+            for (int j = i; j < tokens.length; j++) {
+                node = node.children.get(tokens[j]);
+                if (node == null) break;
+                if (node.intent != null) {
+                    phrase = node;
+                    end = j + 1;
+                }
+            }
+            if (phrase == null) return null;
+            if (best == null || phrase.intent.compareTo(best.intent) > 0) best = phrase;
+            i = end;
+        }
+        if (best.intent == Intent.FILLER) return null;
+
+        String language = "ka".equals(message.language()) ? "ka" : best.language;
+        return new Reply(best.intent, language, text(best.intent, "ka".equals(language)));
+    }
+
+    private static String text(Intent intent, boolean isGeorgian) {
+        return switch (intent) {
+            case THANKS -> isGeorgian
+                    ? "არაფრის! თუ სხვა სტატისტიკური მონაცემები დაგჭირდებათ, მომწერეთ."
+                    : "You're welcome! Let me know if you need any other statistics.";
+            case FAREWELL -> isGeorgian
+                    ? "ნახვამდის! დაბრუნდით, როცა სტატისტიკა დაგჭირდებათ."
+                    : "Goodbye! Come back whenever you need statistics.";
+            case HOW_ARE_YOU -> isGeorgian
+                    ? "კარგად, გმადლობთ! რა სტატისტიკური მონაცემები გაინტერესებთ?"
+                    : "I'm doing well, thanks! What statistics are you looking for today?";
+            case IDENTITY -> isGeorgian
+                    ? "მე ვარ GeoStat ასისტენტი. გეხმარებით საქართველოს სტატისტიკის ეროვნული სამსახურის მონაცემების მოძებნაში."
+                    : "I'm GeoStat Assistant. I help you find data from Georgia's National Statistics Office.";
+            case CAPABILITY -> isGeorgian
+                    ? "შემიძლია მოგიძებნოთ საქსტატის მონაცემები და შესაბამისი გვერდი: ფასები და ინფლაცია, მშპ, მოსახლეობა, ხელფასები, ვაჭრობა, ტურიზმი და სხვა. მაგალითად, ჰკითხეთ: „რა არის ინფლაციის მაჩვენებელი?“"
+                    : "I can find Geostat data and the page it's on: prices and inflation, GDP, population, wages, trade, tourism and more. Try asking, for example, \"What is the inflation rate?\"";
+            default -> isGeorgian
+                    ? "გამარჯობა! რა სტატისტიკური მონაცემები გაინტერესებთ?"
+                    : "Hello! What statistics are you looking for today?";
+        };
+    }
+
+    private static void add(Intent intent, String language, String... phrases) {
+        for (String phrase : phrases) {
+            Node node = ROOT;
+            for (String token : NormalizedMessage.of(phrase).key().split(" ")) {
+                node = node.children.computeIfAbsent(token, t -> new Node());
+            }
+            node.intent = intent;
+            node.language = language;
+        }
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>(4);
+        Intent intent;
+        String language;
+    }
+}
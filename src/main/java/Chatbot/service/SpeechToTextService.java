@@ -2,6 +2,7 @@ package Chatbot.service;
 
 import com.google.cloud.speech.v1.*;
 import com.google.protobuf.ByteString;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -17,9 +18,9 @@ public class SpeechToTextService {
     private static final String ENGLISH_LANGUAGE_CODE = "en-US";
     private static final int WEBM_OPUS_SAMPLE_RATE = 48000;
 
-    private final SpeechClient speechClient;
+    private final ObjectProvider<SpeechClient> speechClient;
 
-    public SpeechToTextService(SpeechClient speechClient) {
+    public SpeechToTextService(ObjectProvider<SpeechClient> speechClient) {
         this.speechClient = speechClient;
     }
 
@@ -43,7 +44,7 @@ public class SpeechToTextService {
                     .setContent(audioBytes)
                     .build();
 
-            RecognizeResponse response = speechClient.recognize(config, audio);
+            RecognizeResponse response = speechClient.getObject().recognize(config, audio);
             List<SpeechRecognitionResult> results = response.getResultsList();
 
             if (results.isEmpty()) {
@@ -0,0 +1,227 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The model one LLM stage calls: its own {@link ChatClient} (model and max tokens) and timeout.
+ *
+ * Optionally a shadow model gets a sampled share of the same prompts in parallel. Its answers are
+ * never used; only its latency and its agreement with the primary answer are recorded, so a cheaper
+ * or faster model can be judged on real traffic before the stage is switched to it. Shadow calls
+ * are skipped while the pipeline is degraded or when too many are already running.
+ */
+public class StageModel {
+
+    private static final Logger log = LoggerFactory.getLogger(StageModel.class);
+
+    private static final int MAX_SHADOW_IN_FLIGHT = 8;
+    private static final NgramEmbedder EMBEDDER = new NgramEmbedder(256);
+
+    /**
+     * How closely a shadow answer matches the primary one, from 0 (not at all) to 1 (same).
+     */
+    public interface Comparison {
+        double score(String primary, String shadow);
+    }
+
+    /**
+     * Character n-gram cosine similarity, for free-text answers.
+     */
+    public static final Comparison TEXT_SIMILARITY = (primary, shadow) -> {
+        float[] a = EMBEDDER.embed(NormalizedMessage.of(primary).matchKey());
+        float[] b = EMBEDDER.embed(NormalizedMessage.of(shadow).matchKey());
+        double dot = 0;
+        for (int i = 0; i < a.length; i++) dot += a[i] * b[i];
+        return Math.max(0, dot);
+    };
+
+    /**
+     * @param client built with the model and max tokens as default options
+     */
+    public record Settings(ChatClient client, String model, Duration timeout) {
+    }
+
+    private final String stage;
+    private final Settings primary;
+    private final Settings shadow;
+    private final double shadowPercent;
+    private final Comparison comparison;
+    private final Semaphore shadowPermits = new Semaphore(MAX_SHADOW_IN_FLIGHT);
+
+    private final Timer primaryLatency;
+    private final Timer shadowLatency;
+    private final DistributionSummary agreement;
+    private final Counter shadowCompared;
+    private final Counter shadowFailed;
+    private final Counter shadowSkipped;
+
+    /**
+     * @param shadow        null for no shadow model
+     * @param shadowPercent share of calls, 0 to 100, also sent to the shadow model
+     */
+    public StageModel(String stage,
+                      Settings primary,
+                      Settings shadow,
+                      double shadowPercent,
+                      Comparison comparison,
+                      MeterRegistry meterRegistry) {
+        this.stage = stage;
+        this.primary = primary;
+        this.shadow = shadow;
+        this.shadowPercent = shadow == null ? 0 : shadowPercent;
+        this.comparison = comparison;
+
+        this.primaryLatency = latency(meterRegistry, primary.model(), "primary");
+        String shadowModel = shadow == null ? "none" : shadow.model();
+        this.shadowLatency = latency(meterRegistry, shadowModel, "shadow");
+        this.agreement = DistributionSummary.builder("geostat.model.shadow.agreement")
+                .description("Agreement of shadow answers with the primary answer, 0 to 1")
+                .tag("stage", stage)
+                .tag("model", shadowModel)
+                .register(meterRegistry);
+        this.shadowCompared = shadowRuns(meterRegistry, "compared");
+        this.shadowFailed = shadowRuns(meterRegistry, "failed");
+        this.shadowSkipped = shadowRuns(meterRegistry, "skipped");
+    }
+
+    public String model() {
+        return primary.model();
+    }
+
+    public Duration timeout() {
+        return primary.timeout();
+    }
+
+    /**
+     * The primary model's answer, or an exception after the stage timeout or the request's
+     * deadline, whichever comes first.
+     *
+     * @param ctx null outside a chat request; a degraded request never runs the shadow
+     */
+    public String call(String prompt, ChatContext ctx) {
+        Deadline deadline = ctx == null ? Deadline.NONE : ctx.deadline();
+        ShadowRun shadowRun = shadow(prompt, ctx);
+        long start = System.nanoTime();
+        String answer = null;
+        try {
+            answer = deadline.bound(Mono.fromCallable(() -> primary.client().prompt().user(prompt).call().content())
+                            .subscribeOn(Schedulers.boundedElastic()),
+                    primary.timeout())
+                    .block();
+            primaryLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return answer;
+        } finally {
+            shadowRun.compare(answer);
+        }
+    }
+
+    /**
+     * Like {@link #call(String, ChatContext)}, with options of the call's own in place of the
+     * stage's defaults. Neither shadowed nor recorded in the stage latency, as such a call is not
+     * comparable with the stage's usual ones.
+     *
+     * @param deadline {@link Deadline#NONE} for no limit beyond the stage timeout
+     */
+    public String call(String prompt, ChatOptions options, Deadline deadline) {
+        return deadline.bound(Mono.fromCallable(() -> primary.client().prompt().user(prompt).options(options).call().content())
+                                .subscribeOn(Schedulers.boundedElastic()),
+                        primary.timeout())
+                .block();
+    }
+
+    /**
+     * The primary model's streamed answer; the caller applies {@link #timeout()} and the request's
+     * deadline, and records {@link #recordLatency}.
+     */
+    public Flux<String> stream(String prompt) {
+        return primary.client().prompt().user(prompt).stream().content();
+    }
+
+    public void recordLatency(long nanos) {
+        primaryLatency.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts the shadow model on {@code prompt} if this call is sampled; compare its answer with
+     * the primary one through the returned run. Never blocks and never throws.
+     */
+    public ShadowRun shadow(String prompt, ChatContext ctx) {
+        if (shadowPercent <= 0 || ThreadLocalRandom.current().nextDouble(100) >= shadowPercent) {
+            return ShadowRun.NONE;
+        }
+        if ((ctx != null && ctx.mode() != PipelineMode.FULL) || !shadowPermits.tryAcquire()) {
+            shadowSkipped.increment();
+            return ShadowRun.NONE;
+        }
+        long start = System.nanoTime();
+        Mono<String> answer = Mono.fromCallable(() -> shadow.client().prompt().user(prompt).call().content())
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(shadow.timeout())
+                .doOnNext(text -> shadowLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                .doFinally(signal -> shadowPermits.release())
+                .cache();
+        answer.subscribe(text -> {
+        }, e -> {
+        });
+        return primaryAnswer -> answer.subscribe(
+                text -> {
+                    if (primaryAnswer == null) return;
+                    try {
+                        agreement.record(comparison.score(primaryAnswer, text));
+                        shadowCompared.increment();
+                    } catch (RuntimeException e) {
+                        log.debug("Shadow comparison for {} failed: {}", stage, e.getMessage());
+                        shadowFailed.increment();
+                    }
+                },
+                e -> {
+                    log.debug("Shadow {} call for {} failed: {}", shadow.model(), stage, e.getMessage());
+                    shadowFailed.increment();
+                });
+    }
+
+    /**
+     * A shadow call in flight.
+     */
+    public interface ShadowRun {
+
+        ShadowRun NONE = primaryAnswer -> {
+        };
+
+        /**
+         * @param primaryAnswer null when the primary call failed; then only the shadow latency counts
+         */
+        void compare(String primaryAnswer);
+    }
+
+    private Timer latency(MeterRegistry meterRegistry, String model, String role) {
+        return Timer.builder("geostat.model.latency")
+                .tag("stage", stage)
+                .tag("model", model)
+                .tag("role", role)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+    }
+
+    private Counter shadowRuns(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("geostat.model.shadow")
+                .tag("stage", stage)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package Chatbot.service;
+
+import java.util.Map;
+
+/**
+ * The {@link StageModel} of each LLM stage, keyed by the {@link TokenBudget} stage names.
+ */
+public class StageModels {
+
+    private final Map<String, StageModel> models;
+
+    public StageModels(Map<String, StageModel> models) {
+        this.models = Map.copyOf(models);
+    }
+
+    public StageModel get(String stage) {
+        StageModel model = models.get(stage);
+        if (model == null) {
+            throw new IllegalArgumentException("No model configured for stage: " + stage);
+        }
+        return model;
+    }
+}
@@ -0,0 +1,104 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded LRU of the last known good value per normalized question, served while an upstream
+ * circuit is open. Keys that were served stale are queued for a background refresh that runs
+ * when the circuit half-opens.
+ */
+public class StaleStore<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleStore.class);
+
+    private static final int MAX_PENDING_REFRESHES = 256;
+
+    private final Map<String, V> entries;
+    private final Map<String, Runnable> pendingRefreshes = new ConcurrentHashMap<>();
+    private final ThreadPoolExecutor refreshExecutor;
+    private final Counter servedCounter;
+
+    public StaleStore(String name, int maxEntries, MeterRegistry meterRegistry) {
+        this.entries = new LinkedHashMap<>(Math.min(maxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.refreshExecutor = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(MAX_PENDING_REFRESHES),
+                r -> {
+                    Thread t = new Thread(r, "stale-refresh-" + name);
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+
+        this.servedCounter = Counter.builder("geostat.stale.served").tag("store", name).register(meterRegistry);
+        Gauge.builder("geostat.stale.size", this, StaleStore::size).tag("store", name).register(meterRegistry);
+    }
+
+    public synchronized void put(String key, V value) {
+        entries.put(key, value);
+    }
+
+    public synchronized V peek(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * Returns the stale value for {@code key}, if any, and remembers how to refresh it.
+     */
+    public V serve(String key, Runnable refresh) {
+        V value = peek(key);
+        if (value != null) {
+            servedCounter.increment();
+            if (refresh != null && pendingRefreshes.size() < MAX_PENDING_REFRESHES) {
+                pendingRefreshes.putIfAbsent(key, refresh);
+            }
+        }
+        return value;
+    }
+
+    public void refreshPending() {
+        if (pendingRefreshes.isEmpty()) return;
+        log.info("Refreshing {} stale entries in the background", pendingRefreshes.size());
+
+        Iterator<Map.Entry<String, Runnable>> it = pendingRefreshes.entrySet().iterator();
+        while (it.hasNext()) {
+            Runnable refresh = it.next().getValue();
+            it.remove();
+            refreshExecutor.execute(refresh);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Key of a stored answer: the handler kind, the answer language and the question's match key.
+     */
+    public static String answerKey(String intent, String language, String matchKey) {
+        String kind = "general_knowledge".equals(intent) ? "knowledge" : intent;
+        return kind + ":" + language + ":" + matchKey;
+    }
+
+    public static String markOutdated(String answer, String language) {
+        return answer + ("ka".equals(language)
+                ? "\n\n⚠️ სერვისი დროებით შეზღუდულია — ეს პასუხი შესაძლოა მოძველებული იყოს."
+                : "\n\n⚠️ The service is temporarily degraded — this answer may be outdated.");
+    }
+}
@@ -1,14 +1,22 @@
 package Chatbot.service;
 
+import Config.UpstreamWebClients;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.codec.ClientCodecConfigurer;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class TextToSpeechService {
@@ -18,45 +26,70 @@ public class TextToSpeechService {
     @Value("${spring.ai.elevenlabs.api-key}")
     private String apiKey;
 
+    public static final int MAX_TEXT_CHARS = 5000;
+    private static final String MODEL_ID = "eleven_v3";
+
     private final WebClient webClient;
+    private final Map<TtsFormat, Timer> synthesisTimers = new EnumMap<>(TtsFormat.class);
+    private final Map<TtsFormat, DistributionSummary> audioSizes = new EnumMap<>(TtsFormat.class);
+    // the same answer read aloud on any replica is synthesized once
+    private final TieredCache<byte[]> audioCache;
+
+    public TextToSpeechService(UpstreamWebClients upstreamWebClients, MeterRegistry meterRegistry, SharedCaches sharedCaches) {
+        // pool, timeouts and the 10MB codec limit come from geostat.http.upstreams.elevenlabs.*
+        this.webClient = upstreamWebClients.get(UpstreamWebClients.ELEVENLABS);
+        this.audioCache = sharedCaches.create("tts", CacheCodec.BYTES);
 
-    public TextToSpeechService(WebClient.Builder webClientBuilder) {
-        ExchangeStrategies strategies = ExchangeStrategies.builder()
-                .codecs(configurer -> configurer
-                        .defaultCodecs()
-                        .maxInMemorySize(10 * 1024 * 1024))  // 10MB
-                .build();
-
-        this.webClient = webClientBuilder
-                .baseUrl("https://api.elevenlabs.io/v1")
-                .exchangeStrategies(strategies)  // Add this!
-                .build();
+        for (TtsFormat format : TtsFormat.values()) {
+            synthesisTimers.put(format, Timer.builder("geostat.tts.synthesis")
+                    .tag("format", format.formatName())
+                    .publishPercentiles(0.5, 0.95)
+                    .register(meterRegistry));
+            audioSizes.put(format, DistributionSummary.builder("geostat.tts.audio.size")
+                    .tag("format", format.formatName())
+                    .baseUnit("bytes")
+                    .register(meterRegistry));
+        }
     }
 
-    private String getVoiceIdForLanguage(String language) {
+    public String getVoiceIdForLanguage(String language) {
         return language.startsWith("ka")
                 ? "Z3R5wn05IrDiVCyEkUrK"  // Arabella (Georgian)
                 : "21m00Tcm4TlvDq8ikWAM"; // Rachel (English)
     }
 
     public byte[] synthesizeSpeech(String text, String language) {
-        if (text.length() > 5000) {
-            logger.error("Text too long: {} characters (max 5000)", text.length());
-            throw new IllegalArgumentException("Text exceeds maximum length of 5000 characters");
+        return synthesizeSpeech(text, language, TtsFormat.MP3);
+    }
+
+    public byte[] synthesizeSpeech(String text, String language, TtsFormat format) {
+        if (text.length() > MAX_TEXT_CHARS) {
+            logger.error("Text too long: {} characters (max {})", text.length(), MAX_TEXT_CHARS);
+            throw new IllegalArgumentException("Text exceeds maximum length of " + MAX_TEXT_CHARS + " characters");
+        }
+
+        String voiceId = getVoiceIdForLanguage(language);
+        String cacheKey = audioKey(voiceId, format, text);
+        byte[] cached = audioCache.get(cacheKey);
+        if (cached != null) {
+            return cached;
         }
 
         try {
-            String voiceId = getVoiceIdForLanguage(language);
-            logger.info("Synthesizing with voice: {}, language: {}, text length: {}",
-                    voiceId, language, text.length());
+            logger.info("Synthesizing with voice: {}, language: {}, format: {}, text length: {}",
+                    voiceId, language, format.formatName(), text.length());
 
+            long start = System.nanoTime();
             byte[] result = webClient.post()
-                    .uri("/text-to-speech/{voice_id}", voiceId)
+                    .uri(uriBuilder -> uriBuilder
+                            .path("/text-to-speech/{voice_id}")
+                            .queryParam("output_format", format.outputFormat())
+                            .build(voiceId))
                     .header("xi-api-key", apiKey)
                     .header("Content-Type", "application/json")
                     .bodyValue(Map.of(
                             "text", text,
-                            "model_id", "eleven_v3"
+                            "model_id", MODEL_ID
                     ))
                     .retrieve()
                     .bodyToMono(byte[].class)
@@ -66,7 +99,12 @@ public class TextToSpeechService {
                 throw new RuntimeException("Empty audio response from ElevenLabs");
             }
 
-            logger.info("Successfully generated audio: {} bytes", result.length);
+            long elapsed = System.nanoTime() - start;
+            synthesisTimers.get(format).record(elapsed, TimeUnit.NANOSECONDS);
+            audioSizes.get(format).record(result.length);
+            logger.info("Successfully generated audio: {} bytes of {} in {} ms",
+                    result.length, format.formatName(), TimeUnit.NANOSECONDS.toMillis(elapsed));
+            audioCache.put(cacheKey, result);
             return result;
 
         } catch (Exception e) {
@@ -74,4 +112,14 @@ public class TextToSpeechService {
             throw new RuntimeException("Failed to synthesize speech: " + e.getMessage(), e);
         }
     }
+
+    private static String audioKey(String voiceId, TtsFormat format, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update((voiceId + '|' + format.outputFormat() + '|' + MODEL_ID + '|').getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
 }
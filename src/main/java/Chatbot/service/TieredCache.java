@@ -0,0 +1,238 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Two-level cache: a small in-process near-cache (L1) in front of the {@link RemoteCache} all
+ * replicas share (L2). A value one replica computed is a hit on every other replica, and a write
+ * or invalidation on one replica evicts the others' L1 copy through the invalidation channel.
+ *
+ * L1 entries live for {@code min(l1Ttl, ttl)}, so even a missed invalidation is only stale that
+ * long. The shared tier is optional and guarded by a circuit breaker: when it is down or slow,
+ * lookups past L1 fall through as misses, and L1 entries still expire after {@code min(l1Ttl, ttl)},
+ * as the other replicas' writes can't reach it meanwhile. Without a shared tier at all, L1 keeps
+ * values for the full {@code ttl}, as a single-replica cache.
+ *
+ * Returned values are shared between callers and must not be modified.
+ */
+public class TieredCache<V> {
+
+    private static final Logger log = LoggerFactory.getLogger(TieredCache.class);
+
+    private record Entry<V>(V value, long expiresAtNanos) {
+    }
+
+    private final String name;
+    private final String keyPrefix;
+    private final CacheCodec<V> codec;
+    private final Duration ttl;
+    private final long l1TtlNanos;
+    private final RemoteCache remote;
+    private final CircuitBreaker breaker;
+    private final Map<String, Entry<V>> l1;
+
+    private final Counter l1Hits;
+    private final Counter l2Hits;
+    private final Counter misses;
+    private final Counter remoteErrors;
+
+    /**
+     * @param remote  the shared tier, or null for an in-process cache only
+     * @param breaker guards calls to {@code remote}; may be null when {@code remote} is
+     */
+    public TieredCache(String name,
+                       CacheCodec<V> codec,
+                       Duration ttl,
+                       Duration l1Ttl,
+                       int l1MaxEntries,
+                       RemoteCache remote,
+                       CircuitBreaker breaker,
+                       MeterRegistry meterRegistry) {
+        this.name = name;
+        this.keyPrefix = "geostat:" + name + ":";
+        this.codec = codec;
+        this.ttl = ttl;
+        this.l1TtlNanos = (remote == null ? ttl : l1Ttl.compareTo(ttl) < 0 ? l1Ttl : ttl).toNanos();
+        this.remote = remote;
+        this.breaker = breaker;
+        this.l1 = l1MaxEntries <= 0 ? null : new LinkedHashMap<>(Math.min(l1MaxEntries, 1024), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                return size() > l1MaxEntries;
+            }
+        };
+
+        this.l1Hits = lookups(meterRegistry, "l1");
+        this.l2Hits = lookups(meterRegistry, "l2");
+        this.misses = lookups(meterRegistry, "miss");
+        this.remoteErrors = Counter.builder("geostat.cache.remote.errors").tag("cache", name).register(meterRegistry);
+        if (l1 != null) {
+            Gauge.builder("geostat.cache.l1.size", this, c -> c.l1Size()).tag("cache", name).register(meterRegistry);
+        }
+
+        if (remote != null && l1 != null) {
+            remote.onInvalidation(name, this::evictLocal);
+        }
+    }
+
+    public V get(String key) {
+        V value = l1Get(key);
+        if (value != null) {
+            l1Hits.increment();
+            return value;
+        }
+        if (remote != null) {
+            value = decode(key, remoteCall(() -> remote.get(keyPrefix + key)));
+            if (value != null) {
+                l1Put(key, value);
+                l2Hits.increment();
+                return value;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    /**
+     * Looks up several keys with at most one round trip to the shared tier.
+     *
+     * @return the values found, by key
+     */
+    public Map<String, V> getAll(Collection<String> keys) {
+        Map<String, V> found = new HashMap<>();
+        List<String> remoteKeys = new ArrayList<>();
+        List<String> wanted = new ArrayList<>();
+        for (String key : keys) {
+            if (found.containsKey(key) || wanted.contains(key)) continue;
+            V value = l1Get(key);
+            if (value != null) {
+                l1Hits.increment();
+                found.put(key, value);
+            } else {
+                wanted.add(key);
+                remoteKeys.add(keyPrefix + key);
+            }
+        }
+        int missed = wanted.size();
+        if (remote != null && !wanted.isEmpty()) {
+            List<byte[]> values = remoteCall(() -> remote.getAll(remoteKeys));
+            for (int i = 0; values != null && i < wanted.size(); i++) {
+                V value = decode(wanted.get(i), values.get(i));
+                if (value != null) {
+                    l1Put(wanted.get(i), value);
+                    l2Hits.increment();
+                    found.put(wanted.get(i), value);
+                    missed--;
+                }
+            }
+        }
+        misses.increment(missed);
+        return found;
+    }
+
+    /**
+     * Stores the value on this replica and in the shared tier, and evicts the other replicas' copies.
+     */
+    public void put(String key, V value) {
+        l1Put(key, value);
+        if (remote == null) return;
+        byte[] bytes = codec.encode(value);
+        remoteCall(() -> {
+            remote.put(keyPrefix + key, bytes, ttl);
+            remote.publishInvalidation(name, key);
+            return null;
+        });
+    }
+
+    public void invalidate(String key) {
+        evictLocal(key);
+        if (remote == null) return;
+        remoteCall(() -> {
+            remote.delete(keyPrefix + key);
+            remote.publishInvalidation(name, key);
+            return null;
+        });
+    }
+
+    private V decode(String key, byte[] bytes) {
+        if (bytes == null) return null;
+        try {
+            return codec.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            log.debug("Unreadable {} cache entry {}: {}", name, key, e.getMessage());
+            return null;
+        }
+    }
+
+    private <T> T remoteCall(Supplier<T> call) {
+        try {
+            return breaker == null ? call.get() : breaker.execute(call);
+        } catch (CircuitOpenException e) {
+            return null;
+        } catch (RuntimeException e) {
+            remoteErrors.increment();
+            log.debug("Shared cache {} unavailable: {}", name, e.getMessage());
+            return null;
+        }
+    }
+
+    private V l1Get(String key) {
+        if (l1 == null) return null;
+        synchronized (l1) {
+            Entry<V> entry = l1.get(key);
+            if (entry == null) return null;
+            if (System.nanoTime() - entry.expiresAtNanos() > 0) {
+                l1.remove(key);
+                return null;
+            }
+            return entry.value();
+        }
+    }
+
+    private void l1Put(String key, V value) {
+        if (l1 == null) return;
+        synchronized (l1) {
+            l1.put(key, new Entry<>(value, System.nanoTime() + l1TtlNanos));
+        }
+    }
+
+    /**
+     * @param key null drops every entry
+     */
+    private void evictLocal(String key) {
+        if (l1 == null) return;
+        synchronized (l1) {
+            if (key == null) {
+                l1.clear();
+            } else {
+                l1.remove(key);
+            }
+        }
+    }
+
+    private int l1Size() {
+        synchronized (l1) {
+            return l1.size();
+        }
+    }
+
+    private Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("geostat.cache.lookups")
+                .tag("cache", name)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,127 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Input-token limits per LLM stage. Callers trim the variable parts of a prompt (question,
+ * search results) to {@link #available} before rendering; {@link #render} records what was sent.
+ *
+ * Token counts are estimates: roughly 4 ASCII characters per token, and Georgian script,
+ * which the tokenizer splits much more finely, weighted at 3/4 token per character.
+ */
+public class TokenBudget {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenBudget.class);
+
+    public static final String CLASSIFICATION = "classification";
+    public static final String BATCH_CLASSIFICATION = "batch_classification";
+    public static final String ANALYSIS = "analysis";
+    public static final String KNOWLEDGE = "knowledge";
+    public static final String SMALL_TALK = "small_talk";
+
+    // covers short fixed values such as language labels and headings
+    private static final int FIXED_VALUE_RESERVE = 64;
+    private static final int MIN_AVAILABLE = 64;
+    private static final String ELLIPSIS = "…";
+
+    private final Map<String, Integer> limits;
+    private final MeterRegistry registry;
+    private final Map<String, DistributionSummary> tokens = new ConcurrentHashMap<>();
+    private final Map<String, Counter> trimmed = new ConcurrentHashMap<>();
+
+    public TokenBudget(Map<String, Integer> limits, MeterRegistry registry) {
+        this.limits = Map.copyOf(limits);
+        this.registry = registry;
+    }
+
+    public int limit(String stage) {
+        Integer limit = limits.get(stage);
+        if (limit == null) {
+            throw new IllegalArgumentException("No token budget for stage: " + stage);
+        }
+        return limit;
+    }
+
+    /**
+     * Tokens left for the variable parts of {@code template} within the stage limit.
+     */
+    public int available(String stage, PromptTemplate template) {
+        int available = limit(stage) - template.staticTokens() - FIXED_VALUE_RESERVE;
+        if (available < MIN_AVAILABLE) {
+            log.warn("⚠️ Token budget for {} ({}) barely covers prompt '{}' ({} tokens)",
+                    stage, limit(stage), template.name(), template.staticTokens());
+            return MIN_AVAILABLE;
+        }
+        return available;
+    }
+
+    public String render(String stage, PromptTemplate template, String... values) {
+        String prompt = template.render(values);
+        tokens.computeIfAbsent(stage, s -> DistributionSummary.builder("geostat.prompt.tokens")
+                        .description("Estimated input tokens per prompt")
+                        .tag("stage", s)
+                        .register(registry))
+                .record(estimate(prompt));
+        return prompt;
+    }
+
+    public void recordTrimmed(String stage) {
+        trimmed.computeIfAbsent(stage, s -> Counter.builder("geostat.prompt.trimmed")
+                        .description("Prompts whose variable parts were cut to fit the token budget")
+                        .tag("stage", s)
+                        .register(registry))
+                .increment();
+    }
+
+    /**
+     * Cuts {@code text} to at most {@code maxTokens}, preferring a word boundary.
+     * Returns the same instance when it already fits.
+     */
+    public static String truncate(String text, int maxTokens) {
+        if (text == null || text.isEmpty()) return "";
+        if (maxTokens <= 0) return "";
+
+        int budgetQuarters = maxTokens * 4 - 4; // room for the ellipsis
+        int quarters = 0;
+        int lastSpace = -1;
+        for (int i = 0; i < text.length(); ) {
+            int cp = text.codePointAt(i);
+            quarters += quarterTokens(cp);
+            if (quarters > budgetQuarters) {
+                int cut = lastSpace > i / 2 ? lastSpace : i;
+                return text.substring(0, cut).stripTrailing() + ELLIPSIS;
+            }
+            if (Character.isWhitespace(cp)) lastSpace = i;
+            i += Character.charCount(cp);
+        }
+        return text;
+    }
+
+    public static int estimate(CharSequence text) {
+        if (text == null) return 0;
+        long quarters = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < text.length()) {
+                quarters += quarterTokens(Character.toCodePoint(c, text.charAt(++i)));
+            } else {
+                quarters += quarterTokens(c);
+            }
+        }
+        return (int) ((quarters + 3) / 4);
+    }
+
+    private static int quarterTokens(int cp) {
+        if (cp < 0x80) return 1;
+        if (cp >= 0x10A0 && cp <= 0x10FF) return 3; // Georgian
+        if (cp > 0xFFFF) return 4; // emoji
+        return 2;
+    }
+}
@@ -0,0 +1,102 @@
+package Chatbot.service;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Audio formats offered to clients, each mapped to an ElevenLabs {@code output_format}.
+ * Smaller formats start playing sooner on slow mobile connections; PCM skips decoding for
+ * clients that feed audio straight back into speech recognition.
+ */
+public enum TtsFormat {
+
+    MP3("mp3", "mp3_44100_128", "audio/mpeg", "mp3"),
+    MP3_LOW("mp3-low", "mp3_22050_32", "audio/mpeg", "mp3"),
+    OPUS("opus", "opus_48000_32", "audio/ogg", "ogg"),
+    // raw signed 16-bit little-endian mono
+    PCM("pcm", "pcm_16000", "audio/L16;rate=16000", "pcm");
+
+    private final String formatName;
+    private final String outputFormat;
+    private final MediaType mediaType;
+    private final String extension;
+
+    TtsFormat(String formatName, String outputFormat, String mediaType, String extension) {
+        this.formatName = formatName;
+        this.outputFormat = outputFormat;
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public String formatName() {
+        return formatName;
+    }
+
+    public String outputFormat() {
+        return outputFormat;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public String fileName() {
+        return "speech." + extension;
+    }
+
+    /**
+     * Picks the format for a request: an explicit {@code format} name wins, then the best audio
+     * type in {@code Accept}, then {@code Save-Data: on} for the low-bitrate MP3. Anything else
+     * gets the default MP3.
+     *
+     * @throws IllegalArgumentException for an unknown format name
+     */
+    public static TtsFormat negotiate(String requested, String accept, String saveData) {
+        if (requested != null && !requested.isBlank()) {
+            String wanted = requested.trim().toLowerCase(Locale.ROOT);
+            for (TtsFormat format : values()) {
+                if (format.formatName.equals(wanted)) return format;
+            }
+            throw new IllegalArgumentException("Unknown audio format: " + requested);
+        }
+
+        boolean lowBandwidth = saveData != null && saveData.trim().equalsIgnoreCase("on");
+        TtsFormat accepted = fromAccept(accept);
+        if (accepted == MP3 && lowBandwidth) return MP3_LOW;
+        if (accepted != null) return accepted;
+        return lowBandwidth ? MP3_LOW : MP3;
+    }
+
+    private static TtsFormat fromAccept(String accept) {
+        if (accept == null || accept.isBlank()) return null;
+        List<MediaType> types;
+        try {
+            types = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        // highest q first; the sort is stable, so equal q keeps the client's order
+        types.sort((a, b) -> Double.compare(b.getQualityValue(), a.getQualityValue()));
+        for (MediaType type : types) {
+            if (type.getQualityValue() == 0 || !"audio".equals(type.getType())) continue;
+            switch (type.getSubtype().toLowerCase(Locale.ROOT)) {
+                case "mpeg", "mp3" -> {
+                    return MP3;
+                }
+                case "ogg", "opus" -> {
+                    return OPUS;
+                }
+                case "l16", "pcm" -> {
+                    return PCM;
+                }
+                default -> {
+                }
+            }
+        }
+        return null;
+    }
+}
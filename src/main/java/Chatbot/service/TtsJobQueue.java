@@ -0,0 +1,258 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Speech synthesis as background jobs, so a long ElevenLabs call holds a worker instead of a
+ * request thread. Submitting returns at once with a job id; the audio is fetched later by id.
+ *
+ * Workers and the waiting queue are both bounded; a full queue rejects new jobs. Submitting the
+ * same text, voice and format while a job for it is queued, running or finished (and not yet expired)
+ * returns that job instead of synthesizing again, so client retries cost nothing. Finished jobs
+ * are kept for {@code resultTtl}, and the oldest are dropped early when their audio exceeds
+ * {@code maxResultBytes}. Failed jobs are not reused.
+ */
+public class TtsJobQueue implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(TtsJobQueue.class);
+
+    public enum Status {QUEUED, RUNNING, DONE, FAILED}
+
+    public static final class Job {
+        private final String id;
+        private final String key;
+        private final String language;
+        private final TtsFormat format;
+        private final CompletableFuture<Job> completion = new CompletableFuture<>();
+        private volatile Status status = Status.QUEUED;
+        private volatile byte[] audio;
+        private volatile String error;
+        private volatile long finishedNanos;
+
+        Job(String id, String key, String language, TtsFormat format) {
+            this.id = id;
+            this.key = key;
+            this.language = language;
+            this.format = format;
+        }
+
+        public String id() {
+            return id;
+        }
+
+        public String language() {
+            return language;
+        }
+
+        public TtsFormat format() {
+            return format;
+        }
+
+        public Status status() {
+            return status;
+        }
+
+        public byte[] audio() {
+            return audio;
+        }
+
+        public String error() {
+            return error;
+        }
+
+        /**
+         * Completes with this job once it is done or failed.
+         */
+        public CompletableFuture<Job> completion() {
+            return completion;
+        }
+    }
+
+    /**
+     * Thrown by {@link #submit} when the queue is full.
+     */
+    public static class QueueFullException extends RuntimeException {
+        QueueFullException() {
+            super("TTS job queue is full");
+        }
+    }
+
+    private final TextToSpeechService textToSpeechService;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService sweeper;
+    private final long resultTtlNanos;
+    private final long maxResultBytes;
+
+    // guarded by this
+    private final Map<String, Job> jobs = new HashMap<>();
+    private final Map<String, Job> byKey = new HashMap<>();
+    private final LinkedHashMap<String, Job> finished = new LinkedHashMap<>();
+    private long resultBytes;
+
+    private final Counter submitted;
+    private final Counter deduplicated;
+    private final Counter rejected;
+    private final Counter completed;
+    private final Counter failed;
+
+    public TtsJobQueue(TextToSpeechService textToSpeechService,
+                       int workerCount,
+                       int queueCapacity,
+                       Duration resultTtl,
+                       long maxResultBytes,
+                       MeterRegistry meterRegistry) {
+        this.textToSpeechService = textToSpeechService;
+        this.resultTtlNanos = resultTtl.toNanos();
+        this.maxResultBytes = maxResultBytes;
+
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "tts-worker");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.submitted = Counter.builder("geostat.tts.jobs").tag("result", "submitted").register(meterRegistry);
+        this.deduplicated = Counter.builder("geostat.tts.jobs").tag("result", "deduplicated").register(meterRegistry);
+        this.rejected = Counter.builder("geostat.tts.jobs").tag("result", "rejected").register(meterRegistry);
+        this.completed = Counter.builder("geostat.tts.jobs").tag("result", "done").register(meterRegistry);
+        this.failed = Counter.builder("geostat.tts.jobs").tag("result", "failed").register(meterRegistry);
+        Gauge.builder("geostat.tts.jobs.queued", workers, w -> w.getQueue().size()).register(meterRegistry);
+        Gauge.builder("geostat.tts.jobs.running", workers, ThreadPoolExecutor::getActiveCount).register(meterRegistry);
+        Gauge.builder("geostat.tts.jobs.result_bytes", this, TtsJobQueue::resultBytes).register(meterRegistry);
+
+        long sweepMillis = Math.max(1_000, Math.min(60_000, resultTtl.toMillis() / 2));
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tts-job-sweeper");
+            t.setDaemon(true);
+            return t;
+        });
+        sweeper.scheduleWithFixedDelay(this::expire, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @throws IllegalArgumentException when the text is too long to synthesize
+     * @throws QueueFullException       when every worker is busy and the queue is full
+     */
+    public Job submit(String text, String language, TtsFormat format) {
+        if (text.length() > TextToSpeechService.MAX_TEXT_CHARS) {
+            throw new IllegalArgumentException("Text exceeds maximum length of "
+                    + TextToSpeechService.MAX_TEXT_CHARS + " characters");
+        }
+        // same words in another format is different audio
+        String key = textToSpeechService.getVoiceIdForLanguage(language) + '\u0001' + format.outputFormat()
+                + '\u0001' + text;
+
+        Job job;
+        synchronized (this) {
+            Job existing = byKey.get(key);
+            if (existing != null && existing.status != Status.FAILED) {
+                deduplicated.increment();
+                log.info("🔁 TTS job {} already covers this text", existing.id);
+                return existing;
+            }
+            job = new Job(UUID.randomUUID().toString(), key, language, format);
+            jobs.put(job.id, job);
+            byKey.put(key, job);
+        }
+
+        try {
+            workers.execute(() -> run(job, text));
+        } catch (RejectedExecutionException e) {
+            synchronized (this) {
+                jobs.remove(job.id);
+                byKey.remove(key, job);
+            }
+            rejected.increment();
+            throw new QueueFullException();
+        }
+        submitted.increment();
+        log.info("🎙️ TTS job {} queued ({} chars, {} waiting)", job.id, text.length(), workers.getQueue().size());
+        return job;
+    }
+
+    public synchronized Job get(String id) {
+        return jobs.get(id);
+    }
+
+    private void run(Job job, String text) {
+        job.status = Status.RUNNING;
+        try {
+            byte[] audio = textToSpeechService.synthesizeSpeech(text, job.language, job.format);
+            job.audio = audio;
+            job.status = Status.DONE;
+            completed.increment();
+        } catch (Exception e) {
+            job.error = e.getMessage();
+            job.status = Status.FAILED;
+            failed.increment();
+        }
+        job.finishedNanos = System.nanoTime();
+        synchronized (this) {
+            if (job.status == Status.FAILED) {
+                // a retry should synthesize again, not get this failure back
+                byKey.remove(job.key, job);
+            }
+            finished.put(job.id, job);
+            resultBytes += job.audio == null ? 0 : job.audio.length;
+            evictOverBudget();
+        }
+        job.completion.complete(job);
+    }
+
+    private void evictOverBudget() {
+        Iterator<Job> it = finished.values().iterator();
+        while (resultBytes > maxResultBytes && it.hasNext()) {
+            Job oldest = it.next();
+            it.remove();
+            forget(oldest);
+        }
+    }
+
+    private synchronized void expire() {
+        long now = System.nanoTime();
+        Iterator<Job> it = finished.values().iterator();
+        while (it.hasNext()) {
+            Job job = it.next();
+            if (now - job.finishedNanos < resultTtlNanos) break;
+            it.remove();
+            forget(job);
+        }
+    }
+
+    private void forget(Job job) {
+        jobs.remove(job.id);
+        byKey.remove(job.key, job);
+        resultBytes -= job.audio == null ? 0 : job.audio.length;
+    }
+
+    private synchronized long resultBytes() {
+        return resultBytes;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package Chatbot.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Fields gathered while one question is answered, written out once as a single line by
+ * {@link RequestEventLog} instead of a log line per step. Detail fields (prompt sizes, raw model
+ * output, every search attempt and score) are only kept for the sampled share of requests.
+ * Owned by the request thread, like its {@link ChatContext}.
+ */
+public final class WideEvent {
+
+    private final Map<String, Object> fields = new LinkedHashMap<>();
+    private boolean detailed;
+
+    public WideEvent put(String key, Object value) {
+        fields.put(key, value);
+        return this;
+    }
+
+    public void increment(String key) {
+        fields.merge(key, 1, (a, b) -> (Integer) a + (Integer) b);
+    }
+
+    /**
+     * Only evaluated when this request is sampled for detail.
+     */
+    public void detail(String key, Supplier<?> value) {
+        if (detailed) fields.put(key, value.get());
+    }
+
+    /**
+     * Appends to the list under {@code key}, when this request is sampled for detail.
+     */
+    @SuppressWarnings("unchecked")
+    public void detailAdd(String key, Object value) {
+        if (!detailed) return;
+        ((List<Object>) fields.computeIfAbsent(key, k -> new ArrayList<>())).add(value);
+    }
+
+    public boolean detailed() {
+        return detailed;
+    }
+
+    public void detailed(boolean detailed) {
+        this.detailed = detailed;
+    }
+
+    Map<String, Object> fields() {
+        return fields;
+    }
+}
@@ -0,0 +1,34 @@
+package Config;
+
+import Chatbot.controller.AdmissionFilter;
+import Chatbot.service.AdmissionScheduler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.web.ServerProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties(AdmissionProperties.class)
+public class AdmissionConfig {
+
+    @Bean
+    public AdmissionScheduler admissionScheduler(AdmissionProperties properties,
+                                                 ServerProperties serverProperties,
+                                                 MeterRegistry meterRegistry) {
+        if (!properties.enabled()) return AdmissionScheduler.disabled();
+
+        properties.checkThreadBudget(serverProperties.getTomcat().getThreads().getMax());
+        return new AdmissionScheduler(properties.capacity(), properties.classes(), meterRegistry);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdmissionFilter> admissionFilter(AdmissionScheduler admissionScheduler,
+                                                                   AdmissionProperties properties) {
+        FilterRegistrationBean<AdmissionFilter> registration =
+                new FilterRegistrationBean<>(new AdmissionFilter(admissionScheduler, properties.retryAfterSeconds()));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
@@ -0,0 +1,85 @@
+package Config;
+
+import Chatbot.service.AdmissionScheduler;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Admission control settings, bound from {@code geostat.admission.*} with one
+ * {@code geostat.admission.<class>.*} section per priority class. A class's unset values take that
+ * class's defaults.
+ */
+@ConfigurationProperties(prefix = "geostat.admission")
+public record AdmissionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("150") int capacity,
+        @DefaultValue("20") int reservedThreads,
+        @DefaultValue("2") int retryAfterSeconds,
+        Lane interactive,
+        Lane voice,
+        Lane bulk
+) {
+
+    private static final Lane INTERACTIVE = new Lane(6, 150, 100, Duration.ofSeconds(2));
+    private static final Lane VOICE = new Lane(3, 30, 20, Duration.ofSeconds(5));
+    private static final Lane BULK = new Lane(1, 12, 10, Duration.ofSeconds(10));
+
+    public AdmissionProperties {
+        interactive = INTERACTIVE.overriddenBy(interactive);
+        voice = VOICE.overriddenBy(voice);
+        bulk = BULK.overriddenBy(bulk);
+    }
+
+    /**
+     * One priority class; a null value means the class default.
+     */
+    public record Lane(Integer weight, Integer maxInFlight, Integer queue, Duration maxWait) {
+
+        Lane overriddenBy(Lane set) {
+            if (set == null) return this;
+            return new Lane(
+                    set.weight != null ? set.weight : weight,
+                    set.maxInFlight != null ? set.maxInFlight : maxInFlight,
+                    set.queue != null ? set.queue : queue,
+                    set.maxWait != null ? set.maxWait : maxWait);
+        }
+
+        AdmissionScheduler.ClassSettings settings() {
+            return new AdmissionScheduler.ClassSettings(weight, maxInFlight, queue, maxWait);
+        }
+    }
+
+    public Map<AdmissionScheduler.Priority, AdmissionScheduler.ClassSettings> classes() {
+        return Map.of(
+                AdmissionScheduler.Priority.INTERACTIVE, interactive.settings(),
+                AdmissionScheduler.Priority.VOICE, voice.settings(),
+                AdmissionScheduler.Priority.BULK, bulk.settings());
+    }
+
+    /**
+     * Servlet threads these settings can hold at once: a queued request waits on its servlet
+     * thread, and so do running transcriptions and syntheses; admitted chat runs on the chat
+     * scheduler and gives its thread back.
+     */
+    public int blockingThreads() {
+        return interactive.queue() + voice.queue() + bulk.queue() + voice.maxInFlight() + bulk.maxInFlight();
+    }
+
+    /**
+     * @throws IllegalStateException if {@link #blockingThreads()} doesn't fit in
+     *                               {@code servletThreads} less {@code reservedThreads}
+     */
+    public void checkThreadBudget(int servletThreads) {
+        int blocking = blockingThreads();
+        if (blocking > servletThreads - reservedThreads) {
+            throw new IllegalStateException(String.format(
+                    "Admission settings can hold %d servlet threads (queues %d + %d + %d, voice and bulk in flight %d + %d), "
+                            + "more than server.tomcat.threads.max=%d less geostat.admission.reserved-threads=%d",
+                    blocking, interactive.queue(), voice.queue(), bulk.queue(), voice.maxInFlight(), bulk.maxInFlight(),
+                    servletThreads, reservedThreads));
+        }
+    }
+}
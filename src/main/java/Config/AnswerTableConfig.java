@@ -0,0 +1,37 @@
+package Config;
+
+import Chatbot.service.AnswerTableBuilder;
+import Chatbot.service.LearnedAnswers;
+import Chatbot.service.QueryLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+
+@Configuration
+public class AnswerTableConfig {
+
+    @Bean
+    public LearnedAnswers learnedAnswers(
+            MeterRegistry meterRegistry,
+            QueryLog queryLog,
+            @Value("${geostat.answer-table.enabled:true}") boolean enabled,
+            @Value("${geostat.answer-table.file:./data/answer-table.json}") Path file,
+            @Value("${geostat.answer-table.topics:prices,economy,population}") Set<String> topics,
+            @Value("${geostat.answer-table.min-support:5}") int minSupport,
+            @Value("${geostat.answer-table.min-share:0.8}") double minShare,
+            @Value("${geostat.answer-table.max-age:14d}") Duration maxAge,
+            @Value("${geostat.answer-table.rebuild-interval:1h}") Duration rebuildInterval
+    ) {
+        if (!enabled) {
+            return LearnedAnswers.disabled();
+        }
+        AnswerTableBuilder builder = new AnswerTableBuilder(topics, minSupport, minShare, maxAge);
+        return new LearnedAnswers(file, queryLog.isEnabled() ? queryLog.directory() : null, builder,
+                rebuildInterval, meterRegistry);
+    }
+}
@@ -0,0 +1,22 @@
+package Config;
+
+import Chatbot.service.SemanticPlanCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfig {
+
+    @Bean
+    public SemanticPlanCache semanticPlanCache(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.plan-cache.enabled:true}") boolean enabled,
+            @Value("${geostat.plan-cache.max-entries:10000}") int maxEntries,
+            @Value("${geostat.plan-cache.dimensions:256}") int dimensions,
+            @Value("${geostat.plan-cache.similarity-threshold:0.85}") double similarityThreshold
+    ) {
+        return new SemanticPlanCache(enabled, maxEntries, dimensions, similarityThreshold, meterRegistry);
+    }
+}
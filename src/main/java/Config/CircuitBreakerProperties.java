@@ -0,0 +1,35 @@
+package Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Circuit breaker settings per upstream, bound from {@code geostat.circuit.breakers.<name>.*},
+ * plus the size of the stale answer store served while a circuit is open.
+ */
+@ConfigurationProperties(prefix = "geostat.circuit")
+public record CircuitBreakerProperties(
+        Map<String, Breaker> breakers,
+        @DefaultValue("5000") int staleMaxEntries
+) {
+
+    public CircuitBreakerProperties {
+        breakers = breakers == null ? Map.of() : Map.copyOf(breakers);
+    }
+
+    public Breaker forUpstream(String name) {
+        return breakers.getOrDefault(name, new Breaker(20, 10, 50, Duration.ofSeconds(30), 3));
+    }
+
+    public record Breaker(
+            @DefaultValue("20") int windowSize,
+            @DefaultValue("10") int minimumCalls,
+            @DefaultValue("50") double failureRateThreshold,
+            @DefaultValue("30s") Duration openDuration,
+            @DefaultValue("3") int halfOpenPermits
+    ) {
+    }
+}
@@ -0,0 +1,39 @@
+package Config;
+
+import Chatbot.service.RequestDeadlines;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+
+@Configuration
+public class DeadlineConfig {
+
+    @Bean
+    public RequestDeadlines requestDeadlines(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.deadline.enabled:true}") boolean enabled,
+            @Value("${geostat.deadline.default:20s}") Duration defaultBudget,
+            @Value("${geostat.deadline.max:45s}") Duration maxBudget,
+            @Value("${geostat.deadline.min-pse-retry:1500ms}") Duration minPseRetry,
+            @Value("${geostat.deadline.min-analysis:3s}") Duration minAnalysis
+    ) {
+        return new RequestDeadlines(enabled, defaultBudget, maxBudget, minPseRetry, minAnalysis, meterRegistry);
+    }
+
+    /**
+     * Runs /api/chat questions off the servlet thread, so a client disconnect reaches the request
+     * while it is still being answered. Sized like the servlet pool it replaces.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler chatScheduler(
+            @Value("${geostat.deadline.threads:200}") int threads,
+            @Value("${geostat.deadline.queue:1000}") int queue
+    ) {
+        return Schedulers.newBoundedElastic(threads, queue, "chat");
+    }
+}
@@ -0,0 +1,55 @@
+package Config;
+
+import Chatbot.service.Glossary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Configuration
+public class GlossaryConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(GlossaryConfig.class);
+
+    private static final String BUNDLED = "/glossary.json";
+
+    /**
+     * The glossary file when it exists (a reviewed copy with newer concepts), otherwise the one
+     * bundled with the application. A file that doesn't parse fails startup rather than silently
+     * serving the older bundled definitions.
+     */
+    @Bean
+    public Glossary glossary(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.glossary.enabled:true}") boolean enabled,
+            @Value("${geostat.glossary.file:./data/glossary.json}") Path file
+    ) throws IOException {
+        if (!enabled) {
+            return Glossary.disabled();
+        }
+        Glossary glossary;
+        String source;
+        if (Files.isRegularFile(file)) {
+            glossary = Glossary.read(file, meterRegistry);
+            source = file.toString();
+        } else {
+            try (InputStream in = GlossaryConfig.class.getResourceAsStream(BUNDLED)) {
+                if (in == null) {
+                    log.warn("⚠️ No glossary at {} and none bundled; general knowledge always calls the model", file);
+                    return Glossary.disabled();
+                }
+                glossary = Glossary.read(in, meterRegistry);
+            }
+            source = "classpath:" + BUNDLED;
+        }
+        log.info("📖 Loaded glossary v{} with {} concepts from {}", glossary.version(), glossary.size(), source);
+        return glossary;
+    }
+}
@@ -1,16 +1,34 @@
 package Config;
 
+import com.google.api.gax.core.NoCredentialsProvider;
 import com.google.cloud.speech.v1.SpeechClient;
+import com.google.cloud.speech.v1.SpeechSettings;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
 
 import java.io.IOException;
 
 @Configuration
 public class GoogleCloudConfig {
 
+    /**
+     * Created on the first transcription: building the gRPC channel and loading credentials is
+     * a noticeable part of startup, and most instances serve chat far more than speech.
+     */
     @Bean
-    public SpeechClient speechClient() throws IOException {
-        return SpeechClient.create();
+    @Lazy
+    public SpeechClient speechClient(@Value("${geostat.speech.endpoint:}") String endpoint) throws IOException {
+        if (endpoint.isBlank()) {
+            return SpeechClient.create();
+        }
+
+        // Local/stub endpoint (load tests): REST transport, no Google credentials
+        SpeechSettings settings = SpeechSettings.newHttpJsonBuilder()
+                .setEndpoint(endpoint)
+                .setCredentialsProvider(NoCredentialsProvider.create())
+                .build();
+        return SpeechClient.create(settings);
     }
 }
\ No newline at end of file
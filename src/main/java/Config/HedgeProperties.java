@@ -0,0 +1,29 @@
+package Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Opt-in request hedging per upstream, bound from {@code geostat.hedge.upstreams.<name>.*}.
+ */
+@ConfigurationProperties(prefix = "geostat.hedge")
+public record HedgeProperties(Map<String, Hedge> upstreams) {
+
+    public HedgeProperties {
+        upstreams = upstreams == null ? Map.of() : Map.copyOf(upstreams);
+    }
+
+    public Hedge forUpstream(String name) {
+        return upstreams.getOrDefault(name, new Hedge(false, Duration.ofMillis(100), 5));
+    }
+
+    public record Hedge(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("100ms") Duration minDelay,
+            @DefaultValue("5") double maxExtraLoadPercent
+    ) {
+    }
+}
@@ -0,0 +1,17 @@
+package Config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    @Bean
+    public UpstreamWebClients upstreamWebClients(WebClient.Builder webClientBuilder,
+                                                 HttpClientProperties properties) {
+        return new UpstreamWebClients(webClientBuilder, properties);
+    }
+}
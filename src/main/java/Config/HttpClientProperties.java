@@ -0,0 +1,36 @@
+package Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Per-upstream HTTP client settings, bound from {@code geostat.http.upstreams.<name>.*}.
+ * Each named upstream gets its own Reactor Netty connection pool.
+ */
+@ConfigurationProperties(prefix = "geostat.http")
+public record HttpClientProperties(Map<String, Upstream> upstreams) {
+
+    public HttpClientProperties {
+        upstreams = upstreams == null ? Map.of() : Map.copyOf(upstreams);
+    }
+
+    public record Upstream(
+            String baseUrl,
+            @DefaultValue("50") int maxConnections,
+            @DefaultValue("200") int pendingAcquireMaxCount,
+            @DefaultValue("2s") Duration pendingAcquireTimeout,
+            @DefaultValue("30s") Duration maxIdleTime,
+            @DefaultValue("5m") Duration maxLifeTime,
+            @DefaultValue("15s") Duration evictionInterval,
+            @DefaultValue("2s") Duration connectTimeout,
+            @DefaultValue("10s") Duration readTimeout,
+            @DefaultValue("15s") Duration responseTimeout,
+            @DefaultValue("false") boolean http2,
+            @DefaultValue("256KB") DataSize maxInMemorySize
+    ) {
+    }
+}
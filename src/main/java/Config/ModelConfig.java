@@ -0,0 +1,69 @@
+package Config;
+
+import Chatbot.service.NavigationService;
+import Chatbot.service.QuestionClassifier;
+import Chatbot.service.StageModel;
+import Chatbot.service.StageModels;
+import Chatbot.service.TokenBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.ai.anthropic.AnthropicChatOptions;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(ModelProperties.class)
+public class ModelConfig {
+
+    @Bean
+    public StageModels stageModels(@Qualifier("anthropicChatModel") ChatModel chatModel,
+                                   ModelProperties properties,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${spring.ai.anthropic.chat.options.model}") String defaultModel) {
+        Map<String, StageModel.Comparison> comparisons = Map.of(
+                TokenBudget.CLASSIFICATION, QuestionClassifier.SAME_ROUTE,
+                TokenBudget.ANALYSIS, NavigationService.SAME_PAGE,
+                TokenBudget.KNOWLEDGE, StageModel.TEXT_SIMILARITY,
+                TokenBudget.SMALL_TALK, StageModel.TEXT_SIMILARITY);
+
+        Map<String, StageModel> models = new HashMap<>();
+        comparisons.forEach((stage, comparison) -> {
+            // property keys use dashes: small_talk is configured as small-talk
+            ModelProperties.Stage config = properties.forStage(stage.replace('_', '-'));
+            ModelProperties.Shadow shadow = config.shadow();
+            StageModel.Settings primary = settings(chatModel, orDefault(config.model(), defaultModel),
+                    config.maxTokens(), config.timeout());
+            StageModel.Settings shadowSettings = isBlank(shadow.model()) ? null
+                    : settings(chatModel, shadow.model(), shadow.maxTokens(), shadow.timeout());
+            models.put(stage, new StageModel(stage, primary, shadowSettings, shadow.samplePercent(), comparison,
+                    meterRegistry));
+        });
+        return new StageModels(models);
+    }
+
+    private static StageModel.Settings settings(ChatModel chatModel, String model, int maxTokens, Duration timeout) {
+        ChatClient client = ChatClient.builder(chatModel)
+                .defaultOptions(AnthropicChatOptions.builder()
+                        .withModel(model)
+                        .withMaxTokens(maxTokens)
+                        .build())
+                .build();
+        return new StageModel.Settings(client, model, timeout);
+    }
+
+    private static String orDefault(String model, String defaultModel) {
+        return isBlank(model) ? defaultModel : model;
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
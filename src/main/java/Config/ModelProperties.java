@@ -0,0 +1,40 @@
+package Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Model per LLM stage, bound from {@code geostat.models.stages.<stage>.*}. A blank model means the
+ * default {@code spring.ai.anthropic.chat.options.model}; a blank shadow model means no shadow.
+ */
+@ConfigurationProperties(prefix = "geostat.models")
+public record ModelProperties(Map<String, Stage> stages) {
+
+    public ModelProperties {
+        stages = stages == null ? Map.of() : Map.copyOf(stages);
+    }
+
+    public Stage forStage(String name) {
+        return stages.getOrDefault(name, new Stage(null, 500, Duration.ofSeconds(30),
+                new Shadow(null, 500, Duration.ofSeconds(30), 0)));
+    }
+
+    public record Stage(
+            String model,
+            @DefaultValue("500") int maxTokens,
+            @DefaultValue("30s") Duration timeout,
+            @DefaultValue Shadow shadow
+    ) {
+    }
+
+    public record Shadow(
+            String model,
+            @DefaultValue("500") int maxTokens,
+            @DefaultValue("30s") Duration timeout,
+            @DefaultValue("0") double samplePercent
+    ) {
+    }
+}
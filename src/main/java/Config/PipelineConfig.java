@@ -0,0 +1,35 @@
+package Config;
+
+import Chatbot.service.PipelineGovernor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class PipelineConfig {
+
+    @Bean
+    public PipelineGovernor pipelineGovernor(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.pipeline.enabled:true}") boolean enabled,
+            @Value("${geostat.pipeline.no-analysis.in-flight:40}") int noAnalysisInFlight,
+            @Value("${geostat.pipeline.no-analysis.upstream-p95:6s}") Duration noAnalysisP95,
+            @Value("${geostat.pipeline.local.in-flight:80}") int localInFlight,
+            @Value("${geostat.pipeline.local.upstream-p95:10s}") Duration localP95,
+            @Value("${geostat.pipeline.cached.in-flight:120}") int cachedInFlight,
+            @Value("${geostat.pipeline.cached.upstream-p95:15s}") Duration cachedP95,
+            @Value("${geostat.pipeline.recover-ratio:0.7}") double recoverRatio,
+            @Value("${geostat.pipeline.step-up-after:30s}") Duration stepUpAfter
+    ) {
+        return new PipelineGovernor(enabled,
+                new PipelineGovernor.Threshold(noAnalysisInFlight, noAnalysisP95),
+                new PipelineGovernor.Threshold(localInFlight, localP95),
+                new PipelineGovernor.Threshold(cachedInFlight, cachedP95),
+                recoverRatio,
+                stepUpAfter,
+                meterRegistry);
+    }
+}
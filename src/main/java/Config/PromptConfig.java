@@ -0,0 +1,31 @@
+package Config;
+
+import Chatbot.service.TokenBudget;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+@Configuration
+public class PromptConfig {
+
+    @Bean
+    public TokenBudget tokenBudget(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.prompt.budget.classification:3000}") int classification,
+            @Value("${geostat.prompt.budget.batch-classification:6000}") int batchClassification,
+            @Value("${geostat.prompt.budget.analysis:1200}") int analysis,
+            @Value("${geostat.prompt.budget.knowledge:1000}") int knowledge,
+            @Value("${geostat.prompt.budget.small-talk:400}") int smallTalk
+    ) {
+        return new TokenBudget(Map.of(
+                TokenBudget.CLASSIFICATION, classification,
+                TokenBudget.BATCH_CLASSIFICATION, batchClassification,
+                TokenBudget.ANALYSIS, analysis,
+                TokenBudget.KNOWLEDGE, knowledge,
+                TokenBudget.SMALL_TALK, smallTalk
+        ), meterRegistry);
+    }
+}
@@ -0,0 +1,31 @@
+package Config;
+
+import Chatbot.service.PseQuota;
+import Chatbot.service.SharedCaches;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.ZoneId;
+
+@Configuration
+public class PseQuotaConfig {
+
+    @Bean
+    public PseQuota pseQuota(
+            MeterRegistry meterRegistry,
+            SharedCaches sharedCaches,
+            @Value("${geostat.pse.quota.enabled:true}") boolean enabled,
+            @Value("${geostat.pse.quota.daily:10000}") long daily,
+            @Value("${geostat.pse.quota.per-minute:100}") long perMinute,
+            @Value("${geostat.pse.quota.reset-zone:America/Los_Angeles}") ZoneId resetZone,
+            @Value("${geostat.pse.quota.reduce-below:0.25}") double reduceBelow,
+            @Value("${geostat.pse.quota.single-below:0.10}") double singleBelow,
+            @Value("${geostat.pse.quota.reserve:0.03}") double reserve,
+            @Value("${geostat.pse.quota.replicas:1}") int replicas
+    ) {
+        return new PseQuota(enabled, daily, perMinute, resetZone, reduceBelow, singleBelow, reserve,
+                sharedCaches.counter("pse-quota"), replicas, meterRegistry);
+    }
+}
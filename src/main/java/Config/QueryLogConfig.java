@@ -0,0 +1,70 @@
+package Config;
+
+import Chatbot.service.QueryLog;
+import Chatbot.service.QueryLogReplayer;
+import Chatbot.service.QueryPlan;
+import Chatbot.service.SemanticPlanCache;
+import Chatbot.service.StaleStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class QueryLogConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(QueryLogConfig.class);
+
+    @Bean
+    public QueryLog queryLog(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.query-log.enabled:true}") boolean enabled,
+            @Value("${geostat.query-log.dir:./data/query-log}") Path directory,
+            @Value("${geostat.query-log.segment-size:64MB}") DataSize segmentSize,
+            @Value("${geostat.query-log.max-segments:16}") int maxSegments,
+            @Value("${geostat.query-log.queue-capacity:10000}") int queueCapacity,
+            @Value("${geostat.query-log.flush-interval:1s}") Duration flushInterval
+    ) throws IOException {
+        if (!enabled) {
+            return QueryLog.disabled();
+        }
+        return new QueryLog(directory, segmentSize.toBytes(), maxSegments, queueCapacity, flushInterval, meterRegistry);
+    }
+
+    /**
+     * Warms the caches in the background once the app is up, so startup time does not depend on log size.
+     */
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> queryLogReplay(
+            QueryLog queryLog,
+            SemanticPlanCache semanticPlanCache,
+            @Qualifier("stalePlanStore") StaleStore<QueryPlan> stalePlanStore,
+            @Qualifier("staleAnswerStore") StaleStore<String> staleAnswerStore,
+            @Value("${geostat.query-log.replay-max-records:50000}") int maxRecords,
+            @Value("${geostat.query-log.replay-max-age:7d}") Duration maxAge
+    ) {
+        return event -> {
+            if (!queryLog.isEnabled() || maxRecords <= 0) return;
+            QueryLogReplayer replayer = new QueryLogReplayer(semanticPlanCache, stalePlanStore, staleAnswerStore);
+            Thread thread = new Thread(() -> {
+                try {
+                    replayer.replay(queryLog.directory(), maxRecords, maxAge);
+                } catch (Exception e) {
+                    log.warn("⚠️ Query log replay failed: {}", e.getMessage());
+                }
+            }, "query-log-replay");
+            thread.setDaemon(true);
+            thread.start();
+        };
+    }
+}
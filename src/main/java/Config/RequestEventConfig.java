@@ -0,0 +1,24 @@
+package Config;
+
+import Chatbot.service.RequestEventLog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RequestEventConfig {
+
+    @Bean
+    public RequestEventLog requestEventLog(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.events.enabled:true}") boolean enabled,
+            @Value("${geostat.events.queue-capacity:10000}") int queueCapacity,
+            @Value("${geostat.events.detail-sample-percent:1}") double detailSamplePercent
+    ) {
+        if (!enabled) {
+            return RequestEventLog.disabled();
+        }
+        return new RequestEventLog(queueCapacity, detailSamplePercent, meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package Config;
+
+import Chatbot.service.CircuitBreaker;
+import Chatbot.service.QueryPlan;
+import Chatbot.service.RequestHedger;
+import Chatbot.service.StaleStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@EnableConfigurationProperties({HedgeProperties.class, CircuitBreakerProperties.class})
+public class ResilienceConfig {
+
+    @Bean
+    public RequestHedger pseHedger(HedgeProperties properties, MeterRegistry meterRegistry) {
+        return hedger("pse", properties, meterRegistry);
+    }
+
+    @Bean
+    public RequestHedger classifierHedger(HedgeProperties properties, MeterRegistry meterRegistry) {
+        return hedger("classifier", properties, meterRegistry);
+    }
+
+    @Bean
+    public StaleStore<String> staleAnswerStore(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        return new StaleStore<>("answers", properties.staleMaxEntries(), meterRegistry);
+    }
+
+    @Bean
+    public StaleStore<QueryPlan> stalePlanStore(CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        return new StaleStore<>("plans", properties.staleMaxEntries(), meterRegistry);
+    }
+
+    @Bean
+    public CircuitBreaker anthropicCircuitBreaker(CircuitBreakerProperties properties,
+                                                  MeterRegistry meterRegistry,
+                                                  StaleStore<String> staleAnswerStore) {
+        CircuitBreaker breaker = breaker("anthropic", properties, meterRegistry);
+        breaker.onHalfOpen(staleAnswerStore::refreshPending);
+        return breaker;
+    }
+
+    @Bean
+    public CircuitBreaker pseCircuitBreaker(CircuitBreakerProperties properties,
+                                            MeterRegistry meterRegistry,
+                                            StaleStore<String> staleAnswerStore) {
+        CircuitBreaker breaker = breaker("pse", properties, meterRegistry);
+        breaker.onHalfOpen(staleAnswerStore::refreshPending);
+        return breaker;
+    }
+
+    private RequestHedger hedger(String name, HedgeProperties properties, MeterRegistry meterRegistry) {
+        HedgeProperties.Hedge hedge = properties.forUpstream(name);
+        return new RequestHedger(name, hedge.enabled(), hedge.minDelay(), hedge.maxExtraLoadPercent(), meterRegistry);
+    }
+
+    private CircuitBreaker breaker(String name, CircuitBreakerProperties properties, MeterRegistry meterRegistry) {
+        CircuitBreakerProperties.Breaker breaker = properties.forUpstream(name);
+        return new CircuitBreaker(name,
+                breaker.windowSize(),
+                breaker.minimumCalls(),
+                breaker.failureRateThreshold(),
+                breaker.openDuration(),
+                breaker.halfOpenPermits(),
+                meterRegistry);
+    }
+}
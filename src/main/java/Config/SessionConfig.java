@@ -0,0 +1,24 @@
+package Config;
+
+import Chatbot.service.SessionStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+public class SessionConfig {
+
+    @Bean
+    public SessionStore sessionStore(
+            MeterRegistry meterRegistry,
+            @Value("${geostat.session.turns:2}") int turns,
+            @Value("${geostat.session.max-memory:128MB}") DataSize maxMemory,
+            @Value("${geostat.session.idle-timeout:30m}") Duration idleTimeout
+    ) {
+        return new SessionStore(turns, maxMemory.toBytes(), idleTimeout, meterRegistry);
+    }
+}
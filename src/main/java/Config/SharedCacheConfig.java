@@ -0,0 +1,42 @@
+package Config;
+
+import Chatbot.service.CircuitBreaker;
+import Chatbot.service.RespClient;
+import Chatbot.service.SharedCaches;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+@EnableConfigurationProperties(SharedCacheProperties.class)
+public class SharedCacheConfig {
+
+    @Bean
+    public SharedCaches sharedCaches(SharedCacheProperties properties,
+                                     CircuitBreakerProperties breakers,
+                                     MeterRegistry meterRegistry) {
+        Map<String, SharedCaches.Spec> specs = new HashMap<>();
+        properties.caches().forEach((name, cache) ->
+                specs.put(name, new SharedCaches.Spec(cache.ttl(), cache.l1Ttl(), cache.l1MaxEntries())));
+
+        SharedCacheProperties.Remote remote = properties.remote();
+        if (!remote.enabled()) {
+            return SharedCaches.local(specs, meterRegistry);
+        }
+        // settings shared under geostat.circuit.breakers.cache.*, but a circuit per cache
+        CircuitBreakerProperties.Breaker breaker = breakers.forUpstream("cache");
+        return new SharedCaches(new RespClient(remote.url(), remote.poolSize(), remote.timeout()),
+                name -> new CircuitBreaker("cache-" + name,
+                        breaker.windowSize(),
+                        breaker.minimumCalls(),
+                        breaker.failureRateThreshold(),
+                        breaker.openDuration(),
+                        breaker.halfOpenPermits(),
+                        meterRegistry),
+                specs, meterRegistry);
+    }
+}
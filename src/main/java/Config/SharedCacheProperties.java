@@ -0,0 +1,38 @@
+package Config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Shared cache tier and per-cache TTLs, bound from {@code geostat.cache.remote.*} and
+ * {@code geostat.cache.caches.<name>.*}.
+ */
+@ConfigurationProperties(prefix = "geostat.cache")
+public record SharedCacheProperties(
+        @DefaultValue Remote remote,
+        Map<String, Cache> caches
+) {
+
+    public SharedCacheProperties {
+        caches = caches == null ? Map.of() : Map.copyOf(caches);
+    }
+
+    public record Remote(
+            @DefaultValue("false") boolean enabled,
+            @DefaultValue("redis://localhost:6379") URI url,
+            @DefaultValue("16") int poolSize,
+            @DefaultValue("250ms") Duration timeout
+    ) {
+    }
+
+    public record Cache(
+            @DefaultValue("10m") Duration ttl,
+            @DefaultValue("1m") Duration l1Ttl,
+            @DefaultValue("1024") int l1MaxEntries
+    ) {
+    }
+}
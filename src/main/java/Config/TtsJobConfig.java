@@ -0,0 +1,28 @@
+package Config;
+
+import Chatbot.service.TextToSpeechService;
+import Chatbot.service.TtsJobQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Configuration
+public class TtsJobConfig {
+
+    @Bean
+    public TtsJobQueue ttsJobQueue(
+            TextToSpeechService textToSpeechService,
+            MeterRegistry meterRegistry,
+            @Value("${geostat.tts.jobs.workers:4}") int workers,
+            @Value("${geostat.tts.jobs.queue-capacity:100}") int queueCapacity,
+            @Value("${geostat.tts.jobs.result-ttl:10m}") Duration resultTtl,
+            @Value("${geostat.tts.jobs.max-result-memory:128MB}") DataSize maxResultMemory
+    ) {
+        return new TtsJobQueue(textToSpeechService, workers, queueCapacity, resultTtl, maxResultMemory.toBytes(),
+                meterRegistry);
+    }
+}
@@ -0,0 +1,89 @@
+package Config;
+
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Shared HTTP client layer: one tuned {@link ConnectionProvider} and {@link WebClient}
+ * per configured upstream. Pool gauges are published under
+ * {@code reactor.netty.connection.provider.*} tagged with the upstream name.
+ */
+public class UpstreamWebClients implements DisposableBean {
+
+    public static final String PSE = "pse";
+    public static final String ELEVENLABS = "elevenlabs";
+
+    private static final String READ_TIMEOUT_HANDLER = "upstreamReadTimeout";
+
+    private static final Logger log = LoggerFactory.getLogger(UpstreamWebClients.class);
+
+    private final Map<String, WebClient> clients = new HashMap<>();
+    private final Map<String, ConnectionProvider> providers = new HashMap<>();
+
+    public UpstreamWebClients(WebClient.Builder webClientBuilder, HttpClientProperties properties) {
+        properties.upstreams().forEach((name, upstream) -> {
+            ConnectionProvider provider = ConnectionProvider.builder(name)
+                    .maxConnections(upstream.maxConnections())
+                    .pendingAcquireMaxCount(upstream.pendingAcquireMaxCount())
+                    .pendingAcquireTimeout(upstream.pendingAcquireTimeout())
+                    .maxIdleTime(upstream.maxIdleTime())
+                    .maxLifeTime(upstream.maxLifeTime())
+                    .evictInBackground(upstream.evictionInterval())
+                    .metrics(true)
+                    .build();
+
+            HttpClient httpClient = HttpClient.create(provider)
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) upstream.connectTimeout().toMillis())
+                    .option(ChannelOption.SO_KEEPALIVE, true)
+                    .keepAlive(true)
+                    .responseTimeout(upstream.responseTimeout())
+                    // per exchange, so an idle pooled connection isn't closed by it between requests
+                    .doOnRequest((request, conn) -> conn.addHandlerLast(READ_TIMEOUT_HANDLER,
+                            new ReadTimeoutHandler(upstream.readTimeout().toMillis(), TimeUnit.MILLISECONDS)))
+                    .doAfterResponseSuccess((response, conn) -> conn.removeHandler(READ_TIMEOUT_HANDLER));
+
+            // HTTP/2 is negotiated via ALPN, so it only applies to TLS upstreams
+            if (upstream.http2() && upstream.baseUrl().startsWith("https")) {
+                httpClient = httpClient.secure().protocol(HttpProtocol.H2, HttpProtocol.HTTP11);
+            }
+
+            WebClient webClient = webClientBuilder.clone()
+                    .baseUrl(upstream.baseUrl())
+                    .clientConnector(new ReactorClientHttpConnector(httpClient))
+                    .codecs(configurer -> configurer
+                            .defaultCodecs()
+                            .maxInMemorySize((int) upstream.maxInMemorySize().toBytes()))
+                    .build();
+
+            providers.put(name, provider);
+            clients.put(name, webClient);
+            log.info("Configured upstream '{}' -> {} (maxConnections={}, responseTimeout={})",
+                    name, upstream.baseUrl(), upstream.maxConnections(), upstream.responseTimeout());
+        });
+    }
+
+    public WebClient get(String upstream) {
+        WebClient client = clients.get(upstream);
+        if (client == null) {
+            throw new IllegalStateException("No HTTP client configured for upstream: " + upstream);
+        }
+        return client;
+    }
+
+    @Override
+    public void destroy() {
+        providers.values().forEach(ConnectionProvider::dispose);
+    }
+}
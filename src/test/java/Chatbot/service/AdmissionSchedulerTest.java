@@ -0,0 +1,173 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static Chatbot.service.AdmissionScheduler.Priority.BULK;
+import static Chatbot.service.AdmissionScheduler.Priority.INTERACTIVE;
+import static Chatbot.service.AdmissionScheduler.Priority.VOICE;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AdmissionSchedulerTest {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService waiters = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void stopWaiters() {
+        waiters.shutdownNow();
+    }
+
+    private AdmissionScheduler scheduler(int capacity, int queueCapacity, Duration maxWait) {
+        return new AdmissionScheduler(capacity, Map.of(
+                INTERACTIVE, new AdmissionScheduler.ClassSettings(6, capacity, queueCapacity, maxWait),
+                VOICE, new AdmissionScheduler.ClassSettings(3, capacity, queueCapacity, maxWait),
+                BULK, new AdmissionScheduler.ClassSettings(1, 1, queueCapacity, maxWait)
+        ), registry);
+    }
+
+    @Test
+    void freedSlotsGoToWaitingClassesByWeight() throws Exception {
+        AdmissionScheduler scheduler = scheduler(1, 20, WAIT);
+        AdmissionScheduler.Permit held = scheduler.acquire(INTERACTIVE);
+        List<AdmissionScheduler.Priority> admitted = new CopyOnWriteArrayList<>();
+        List<Future<?>> done = new CopyOnWriteArrayList<>();
+        for (AdmissionScheduler.Priority priority : List.of(INTERACTIVE, VOICE, BULK)) {
+            for (int i = 0; i < 10; i++) {
+                done.add(waiters.submit(() -> {
+                    try (AdmissionScheduler.Permit permit = scheduler.acquire(priority)) {
+                        admitted.add(priority);
+                    }
+                    return null;
+                }));
+            }
+        }
+        awaitQueued(INTERACTIVE, 10);
+        awaitQueued(VOICE, 10);
+        awaitQueued(BULK, 10);
+
+        held.close();
+        for (Future<?> future : done) future.get(5, TimeUnit.SECONDS);
+
+        // while all three classes wait, every ten slots go 6:3:1
+        List<AdmissionScheduler.Priority> firstTen = admitted.subList(0, 10);
+        assertThat(firstTen).filteredOn(INTERACTIVE::equals).hasSize(6);
+        assertThat(firstTen).filteredOn(VOICE::equals).hasSize(3);
+        assertThat(firstTen).filteredOn(BULK::equals).hasSize(1);
+        assertThat(admitted).hasSize(30);
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    @Test
+    void aClassWaitsAtItsOwnLimitWhileOthersStillRun() throws Exception {
+        AdmissionScheduler scheduler = scheduler(10, 5, WAIT);
+        AdmissionScheduler.Permit bulk = scheduler.acquire(BULK);
+
+        Future<AdmissionScheduler.Permit> secondBulk = waiters.submit(() -> scheduler.acquire(BULK));
+        awaitQueued(BULK, 1);
+        AdmissionScheduler.Permit chat = scheduler.acquire(INTERACTIVE);
+
+        assertThat(scheduler.inFlight()).isEqualTo(2);
+        bulk.close();
+        secondBulk.get(5, TimeUnit.SECONDS).close();
+        chat.close();
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    @Test
+    void aFullQueueIsRejectedAtOnce() throws Exception {
+        AdmissionScheduler scheduler = scheduler(1, 1, WAIT);
+        AdmissionScheduler.Permit held = scheduler.acquire(INTERACTIVE);
+        Future<AdmissionScheduler.Permit> queued = waiters.submit(() -> scheduler.acquire(INTERACTIVE));
+        awaitQueued(INTERACTIVE, 1);
+
+        long start = System.nanoTime();
+        assertThatThrownBy(() -> scheduler.acquire(INTERACTIVE))
+                .isInstanceOf(AdmissionScheduler.RejectedException.class)
+                .hasMessageContaining("queue is full");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(1));
+        assertThat(rejected(INTERACTIVE, "queue_full")).isEqualTo(1);
+
+        held.close();
+        queued.get(5, TimeUnit.SECONDS).close();
+    }
+
+    @Test
+    void aWaitThatRunsOutIsRejectedAndLeavesTheQueue() throws Exception {
+        AdmissionScheduler scheduler = scheduler(1, 5, Duration.ofMillis(50));
+        AdmissionScheduler.Permit held = scheduler.acquire(VOICE);
+
+        assertThatThrownBy(() -> scheduler.acquire(VOICE)).isInstanceOf(AdmissionScheduler.RejectedException.class);
+        assertThat(rejected(VOICE, "timeout")).isEqualTo(1);
+        assertThat(queued(VOICE)).isZero();
+
+        held.close();
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    @Test
+    void closingAPermitTwiceFreesOneSlot() throws Exception {
+        AdmissionScheduler scheduler = scheduler(1, 5, WAIT);
+        AdmissionScheduler.Permit held = scheduler.acquire(INTERACTIVE);
+        Future<AdmissionScheduler.Permit> first = waiters.submit(() -> scheduler.acquire(INTERACTIVE));
+        awaitQueued(INTERACTIVE, 1);
+        Future<AdmissionScheduler.Permit> second = waiters.submit(() -> scheduler.acquire(INTERACTIVE));
+        awaitQueued(INTERACTIVE, 2);
+
+        held.close();
+        held.close();
+
+        AdmissionScheduler.Permit next = first.get(5, TimeUnit.SECONDS);
+        assertThat(scheduler.inFlight()).isEqualTo(1);
+        assertThat(queued(INTERACTIVE)).isEqualTo(1);
+        assertThat(second).isNotDone();
+
+        next.close();
+        second.get(5, TimeUnit.SECONDS).close();
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    @Test
+    void disabledSchedulerAdmitsEverything() throws Exception {
+        AdmissionScheduler scheduler = AdmissionScheduler.disabled();
+
+        for (int i = 0; i < 1_000; i++) scheduler.acquire(BULK);
+
+        assertThat(scheduler.inFlight()).isZero();
+    }
+
+    private double queued(AdmissionScheduler.Priority priority) {
+        return registry.get("geostat.admission.queued").tag("class", name(priority)).gauge().value();
+    }
+
+    private double rejected(AdmissionScheduler.Priority priority, String reason) {
+        return registry.get("geostat.admission.rejected")
+                .tag("class", name(priority)).tag("reason", reason).counter().count();
+    }
+
+    private void awaitQueued(AdmissionScheduler.Priority priority, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (queued(priority) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertThat(queued(priority)).isEqualTo(expected);
+    }
+
+    private static String name(AdmissionScheduler.Priority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,168 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+
+    private static final Duration OPEN = Duration.ofMillis(100);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    /**
+     * Window of 4 calls, judged from the 4th, opening at half of them failed; 2 trial calls.
+     */
+    private CircuitBreaker breaker() {
+        return new CircuitBreaker("test", 4, 4, 50, OPEN, 2, registry);
+    }
+
+    @Test
+    void opensOnceTheFailureRateCrossesTheThreshold() {
+        CircuitBreaker breaker = breaker();
+
+        succeed(breaker);
+        fail(breaker);
+        succeed(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.execute(() -> "never")).isInstanceOf(CircuitOpenException.class);
+        assertThat(registry.get("geostat.circuit.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void staysClosedBelowTheMinimumCalls() {
+        CircuitBreaker breaker = breaker();
+
+        fail(breaker);
+        fail(breaker);
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void oldOutcomesSlideOutOfTheWindow() {
+        CircuitBreaker breaker = breaker();
+
+        fail(breaker);
+        succeed(breaker);
+        succeed(breaker);
+        succeed(breaker);
+        // the first failure has left the window: 1 of 4 failed
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpensAfterTheOpenDurationAndClosesWhenAllTrialsSucceed() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        CountDownLatch halfOpened = new CountDownLatch(1);
+        breaker.onHalfOpen(halfOpened::countDown);
+
+        assertThat(halfOpened.await(2, TimeUnit.SECONDS)).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        succeed(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        succeed(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void halfOpenLetsOnlyItsTrialCallsThrough() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread first = trialInFlight(breaker, release);
+        Thread second = trialInFlight(breaker, release);
+
+        try {
+            assertThatThrownBy(() -> breaker.execute(() -> "third")).isInstanceOf(CircuitOpenException.class);
+        } finally {
+            release.countDown();
+            first.join();
+            second.join();
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void aFailedTrialOpensTheCircuitAgain() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+    }
+
+    @Test
+    void anExpiredDeadlineGivesTheTrialPermitBack() throws InterruptedException {
+        CircuitBreaker breaker = opened();
+        awaitState(breaker, CircuitBreaker.State.HALF_OPEN);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> breaker.execute(() -> {
+                throw new DeadlineExceededException("Request deadline exceeded");
+            })).isInstanceOf(DeadlineExceededException.class);
+        }
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        succeed(breaker);
+        succeed(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    private CircuitBreaker opened() {
+        CircuitBreaker breaker = breaker();
+        for (int i = 0; i < 4; i++) fail(breaker);
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        return breaker;
+    }
+
+    private static void succeed(CircuitBreaker breaker) {
+        assertThat(breaker.execute(() -> "ok")).isEqualTo("ok");
+    }
+
+    private static void fail(CircuitBreaker breaker) {
+        assertThatThrownBy(() -> breaker.execute(() -> {
+            throw new IllegalStateException("upstream failed");
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Thread trialInFlight(CircuitBreaker breaker, CountDownLatch release) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        Thread thread = new Thread(() -> breaker.execute(() -> {
+            started.countDown();
+            try {
+                return release.await(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }));
+        thread.start();
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+        return thread;
+    }
+
+    private static void awaitState(CircuitBreaker breaker, CircuitBreaker.State expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(2);
+        while (breaker.getState() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(breaker.getState()).isEqualTo(expected);
+    }
+}
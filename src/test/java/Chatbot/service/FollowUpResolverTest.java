@@ -0,0 +1,41 @@
+package Chatbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FollowUpResolverTest {
+
+    private static QueryPlan previous() {
+        QueryPlan plan = new QueryPlan();
+        plan.intent = "navigation";
+        plan.language = "en";
+        plan.topic = "population";
+        plan.searchQueries = List.of("population 2022");
+        return plan;
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"and in gori?", "what about goris", "and gorshi", "და გორში?", "and for poti", "what about adjara",
+            "და აჭარაში", "and in tbilisshi"})
+    void placesWithCaseEndingsRefineThePreviousPlan(String text) {
+        assertThat(FollowUpResolver.refine(previous(), NormalizedMessage.of(text))).isNotNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"and gorge", "what about gorilla", "and gordon", "and for potion"})
+    void wordsStartingWithAShortStemAreNotPlaces(String text) {
+        assertThat(FollowUpResolver.refine(previous(), NormalizedMessage.of(text))).isNull();
+    }
+
+    @Test
+    void newYearReplacesTheOldOne() {
+        QueryPlan refined = FollowUpResolver.refine(previous(), NormalizedMessage.of("and for 2023?"));
+
+        assertThat(refined.searchQueries).containsExactly("population 2023");
+    }
+}
@@ -0,0 +1,43 @@
+package Chatbot.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyWindowTest {
+
+    @Test
+    void hasNoPercentileUntilTheFirstRecompute() {
+        LatencyWindow window = new LatencyWindow(16, 0.5);
+
+        window.record(10);
+        assertThat(window.percentileNanos()).isEqualTo(-1);
+
+        window.record(30);
+        assertThat(window.percentileNanos()).isEqualTo(30);
+    }
+
+    @Test
+    void percentileIsRecomputedEveryEighthOfTheWindow() {
+        LatencyWindow window = new LatencyWindow(16, 0.5);
+        window.record(10);
+        window.record(20);
+        long before = window.percentileNanos();
+
+        window.record(1_000);
+        assertThat(window.percentileNanos()).isEqualTo(before);
+
+        window.record(1_000);
+        assertThat(window.percentileNanos()).isEqualTo(1_000);
+    }
+
+    @Test
+    void oldSamplesLeaveTheWindow() {
+        LatencyWindow window = new LatencyWindow(8, 0.95);
+        for (int i = 0; i < 8; i++) window.record(1_000);
+
+        for (int i = 0; i < 8; i++) window.record(10);
+
+        assertThat(window.percentileNanos()).isEqualTo(10);
+    }
+}
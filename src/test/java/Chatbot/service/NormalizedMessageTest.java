@@ -0,0 +1,65 @@
+package Chatbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NormalizedMessageTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"Georgia GDP", "Tbilisi population", "Armenia trade", "media", "Georgia",
+            "population of Tbilisi", "Bulgaria inflation", "agricultural exports", "hotel capacity", "sushi"})
+    void englishWithPlaceNamesStaysEnglish(String text) {
+        NormalizedMessage message = NormalizedMessage.of(text);
+
+        assertThat(message.language()).isEqualTo("en");
+        assertThat(message.isTransliterated()).isFalse();
+        assertThat(message.matchKey()).isEqualTo(message.key());
+    }
+
+    @Test
+    void latinTypedGeorgianIsTransliterated() {
+        NormalizedMessage message = NormalizedMessage.of("inflacia saqartveloshi");
+
+        assertThat(message.language()).isEqualTo("ka");
+        assertThat(message.matchKey()).isEqualTo("ინფლაცია საქართველოში");
+    }
+
+    @Test
+    void placeNameIsTransliteratedAlongWithGeorgianWords() {
+        NormalizedMessage message = NormalizedMessage.of("Tbilisi mosakhleoba");
+
+        assertThat(message.language()).isEqualTo("ka");
+        assertThat(message.matchKey()).isEqualTo("თბილისი მოსახლეობა");
+    }
+
+    @Test
+    void oneSuffixAloneIsNotEnough() {
+        assertThat(NormalizedMessage.of("umushevrobis").language()).isEqualTo("en");
+        assertThat(NormalizedMessage.of("umushevrobis donis statistikebi").language()).isEqualTo("ka");
+    }
+
+    @Test
+    void georgianScript() {
+        NormalizedMessage message = NormalizedMessage.of("  რა არის   ინფლაცია? ");
+
+        assertThat(message.script()).isEqualTo(NormalizedMessage.Script.GEORGIAN);
+        assertThat(message.language()).isEqualTo("ka");
+        assertThat(message.key()).isEqualTo("რა არის ინფლაცია");
+        assertThat(message.tokens()).containsExactly("რა", "არის", "ინფლაცია");
+    }
+
+    @Test
+    void contentWordsAreSortedDistinctAndWithoutStopWords() {
+        Set<String> stop = Set.of("where", "is", "the", "data");
+
+        assertThat(NormalizedMessage.contentWords("where is the gdp data gdp 2023 a", stop)).isEqualTo("2023 gdp");
+        assertThat(NormalizedMessage.contentWords("where is the data", stop)).isEmpty();
+        assertThat(AnswerTable.keywords(NormalizedMessage.of("Where is inflation data?").matchKey()))
+                .isEqualTo(Glossary.keywords(NormalizedMessage.of("what is inflation").matchKey()));
+    }
+}
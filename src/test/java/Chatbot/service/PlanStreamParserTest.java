@@ -0,0 +1,95 @@
+package Chatbot.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PlanStreamParserTest {
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private static final String PLAN = """
+            {"language": "ka", "intent": "navigation", "topic": "prices",
+             "searchQueries": ["ინფლაცია 2023", "სამომხმარებლო ფასები"]}""";
+
+    @Test
+    void parsesAPlanFedOneCharacterAtATime() {
+        List<QueryPlan> early = new ArrayList<>();
+        PlanStreamParser parser = new PlanStreamParser(JSON, early::add);
+
+        String stream = "Here is the plan:\n```json\n" + PLAN + "\n```\nHope this helps!";
+        int completeAt = -1;
+        for (int i = 0; i < stream.length(); i++) {
+            if (parser.feed(stream.substring(i, i + 1)) && completeAt < 0) completeAt = i;
+        }
+
+        assertThat(completeAt).isEqualTo(stream.indexOf('}'));
+        QueryPlan plan = parser.plan();
+        assertThat(plan.language).isEqualTo("ka");
+        assertThat(plan.intent).isEqualTo("navigation");
+        assertThat(plan.topic).isEqualTo("prices");
+        assertThat(plan.searchQueries).containsExactly("ინფლაცია 2023", "სამომხმარებლო ფასები");
+        assertThat(early).hasSize(1);
+        assertThat(early.get(0).searchQueries).containsExactly("ინფლაცია 2023");
+    }
+
+    @Test
+    void stopsAtTheEndOfThePlanObject() {
+        PlanStreamParser parser = new PlanStreamParser(JSON, null);
+
+        assertThat(parser.feed("{\"intent\": \"small_talk\", \"topic\": \"other\"")).isFalse();
+        assertThat(parser.feed("} and then {\"intent\": \"navigation\"}")).isTrue();
+        assertThat(parser.feed("{ not even json")).isTrue();
+
+        assertThat(parser.plan().intent).isEqualTo("small_talk");
+        assertThat(parser.text()).startsWith("{\"intent\": \"small_talk\"");
+    }
+
+    @Test
+    void firstQueryWaitsForIntentAndTopic() {
+        List<QueryPlan> early = new ArrayList<>();
+        PlanStreamParser parser = new PlanStreamParser(JSON, early::add);
+
+        parser.feed("{\"searchQueries\": [\"gdp\", \"gdp growth\"], \"intent\": \"navigation\"");
+        assertThat(early).isEmpty();
+        parser.feed(", \"topic\": \"economy\"}");
+
+        assertThat(early).hasSize(1);
+        assertThat(early.get(0).topic).isEqualTo("economy");
+        assertThat(early.get(0).searchQueries).containsExactly("gdp", "gdp growth");
+    }
+
+    @Test
+    void nestedFieldsDoNotOverwriteThePlan() {
+        PlanStreamParser parser = new PlanStreamParser(JSON, null);
+
+        parser.feed("{\"intent\": \"navigation\", \"meta\": {\"topic\": \"wrong\", \"list\": [1, {\"a\": []}]},"
+                + " \"topic\": \"trade\", \"searchQueries\": [\"exports\"]}");
+
+        assertThat(parser.plan().topic).isEqualTo("trade");
+        assertThat(parser.plan().searchQueries).containsExactly("exports");
+    }
+
+    @Test
+    void incompleteStreamHasNoPlan() {
+        PlanStreamParser parser = new PlanStreamParser(JSON, null);
+
+        assertThat(parser.feed("no json here")).isFalse();
+        assertThat(parser.feed("{\"intent\": \"navi")).isFalse();
+
+        assertThatThrownBy(parser::plan).isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void invalidJsonFails() {
+        PlanStreamParser parser = new PlanStreamParser(JSON, null);
+
+        assertThatThrownBy(() -> parser.feed("{\"intent\": navigation}")).isInstanceOf(UncheckedIOException.class);
+    }
+}
@@ -0,0 +1,219 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PseQuotaTest {
+
+    private static final ZoneId PACIFIC = ZoneId.of("America/Los_Angeles");
+    private static final long NOON = ZonedDateTime.of(2026, 3, 10, 12, 0, 0, 0, PACIFIC).toInstant().toEpochMilli();
+
+    private static PseQuota quota(long daily, long perMinute) {
+        return new PseQuota(true, daily, perMinute, PACIFIC, 0.5, 0.2, 0.05, null, 1, new SimpleMeterRegistry());
+    }
+
+    private static PseQuota sharedQuota(long daily, long perMinute, RemoteCache remote, int replicas) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new PseQuota(true, daily, perMinute, PACIFIC, 0.5, 0.2, 0.05,
+                new SharedCounter("pse-quota", remote, null, registry), replicas, registry);
+    }
+
+    @Test
+    void minuteBudgetRollsOverWithTheMinute() {
+        PseQuota quota = quota(1_000, 3);
+
+        assertThat(quota.tryAcquire(NOON)).isTrue();
+        assertThat(quota.tryAcquire(NOON + 1_000)).isTrue();
+        assertThat(quota.tryAcquire(NOON + 2_000)).isTrue();
+        assertThat(quota.tryAcquire(NOON + 3_000)).isFalse();
+        assertThat(quota.remainingThisMinute(NOON)).isZero();
+
+        assertThat(quota.tryAcquire(NOON + 60_000)).isTrue();
+        assertThat(quota.remainingThisMinute(NOON + 60_000)).isEqualTo(2);
+        assertThat(quota.remainingToday(NOON + 60_000)).isEqualTo(996);
+    }
+
+    @Test
+    void dailyDenialGivesTheMinuteCallBack() {
+        PseQuota quota = quota(2, 10);
+
+        assertThat(quota.tryAcquire(NOON)).isTrue();
+        assertThat(quota.tryAcquire(NOON)).isTrue();
+        assertThat(quota.tryAcquire(NOON)).isFalse();
+
+        assertThat(quota.remainingToday(NOON)).isZero();
+        assertThat(quota.remainingThisMinute(NOON)).isEqualTo(8);
+    }
+
+    @Test
+    void dayResetsAtPacificMidnight() {
+        PseQuota quota = quota(1, 10);
+        long beforeMidnight = ZonedDateTime.of(2026, 3, 10, 23, 59, 0, 0, PACIFIC).toInstant().toEpochMilli();
+        long afterMidnight = ZonedDateTime.of(2026, 3, 11, 0, 0, 30, 0, PACIFIC).toInstant().toEpochMilli();
+
+        assertThat(quota.tryAcquire(NOON)).isTrue();
+        assertThat(quota.tryAcquire(beforeMidnight)).isFalse();
+        assertThat(quota.tryAcquire(afterMidnight)).isTrue();
+    }
+
+    @Test
+    void concurrentCallersNeverExceedTheBudget() throws Exception {
+        PseQuota quota = quota(5_000, 100_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Integer>> callers = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                callers.add(() -> {
+                    int granted = 0;
+                    for (int i = 0; i < 2_000; i++) {
+                        if (quota.tryAcquire(NOON)) granted++;
+                    }
+                    return granted;
+                });
+            }
+            int granted = 0;
+            for (Future<Integer> result : pool.invokeAll(callers)) {
+                granted += result.get();
+            }
+
+            assertThat(granted).isEqualTo(5_000);
+            assertThat(quota.remainingToday(NOON)).isZero();
+            assertThat(quota.remainingThisMinute(NOON)).isEqualTo(95_000);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void attemptsPerQuestionStepDownWithTheDailyBudget() {
+        PseQuota quota = quota(100, 1_000);
+
+        assertThat(quota.maxAttempts(NOON)).isEqualTo(Integer.MAX_VALUE);
+        take(quota, 51);
+        assertThat(quota.maxAttempts(NOON)).isEqualTo(2);
+        take(quota, 30);
+        assertThat(quota.maxAttempts(NOON)).isEqualTo(1);
+        take(quota, 15);
+        assertThat(quota.maxAttempts(NOON)).isZero();
+    }
+
+    @Test
+    void replicasDrawOnOneSharedBudget() {
+        CountingRemote remote = new CountingRemote();
+        PseQuota first = sharedQuota(10, 100, remote, 2);
+        PseQuota second = sharedQuota(10, 100, remote, 2);
+
+        take(first, 6);
+        take(second, 4);
+        assertThat(first.tryAcquire(NOON)).isFalse();
+        assertThat(second.tryAcquire(NOON)).isFalse();
+
+        assertThat(first.remainingToday(NOON)).isZero();
+        assertThat(second.remainingThisMinute(NOON)).isEqualTo(90);
+    }
+
+    @Test
+    void restartKeepsTheDaysSharedCount() {
+        CountingRemote remote = new CountingRemote();
+        take(sharedQuota(10, 100, remote, 1), 7);
+
+        PseQuota restarted = sharedQuota(10, 100, remote, 1);
+
+        assertThat(restarted.remainingToday(NOON)).isEqualTo(3);
+        take(restarted, 3);
+        assertThat(restarted.tryAcquire(NOON)).isFalse();
+    }
+
+    @Test
+    void unreachableSharedTierFallsBackToThisReplicasShare() {
+        CountingRemote remote = new CountingRemote();
+        PseQuota quota = sharedQuota(100, 1_000, remote, 4);
+        take(quota, 10);
+
+        remote.down = true;
+        // this replica's share is 25, of which it already spent 10
+        take(quota, 15);
+        assertThat(quota.tryAcquire(NOON)).isFalse();
+
+        remote.down = false;
+        assertThat(quota.remainingToday(NOON)).isEqualTo(90);
+        assertThat(quota.tryAcquire(NOON)).isTrue();
+    }
+
+    private static void take(PseQuota quota, int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertThat(quota.tryAcquire(NOON)).isTrue();
+        }
+    }
+
+    /**
+     * Just the counters of a shared tier, with expiry ignored.
+     */
+    private static final class CountingRemote implements RemoteCache {
+
+        private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+        volatile boolean down;
+
+        @Override
+        public long increment(String key, long delta, long expiresAtMillis) {
+            check();
+            return counters.computeIfAbsent(key, k -> new AtomicLong()).addAndGet(delta);
+        }
+
+        @Override
+        public byte[] get(String key) {
+            check();
+            AtomicLong counter = counters.get(key);
+            return counter == null ? null : Long.toString(counter.get()).getBytes(StandardCharsets.US_ASCII);
+        }
+
+        private void check() {
+            if (down) throw new IllegalStateException("connection refused");
+        }
+
+        @Override
+        public List<byte[]> getAll(List<String> keys) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void put(String key, byte[] value, Duration ttl) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void delete(String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void publishInvalidation(String cache, String key) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void onInvalidation(String cache, Consumer<String> listener) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class QueryLogTest {
+
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recordsRoundTrip() throws Exception {
+        QueryLogRecord record = new QueryLogRecord(1_700_000_000_000L, ChatContext.PlanSource.PLAN_CACHE,
+                ChatContext.Outcome.GLOSSARY, 1234, new int[]{1, 2, 3, 4}, "რა არის ინფლაცია", "ka",
+                "general_knowledge", null, "ka", List.of("ინფლაცია", "inflation"), null, "ინფლაცია არის …");
+        write(100, List.of(record));
+
+        List<QueryLogRecord> read = readAll();
+
+        assertThat(read).hasSize(1);
+        QueryLogRecord back = read.get(0);
+        assertThat(back.timestampMillis()).isEqualTo(record.timestampMillis());
+        assertThat(back.planSource()).isEqualTo(ChatContext.PlanSource.PLAN_CACHE);
+        assertThat(back.outcome()).isEqualTo(ChatContext.Outcome.GLOSSARY);
+        assertThat(back.stageMicros()).containsExactly(1, 2, 3, 4);
+        assertThat(back.matchKey()).isEqualTo(record.matchKey());
+        assertThat(back.topic()).isNull();
+        assertThat(back.searchQueries()).containsExactly("ინფლაცია", "inflation");
+        assertThat(back.url()).isNull();
+        assertThat(back.response()).isEqualTo(record.response());
+    }
+
+    @Test
+    void rollsOverSegmentsAndKeepsOrder() throws Exception {
+        write(100, records(0, 300));
+
+        assertThat(QueryLogReader.segments(directory)).hasSizeGreaterThan(5);
+        assertThat(keys(readAll())).isEqualTo(keys(records(0, 300)));
+    }
+
+    @Test
+    void deletesSegmentsBeyondMax() throws Exception {
+        write(3, records(0, 300));
+
+        List<Path> segments = QueryLogReader.segments(directory);
+        assertThat(segments).hasSize(3);
+        List<String> keys = keys(readAll());
+        assertThat(keys).isNotEmpty().hasSizeLessThan(300);
+        // the newest records are kept, still in order
+        assertThat(keys).isEqualTo(keys(records(300 - keys.size(), 300)));
+    }
+
+    @Test
+    void restartContinuesWithANewSegment() throws Exception {
+        write(100, records(0, 10));
+        long first = QueryLogReader.sequence(QueryLogReader.segments(directory).get(0));
+        write(100, records(10, 20));
+
+        List<Path> segments = QueryLogReader.segments(directory);
+        assertThat(QueryLogReader.sequence(segments.get(segments.size() - 1))).isGreaterThan(first);
+        assertThat(keys(readAll())).isEqualTo(keys(records(0, 20)));
+    }
+
+    @Test
+    void damagedFrameEndsItsSegmentButLaterSegmentsAreRead() throws Exception {
+        write(100, records(0, 300));
+        List<Path> segments = QueryLogReader.segments(directory);
+        int inFirst = countFrames(segments.get(0));
+
+        // flip a payload byte of the third frame, as a crash mid-write would leave it
+        long offset = frameOffset(segments.get(0), 2);
+        corrupt(segments.get(0), offset + QueryLog.FRAME_HEADER_BYTES + 5);
+
+        List<String> keys = keys(readAll());
+        List<String> expected = new ArrayList<>(keys(records(0, 2)));
+        expected.addAll(keys(records(inFirst, 300)));
+        assertThat(keys).isEqualTo(expected);
+    }
+
+    @Test
+    void truncatedFrameEndsItsSegment() throws Exception {
+        write(100, records(0, 300));
+        Path first = QueryLogReader.segments(directory).get(0);
+        int inFirst = countFrames(first);
+
+        long offset = frameOffset(first, 1);
+        try (FileChannel channel = FileChannel.open(first, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4).putInt(0, SEGMENT_BYTES * 2), offset);
+        }
+
+        List<String> keys = keys(readAll());
+        assertThat(keys.get(0)).isEqualTo("question 0");
+        assertThat(keys.get(1)).isEqualTo("question " + inFirst);
+    }
+
+    private void write(int maxSegments, List<QueryLogRecord> records) throws Exception {
+        QueryLog queryLog = new QueryLog(directory, SEGMENT_BYTES, maxSegments, 1_000,
+                Duration.ofMillis(50), new SimpleMeterRegistry());
+        records.forEach(queryLog::append);
+        queryLog.close();
+    }
+
+    private List<QueryLogRecord> readAll() throws IOException {
+        List<QueryLogRecord> records = new ArrayList<>();
+        QueryLogReader.forEach(directory, records::add);
+        return records;
+    }
+
+    private static List<QueryLogRecord> records(int from, int to) {
+        List<QueryLogRecord> records = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            records.add(new QueryLogRecord(i, ChatContext.PlanSource.CLASSIFIED, ChatContext.Outcome.ANSWERED,
+                    1000, new int[4], "question " + i, "en", "navigation", "population", "en",
+                    List.of("population " + i), "https://www.geostat.ge/en/" + i, "answer " + i));
+        }
+        return records;
+    }
+
+    private static List<String> keys(List<QueryLogRecord> records) {
+        return records.stream().map(QueryLogRecord::matchKey).toList();
+    }
+
+    private static int countFrames(Path segment) throws IOException {
+        int frames = 0;
+        while (frameOffset(segment, frames) >= 0) frames++;
+        return frames;
+    }
+
+    // offset of the n-th frame, or -1 past the segment's last one
+    private static long frameOffset(Path segment, int n) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(QueryLog.FRAME_HEADER_BYTES);
+            long offset = 0;
+            for (int i = 0; ; i++) {
+                header.clear();
+                channel.read(header, offset);
+                int length = header.getInt(0);
+                if (length <= 0) return -1;
+                if (i == n) return offset;
+                offset += QueryLog.FRAME_HEADER_BYTES + length;
+            }
+        }
+    }
+
+    private static void corrupt(Path segment, long position) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer b = ByteBuffer.allocate(1);
+            channel.read(b, position);
+            b.put(0, (byte) (b.get(0) ^ 0x5a));
+            channel.write(b.rewind(), position);
+        }
+    }
+}
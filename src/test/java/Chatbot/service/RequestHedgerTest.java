@@ -0,0 +1,139 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RequestHedgerTest {
+
+    private static final Duration MIN_DELAY = Duration.ofMillis(50);
+    // the hedger's latency window recomputes its p95 every 64 samples
+    private static final int WARM_UP_CALLS = 64;
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private RequestHedger hedger(double maxExtraLoadPercent) {
+        RequestHedger hedger = new RequestHedger("test", true, MIN_DELAY, maxExtraLoadPercent, registry);
+        for (int i = 0; i < WARM_UP_CALLS; i++) {
+            hedger.execute(() -> Mono.just("fast")).block();
+        }
+        return hedger;
+    }
+
+    @Test
+    void hedgesASlowCallAfterTheDelayAndCancelsTheLoser() {
+        RequestHedger hedger = hedger(100);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean primaryCancelled = new AtomicBoolean();
+
+        long start = System.nanoTime();
+        String answer = hedger.execute(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofSeconds(2)).thenReturn("primary").doOnCancel(() -> primaryCancelled.set(true))
+                : Mono.just("hedge")).block();
+        Duration took = Duration.ofNanos(System.nanoTime() - start);
+
+        assertThat(answer).isEqualTo("hedge");
+        assertThat(took).isGreaterThanOrEqualTo(MIN_DELAY).isLessThan(Duration.ofSeconds(1));
+        assertThat(attempts).hasValue(2);
+        assertThat(primaryCancelled).isTrue();
+        assertThat(count("geostat.hedge.sent")).isEqualTo(1);
+        assertThat(count("geostat.hedge.won")).isEqualTo(1);
+    }
+
+    @Test
+    void aPrimaryThatAnswersFirstCancelsTheHedge() {
+        RequestHedger hedger = hedger(100);
+        AtomicInteger attempts = new AtomicInteger();
+        AtomicBoolean hedgeCancelled = new AtomicBoolean();
+
+        String answer = hedger.execute(() -> attempts.incrementAndGet() == 1
+                ? Mono.delay(Duration.ofMillis(150)).thenReturn("primary")
+                : Mono.delay(Duration.ofSeconds(2)).thenReturn("hedge").doOnCancel(() -> hedgeCancelled.set(true))).block();
+
+        assertThat(answer).isEqualTo("primary");
+        assertThat(attempts).hasValue(2);
+        assertThat(hedgeCancelled).isTrue();
+        assertThat(count("geostat.hedge.won")).isZero();
+    }
+
+    @Test
+    void callsFasterThanTheDelayAreNotHedged() {
+        RequestHedger hedger = hedger(100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String answer = hedger.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(10)).thenReturn("primary");
+        }).block();
+
+        assertThat(answer).isEqualTo("primary");
+        assertThat(attempts).hasValue(1);
+        assertThat(count("geostat.hedge.sent")).isZero();
+    }
+
+    @Test
+    void nothingIsHedgedBeforeThereIsALatencyPercentile() {
+        RequestHedger hedger = new RequestHedger("test", true, MIN_DELAY, 100, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        hedger.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(150)).thenReturn("primary");
+        }).block();
+
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void hedgesStayWithinTheExtraLoadBudget() {
+        // 5% of a token per call: the 64 warm-up calls and the slow ones below earn three hedges
+        RequestHedger hedger = hedger(5);
+
+        for (int i = 0; i < 5; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            hedger.execute(() -> attempts.incrementAndGet() == 1
+                    ? Mono.delay(Duration.ofMillis(120)).thenReturn("primary")
+                    : Mono.just("hedge")).block();
+        }
+
+        assertThat(count("geostat.hedge.calls")).isEqualTo(WARM_UP_CALLS + 5);
+        assertThat(count("geostat.hedge.sent")).isEqualTo(3);
+    }
+
+    @Test
+    void aFastFailureIsReportedWithoutWaitingForTheHedge() {
+        RequestHedger hedger = hedger(100);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> hedger.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.<String>error(new IllegalStateException("upstream failed"));
+        }).block()).isInstanceOf(IllegalStateException.class).hasMessage("upstream failed");
+        assertThat(attempts).hasValue(1);
+    }
+
+    @Test
+    void disabledHedgerMakesOneAttempt() {
+        RequestHedger hedger = new RequestHedger("test", false, MIN_DELAY, 100, registry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        hedger.execute(() -> {
+            attempts.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).thenReturn("primary");
+        }).block();
+
+        assertThat(attempts).hasValue(1);
+        assertThat(count("geostat.hedge.calls")).isZero();
+    }
+
+    private double count(String counter) {
+        return registry.get(counter).counter().count();
+    }
+}
@@ -0,0 +1,125 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SemanticPlanCacheTest {
+
+    private SemanticPlanCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SemanticPlanCache(true, 100, 256, 0.85, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void paraphrasesShareAPlan() {
+        store("where is inflation data", "inflation");
+        store("what is inflation", "inflation-definition");
+
+        assertThat(lookup("inflation statistics")).isEqualTo("inflation");
+        assertThat(lookup("Where can I find inflation data?")).isEqualTo("inflation");
+        assertThat(lookup("what is the inflation rate")).isEqualTo("inflation-definition");
+        assertThat(lookup("სად არის ინფლაციის მონაცემები")).isNull();
+    }
+
+    @Test
+    void georgianParaphrasesShareAPlan() {
+        store("სად ვნახო ინფლაციის მონაცემები", "inflation");
+
+        assertThat(lookup("ინფლაციის სტატისტიკა")).isEqualTo("inflation");
+    }
+
+    @Test
+    void definitionAndSearchForTheSameWordsDiffer() {
+        store("where is inflation data", "inflation");
+
+        assertThat(lookup("what is inflation")).isNull();
+    }
+
+    @Test
+    void differentYearsOrTopicsMiss() {
+        store("gdp growth 2022", "gdp-2022");
+        store("population in 2020", "population-2020");
+        store("exports", "exports");
+
+        assertThat(lookup("gdp growth 2023")).isNull();
+        assertThat(lookup("population 2021")).isNull();
+        assertThat(lookup("imports")).isNull();
+        assertThat(lookup("unemployment")).isNull();
+    }
+
+    @Test
+    void keysWithoutContentWordsAreNeitherStoredNorLookedUp() {
+        assertThat(SemanticPlanCache.key(NormalizedMessage.of("?!"))).isNull();
+        assertThat(SemanticPlanCache.key(NormalizedMessage.of("where is the data"))).isNull();
+
+        store("?!", "nothing");
+        store("where is the data", "nothing");
+
+        assertThat(cache.size()).isZero();
+        assertThat(lookup("...")).isNull();
+    }
+
+    @Test
+    void staysBoundedAcrossRebuilds() {
+        for (int i = 0; i < 1_000; i++) {
+            store("series " + i + " table " + (i * 7919), "topic-" + i);
+        }
+
+        assertThat(cache.size()).isEqualTo(100);
+        assertThat(lookup("series 999 table " + (999 * 7919))).isEqualTo("topic-999");
+    }
+
+    @Test
+    void lookupsRunWhileOtherThreadsStoreAndRebuild() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Callable<Void>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int worker = t;
+                workers.add(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        if (worker % 2 == 0) {
+                            store("series " + worker + " row " + i, "topic-" + worker);
+                        } else {
+                            lookup("series " + worker + " row " + i);
+                        }
+                    }
+                    return null;
+                });
+            }
+            for (Future<Void> result : pool.invokeAll(workers)) {
+                result.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(cache.size()).isBetween(1, 100);
+    }
+
+    private void store(String message, String topic) {
+        QueryPlan plan = new QueryPlan();
+        plan.language = "en";
+        plan.intent = "navigation";
+        plan.topic = topic;
+        plan.searchQueries = List.of(topic);
+        cache.store(NormalizedMessage.of(message), plan);
+    }
+
+    private String lookup(String message) {
+        QueryPlan plan = cache.lookup(NormalizedMessage.of(message));
+        return plan == null ? null : plan.topic;
+    }
+}
@@ -0,0 +1,59 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionStoreTest {
+
+    @Test
+    void memoryBoundHoldsAcrossSegments() {
+        long maxBytes = 20_000;
+        try (SessionStore store = new SessionStore(2, maxBytes, Duration.ofHours(1), new SimpleMeterRegistry())) {
+            QueryPlan plan = new QueryPlan();
+            plan.intent = "navigation";
+            plan.language = "en";
+            plan.topic = "population";
+            plan.searchQueries = List.of("population of tbilisi by district", "tbilisi population 2023");
+
+            for (int i = 0; i < 5_000; i++) {
+                store.record("session-" + i, plan, "https://www.geostat.ge/en/modules/categories/41/population");
+                assertThat(store.estimatedBytes()).isLessThanOrEqualTo(maxBytes);
+            }
+            assertThat(store.last("session-4999")).isNotNull();
+            assertThat(store.last("session-0")).isNull();
+        }
+    }
+
+    @Test
+    void overheadGrowsWithTurns() {
+        QueryPlan plan = new QueryPlan();
+        plan.intent = "small_talk";
+        try (SessionStore two = new SessionStore(2, 1_000_000, Duration.ofHours(1), new SimpleMeterRegistry());
+             SessionStore twenty = new SessionStore(20, 1_000_000, Duration.ofHours(1), new SimpleMeterRegistry())) {
+            two.record("s", plan, null);
+            twenty.record("s", plan, null);
+
+            // 41 bytes for the id "s", 216 for a two-turn session
+            assertThat(two.estimatedBytes()).isEqualTo(257);
+            // 18 more turns: three byte rings grow by 16 bytes each, two reference rings by 72
+            assertThat(twenty.estimatedBytes()).isEqualTo(257 + 3 * 16 + 2 * 72);
+        }
+    }
+
+    @Test
+    void unknownTopicIsKeptAsOther() {
+        try (SessionStore store = new SessionStore(2, 1_000_000, Duration.ofHours(1), new SimpleMeterRegistry())) {
+            QueryPlan plan = new QueryPlan();
+            plan.intent = "navigation";
+            plan.topic = "sports";
+            store.record("s", plan, null);
+
+            assertThat(store.last("s").plan().topic).isEqualTo("other");
+        }
+    }
+}
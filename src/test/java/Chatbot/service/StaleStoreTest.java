@@ -0,0 +1,75 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StaleStoreTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void evictsTheLeastRecentlyUsedEntry() {
+        StaleStore<String> store = new StaleStore<>("test", 2, registry);
+        store.put("gdp", "one");
+        store.put("cpi", "two");
+        store.peek("gdp");
+
+        store.put("population", "three");
+
+        assertThat(store.size()).isEqualTo(2);
+        assertThat(store.peek("cpi")).isNull();
+        assertThat(store.peek("gdp")).isEqualTo("one");
+    }
+
+    @Test
+    void servedKeysAreRefreshedOnceWhenTheCircuitHalfOpens() throws InterruptedException {
+        StaleStore<String> store = new StaleStore<>("test", 10, registry);
+        CircuitBreaker breaker = new CircuitBreaker("upstream", 2, 2, 50, Duration.ofMillis(50), 1, registry);
+        breaker.onHalfOpen(store::refreshPending);
+        store.put("gdp", "old");
+        AtomicInteger gdpRefreshes = new AtomicInteger();
+        CountDownLatch refreshed = new CountDownLatch(1);
+        Runnable refreshGdp = () -> {
+            gdpRefreshes.incrementAndGet();
+            refreshed.countDown();
+        };
+
+        assertThat(store.serve("gdp", refreshGdp)).isEqualTo("old");
+        assertThat(store.serve("gdp", refreshGdp)).isEqualTo("old");
+        // a miss has nothing to serve, so nothing to refresh either
+        assertThat(store.serve("cpi", () -> {
+            throw new AssertionError("refreshed a key that was never served");
+        })).isNull();
+        assertThat(registry.get("geostat.stale.served").counter().count()).isEqualTo(2);
+        assertThat(gdpRefreshes).hasValue(0);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                breaker.execute(() -> {
+                    throw new IllegalStateException("upstream failed");
+                });
+            } catch (IllegalStateException expected) {
+            }
+        }
+
+        assertThat(refreshed.await(2, TimeUnit.SECONDS)).isTrue();
+        store.refreshPending();
+        Thread.sleep(100);
+        assertThat(gdpRefreshes).hasValue(1);
+    }
+
+    @Test
+    void answerKeySharesKnowledgeAnswersAcrossIntents() {
+        assertThat(StaleStore.answerKey("general_knowledge", "ka", "gdp"))
+                .isEqualTo(StaleStore.answerKey("knowledge", "ka", "gdp"))
+                .isEqualTo("knowledge:ka:gdp");
+        assertThat(StaleStore.answerKey("navigation", "en", "gdp")).isEqualTo("navigation:en:gdp");
+    }
+}
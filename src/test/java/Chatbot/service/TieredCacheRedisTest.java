@@ -0,0 +1,140 @@
+package Chatbot.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Two replicas' caches against one Redis-compatible server, taken from the
+ * {@code GEOSTAT_TEST_REDIS_URL} environment variable (default {@code redis://localhost:6379}).
+ * Skipped when nothing listens there:
+ * <pre>
+ * docker run --rm -p 6379:6379 redis:7
+ * </pre>
+ */
+class TieredCacheRedisTest {
+
+    private static final Duration PROPAGATION = Duration.ofSeconds(2);
+    private static final CacheCodec<String> V1 = CacheCodec.of(1, CacheCodec::writeString, CacheCodec::readString);
+    private static final CacheCodec<String> V2 = CacheCodec.of(2, CacheCodec::writeString, CacheCodec::readString);
+
+    private final String name = "test-" + UUID.randomUUID();
+    private SharedCaches replicaA;
+    private SharedCaches replicaB;
+
+    @BeforeEach
+    void connect() throws InterruptedException {
+        String env = System.getenv("GEOSTAT_TEST_REDIS_URL");
+        URI url = URI.create(env == null || env.isBlank() ? "redis://localhost:6379" : env);
+        assumeTrue(reachable(url), "no Redis-compatible server at " + url);
+
+        Map<String, SharedCaches.Spec> specs = Map.of(name,
+                new SharedCaches.Spec(Duration.ofMinutes(1), Duration.ofMinutes(1), 100));
+        replicaA = new SharedCaches(new RespClient(url, 4, Duration.ofMillis(500)), null, specs, new SimpleMeterRegistry());
+        replicaB = new SharedCaches(new RespClient(url, 4, Duration.ofMillis(500)), null, specs, new SimpleMeterRegistry());
+        // let both invalidation subscriptions come up before anything is published
+        Thread.sleep(500);
+    }
+
+    @AfterEach
+    void close() {
+        if (replicaA != null) replicaA.close();
+        if (replicaB != null) replicaB.close();
+    }
+
+    @Test
+    void replicaReadsWhatAnotherWrote() {
+        TieredCache<String> a = replicaA.create(name, V1);
+        TieredCache<String> b = replicaB.create(name, V1);
+
+        assertThat(b.get("gdp")).isNull();
+        a.put("gdp", "one");
+
+        assertThat(b.get("gdp")).isEqualTo("one");
+    }
+
+    @Test
+    void getAllFetchesPresentKeysInOneCall() {
+        TieredCache<String> a = replicaA.create(name, V1);
+        TieredCache<String> b = replicaB.create(name, V1);
+        a.put("gdp", "one");
+        a.put("population", "two");
+
+        Map<String, String> found = b.getAll(List.of("gdp", "missing", "population", "gdp"));
+
+        assertThat(found).containsOnly(Map.entry("gdp", "one"), Map.entry("population", "two"));
+    }
+
+    @Test
+    void valueInAnotherCodecVersionIsAMiss() {
+        TieredCache<String> older = replicaA.create(name, V1);
+        TieredCache<String> newer = replicaB.create(name, V2);
+        older.put("gdp", "one");
+
+        assertThat(newer.get("gdp")).isNull();
+        assertThat(newer.getAll(List.of("gdp"))).isEmpty();
+    }
+
+    @Test
+    void overwriteAndInvalidateEvictTheOtherReplicasCopy() throws InterruptedException {
+        TieredCache<String> a = replicaA.create(name, V1);
+        TieredCache<String> b = replicaB.create(name, V1);
+        a.put("gdp", "one");
+        assertThat(b.get("gdp")).isEqualTo("one");
+
+        a.put("gdp", "two");
+        assertThat(await(() -> b.get("gdp"), "two")).isTrue();
+
+        a.invalidate("gdp");
+        assertThat(await(() -> b.get("gdp"), null)).isTrue();
+    }
+
+    @Test
+    void replicasShareACounter() {
+        SharedCounter a = replicaA.counter(name);
+        SharedCounter b = replicaB.counter(name);
+        long expiresAt = System.currentTimeMillis() + 60_000;
+
+        assertThat(a.get("day")).isZero();
+        assertThat(a.add("day", 3, expiresAt)).isEqualTo(3);
+        assertThat(b.add("day", 1, expiresAt)).isEqualTo(4);
+        assertThat(b.add("day", -1, expiresAt)).isEqualTo(3);
+        assertThat(a.get("day")).isEqualTo(3);
+    }
+
+    private static boolean await(Supplier<String> read, String expected) throws InterruptedException {
+        long deadline = System.nanoTime() + PROPAGATION.toNanos();
+        do {
+            String value = read.get();
+            if (expected == null ? value == null : expected.equals(value)) return true;
+            Thread.sleep(20);
+        } while (System.nanoTime() < deadline);
+        return false;
+    }
+
+    private static boolean reachable(URI url) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress(url.getHost(), url.getPort() > 0 ? url.getPort() : 6379), 200);
+            socket.getOutputStream().write("PING\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.setSoTimeout(500);
+            return socket.getInputStream().read() == '+';
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package Chatbot.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TtsFormatTest {
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', nullValues = "null", value = {
+            // explicit format wins over Accept and Save-Data
+            "opus     | audio/mpeg                          | on   | OPUS",
+            " MP3-Low | null                                | null | MP3_LOW",
+            // Accept, by q value
+            "null     | audio/ogg                           | null | OPUS",
+            "null     | audio/mpeg;q=0.5, audio/ogg;q=0.9   | null | OPUS",
+            "null     | audio/L16;rate=16000                | null | PCM",
+            // equal q keeps the client's order
+            "null     | audio/ogg, audio/mpeg               | null | OPUS",
+            "null     | audio/mpeg, audio/ogg               | null | MP3",
+            // q=0 refuses a type; non-audio and unknown audio types are skipped
+            "null     | audio/ogg;q=0, audio/mpeg;q=0.1     | null | MP3",
+            "null     | text/html, audio/webm, audio/opus   | null | OPUS",
+            "null     | */*                                 | null | MP3",
+            // Save-Data lowers MP3, not a requested other format
+            "null     | audio/mpeg                          | on   | MP3_LOW",
+            "null     | audio/ogg                           | on   | OPUS",
+            "null     | null                                | ON   | MP3_LOW",
+            "null     | null                                | off  | MP3",
+            // a malformed Accept is ignored rather than failing the request
+            "null     | audio/;;;=                          | null | MP3",
+    })
+    void negotiates(String requested, String accept, String saveData, TtsFormat expected) {
+        assertThat(TtsFormat.negotiate(requested, accept, saveData)).isEqualTo(expected);
+    }
+
+    @Test
+    void unknownFormatNameIsRejected() {
+        assertThatIllegalArgumentException().isThrownBy(() -> TtsFormat.negotiate("flac", null, null));
+    }
+
+    @Test
+    void mediaTypesAndFileNames() {
+        assertThat(TtsFormat.PCM.mediaType().getParameter("rate")).isEqualTo("16000");
+        assertThat(TtsFormat.OPUS.fileName()).isEqualTo("speech.ogg");
+        assertThat(TtsFormat.MP3_LOW.outputFormat()).isEqualTo("mp3_22050_32");
+    }
+}
@@ -0,0 +1,202 @@
+package Chatbot.service;
+
+import Config.HttpClientProperties;
+import Config.UpstreamWebClients;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TtsJobQueueTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final UpstreamWebClients upstreams = new UpstreamWebClients(WebClient.builder(), new HttpClientProperties(Map.of(
+            UpstreamWebClients.ELEVENLABS, new HttpClientProperties.Upstream("http://localhost", 1, 1,
+                    Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1),
+                    Duration.ofSeconds(1), Duration.ofSeconds(1), Duration.ofSeconds(1), false, DataSize.ofKilobytes(1)))));
+    private final FakeSpeech speech = new FakeSpeech();
+    private TtsJobQueue queue;
+
+    @AfterEach
+    void close() {
+        speech.release.countDown();
+        if (queue != null) queue.close();
+        upstreams.destroy();
+    }
+
+    @Test
+    void sameTextWhileQueuedRunningOrDoneIsOneJob() throws Exception {
+        queue = new TtsJobQueue(speech, 1, 10, Duration.ofMinutes(10), 1_000, registry);
+        speech.holdUntilReleased();
+
+        TtsJobQueue.Job running = queue.submit("გამარჯობა", "ka", TtsFormat.MP3);
+        TtsJobQueue.Job queued = queue.submit("second", "ka", TtsFormat.MP3);
+        assertThat(queue.submit("გამარჯობა", "ka", TtsFormat.MP3)).isSameAs(running);
+        assertThat(queue.submit("second", "ka", TtsFormat.MP3)).isSameAs(queued);
+
+        speech.release.countDown();
+        await(running);
+        await(queued);
+        assertThat(queue.submit("გამარჯობა", "ka", TtsFormat.MP3)).isSameAs(running);
+
+        assertThat(speech.calls("გამარჯობა")).isEqualTo(1);
+        assertThat(running.status()).isEqualTo(TtsJobQueue.Status.DONE);
+        assertThat(running.audio()).isEqualTo(FakeSpeech.audio("გამარჯობა"));
+        assertThat(jobs("deduplicated")).isEqualTo(3);
+    }
+
+    @Test
+    void anotherFormatOrVoiceIsAnotherJob() throws Exception {
+        queue = new TtsJobQueue(speech, 2, 10, Duration.ofMinutes(10), 1_000, registry);
+
+        TtsJobQueue.Job mp3 = await(queue.submit("hello", "en", TtsFormat.MP3));
+        TtsJobQueue.Job opus = await(queue.submit("hello", "en", TtsFormat.OPUS));
+        TtsJobQueue.Job georgian = await(queue.submit("hello", "ka", TtsFormat.MP3));
+
+        assertThat(opus.id()).isNotEqualTo(mp3.id());
+        assertThat(georgian.id()).isNotEqualTo(mp3.id());
+        assertThat(speech.calls("hello")).isEqualTo(3);
+    }
+
+    @Test
+    void aFailedJobIsNotReused() throws Exception {
+        queue = new TtsJobQueue(speech, 1, 10, Duration.ofMinutes(10), 1_000, registry);
+        speech.failNext.set(1);
+
+        TtsJobQueue.Job failed = await(queue.submit("hello", "en", TtsFormat.MP3));
+        assertThat(failed.status()).isEqualTo(TtsJobQueue.Status.FAILED);
+        assertThat(failed.error()).isEqualTo("ElevenLabs unavailable");
+
+        TtsJobQueue.Job retried = await(queue.submit("hello", "en", TtsFormat.MP3));
+
+        assertThat(retried.id()).isNotEqualTo(failed.id());
+        assertThat(retried.status()).isEqualTo(TtsJobQueue.Status.DONE);
+        assertThat(speech.calls("hello")).isEqualTo(2);
+        assertThat(jobs("failed")).isEqualTo(1);
+        assertThat(jobs("done")).isEqualTo(1);
+    }
+
+    @Test
+    void oldestResultsAreDroppedOverTheByteBudget() throws Exception {
+        queue = new TtsJobQueue(speech, 1, 10, Duration.ofMinutes(10), 10, registry);
+
+        TtsJobQueue.Job first = await(queue.submit("first", "en", TtsFormat.MP3));
+        TtsJobQueue.Job second = await(queue.submit("second", "en", TtsFormat.MP3));
+
+        assertThat(queue.get(first.id())).isNull();
+        assertThat(queue.get(second.id())).isSameAs(second);
+        assertThat(registry.get("geostat.tts.jobs.result_bytes").gauge().value()).isEqualTo(second.audio().length);
+
+        TtsJobQueue.Job again = await(queue.submit("first", "en", TtsFormat.MP3));
+        assertThat(again.id()).isNotEqualTo(first.id());
+        assertThat(speech.calls("first")).isEqualTo(2);
+    }
+
+    @Test
+    void resultsExpireAfterTheirTtl() throws Exception {
+        queue = new TtsJobQueue(speech, 1, 10, Duration.ofMillis(200), 1_000, registry);
+
+        TtsJobQueue.Job job = await(queue.submit("hello", "en", TtsFormat.MP3));
+        assertThat(queue.get(job.id())).isSameAs(job);
+
+        // the sweeper runs every second at the shortest
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (queue.get(job.id()) != null && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+        assertThat(queue.get(job.id())).isNull();
+        assertThat(registry.get("geostat.tts.jobs.result_bytes").gauge().value()).isZero();
+        assertThat(await(queue.submit("hello", "en", TtsFormat.MP3)).id()).isNotEqualTo(job.id());
+    }
+
+    @Test
+    void aFullQueueRejectsNewJobs() throws Exception {
+        queue = new TtsJobQueue(speech, 1, 1, Duration.ofMinutes(10), 1_000, registry);
+        speech.holdUntilReleased();
+        TtsJobQueue.Job running = queue.submit("first", "en", TtsFormat.MP3);
+        assertThat(speech.started.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)).isTrue();
+        queue.submit("second", "en", TtsFormat.MP3);
+
+        assertThatThrownBy(() -> queue.submit("third", "en", TtsFormat.MP3))
+                .isInstanceOf(TtsJobQueue.QueueFullException.class);
+        assertThat(jobs("rejected")).isEqualTo(1);
+
+        speech.release.countDown();
+        await(running);
+        assertThat(await(queue.submit("third", "en", TtsFormat.MP3)).status()).isEqualTo(TtsJobQueue.Status.DONE);
+    }
+
+    @Test
+    void tooLongTextIsRejectedBeforeQueueing() {
+        queue = new TtsJobQueue(speech, 1, 1, Duration.ofMinutes(10), 1_000, registry);
+
+        assertThatThrownBy(() -> queue.submit("x".repeat(TextToSpeechService.MAX_TEXT_CHARS + 1), "en", TtsFormat.MP3))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThat(jobs("submitted")).isZero();
+    }
+
+    private static TtsJobQueue.Job await(TtsJobQueue.Job job) throws Exception {
+        return job.completion().get(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private double jobs(String result) {
+        return registry.get("geostat.tts.jobs").tag("result", result).counter().count();
+    }
+
+    /**
+     * Synthesizes a text's own bytes, optionally failing or holding each call until released.
+     */
+    private class FakeSpeech extends TextToSpeechService {
+
+        final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+        final AtomicInteger failNext = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch release = new CountDownLatch(0);
+
+        FakeSpeech() {
+            super(upstreams, new SimpleMeterRegistry(), SharedCaches.local(Map.of(), new SimpleMeterRegistry()));
+        }
+
+        void holdUntilReleased() {
+            release = new CountDownLatch(1);
+        }
+
+        int calls(String text) {
+            AtomicInteger count = calls.get(text);
+            return count == null ? 0 : count.get();
+        }
+
+        static byte[] audio(String text) {
+            return text.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public byte[] synthesizeSpeech(String text, String language, TtsFormat format) {
+            calls.computeIfAbsent(text, t -> new AtomicInteger()).incrementAndGet();
+            started.countDown();
+            try {
+                release.await(TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (failNext.getAndUpdate(n -> Math.max(0, n - 1)) > 0) {
+                throw new IllegalStateException("ElevenLabs unavailable");
+            }
+            return audio(text);
+        }
+    }
+}